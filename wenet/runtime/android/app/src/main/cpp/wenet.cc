@@ -13,9 +13,13 @@
 // limitations under the License.
 #include <jni.h>
 #include <atomic>
+#include <condition_variable>
 #include <cstdio>
+#include <deque>
+#include <fstream>
 #include <mutex>
 #include <thread>
+#include <unordered_map>
 #include <vector>
 
 #include "decoder/asr_decoder.h"
@@ -34,32 +38,100 @@
 
 namespace wenet {
 
+// Shared by all sessions: loaded once by init(). Each AsrDecoder takes its
+// own resource->model->Copy(), which shares the weights.
+std::mutex resource_mutex;
 std::shared_ptr<DecodeOptions> decode_config;
 std::shared_ptr<FeaturePipelineConfig> feature_config;
-std::shared_ptr<FeaturePipeline> feature_pipeline;
-std::shared_ptr<AsrDecoder> decoder;
 std::shared_ptr<DecodeResource> resource;
-DecodeState state = kEndBatch;
-std::atomic<bool> decode_thread_done{false};  // set after ALL kEndFeats processing
-std::atomic<bool> has_new_endpoint{false};    // set at each kEndpoint, cleared by Java
-std::string total_result;  // NOLINT
-std::string timed_result_json;  // JSON array of {w, s, e}
-size_t timed_result_sent_pos = 0;  // position already sent to Java
-std::string total_result_sent;  // total_result already sent to Java
-int total_samples = 0;
-int endpoint_start_sample = 0;
-int64_t skipped_samples_offset = 0;  // cumulative skipped samples (ASR thread writes)
-int64_t pushed_silence_total = 0;    // cumulative pushed silence samples (virtual time)
-int64_t total_fed_samples = 0;        // total samples fed to feature pipeline
+// ONNX exports ship the attention decoder as an optional decoder.onnx; without
+// it AttentionRescoring() scores every hypothesis 0. TorchScript always has it.
+bool rescoring_available = false;
+const int kSampleRate = 8000;
+
+JavaVM* java_vm = nullptr;
+jfieldID handle_field = nullptr;  // Recognize.nativeHandle
+
+// Binary transcript delta (decoded by TranscriptDelta.java), native byte order:
+//   int32 newStringCount, { int32 byteLength, UTF-8 bytes } * newStringCount,
+//   int32 recordCount,    { int32 stringIndex, int32 startMs, int32 endMs, int32 flags } * recordCount
+// New strings extend a per-session pool; records refer to pool indices, so
+// each distinct word piece crosses JNI once. stringIndex is -1 for markers.
+const int32_t kFlagSentenceEnd = 1;
+struct TimedRecord {
+  int32_t string_index;
+  int32_t start_ms;
+  int32_t end_ms;
+  int32_t flags;
+};
+
 // Offset map: records (pipeline_ms, cumulative_skip_samples) at each segment start.
 // Decode thread looks up correct offset per word_piece timestamp.
 struct OffsetEntry {
   int pipeline_ms;
   int64_t skip_samples;
 };
-std::mutex offset_map_mutex;
-std::vector<OffsetEntry> offset_map;
-const int kSampleRate = 8000;
+
+// Result events pushed from the decode thread to a Java ResultListener.
+// One attached dispatcher thread drains a bounded queue, so the decoder never
+// calls into Java itself. Partials are coalesced (only the latest matters);
+// endpoint / final events are never dropped and block the decoder when full.
+enum ResultEventType { kPartialEvent, kEndpointEvent, kFinalEvent };
+struct ResultEvent {
+  ResultEventType type;
+  std::string payload;
+};
+const size_t kMaxPendingEvents = 64;
+
+// One recognition stream: its own feature pipeline, decoder and results.
+// Owned through shared_ptr so detached decode / dispatch threads keep it
+// alive after Recognize.release().
+struct Session {
+  // FeaturePipeline and AsrDecoder keep references to their configs
+  std::shared_ptr<DecodeResource> resource;
+  std::shared_ptr<FeaturePipelineConfig> feature_config;
+  DecodeOptions decode_config;
+  std::shared_ptr<FeaturePipeline> feature_pipeline;
+  std::shared_ptr<AsrDecoder> decoder;
+  DecodeState state = kEndBatch;
+  std::atomic<bool> decode_thread_done{false};  // set after ALL kEndFeats processing
+  std::atomic<bool> has_new_endpoint{false};    // set at each kEndpoint, cleared by Java
+  std::string total_result;  // NOLINT
+  std::string timed_result_json;  // JSON array of {w, s, e}
+  size_t timed_result_sent_pos = 0;  // position already sent to Java
+  std::unordered_map<std::string, int32_t> string_pool;
+  std::vector<std::string> pending_strings;  // pool entries not yet sent
+  std::vector<TimedRecord> pending_records;  // records not yet sent
+  std::string total_result_sent;  // total_result already sent to Java
+  int total_samples = 0;
+  int endpoint_start_sample = 0;
+  int64_t skipped_samples_offset = 0;  // cumulative skipped samples (ASR thread writes)
+  int64_t pushed_silence_total = 0;    // cumulative pushed silence samples (virtual time)
+  int64_t total_fed_samples = 0;        // total samples fed to feature pipeline
+  std::mutex offset_map_mutex;
+  std::vector<OffsetEntry> offset_map;
+
+  std::mutex listener_mutex;
+  jobject result_listener = nullptr;  // global ref
+  jmethodID on_partial_method = nullptr;
+  jmethodID on_endpoint_method = nullptr;
+  jmethodID on_final_method = nullptr;
+  std::mutex event_mutex;
+  std::condition_variable event_cv;
+  std::deque<ResultEvent> event_queue;
+};
+
+Session* GetSession(JNIEnv* env, jobject thiz) {
+  jlong handle = env->GetLongField(thiz, handle_field);
+  if (handle == 0) return nullptr;
+  return reinterpret_cast<std::shared_ptr<Session>*>(handle)->get();
+}
+
+std::shared_ptr<Session> GetSessionRef(JNIEnv* env, jobject thiz) {
+  jlong handle = env->GetLongField(thiz, handle_field);
+  if (handle == 0) return nullptr;
+  return *reinterpret_cast<std::shared_ptr<Session>*>(handle);
+}
 
 // Format samples to "MM:SS.S"
 std::string FormatTime(int samples) {
@@ -71,7 +143,7 @@ std::string FormatTime(int samples) {
   return std::string(buf);
 }
 
-void init(JNIEnv* env, jobject, jstring jModelDir) {
+void init(JNIEnv* env, jclass, jstring jModelDir) {
   const char* pModelDir = env->GetStringUTFChars(jModelDir, nullptr);
 
 #ifdef USE_ONNX
@@ -80,6 +152,7 @@ void init(JNIEnv* env, jobject, jstring jModelDir) {
   OnnxAsrModel::InitEngineThreads(1, false);
   auto model = std::make_shared<OnnxAsrModel>();
   model->Read(modelDir);
+  bool has_decoder = std::ifstream(modelDir + "/decoder.onnx").good();
   LOG(INFO) << "model dir: " << modelDir;
 #endif
 #ifdef USE_NNAPI
@@ -88,6 +161,7 @@ void init(JNIEnv* env, jobject, jstring jModelDir) {
   OnnxAsrModel::InitEngineThreads(1, true);
   auto model = std::make_shared<OnnxAsrModel>();
   model->Read(modelDir);
+  bool has_decoder = std::ifstream(modelDir + "/decoder.onnx").good();
   LOG(INFO) << "model dir (NNAPI): " << modelDir;
 #endif
 #ifdef USE_TORCH
@@ -95,92 +169,193 @@ void init(JNIEnv* env, jobject, jstring jModelDir) {
   std::string dictPath = std::string(pModelDir) + "/units.txt";
   auto model = std::make_shared<TorchAsrModel>();
   model->Read(modelPath);
+  bool has_decoder = true;
   LOG(INFO) << "model path: " << modelPath;
 #endif
+  env->ReleaseStringUTFChars(jModelDir, pModelDir);
 
-  resource = std::make_shared<DecodeResource>();
-  resource->model = model;
-  resource->symbol_table =
+  auto new_resource = std::make_shared<DecodeResource>();
+  new_resource->model = model;
+  new_resource->symbol_table =
       std::shared_ptr<fst::SymbolTable>(fst::SymbolTable::ReadText(dictPath));
-  resource->unit_table = resource->symbol_table;
+  new_resource->unit_table = new_resource->symbol_table;
   LOG(INFO) << "dict path: " << dictPath;
 
   PostProcessOptions post_process_opts;
-  resource->post_processor = std::make_shared<PostProcessor>(post_process_opts);
+  new_resource->post_processor =
+      std::make_shared<PostProcessor>(post_process_opts);
 
-  feature_config = std::make_shared<FeaturePipelineConfig>(80, 8000);
-  feature_pipeline = std::make_shared<FeaturePipeline>(*feature_config);
-
-  decode_config = std::make_shared<DecodeOptions>();
-  decode_config->chunk_size = 16;
+  auto new_decode_config = std::make_shared<DecodeOptions>();
+  new_decode_config->chunk_size = 16;
 #if defined(USE_ONNX) || defined(USE_NNAPI)
-  decode_config->rescoring_weight = 0.0;
-  decode_config->ctc_weight = 1.0;
+  new_decode_config->rescoring_weight = 0.0;
+  new_decode_config->ctc_weight = 1.0;
 #endif
-  decoder =
-      std::make_shared<AsrDecoder>(feature_pipeline, resource, *decode_config);
+
+  // Sessions created earlier keep the resource they were created with
+  std::lock_guard<std::mutex> lock(resource_mutex);
+  resource = new_resource;
+  rescoring_available = has_decoder;
+  feature_config = std::make_shared<FeaturePipelineConfig>(80, 8000);
+  decode_config = new_decode_config;
 }
 
-void reset(JNIEnv* env, jobject) {
+// Returns a handle owning a new session, or 0 if no model is loaded.
+// chunk_size <= 0 keeps the streaming default; rescoring enables attention
+// rescoring at each endpoint (slower per sentence). It is ignored, with a
+// warning, when the model has no attention decoder.
+jlong create_session(JNIEnv*, jclass, jint chunk_size, jboolean rescoring) {
+  std::lock_guard<std::mutex> lock(resource_mutex);
+  if (resource == nullptr) {
+    LOG(ERROR) << "wenet create session: model not loaded";
+    return 0;
+  }
+  auto session = std::make_shared<Session>();
+  session->resource = resource;
+  session->feature_config = feature_config;
+  session->decode_config = *decode_config;
+  if (chunk_size > 0) {
+    session->decode_config.chunk_size = chunk_size;
+  }
+  if (rescoring && !rescoring_available) {
+    LOG(WARNING) << "wenet create session: no attention decoder in the model "
+                 << "(decoder.onnx), rescoring disabled";
+  } else if (rescoring) {
+    session->decode_config.rescoring_weight = 1.0;
+    session->decode_config.ctc_weight = 0.5;
+  }
+  LOG(INFO) << "wenet create session: chunk_size="
+            << session->decode_config.chunk_size
+            << " rescoring_weight=" << session->decode_config.rescoring_weight;
+  session->feature_pipeline =
+      std::make_shared<FeaturePipeline>(*session->feature_config);
+  session->decoder = std::make_shared<AsrDecoder>(
+      session->feature_pipeline, resource, session->decode_config);
+  return reinterpret_cast<jlong>(new std::shared_ptr<Session>(session));
+}
+
+void release_session(JNIEnv* env, jclass, jlong handle) {
+  if (handle == 0) return;
+  auto* holder = reinterpret_cast<std::shared_ptr<Session>*>(handle);
+  Session* s = holder->get();
+  {
+    std::lock_guard<std::mutex> lock(s->listener_mutex);
+    if (s->result_listener != nullptr) {
+      env->DeleteGlobalRef(s->result_listener);
+      s->result_listener = nullptr;
+    }
+  }
+  // Let a running decode thread reach kEndFeats; its threads hold their own ref
+  s->feature_pipeline->set_input_finished();
+  delete holder;
+}
+
+void reset(JNIEnv* env, jobject thiz) {
+  Session* s = GetSession(env, thiz);
+  if (s == nullptr) return;
   LOG(INFO) << "wenet reset";
-  decoder->Reset();
-  state = kEndBatch;
-  decode_thread_done = false;
-  has_new_endpoint = false;
-  total_result = "";
-  timed_result_json = "";
-  timed_result_sent_pos = 0;
-  total_result_sent = "";
-  total_samples = 0;
-  endpoint_start_sample = 0;
-  skipped_samples_offset = 0;
-  pushed_silence_total = 0;
-  total_fed_samples = 0;
+  s->decoder->Reset();
+  s->state = kEndBatch;
+  s->decode_thread_done = false;
+  s->has_new_endpoint = false;
+  s->total_result = "";
+  s->timed_result_json = "";
+  s->timed_result_sent_pos = 0;
+  s->string_pool.clear();
+  s->pending_strings.clear();
+  s->pending_records.clear();
+  s->total_result_sent = "";
+  s->total_samples = 0;
+  s->endpoint_start_sample = 0;
+  s->skipped_samples_offset = 0;
+  s->pushed_silence_total = 0;
+  s->total_fed_samples = 0;
+  {
+    std::lock_guard<std::mutex> lock(s->offset_map_mutex);
+    s->offset_map.clear();
+  }
   {
-    std::lock_guard<std::mutex> lock(offset_map_mutex);
-    offset_map.clear();
+    std::lock_guard<std::mutex> lock(s->event_mutex);
+    s->event_queue.clear();
   }
 }
 
-void accept_waveform(JNIEnv* env, jobject, jshortArray jWaveform) {
+void accept_waveform(JNIEnv* env, jobject thiz, jshortArray jWaveform) {
+  Session* s = GetSession(env, thiz);
+  if (s == nullptr) return;
   jsize size = env->GetArrayLength(jWaveform);
   int16_t* waveform = env->GetShortArrayElements(jWaveform, 0);
-  feature_pipeline->AcceptWaveform(waveform, size);
-  total_samples += size;
-  total_fed_samples += size;
+  s->feature_pipeline->AcceptWaveform(waveform, size);
+  // Read-only access: drop the (possible) copy without writing it back
+  env->ReleaseShortArrayElements(jWaveform, waveform, JNI_ABORT);
+  s->total_samples += size;
+  s->total_fed_samples += size;
   LOG(INFO) << "wenet accept waveform in ms: " << int(size / 8);
 }
 
-void add_skipped_samples(JNIEnv*, jobject, jint count) {
+// Zero-copy variant: reads samples [offset, offset + length) of a direct
+// ShortBuffer in place. No JNI array pinning and no intermediate copy.
+void accept_waveform_direct(JNIEnv* env, jobject thiz, jobject jBuffer,
+                            jint offset, jint length) {
+  Session* s = GetSession(env, thiz);
+  if (s == nullptr) return;
+  auto* base = static_cast<int16_t*>(env->GetDirectBufferAddress(jBuffer));
+  jlong capacity = env->GetDirectBufferCapacity(jBuffer);
+  if (base == nullptr || offset < 0 || length <= 0 ||
+      offset + static_cast<jlong>(length) > capacity) {
+    LOG(WARNING) << "wenet accept_waveform_direct: invalid buffer or range "
+                 << offset << "+" << length << "/" << capacity;
+    return;
+  }
+  s->feature_pipeline->AcceptWaveform(base + offset, length);
+  s->total_samples += length;
+  s->total_fed_samples += length;
+}
+
+void add_skipped_samples(JNIEnv* env, jobject thiz, jint count) {
+  Session* s = GetSession(env, thiz);
+  if (s == nullptr) return;
   // If we just entered skip mode (count > 0 and no silence pushed yet in this gap),
   // push 1 second of virtual silence to help decoder finalize current segment.
   if (count > 0) {
     std::vector<int16_t> silence(8000, 0); // 1 second @ 8kHz
-    feature_pipeline->AcceptWaveform(silence.data(), 8000);
-    total_fed_samples += 8000;
-    pushed_silence_total += 8000;
+    s->feature_pipeline->AcceptWaveform(silence.data(), 8000);
+    s->total_fed_samples += 8000;
+    s->pushed_silence_total += 8000;
   }
-  total_samples += count;
-  skipped_samples_offset += count;
+  s->total_samples += count;
+  s->skipped_samples_offset += count;
 }
 
 // Called from Java before first acceptWaveform of a new speech segment.
 // Records the pipeline position and cumulative skip offset for timestamp correction.
-void snapshot_offset(JNIEnv*, jobject) {
-  std::lock_guard<std::mutex> lock(offset_map_mutex);
-  int pipeline_ms = total_fed_samples * 1000 / kSampleRate;
-  int64_t net_skip = skipped_samples_offset - pushed_silence_total;
-  offset_map.push_back({pipeline_ms, net_skip});
+void snapshot_offset(JNIEnv* env, jobject thiz) {
+  Session* s = GetSession(env, thiz);
+  if (s == nullptr) return;
+  std::lock_guard<std::mutex> lock(s->offset_map_mutex);
+  int pipeline_ms = s->total_fed_samples * 1000 / kSampleRate;
+  int64_t net_skip = s->skipped_samples_offset - s->pushed_silence_total;
+  s->offset_map.push_back({pipeline_ms, net_skip});
   LOG(INFO) << "wenet snapshot_offset: pipeline_ms=" << pipeline_ms
-            << " skip_samples=" << skipped_samples_offset
-            << " pushed_silence=" << pushed_silence_total
+            << " skip_samples=" << s->skipped_samples_offset
+            << " pushed_silence=" << s->pushed_silence_total
             << " net_skip=" << net_skip
-            << " map_size=" << offset_map.size();
+            << " map_size=" << s->offset_map.size();
 }
 
-void set_input_finished() {
+// Feature frames extracted but not yet consumed by the decoder. Offline
+// feeders use it as back-pressure, the feature queue itself is unbounded.
+jint get_pending_frames(JNIEnv* env, jobject thiz) {
+  Session* s = GetSession(env, thiz);
+  if (s == nullptr) return 0;
+  return s->feature_pipeline->NumQueuedFrames();
+}
+
+void set_input_finished(JNIEnv* env, jobject thiz) {
+  Session* s = GetSession(env, thiz);
+  if (s == nullptr) return;
   LOG(INFO) << "wenet input finished";
-  feature_pipeline->set_input_finished();
+  s->feature_pipeline->set_input_finished();
 }
 
 // Escape a string for JSON (handle \, ", control chars)
@@ -202,10 +377,10 @@ std::string JsonEscape(const std::string& s) {
 
 // Look up the correct skip offset (in ms) for a given pipeline timestamp.
 // Finds the last offset_map entry where pipeline_ms <= the word's timestamp.
-int LookupOffsetMs(int word_pipeline_ms) {
-  std::lock_guard<std::mutex> lock(offset_map_mutex);
+int LookupOffsetMs(Session* s, int word_pipeline_ms) {
+  std::lock_guard<std::mutex> lock(s->offset_map_mutex);
   int64_t offset_samples = 0;
-  for (const auto& entry : offset_map) {
+  for (const auto& entry : s->offset_map) {
     if (entry.pipeline_ms <= word_pipeline_ms) {
       offset_samples = entry.skip_samples;
     } else {
@@ -215,18 +390,51 @@ int LookupOffsetMs(int word_pipeline_ms) {
   return (int)(offset_samples * 1000 / kSampleRate);
 }
 
-void AppendWordPiecesToJson(const std::vector<WordPiece>& pieces) {
+int32_t InternString(Session* s, const std::string& str) {
+  auto it = s->string_pool.find(str);
+  if (it != s->string_pool.end()) return it->second;
+  int32_t index = static_cast<int32_t>(s->string_pool.size());
+  s->string_pool.emplace(str, index);
+  s->pending_strings.push_back(str);
+  return index;
+}
+
+void AppendInt32(std::string* out, int32_t v) {
+  out->append(reinterpret_cast<const char*>(&v), sizeof(v));
+}
+
+// Packs pending strings and records into one binary delta and clears them.
+std::string TakeBinaryDelta(Session* s) {
+  std::string out;
+  out.reserve(8 + s->pending_records.size() * sizeof(TimedRecord) +
+              s->pending_strings.size() * 8);
+  AppendInt32(&out, static_cast<int32_t>(s->pending_strings.size()));
+  for (const auto& str : s->pending_strings) {
+    AppendInt32(&out, static_cast<int32_t>(str.size()));
+    out.append(str);
+  }
+  AppendInt32(&out, static_cast<int32_t>(s->pending_records.size()));
+  out.append(reinterpret_cast<const char*>(s->pending_records.data()),
+             s->pending_records.size() * sizeof(TimedRecord));
+  s->pending_strings.clear();
+  s->pending_records.clear();
+  return out;
+}
+
+void AppendWordPiecesToJson(Session* s, const std::vector<WordPiece>& pieces) {
   for (const auto& wp : pieces) {
-    if (!timed_result_json.empty()) {
-      timed_result_json += ",";
+    if (!s->timed_result_json.empty()) {
+      s->timed_result_json += ",";
     }
-    int offset_ms = LookupOffsetMs(wp.start);
+    int offset_ms = LookupOffsetMs(s, wp.start);
     int adjusted_start = wp.start + offset_ms;
     int adjusted_end = wp.end + offset_ms;
     char buf[256];
     snprintf(buf, sizeof(buf), R"({"w":"%s","s":%d,"e":%d})",
              JsonEscape(wp.word).c_str(), adjusted_start, adjusted_end);
-    timed_result_json += buf;
+    s->timed_result_json += buf;
+    s->pending_records.push_back(
+        {InternString(s, wp.word), adjusted_start, adjusted_end, 0});
     LOG(INFO) << "word_piece: " << wp.word
               << " raw_start=" << wp.start << " raw_end=" << wp.end
               << " offset_ms=" << offset_ms
@@ -234,13 +442,104 @@ void AppendWordPiecesToJson(const std::vector<WordPiece>& pieces) {
   }
 }
 
-void decode_thread_func() {
+void PushEvent(Session* s, ResultEventType type, const std::string& payload) {
+  std::unique_lock<std::mutex> lock(s->event_mutex);
+  if (type == kPartialEvent) {
+    if (!s->event_queue.empty() && s->event_queue.back().type == kPartialEvent) {
+      s->event_queue.back().payload = payload;
+      return;
+    }
+    // Queue full: drop the partial, the next partial or endpoint supersedes it
+    if (s->event_queue.size() >= kMaxPendingEvents) return;
+  } else {
+    s->event_cv.wait(lock, [s] {
+      return s->event_queue.size() < kMaxPendingEvents;
+    });
+  }
+  s->event_queue.push_back({type, payload});
+  s->event_cv.notify_all();
+}
+
+void dispatch_thread_func(std::shared_ptr<Session> session) {
+  Session* s = session.get();
+  JNIEnv* env = nullptr;
+  JavaVMAttachArgs args = {JNI_VERSION_1_6, "wenet-events", nullptr};
+  // Without Java, keep draining: PushEvent blocks the decoder on a full queue
+  bool attached = java_vm != nullptr &&
+                  java_vm->AttachCurrentThread(&env, &args) == JNI_OK;
+  if (!attached) {
+    LOG(ERROR) << "wenet event dispatcher: AttachCurrentThread failed, "
+               << "dropping result events";
+  }
+  while (true) {
+    ResultEvent event;
+    {
+      std::unique_lock<std::mutex> lock(s->event_mutex);
+      s->event_cv.wait(lock, [s] { return !s->event_queue.empty(); });
+      event = std::move(s->event_queue.front());
+      s->event_queue.pop_front();
+      s->event_cv.notify_all();
+    }
+    jobject listener = nullptr;
+    if (attached) {
+      std::lock_guard<std::mutex> lock(s->listener_mutex);
+      if (s->result_listener != nullptr) {
+        listener = env->NewLocalRef(s->result_listener);
+      }
+    }
+    if (listener != nullptr) {
+      jobject jPayload;
+      if (event.type == kPartialEvent) {
+        jPayload = env->NewStringUTF(event.payload.c_str());
+        env->CallVoidMethod(listener, s->on_partial_method, jPayload);
+      } else {
+        // Binary delta wraps the event's storage; only valid during the call
+        jPayload = env->NewDirectByteBuffer(&event.payload[0],
+                                            event.payload.size());
+        env->CallVoidMethod(listener,
+                            event.type == kEndpointEvent ? s->on_endpoint_method
+                                                         : s->on_final_method,
+                            jPayload);
+      }
+      if (env->ExceptionCheck()) {
+        env->ExceptionDescribe();
+        env->ExceptionClear();
+      }
+      env->DeleteLocalRef(jPayload);
+      env->DeleteLocalRef(listener);
+    }
+    if (event.type == kFinalEvent) break;
+  }
+  if (attached) java_vm->DetachCurrentThread();
+}
+
+void set_result_listener(JNIEnv* env, jobject thiz, jobject jListener) {
+  Session* s = GetSession(env, thiz);
+  if (s == nullptr) return;
+  std::lock_guard<std::mutex> lock(s->listener_mutex);
+  if (s->result_listener != nullptr) {
+    env->DeleteGlobalRef(s->result_listener);
+    s->result_listener = nullptr;
+  }
+  if (jListener == nullptr) return;
+  jclass cls = env->GetObjectClass(jListener);
+  s->on_partial_method = env->GetMethodID(cls, "onPartial", "(Ljava/lang/String;)V");
+  s->on_endpoint_method = env->GetMethodID(cls, "onEndpoint", "(Ljava/nio/ByteBuffer;)V");
+  s->on_final_method = env->GetMethodID(cls, "onFinal", "(Ljava/nio/ByteBuffer;)V");
+  env->DeleteLocalRef(cls);
+  s->result_listener = env->NewGlobalRef(jListener);
+}
+
+void decode_thread_func(std::shared_ptr<Session> session) {
+  Session* s = session.get();
+  AsrDecoder* decoder = s->decoder.get();
   // Cache last partial word_pieces so we can save them at kEndFeats
   std::vector<WordPiece> last_partial_pieces;
+  std::string last_pushed_partial;
 
   while (true) {
-    state = decoder->Decode();
-    if (state == kEndFeats || state == kEndpoint) {
+    s->state = decoder->Decode();
+    if (s->state == kEndFeats || s->state == kEndpoint) {
       decoder->Rescoring();
     }
 
@@ -249,80 +548,97 @@ void decode_thread_func() {
       result = decoder->result()[0].sentence;
     }
 
-    if (state == kEndFeats) {
+    if (s->state == kEndFeats) {
       LOG(INFO) << "wenet endfeats final result: " << result;
-      std::string tag = " [" + FormatTime(endpoint_start_sample) + "-"
-                        + FormatTime(total_samples) + "]";
-      total_result += result + tag;
+      std::string tag = " [" + FormatTime(s->endpoint_start_sample) + "-"
+                        + FormatTime(s->total_samples) + "]";
+      s->total_result += result + tag;
       if (decoder->DecodedSomething()) {
-        AppendWordPiecesToJson(decoder->result()[0].word_pieces);
+        AppendWordPiecesToJson(s, decoder->result()[0].word_pieces);
       } else if (!last_partial_pieces.empty()) {
         // Use cached partial word_pieces when final decode has nothing
         LOG(INFO) << "wenet endfeats: using cached partial word_pieces ("
                   << last_partial_pieces.size() << " pieces)";
-        AppendWordPiecesToJson(last_partial_pieces);
+        AppendWordPiecesToJson(s, last_partial_pieces);
       }
       LOG(INFO) << "wenet decode_thread_done = true";
-      decode_thread_done = true;
+      s->decode_thread_done = true;
+      PushEvent(s, kFinalEvent, TakeBinaryDelta(s));
       break;
-    } else if (state == kEndpoint) {
+    } else if (s->state == kEndpoint) {
       LOG(INFO) << "wenet endpoint final result: " << result;
-      std::string tag = " [" + FormatTime(endpoint_start_sample) + "-"
-                        + FormatTime(total_samples) + "]";
-      total_result += result + tag + "\n";
+      std::string tag = " [" + FormatTime(s->endpoint_start_sample) + "-"
+                        + FormatTime(s->total_samples) + "]";
+      s->total_result += result + tag + "\n";
       if (decoder->DecodedSomething()) {
-        AppendWordPiecesToJson(decoder->result()[0].word_pieces);
+        AppendWordPiecesToJson(s, decoder->result()[0].word_pieces);
       }
       // Insert newline marker for endpoint boundary
-      if (!timed_result_json.empty()) {
-        timed_result_json += ",";
+      if (!s->timed_result_json.empty()) {
+        s->timed_result_json += ",";
       }
-      timed_result_json += R"({"w":"\n","s":0,"e":0})";
-      has_new_endpoint = true;
+      s->timed_result_json += R"({"w":"\n","s":0,"e":0})";
+      s->pending_records.push_back({-1, 0, 0, kFlagSentenceEnd});
+      s->has_new_endpoint = true;
+      PushEvent(s, kEndpointEvent, TakeBinaryDelta(s));
       last_partial_pieces.clear();
-      endpoint_start_sample = total_samples;
+      last_pushed_partial.clear();
+      s->endpoint_start_sample = s->total_samples;
       decoder->ResetContinuousDecoding();
     } else {
       if (decoder->DecodedSomething()) {
         LOG(INFO) << "wenet partial result: " << result;
         // Cache partial word_pieces for potential use at kEndFeats
         last_partial_pieces = decoder->result()[0].word_pieces;
+        if (result != last_pushed_partial) {
+          last_pushed_partial = result;
+          PushEvent(s, kPartialEvent, result);
+        }
       }
     }
   }
 }
 
-void start_decode() {
-  std::thread decode_thread(decode_thread_func);
+void start_decode(JNIEnv* env, jobject thiz) {
+  std::shared_ptr<Session> session = GetSessionRef(env, thiz);
+  if (session == nullptr) return;
+  std::thread dispatch_thread(dispatch_thread_func, session);
+  dispatch_thread.detach();
+  std::thread decode_thread(decode_thread_func, session);
   decode_thread.detach();
 }
 
-jboolean get_finished(JNIEnv* env, jobject) {
-  if (decode_thread_done) {
+jboolean get_finished(JNIEnv* env, jobject thiz) {
+  Session* s = GetSession(env, thiz);
+  if (s != nullptr && s->decode_thread_done) {
     LOG(INFO) << "wenet recognize finished (decode_thread_done)";
     return JNI_TRUE;
   }
   return JNI_FALSE;
 }
 
-jstring get_result(JNIEnv* env, jobject) {
+jstring get_result(JNIEnv* env, jobject thiz) {
+  Session* s = GetSession(env, thiz);
+  if (s == nullptr) return env->NewStringUTF("");
   std::string result;
-  if (decoder->DecodedSomething()) {
-    result = decoder->result()[0].sentence;
+  if (s->decoder->DecodedSomething()) {
+    result = s->decoder->result()[0].sentence;
   }
-  LOG(INFO) << "wenet ui result: " << total_result + result;
-  return env->NewStringUTF((total_result + result).c_str());
+  LOG(INFO) << "wenet ui result: " << s->total_result + result;
+  return env->NewStringUTF((s->total_result + result).c_str());
 }
 
 // Returns only NEW timed tokens since last call (as JSON array).
 // Returns "[]" if nothing new.
-jstring get_timed_result_delta(JNIEnv* env, jobject) {
-  size_t cur_len = timed_result_json.size();
-  if (cur_len == timed_result_sent_pos) {
+jstring get_timed_result_delta(JNIEnv* env, jobject thiz) {
+  Session* s = GetSession(env, thiz);
+  if (s == nullptr) return env->NewStringUTF("[]");
+  size_t cur_len = s->timed_result_json.size();
+  if (cur_len == s->timed_result_sent_pos) {
     return env->NewStringUTF("[]");
   }
-  std::string delta = timed_result_json.substr(timed_result_sent_pos);
-  timed_result_sent_pos = cur_len;
+  std::string delta = s->timed_result_json.substr(s->timed_result_sent_pos);
+  s->timed_result_sent_pos = cur_len;
   // delta may start with "," if not the first chunk
   if (!delta.empty() && delta[0] == ',') {
     delta = delta.substr(1);
@@ -332,28 +648,34 @@ jstring get_timed_result_delta(JNIEnv* env, jobject) {
 }
 
 // Returns true if a new endpoint was detected since last call, then clears the flag.
-jboolean has_new_endpoint_fn(JNIEnv*, jobject) {
-  return has_new_endpoint.exchange(false) ? JNI_TRUE : JNI_FALSE;
+jboolean has_new_endpoint_fn(JNIEnv* env, jobject thiz) {
+  Session* s = GetSession(env, thiz);
+  if (s == nullptr) return JNI_FALSE;
+  return s->has_new_endpoint.exchange(false) ? JNI_TRUE : JNI_FALSE;
 }
 
 // Returns full timed result (for final save)
-jstring get_timed_result(JNIEnv* env, jobject) {
-  std::string json = "[" + timed_result_json + "]";
+jstring get_timed_result(JNIEnv* env, jobject thiz) {
+  Session* s = GetSession(env, thiz);
+  if (s == nullptr) return env->NewStringUTF("[]");
+  std::string json = "[" + s->timed_result_json + "]";
   return env->NewStringUTF(json.c_str());
 }
 
 // Returns only the NEW confirmed text since last call + current partial.
-jstring get_result_delta(JNIEnv* env, jobject) {
+jstring get_result_delta(JNIEnv* env, jobject thiz) {
+  Session* s = GetSession(env, thiz);
+  if (s == nullptr) return env->NewStringUTF("\n");
   // New confirmed portion
   std::string new_confirmed;
-  if (total_result.size() > total_result_sent.size()) {
-    new_confirmed = total_result.substr(total_result_sent.size());
-    total_result_sent = total_result;
+  if (s->total_result.size() > s->total_result_sent.size()) {
+    new_confirmed = s->total_result.substr(s->total_result_sent.size());
+    s->total_result_sent = s->total_result;
   }
   // Current partial
   std::string partial;
-  if (decoder->DecodedSomething()) {
-    partial = decoder->result()[0].sentence;
+  if (s->decoder->DecodedSomething()) {
+    partial = s->decoder->result()[0].sentence;
   }
   // Format: "NEW_CONFIRMED\nPARTIAL" (newline separator)
   std::string result = new_confirmed + "\n" + partial;
@@ -366,17 +688,28 @@ JNIEXPORT jint JNI_OnLoad(JavaVM* vm, void*) {
   if (vm->GetEnv(reinterpret_cast<void**>(&env), JNI_VERSION_1_6) != JNI_OK) {
     return JNI_ERR;
   }
+  wenet::java_vm = vm;
 
   jclass c = env->FindClass("com/mobvoi/wenet/Recognize");
   if (c == nullptr) {
     return JNI_ERR;
   }
+  wenet::handle_field = env->GetFieldID(c, "nativeHandle", "J");
+  if (wenet::handle_field == nullptr) {
+    return JNI_ERR;
+  }
 
   static const JNINativeMethod methods[] = {
       {"init", "(Ljava/lang/String;)V", reinterpret_cast<void*>(wenet::init)},
+      {"create", "(IZ)J", reinterpret_cast<void*>(wenet::create_session)},
+      {"destroy", "(J)V", reinterpret_cast<void*>(wenet::release_session)},
       {"reset", "()V", reinterpret_cast<void*>(wenet::reset)},
       {"acceptWaveform", "([S)V",
        reinterpret_cast<void*>(wenet::accept_waveform)},
+      {"acceptWaveform", "(Ljava/nio/ShortBuffer;II)V",
+       reinterpret_cast<void*>(wenet::accept_waveform_direct)},
+      {"getPendingFrames", "()I",
+       reinterpret_cast<void*>(wenet::get_pending_frames)},
       {"setInputFinished", "()V",
        reinterpret_cast<void*>(wenet::set_input_finished)},
       {"getFinished", "()Z", reinterpret_cast<void*>(wenet::get_finished)},
@@ -395,6 +728,8 @@ JNIEXPORT jint JNI_OnLoad(JavaVM* vm, void*) {
        reinterpret_cast<void*>(wenet::snapshot_offset)},
       {"hasNewEndpoint", "()Z",
        reinterpret_cast<void*>(wenet::has_new_endpoint_fn)},
+      {"setResultListener", "(Lcom/mobvoi/wenet/Recognize$ResultListener;)V",
+       reinterpret_cast<void*>(wenet::set_result_listener)},
   };
   int rc = env->RegisterNatives(c, methods,
                                 sizeof(methods) / sizeof(JNINativeMethod));
@@ -0,0 +1,400 @@
+package com.mobvoi.wenet;
+
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.util.Log;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pull-based decoder for stored recordings (audio.ogg / .m4a / .3gp): MediaExtractor and
+ * MediaCodec behind an InputStream-like {@link #read}, giving mono 16-bit PCM (first
+ * channel) at the rate asked for. Each codec output buffer is resampled straight from
+ * its ByteBuffer into the caller's array, or into a small carry-over array when the
+ * caller's is shorter than one buffer.
+ *
+ * Codecs are pooled: close() flushes the codec and parks it, and the next open() of the
+ * same MIME type takes it instead of creating one. A parked codec that last decoded the
+ * same file, unchanged since (modification time, length and track format all match), is
+ * used as is; any other is reconfigured (stop, configure, start), which
+ * still skips allocating the codec component. One reader per instance; close() is
+ * idempotent.
+ */
+public class AudioDecoder implements AutoCloseable {
+
+  private static final String TAG = "AudioDecoder";
+  private static final long CODEC_TIMEOUT_US = 10000;
+  private static final int MAX_POOLED = 4;  // idle codecs kept across open() calls
+
+  /** A codec and what it was last configured for. Idle ones are flushed or stopped. */
+  private static class PooledCodec {
+    final MediaCodec codec;
+    final String mime;
+    String path = null;  // file it is still configured (flushed) for, null if stopped
+    long modified;       // that file's lastModified() and length() when it was opened
+    long length;
+    MediaFormat format;  // track format it was configured with
+    int rate;            // its output format, valid while path is set
+    int channels;
+
+    PooledCodec(MediaCodec codec, String mime) {
+      this.codec = codec;
+      this.mime = mime;
+    }
+  }
+
+  private static final List<PooledCodec> pool = new ArrayList<>();  // oldest first
+
+  private final String path;
+  private final long modified;
+  private final long length;
+  private final MediaExtractor extractor;
+  private final MediaFormat format;
+  private final PooledCodec entry;
+  private final MediaCodec codec;
+  private final int outputRate;
+  private final long durationUs;
+  private final MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+
+  private Resampler resampler;
+  private int channels;
+  private boolean formatKnown;       // output format seen since the codec was configured
+  private boolean queued = false;    // input queued since the last configure/flush
+  private boolean inputDone = false;
+  private boolean outputDone = false;
+  private boolean failed = false;    // codec error: release it instead of pooling
+  private boolean closed = false;
+  private long skipUntilUs = -1;     // after a seek, decoded audio before this is dropped
+  private long position = 0;         // output samples
+
+  // Resampled output that did not fit into the caller's array
+  private short[] carry = new short[0];
+  private int carryPos = 0;
+  private int carryLen = 0;
+
+  /**
+   * Open the first audio track of {@code path}, decoding to {@code outputRate}. Returns
+   * null if the file has no audio track.
+   */
+  public static AudioDecoder open(String path, int outputRate) throws IOException {
+    MediaExtractor extractor = new MediaExtractor();
+    try {
+      extractor.setDataSource(path);
+      for (int i = 0; i < extractor.getTrackCount(); i++) {
+        MediaFormat fmt = extractor.getTrackFormat(i);
+        String mime = fmt.getString(MediaFormat.KEY_MIME);
+        if (mime != null && mime.startsWith("audio/")) {
+          extractor.selectTrack(i);
+          return new AudioDecoder(path, extractor, fmt, mime, outputRate);
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      extractor.release();
+      throw e;
+    }
+    extractor.release();
+    return null;
+  }
+
+  private AudioDecoder(String path, MediaExtractor extractor, MediaFormat format, String mime,
+                       int outputRate) throws IOException {
+    this.path = path;
+    File file = new File(path);
+    this.modified = file.lastModified();
+    this.length = file.length();
+    this.extractor = extractor;
+    this.format = format;
+    this.outputRate = outputRate;
+    this.durationUs = format.containsKey(MediaFormat.KEY_DURATION)
+        ? format.getLong(MediaFormat.KEY_DURATION) : 0;
+    this.entry = acquire(path, modified, length, mime, format);
+    this.codec = entry.codec;
+    int rate;
+    if (entry.path != null) {
+      // Flushed after decoding this file: no format change will be reported again
+      rate = entry.rate;
+      channels = entry.channels;
+      formatKnown = true;
+    } else {
+      rate = format.containsKey(MediaFormat.KEY_SAMPLE_RATE)
+          ? format.getInteger(MediaFormat.KEY_SAMPLE_RATE) : outputRate;
+      channels = format.containsKey(MediaFormat.KEY_CHANNEL_COUNT)
+          ? format.getInteger(MediaFormat.KEY_CHANNEL_COUNT) : 1;
+      formatKnown = false;
+    }
+    resampler = new Resampler(rate, outputRate);
+  }
+
+  public int getOutputRate() {
+    return outputRate;
+  }
+
+  /** Track duration from the container, 0 if unknown. */
+  public long getDurationUs() {
+    return durationUs;
+  }
+
+  /** Output samples read so far, counted from the last seek target. */
+  public long getPosition() {
+    return position;
+  }
+
+  public long getPositionUs() {
+    return position * 1000000L / outputRate;
+  }
+
+  /**
+   * Read up to {@code len} samples into {@code dst}, blocking until at least one is
+   * decoded. Returns the count, or -1 at the end of the stream.
+   */
+  public int read(short[] dst, int off, int len) throws IOException {
+    if (len <= 0) return 0;
+    while (carryPos == carryLen) {
+      if (outputDone) return -1;
+      if (Thread.currentThread().isInterrupted()) {
+        throw new InterruptedIOException("Decode interrupted");
+      }
+      int n;
+      try {
+        n = step(dst, off, len);
+      } catch (IllegalStateException e) {  // includes MediaCodec.CodecException
+        failed = true;
+        throw new IOException("Decoder error: " + e.getMessage(), e);
+      }
+      if (n > 0) {
+        position += n;
+        return n;
+      }
+    }
+    int n = Math.min(len, carryLen - carryPos);
+    System.arraycopy(carry, carryPos, dst, off, n);
+    carryPos += n;
+    position += n;
+    return n;
+  }
+
+  /**
+   * Continue from {@code timeUs}. Decoding restarts at the sync sample before it and
+   * the audio in between is dropped, so the next read() starts at {@code timeUs}.
+   */
+  public void seekTo(long timeUs) throws IOException {
+    try {
+      extractor.seekTo(timeUs, MediaExtractor.SEEK_TO_PREVIOUS_SYNC);
+      if (queued && formatKnown) {
+        codec.flush();
+      } else if (queued) {
+        // Flushing before the first output can lose the codec-specific data
+        codec.stop();
+        codec.configure(format, null, null, 0);
+        codec.start();
+      }
+    } catch (IllegalStateException e) {
+      failed = true;
+      throw new IOException("Decoder error: " + e.getMessage(), e);
+    }
+    queued = false;
+    inputDone = false;
+    outputDone = false;
+    carryPos = 0;
+    carryLen = 0;
+    resampler.reset();
+    skipUntilUs = timeUs;
+    position = timeUs * outputRate / 1000000L;
+  }
+
+  /** Release the extractor and return the codec to the pool. */
+  @Override
+  public synchronized void close() {
+    if (closed) return;
+    closed = true;
+    extractor.release();
+    if (!failed) {
+      try {
+        if (formatKnown) {
+          codec.flush();
+          entry.path = path;
+          entry.modified = modified;
+          entry.length = length;
+          entry.rate = resampler.getInputRate();
+          entry.channels = channels;
+        } else {
+          codec.stop();
+          entry.path = null;
+        }
+        recycle(entry);
+        return;
+      } catch (IllegalStateException e) {
+        Log.w(TAG, "Could not park " + entry.mime + " decoder: " + e.getMessage());
+      }
+    }
+    codec.release();
+  }
+
+  /** Release every idle codec, e.g. when the app is finishing. */
+  public static void releasePool() {
+    List<PooledCodec> idle;
+    synchronized (pool) {
+      idle = new ArrayList<>(pool);
+      pool.clear();
+    }
+    for (PooledCodec p : idle) {
+      try { p.codec.release(); } catch (Exception ignored) {}
+    }
+  }
+
+  /** Queue the input the codec will take, then handle one output event. Returns samples in dst. */
+  private int step(short[] dst, int off, int len) {
+    while (!inputDone) {
+      int inIdx = codec.dequeueInputBuffer(0);
+      if (inIdx < 0) break;
+      ByteBuffer inBuf = codec.getInputBuffer(inIdx);
+      inBuf.clear();
+      int sampleSize = extractor.readSampleData(inBuf, 0);
+      if (sampleSize < 0) {
+        codec.queueInputBuffer(inIdx, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+        inputDone = true;
+      } else {
+        codec.queueInputBuffer(inIdx, 0, sampleSize, extractor.getSampleTime(), 0);
+        extractor.advance();
+      }
+      queued = true;
+    }
+
+    int outIdx = codec.dequeueOutputBuffer(info, CODEC_TIMEOUT_US);
+    if (outIdx == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+      MediaFormat outFormat = codec.getOutputFormat();
+      if (outFormat.containsKey(MediaFormat.KEY_CHANNEL_COUNT)) {
+        channels = outFormat.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+      }
+      int rate = outFormat.containsKey(MediaFormat.KEY_SAMPLE_RATE)
+          ? outFormat.getInteger(MediaFormat.KEY_SAMPLE_RATE) : resampler.getInputRate();
+      if (rate != resampler.getInputRate()) resampler = new Resampler(rate, outputRate);
+      formatKnown = true;
+      return 0;
+    }
+    if (outIdx < 0) return 0;
+
+    int n = 0;
+    if (info.size > 0) {
+      ByteBuffer outBuf = codec.getOutputBuffer(outIdx);
+      int frameBytes = 2 * Math.max(1, channels);
+      int start = info.offset;
+      int end = info.offset + info.size;
+      if (skipUntilUs > info.presentationTimeUs) {
+        long dropFrames = (skipUntilUs - info.presentationTimeUs)
+            * resampler.getInputRate() / 1000000L;
+        start += (int) Math.min(dropFrames * frameBytes, info.size);
+      }
+      if (outBuf != null && start < end) {
+        skipUntilUs = -1;
+        outBuf.limit(end);
+        outBuf.position(start);
+        int maxOut = resampler.maxOutput((end - start) / frameBytes);
+        if (len >= maxOut) {
+          n = resampler.process(outBuf, channels, dst, off);
+        } else {
+          if (carry.length < maxOut) carry = new short[maxOut];
+          carryPos = 0;
+          carryLen = resampler.process(outBuf, channels, carry, 0);
+        }
+      }
+    }
+    if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) outputDone = true;
+    codec.releaseOutputBuffer(outIdx, false);
+    return n;
+  }
+
+  /** A started codec configured for {@code format}, from the pool if possible. */
+  private static PooledCodec acquire(String path, long modified, long length, String mime,
+                                     MediaFormat format) throws IOException {
+    PooledCodec entry = takeIdle(path, mime);
+    if (entry != null && isUnchanged(entry, path, modified, length, format)) {
+      Log.d(TAG, "Reusing " + mime + " decoder as is");
+      return entry;
+    }
+    if (entry != null) {
+      try {
+        if (entry.path != null) entry.codec.stop();
+        entry.path = null;
+        entry.codec.configure(format, null, null, 0);
+        entry.codec.start();
+        entry.format = format;
+        Log.d(TAG, "Reusing " + mime + " decoder, reconfigured");
+        return entry;
+      } catch (IllegalStateException | IllegalArgumentException e) {
+        Log.w(TAG, "Pooled " + mime + " decoder unusable: " + e.getMessage());
+        try { entry.codec.release(); } catch (Exception ignored) {}
+      }
+    }
+    MediaCodec codec = MediaCodec.createDecoderByType(mime);
+    try {
+      codec.configure(format, null, null, 0);
+      codec.start();
+    } catch (RuntimeException e) {
+      codec.release();
+      throw new IOException("Decoder setup failed: " + e.getMessage(), e);
+    }
+    Log.d(TAG, "Created " + mime + " decoder");
+    PooledCodec created = new PooledCodec(codec, mime);
+    created.format = format;
+    return created;
+  }
+
+  /**
+   * Whether a parked codec is still configured for this very file: same path, not rewritten
+   * since (a new recording under the same name), and the same track format.
+   */
+  private static boolean isUnchanged(PooledCodec entry, String path, long modified, long length,
+                                     MediaFormat format) {
+    return path.equals(entry.path) && entry.modified == modified && entry.length == length
+        && entry.format != null
+        && sameInt(entry.format, format, MediaFormat.KEY_SAMPLE_RATE)
+        && sameInt(entry.format, format, MediaFormat.KEY_CHANNEL_COUNT)
+        && sameBuffer(entry.format, format, "csd-0")
+        && sameBuffer(entry.format, format, "csd-1");
+  }
+
+  private static boolean sameInt(MediaFormat a, MediaFormat b, String key) {
+    if (a.containsKey(key) != b.containsKey(key)) return false;
+    return !a.containsKey(key) || a.getInteger(key) == b.getInteger(key);
+  }
+
+  private static boolean sameBuffer(MediaFormat a, MediaFormat b, String key) {
+    ByteBuffer x = a.containsKey(key) ? a.getByteBuffer(key) : null;
+    ByteBuffer y = b.containsKey(key) ? b.getByteBuffer(key) : null;
+    return x == null ? y == null : x.equals(y);
+  }
+
+  /** Take an idle codec for {@code mime}, preferring one still configured for {@code path}. */
+  private static PooledCodec takeIdle(String path, String mime) {
+    synchronized (pool) {
+      PooledCodec match = null;
+      for (PooledCodec p : pool) {
+        if (!p.mime.equals(mime)) continue;
+        if (path.equals(p.path)) {
+          match = p;
+          break;
+        }
+        if (match == null) match = p;
+      }
+      if (match != null) pool.remove(match);
+      return match;
+    }
+  }
+
+  private static void recycle(PooledCodec entry) {
+    PooledCodec evicted = null;
+    synchronized (pool) {
+      pool.add(entry);
+      if (pool.size() > MAX_POOLED) evicted = pool.remove(0);
+    }
+    if (evicted != null) {
+      try { evicted.codec.release(); } catch (Exception ignored) {}
+    }
+  }
+}
@@ -0,0 +1,493 @@
+package com.mobvoi.wenet;
+
+import android.content.Context;
+import android.os.Process;
+import android.util.Log;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless recording engine. Owns the audio hot path and its threads; the UI only
+ * subscribes through {@link Listener}, so the same pipeline can run from an Activity,
+ * from RecordingForegroundService or from a benchmark.
+ *
+ * Stages:
+ *   capture thread  AudioSource (16 kHz) → Resampler (8 kHz, once) → RealtimeEncoder + asrRing;
+ *                   16 kHz → captureRing (only when Personal VAD is active)
+ *   vad thread      asrRing (lookahead cursor) → SileroVad → speech / skip runs
+ *   pvad thread     captureRing → MultiVad (PersonalVad + extra detectors, 16 kHz),
+ *                   with a lag budget and an optional SileroVad speech gate
+ *                   (CaptureVadWorker, SpeechTimeline)
+ *   asr thread      runs + asrRing → Recognize
+ *   results         native decoder → Recognize.ResultListener → Listener (pushed, no polling)
+ *   finish          flush VADs → setInputFinished → final result event → join pvad
+ *                   → save artifacts
+ */
+public class AudioPipeline {
+
+  private static final String TAG = "AudioPipeline";
+  public static final int CAPTURE_SAMPLE_RATE = 16000; // AudioRecord / PersonalVAD rate
+  public static final int ASR_SAMPLE_RATE = 8000;      // ASR / VAD / encoder / visualization rate
+  private static final int RING_CAPACITY_SAMPLES = 1 << 21; // ~131 s at 16 kHz
+  private static final int ASR_RING_CAPACITY_SAMPLES = 1 << 20; // ~131 s at 8 kHz
+  private static final long RING_READ_TIMEOUT_MS = 100;
+  private static final int MAX_PENDING_FRAMES = 1000; // decoder backlog cap for non-real-time sources
+  private static final long BACKPRESSURE_SLEEP_MS = 2;
+  private static final long FINAL_TIMEOUT_S = 60;       // decoding the queued features after input ends
+
+  /** 16 kHz mono PCM input for the capture stage. */
+  public interface AudioSource {
+    /** Open and start delivering audio. Returns false if the source is unusable. */
+    boolean start();
+    /** Blocking read. Returns samples read, 0 if none yet, or -1 at end of input. */
+    int read(short[] dst, int offset, int length);
+    /** Preferred read size in samples. */
+    int getReadSize();
+    void stop();
+    /**
+     * False for sources that deliver faster than real time (file replay): the pipeline
+     * then waits for ring space and decoder progress instead of dropping audio.
+     */
+    default boolean isRealtime() { return true; }
+  }
+
+  /** Pipeline events. Called on pipeline threads; post to the UI thread as needed. */
+  public interface Listener {
+    void onCaptureStarted();
+    void onCaptureError(String message);
+    /** Capture stage ended; remaining audio is still being decoded. */
+    void onCaptureStopped();
+    /** 8 kHz block as it passes the VAD stage, or is fed without VAD (visualization tap). */
+    void onAudio(short[] samples, int length);
+    /** Silero VAD speech probability of the latest chunk. */
+    void onVadProb(float prob);
+    /** Current in-progress hypothesis changed. */
+    void onPartialResult(String partial);
+    /**
+     * New confirmed timed tokens; a sentence-end record closes a sentence. Any previous
+     * partial is superseded. The delta is reused: read it during the call only.
+     */
+    void onTranscriptDelta(TranscriptDelta delta);
+    /** Decoding finished and result.json / my_voice_segments.json were written. */
+    void onFinished(String recordingName, String timedResultJson);
+  }
+
+  private final AudioSource source;
+  private volatile Listener listener;
+  // 16 kHz capture for Personal VAD; 8 kHz copy shared by VAD / ASR / visualization
+  private final AudioRingBuffer captureRing = new AudioRingBuffer(RING_CAPACITY_SAMPLES);
+  private final AudioRingBuffer asrRing = new AudioRingBuffer(ASR_RING_CAPACITY_SAMPLES);
+  private final Resampler downsampler = new Resampler(CAPTURE_SAMPLE_RATE, ASR_SAMPLE_RATE);
+
+  // Stages (optional)
+  private SileroVad sileroVad = null;
+  private PersonalVadProcessor personalVad = null;
+  private boolean personalVadGate = false;
+  private final List<StreamingVad> detectors = new ArrayList<>();
+  private RealtimeEncoder encoder = null;
+
+  // Artifacts
+  private Context context = null;
+  private String recordingName = null;
+
+  private volatile boolean capturing = false;
+  private volatile boolean running = false;
+  private Thread captureThread;
+  private Thread asrThread;
+  private volatile CountDownLatch decodeFinished;
+  private volatile Recognize recognizer;  // one session per start(), released after onFinished
+  private final TranscriptDelta transcriptDelta = new TranscriptDelta(); // result thread only
+  private final LatencyTracker latency = new LatencyTracker();
+
+  private final Recognize.ResultListener resultListener = new Recognize.ResultListener() {
+    @Override
+    public void onPartial(String partial) {
+      latency.record(LatencyTracker.STAGE_PARTIAL, latency.fedCaptureTimeNs());
+      Listener l = listener;
+      if (l != null) l.onPartialResult(partial);
+    }
+
+    @Override
+    public void onEndpoint(ByteBuffer delta) {
+      deliverDelta(delta);
+    }
+
+    @Override
+    public void onFinal(ByteBuffer delta) {
+      deliverDelta(delta);
+      decodeFinished.countDown();
+    }
+
+    private void deliverDelta(ByteBuffer delta) {
+      try {
+        transcriptDelta.decode(delta);
+      } catch (RuntimeException e) {
+        Log.e(TAG, "Bad transcript delta: " + e.getMessage());
+        return;
+      }
+      for (int i = 0; i < transcriptDelta.size(); i++) {
+        if (transcriptDelta.word(i) == null) continue;
+        latency.record(LatencyTracker.STAGE_WORD,
+            latency.captureTimeNsAtMs(transcriptDelta.endMs(i)));
+      }
+      Listener l = listener;
+      if (l != null) l.onTranscriptDelta(transcriptDelta);
+    }
+  };
+
+  public AudioPipeline(AudioSource source, Listener listener) {
+    this.source = source;
+    this.listener = listener;
+  }
+
+  public void setListener(Listener listener) { this.listener = listener; }
+
+  /** Gate Recognize input with Silero VAD; pass null to feed every sample. */
+  public void setSileroVad(SileroVad vad) { this.sileroVad = vad; }
+
+  public void setPersonalVad(PersonalVadProcessor vad) { this.personalVad = vad; }
+
+  /**
+   * Run capture-stage detectors only where SileroVad hears speech (plus a short pre-roll),
+   * skipping the rest as non-speech. Needs the Silero VAD stage; ignored without it.
+   */
+  public void setPersonalVadGate(boolean enabled) { this.personalVadGate = enabled; }
+
+  /**
+   * Extra detector on the 16 kHz capture stream, run with Personal VAD in one pass.
+   * Results are not used for gating; per-detector cost is logged when the run ends.
+   */
+  public void addDetector(StreamingVad vad) { detectors.add(vad); }
+
+  public void setEncoder(RealtimeEncoder encoder) { this.encoder = encoder; }
+
+  /** Where to write result.json / my_voice_segments.json; null name disables saving. */
+  public void setRecording(Context context, String recordingName) {
+    this.context = context.getApplicationContext();
+    this.recordingName = recordingName;
+  }
+
+  public String getRecordingName() { return recordingName; }
+  public AudioSource getSource() { return source; }
+  public AudioRingBuffer getCaptureRing() { return captureRing; }
+  public AudioRingBuffer getAsrRing() { return asrRing; }
+  /** Per-stage latency of the current / last run; saved as latency.json when it ends. */
+  public LatencyTracker getLatencyTracker() { return latency; }
+  /** Decoder session of the current run; null before start() and after onFinished. */
+  public Recognize getRecognizer() { return recognizer; }
+
+  /** True while audio is being captured. */
+  public boolean isCapturing() { return capturing; }
+
+  /** True from start() until decoding has finished. */
+  public boolean isRunning() { return running; }
+
+  public void start() {
+    if (running) return;
+    final Recognize session;
+    try {
+      session = new Recognize();
+    } catch (IllegalStateException e) {
+      Log.e(TAG, "Cannot open decoder session: " + e.getMessage());
+      releaseEncoder();
+      Listener l = listener;
+      if (l != null) l.onCaptureError("음성 인식 모델이 로드되지 않았습니다.");
+      return;
+    }
+    recognizer = session;
+    running = true;
+    capturing = true;
+    captureRing.reset();
+    asrRing.reset();
+    downsampler.reset();
+    if (sileroVad != null && sileroVad.isInitialized()) {
+      sileroVad.reset();
+    }
+    session.reset();
+    decodeFinished = new CountDownLatch(1);
+    transcriptDelta.reset();
+    latency.reset();
+    session.setResultListener(resultListener);
+    captureThread = new Thread(this::runCapture, "audio-capture");
+    asrThread = new Thread(this::runAsr, "audio-asr");
+    captureThread.start();
+    asrThread.start();
+    session.startDecode();
+  }
+
+  /** Stop capturing. Buffered audio is still decoded; onFinished follows. */
+  public void stop() {
+    capturing = false;
+  }
+
+  // ── Capture stage ─────────────────────────────────────────────────────────
+
+  private void runCapture() {
+    if (!source.start()) {
+      capturing = false;
+      closeRings();
+      Listener l = listener;
+      if (l != null) l.onCaptureError("녹음 장치를 초기화할 수 없습니다.");
+      releaseEncoder();
+      return;
+    }
+    Process.setThreadPriority(Process.THREAD_PRIORITY_AUDIO);
+    Listener l = listener;
+    if (l != null) l.onCaptureStarted();
+
+    final boolean feedCaptureVads = usesCaptureVads();
+    final boolean realtime = source.isRealtime();
+    short[] buffer = new short[source.getReadSize()];
+    short[] buffer8k = new short[downsampler.maxOutput(buffer.length)];
+    while (capturing) {
+      int read = source.read(buffer, 0, buffer.length);
+      if (read < 0) break;
+      if (read == 0) continue;
+      if (!realtime && !awaitSpace(feedCaptureVads ? read : 0, downsampler.maxOutput(read))) {
+        break;
+      }
+      if (feedCaptureVads) {
+        captureRing.write(buffer, 0, read);
+      }
+      // Downsample once; encoder, VAD, ASR and visualization all share the 8 kHz block
+      int n8k = downsampler.process(buffer, 0, read, buffer8k, 0);
+      if (encoder != null) {
+        encoder.feed(buffer8k, n8k);
+      }
+      latency.markCaptured(n8k);
+      asrRing.write(buffer8k, 0, n8k);
+    }
+    capturing = false;
+    closeRings();
+    logRingStats("Capture ring", captureRing);
+    logRingStats("ASR ring", asrRing);
+
+    source.stop();
+    releaseEncoder();
+    l = listener;
+    if (l != null) l.onCaptureStopped();
+  }
+
+  private boolean usesCaptureVads() {
+    return (personalVad != null && personalVad.isReady()) || !detectors.isEmpty();
+  }
+
+  /** Non-real-time sources: wait until both rings can take the next block. */
+  private boolean awaitSpace(int captureSamples, int asrSamples) {
+    while (capturing) {
+      if (captureRing.capacity() - captureRing.available() >= captureSamples
+          && asrRing.capacity() - asrRing.available() >= asrSamples) {
+        return true;
+      }
+      try {
+        Thread.sleep(BACKPRESSURE_SLEEP_MS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+    }
+    return false;
+  }
+
+  private void closeRings() {
+    captureRing.closeWrite();
+    asrRing.closeWrite();
+  }
+
+  private static void logRingStats(String name, AudioRingBuffer ring) {
+    Log.i(TAG, name + ": highWater=" + ring.getHighWaterMark()
+        + "/" + ring.capacity() + " overruns=" + ring.getOverrunCount()
+        + " dropped=" + ring.getDroppedSamples());
+  }
+
+  private void releaseEncoder() {
+    if (encoder != null) encoder.release();
+  }
+
+  // ── ASR stage ─────────────────────────────────────────────────────────────
+
+  private void runAsr() {
+    final Recognize recognizer = this.recognizer;
+    final boolean useVad = sileroVad != null && sileroVad.isInitialized();
+    final boolean usePersonalVad = personalVad != null && personalVad.isReady();
+    final MultiVad captureVads = new MultiVad(CAPTURE_SAMPLE_RATE);
+    if (usePersonalVad) captureVads.add(personalVad);
+    for (StreamingVad vad : detectors) {
+      vad.reset();
+      captureVads.add(vad);
+    }
+    final boolean realtime = source.isRealtime();
+    final int readSize = Math.max(2, source.getReadSize()); // 16 kHz block
+    short[] data8k = new short[downsampler.maxOutput(readSize)];
+
+    SpeechTimeline speechTimeline = null;
+    CaptureVadWorker captureWorker = null;
+    if (!captureVads.isEmpty()) {
+      captureWorker = new CaptureVadWorker(captureRing, captureVads, realtime, readSize);
+      if (useVad && personalVadGate) {
+        speechTimeline = new SpeechTimeline();
+        captureWorker.setSpeechGate(speechTimeline, ASR_SAMPLE_RATE);
+      }
+      captureWorker.start();
+    }
+
+    VadLookahead lookahead = null;
+    if (useVad) {
+      lookahead = new VadLookahead(asrRing, sileroVad, latency, data8k.length,
+          (samples, length, prob) -> {
+            Listener l = listener;
+            if (l != null) {
+              l.onVadProb(prob);
+              l.onAudio(samples, length);
+            }
+          });
+      lookahead.setProbTrack(openVadTrack());
+      lookahead.setSpeechTimeline(speechTimeline);
+      lookahead.start();
+    }
+    // Snapshot the decoder offset before the first speech run after a skip
+    boolean needSnapshot = true;  // true at start (initial segment)
+    long consumed = 0;  // 8 kHz samples taken from asrRing
+    // Built once: a method reference per feed would allocate on every pass
+    final AudioRingBuffer.Sink asrSink = recognizer::acceptWaveform;
+
+    while (useVad ? !lookahead.isDrained() : !asrRing.isDrained()) {
+      if (useVad) {
+        lookahead.await(RING_READ_TIMEOUT_MS);
+      } else {
+        asrRing.await(RING_READ_TIMEOUT_MS);
+      }
+      awaitDecoder(recognizer, realtime);
+
+      if (useVad) {
+        // Replay VAD runs straight from the ring; the worker is already classifying ahead
+        long run;
+        while ((run = lookahead.poll()) != 0) {
+          int n = (int) Math.abs(run);
+          if (run > 0) {
+            if (needSnapshot) {
+              recognizer.snapshotOffset();
+              needSnapshot = false;
+            }
+            asrRing.feedTo(asrSink, n);
+          } else {
+            recognizer.addSkippedSamples(n);
+            needSnapshot = true;  // next speech run starts a new segment
+          }
+          asrRing.skip(n);
+          consumed += n;
+          latency.record(LatencyTracker.STAGE_FEED, latency.captureTimeNs(consumed));
+          latency.markFed(consumed);
+        }
+        continue;
+      }
+
+      int n8k = asrRing.peek(data8k, 0, data8k.length);
+      if (n8k == 0) continue;
+      consumed += n8k;
+      long blockCapturedNs = latency.captureTimeNs(consumed);
+      latency.record(LatencyTracker.STAGE_RING, blockCapturedNs);
+      // Decoder reads straight out of the ring's direct buffer
+      asrRing.feedTo(asrSink, n8k);
+      latency.record(LatencyTracker.STAGE_FEED, blockCapturedNs);
+      latency.markFed(consumed);
+      asrRing.skip(n8k);
+      Listener l = listener;
+      if (l != null) l.onAudio(data8k, n8k);
+    }
+    if (useVad) {
+      lookahead.join();
+      if (lookahead.getProbTrack() != null) lookahead.getProbTrack().close();
+    }
+    recognizer.setInputFinished();
+
+    // Released by the final result event as soon as the decoder is done. If it never
+    // arrives, save what has been decoded rather than hang with running == true.
+    try {
+      if (!decodeFinished.await(FINAL_TIMEOUT_S, TimeUnit.SECONDS)) {
+        Log.e(TAG, "No final result after " + FINAL_TIMEOUT_S + " s; saving the partial transcript");
+      }
+    } catch (InterruptedException e) {
+      Log.w(TAG, "Interrupted while waiting for the decoder");
+      Thread.currentThread().interrupt();
+    }
+    String timedJson = recognizer.getTimedResult();
+    saveTimedResult(timedJson);
+    if (context != null && recordingName != null) {
+      latency.dump(RecordingManager.getLatencyPath(context, recordingName));
+    }
+    if (captureWorker != null) {
+      // Flushed on the worker; its segments are final once it has exited
+      captureWorker.join();
+      Log.i(TAG, "Capture-stage VADs: " + captureVads.getStats());
+    }
+    if (usePersonalVad) {
+      saveMyVoiceSegments(personalVad.getSegments());
+      saveSpeakerSegments(personalVad.getSpeakerSegments());
+      personalVad.reset();
+    }
+    running = false;
+    Listener l = listener;
+    if (l != null) l.onFinished(recordingName, timedJson);
+    if (this.recognizer == recognizer) this.recognizer = null;
+    recognizer.release();
+  }
+
+  /** The native feature queue is unbounded; keep a replay from racing ahead of decoding. */
+  private void awaitDecoder(Recognize recognizer, boolean realtime) {
+    while (!realtime && recognizer.getPendingFrames() > MAX_PENDING_FRAMES) {
+      try {
+        Thread.sleep(BACKPRESSURE_SLEEP_MS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  // ── Artifacts ─────────────────────────────────────────────────────────────
+
+  /** vad.bin writer for this recording, or null when not saving. */
+  private VadProbTrack.Writer openVadTrack() {
+    if (context == null || recordingName == null) return null;
+    try {
+      return new VadProbTrack.Writer(RecordingManager.getVadTrackPath(context, recordingName));
+    } catch (Exception e) {
+      Log.e(TAG, "Error creating VAD track: " + e.getMessage());
+      return null;
+    }
+  }
+
+  /** Written atomically: a crash mid-write must not truncate an existing transcript. */
+  private void saveTimedResult(String timedJson) {
+    if (context == null || recordingName == null) return;
+    Log.i(TAG, "Timed result: " + timedJson);
+    String resultPath = RecordingManager.getResultPath(context, recordingName);
+    if (RecordingManager.writeAtomically(new File(resultPath),
+        timedJson.getBytes(StandardCharsets.UTF_8), "result.json")) {
+      Log.i(TAG, "Saved result.json to " + resultPath);
+    }
+  }
+
+  /** Save Personal VAD segments as [[startMs, endMs], ...] JSON array. */
+  private void saveMyVoiceSegments(List<long[]> segs) {
+    if (context == null || recordingName == null || segs == null) return;
+    if (RecordingManager.saveMyVoiceSegments(context, recordingName, segs)) {
+      Log.i(TAG, "Saved " + segs.size() + " my-voice segments for " + recordingName);
+    }
+  }
+
+  /** Save the named speakers' segments as speaker_segments.json (deleted if there are none). */
+  private void saveSpeakerSegments(Map<String, List<long[]>> speakers) {
+    if (context == null || recordingName == null) return;
+    if (RecordingManager.saveSpeakerSegments(context, recordingName, speakers)) {
+      Log.i(TAG, "Saved segments of " + speakers.size() + " speakers for " + recordingName);
+    }
+  }
+}
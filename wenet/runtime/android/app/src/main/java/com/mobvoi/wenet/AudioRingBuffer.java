@@ -0,0 +1,243 @@
+package com.mobvoi.wenet;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free single-producer / single-consumer ring of 16-bit PCM samples.
+ * Storage is allocated once; write() and read() only copy, so the capture thread
+ * never allocates. If the consumer falls behind and the ring is full, write() drops
+ * the samples that do not fit and records an overrun instead of blocking capture.
+ *
+ * Storage is a native-order direct buffer, so the consumer can hand unread samples
+ * straight to native code (see {@link #feedTo(Sink, int)}) without a Java copy.
+ *
+ * A second, read-only cursor may look ahead of the consumer ({@link #peekAt},
+ * {@link #awaitFrom}); it never frees space, so looked-ahead samples stay in the ring
+ * until the consumer skips them. Only one thread may wait for data at a time.
+ */
+public class AudioRingBuffer {
+
+  private final ShortBuffer buffer;
+  private final int capacity;
+  private final int mask;
+  // Per-side views so position changes never race between producer and consumer
+  private final ShortBuffer writeView;
+  private final ShortBuffer readView;
+  private final ShortBuffer lookaheadView;
+
+  // Monotonic sample counters; index into buffer with (pos & mask)
+  private final AtomicLong writePos = new AtomicLong();
+  private final AtomicLong readPos = new AtomicLong();
+  private volatile boolean writeClosed = false;
+  private volatile Thread waitingReader = null;
+
+  // Statistics (written by producer only)
+  private volatile int highWaterMark = 0;
+  private volatile long overrunCount = 0;
+  private volatile long droppedSamples = 0;
+
+  /** Receives a contiguous run of unread samples, e.g. Recognize.acceptWaveform. */
+  public interface Sink {
+    void accept(ShortBuffer direct, int offset, int length);
+  }
+
+  /** @param minCapacity minimum number of samples; rounded up to a power of two. */
+  public AudioRingBuffer(int minCapacity) {
+    capacity = Integer.highestOneBit(Math.max(2, minCapacity - 1)) << 1;
+    buffer = ByteBuffer.allocateDirect(capacity * 2).order(ByteOrder.nativeOrder()).asShortBuffer();
+    writeView = buffer.duplicate();
+    readView = buffer.duplicate();
+    lookaheadView = buffer.duplicate();
+    mask = capacity - 1;
+  }
+
+  public int capacity() { return capacity; }
+
+  /** Number of samples currently buffered (fill level). */
+  public int available() {
+    return (int) (writePos.get() - readPos.get());
+  }
+
+  /** Largest fill level observed since the last reset(). */
+  public int getHighWaterMark() { return highWaterMark; }
+
+  /** Number of write() calls that could not store all of their samples. */
+  public long getOverrunCount() { return overrunCount; }
+
+  /** Total samples discarded because the ring was full. */
+  public long getDroppedSamples() { return droppedSamples; }
+
+  /** Producer: append samples. Returns the number actually stored. */
+  public int write(short[] src, int offset, int length) {
+    long w = writePos.get();
+    int free = capacity - (int) (w - readPos.get());
+    int n = Math.min(length, free);
+    if (n > 0) {
+      int idx = (int) (w & mask);
+      int first = Math.min(n, capacity - idx);
+      writeView.position(idx);
+      writeView.put(src, offset, first);
+      if (n > first) {
+        writeView.position(0);
+        writeView.put(src, offset + first, n - first);
+      }
+      writePos.lazySet(w + n);
+      int fill = (int) (w + n - readPos.get());
+      if (fill > highWaterMark) highWaterMark = fill;
+    }
+    if (n < length) {
+      overrunCount++;
+      droppedSamples += length - n;
+    }
+    Thread reader = waitingReader;
+    if (reader != null) LockSupport.unpark(reader);
+    return n;
+  }
+
+  /** Producer: no more samples will be written. Wakes a waiting consumer. */
+  public void closeWrite() {
+    writeClosed = true;
+    Thread reader = waitingReader;
+    if (reader != null) LockSupport.unpark(reader);
+  }
+
+  public boolean isWriteClosed() { return writeClosed; }
+
+  /** True once the producer has closed and every sample has been consumed. */
+  public boolean isDrained() {
+    return writeClosed && available() == 0;
+  }
+
+  /** Consumer: copy up to {@code length} samples without blocking. Returns count read. */
+  public int read(short[] dst, int offset, int length) {
+    int n = peek(dst, offset, length);
+    if (n > 0) skip(n);
+    return n;
+  }
+
+  /**
+   * Consumer: like read(), but parks up to {@code timeoutMs} while the ring is empty.
+   * Returns 0 on timeout or when the producer has closed.
+   */
+  public int read(short[] dst, int offset, int length, long timeoutMs) {
+    await(timeoutMs);
+    return read(dst, offset, length);
+  }
+
+  /**
+   * Consumer: park up to {@code timeoutMs} until samples are available or the producer
+   * has closed. Returns the number of samples available.
+   */
+  public int await(long timeoutMs) {
+    int n = available();
+    if (n > 0 || writeClosed) return n;
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+    waitingReader = Thread.currentThread();
+    try {
+      while (available() == 0 && !writeClosed) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0 || Thread.interrupted()) break;
+        LockSupport.parkNanos(this, remaining);
+      }
+    } finally {
+      waitingReader = null;
+    }
+    return available();
+  }
+
+  /** Absolute position of the next sample the consumer will read. */
+  public long readPosition() {
+    return readPos.get();
+  }
+
+  /**
+   * Lookahead: park up to {@code timeoutMs} until samples beyond absolute position
+   * {@code pos} are written or the producer has closed. Returns the number available
+   * from {@code pos}.
+   */
+  public int awaitFrom(long pos, long timeoutMs) {
+    int n = (int) (writePos.get() - pos);
+    if (n > 0 || writeClosed) return n;
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+    waitingReader = Thread.currentThread();
+    try {
+      while (writePos.get() == pos && !writeClosed) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0 || Thread.interrupted()) break;
+        LockSupport.parkNanos(this, remaining);
+      }
+    } finally {
+      waitingReader = null;
+    }
+    return (int) (writePos.get() - pos);
+  }
+
+  /**
+   * Lookahead: copy up to {@code length} samples starting at absolute position
+   * {@code pos}, which must not be behind the consumer. Returns count copied.
+   */
+  public int peekAt(long pos, short[] dst, int offset, int length) {
+    int n = Math.min(length, (int) (writePos.get() - pos));
+    if (n <= 0) return 0;
+    int idx = (int) (pos & mask);
+    int first = Math.min(n, capacity - idx);
+    lookaheadView.position(idx);
+    lookaheadView.get(dst, offset, first);
+    if (n > first) {
+      lookaheadView.position(0);
+      lookaheadView.get(dst, offset + first, n - first);
+    }
+    return n;
+  }
+
+  /** Consumer: copy up to {@code length} unread samples without consuming them. */
+  public int peek(short[] dst, int offset, int length) {
+    long r = readPos.get();
+    int n = Math.min(length, (int) (writePos.get() - r));
+    if (n <= 0) return 0;
+    int idx = (int) (r & mask);
+    int first = Math.min(n, capacity - idx);
+    readView.position(idx);
+    readView.get(dst, offset, first);
+    if (n > first) {
+      readView.position(0);
+      readView.get(dst, offset + first, n - first);
+    }
+    return n;
+  }
+
+  /**
+   * Consumer: pass up to {@code length} unread samples to {@code sink} in place (one call,
+   * or two if the range wraps) without consuming them. Returns the count passed.
+   */
+  public int feedTo(Sink sink, int length) {
+    long r = readPos.get();
+    int n = Math.min(length, (int) (writePos.get() - r));
+    if (n <= 0) return 0;
+    int idx = (int) (r & mask);
+    int first = Math.min(n, capacity - idx);
+    sink.accept(buffer, idx, first);
+    if (n > first) sink.accept(buffer, 0, n - first);
+    return n;
+  }
+
+  /** Consumer: release {@code n} samples after peek() / feedTo(). */
+  public void skip(int n) {
+    readPos.lazySet(readPos.get() + n);
+  }
+
+  /** Discard contents and statistics. Only call while neither side is active. */
+  public void reset() {
+    readPos.set(0);
+    writePos.set(0);
+    writeClosed = false;
+    highWaterMark = 0;
+    overrunCount = 0;
+    droppedSamples = 0;
+  }
+}
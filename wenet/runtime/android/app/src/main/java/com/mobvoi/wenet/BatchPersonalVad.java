@@ -0,0 +1,236 @@
+package com.mobvoi.wenet;
+
+import ai.onnxruntime.OrtEnvironment;
+import android.content.Context;
+import android.os.Process;
+import android.util.Log;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Offline Personal VAD over stored recordings, so my_voice_segments.json also exists for
+ * recordings made before the speaker was enrolled (or enrolled again). Each job decodes
+ * its file to 16 kHz with a pooled {@link AudioDecoder} and runs its own PersonalVadProcessor
+ * as fast as inference allows. Jobs run in parallel, one per worker. They share one
+ * {@link PersonalVadProcessor.Model}, loaded by the first job and closed after the last,
+ * so the ONNX session and filterbank are not rebuilt per recording.
+ *
+ * Named speakers are tracked too; their segments go to speaker_segments.json.
+ *
+ * Resumable: a recording is done once its my_voice_segments.json is newer than every
+ * enrolled embedding, and files are replaced atomically. An interrupted run simply
+ * picks up the remaining recordings next time ({@link #findPending}).
+ *
+ * Recordings are stored at 8 kHz, so the mel bands above 4 kHz are empty, as they were
+ * for the enrollment audio. The model takes fixed [1, 25, 296] chunks, so the speed-up
+ * comes from running recordings in parallel, not from larger model batches.
+ */
+public class BatchPersonalVad {
+
+  private static final String TAG = "BatchPersonalVad";
+  private static final int SAMPLE_RATE = PersonalVadProcessor.SR;
+  private static final int MAX_WORKERS = 4;
+
+  /** Job events. Called on worker threads; post to the UI thread as needed. */
+  public interface Listener {
+    /** my_voice_segments.json was written. */
+    void onJobFinished(String recordingName, long audioMs, long wallMs, int segments);
+    void onJobFailed(String recordingName, String message);
+    /** All submitted jobs are done (or cancelled). Throughput over the whole run. */
+    void onAllFinished(int succeeded, int failed, float audioHoursPerMinute);
+  }
+
+  private static BatchPersonalVad active = null;  // latest run started by start()
+
+  private final Context context;
+  private final File embeddingFile;
+  private final List<String> speakerNames;
+  private final long enrollmentTime;  // results for older embeddings are not saved
+  private final ExecutorService executor;
+  private volatile boolean cancelled = false;
+  private final AtomicInteger activeJobs = new AtomicInteger();  // queued or running
+  private PersonalVadProcessor.Model model = null;  // guarded by this
+
+  public BatchPersonalVad(Context context) {
+    this(context, Math.max(1,
+        Math.min(MAX_WORKERS, Runtime.getRuntime().availableProcessors() - 1)));
+  }
+
+  public BatchPersonalVad(Context context, int workers) {
+    this.context = context.getApplicationContext();
+    this.embeddingFile = SpeakerEnrollment.getEmbeddingFile(this.context);
+    this.speakerNames = SpeakerEnrollment.listSpeakers(this.context);
+    this.enrollmentTime = SpeakerEnrollment.getLastEnrollmentTime(this.context);
+    this.executor = Executors.newFixedThreadPool(workers, r -> new Thread(() -> {
+      Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+      r.run();
+    }, "batch-pvad"));
+  }
+
+  /**
+   * Process every pending recording in the background, cancelling a run started earlier
+   * (e.g. for a previous enrollment). Returns the number of recordings queued.
+   */
+  public static synchronized int start(Context context, String exclude, Listener listener) {
+    if (active != null) active.cancel();
+    List<String> pending = findPending(context, exclude);
+    if (pending.isEmpty()) return 0;
+    BatchPersonalVad batch = new BatchPersonalVad(context);
+    active = batch;
+    batch.process(pending, new Listener() {
+      @Override
+      public void onJobFinished(String recordingName, long audioMs, long wallMs, int segments) {
+        listener.onJobFinished(recordingName, audioMs, wallMs, segments);
+      }
+
+      @Override
+      public void onJobFailed(String recordingName, String message) {
+        listener.onJobFailed(recordingName, message);
+      }
+
+      @Override
+      public void onAllFinished(int succeeded, int failed, float audioHoursPerMinute) {
+        batch.shutdown();
+        listener.onAllFinished(succeeded, failed, audioHoursPerMinute);
+      }
+    });
+    return pending.size();
+  }
+
+  /**
+   * Recordings with audio whose my_voice_segments.json is missing or older than the
+   * latest enrollment. {@code exclude} (e.g. the recording in progress) may be null.
+   */
+  public static List<String> findPending(Context context, String exclude) {
+    List<String> pending = new ArrayList<>();
+    if (!SpeakerEnrollment.getEmbeddingFile(context).exists()) return pending;
+    long enrolled = SpeakerEnrollment.getLastEnrollmentTime(context);
+    for (String name : RecordingManager.listRecordings(context)) {
+      if (name.equals(exclude)) continue;
+      if (RecordingManager.findAudioPath(context, name) == null) continue;
+      File segs = new File(RecordingManager.getMyVoiceSegmentsPath(context, name));
+      if (!segs.exists() || segs.lastModified() < enrolled) pending.add(name);
+    }
+    return pending;
+  }
+
+  /** Queue recordings. Requires an enrolled speaker. */
+  public void process(List<String> recordingNames, Listener listener) {
+    final int total = recordingNames.size();
+    final AtomicInteger done = new AtomicInteger();
+    final AtomicInteger failed = new AtomicInteger();
+    final AtomicLong audioMsTotal = new AtomicLong();
+    final long startNs = System.nanoTime();
+    if (total == 0) {
+      listener.onAllFinished(0, 0, 0f);
+      return;
+    }
+    activeJobs.addAndGet(total);
+    for (String name : recordingNames) {
+      executor.submit(() -> {
+        String error = cancelled ? "취소됨" : runJob(name, listener, audioMsTotal);
+        if (activeJobs.decrementAndGet() == 0) closeModelIfIdle();
+        if (error != null) {
+          failed.incrementAndGet();
+          listener.onJobFailed(name, error);
+        }
+        if (done.incrementAndGet() == total) {
+          float minutes = (System.nanoTime() - startNs) / 60e9f;
+          float hours = audioMsTotal.get() / 3600000f;
+          float throughput = minutes > 0 ? hours / minutes : 0f;
+          Log.i(TAG, String.format(Locale.US, "%d recordings, %.2f h audio in %.1f min: "
+              + "%.2f audio-h/min", total, hours, minutes, throughput));
+          listener.onAllFinished(total - failed.get(), failed.get(), throughput);
+        }
+      });
+    }
+  }
+
+  /** Stop after the current read of every running job; queued jobs are skipped. */
+  public void cancel() {
+    cancelled = true;
+  }
+
+  /** Finish queued jobs, then release the workers. */
+  public void shutdown() {
+    executor.shutdown();
+  }
+
+  private synchronized PersonalVadProcessor.Model acquireModel() {
+    if (model == null) {
+      model = PersonalVadProcessor.Model.load(context, OrtEnvironment.getEnvironment());
+    }
+    return model;
+  }
+
+  /** After the last queued job; a later process() loads the model again. */
+  private synchronized void closeModelIfIdle() {
+    if (model == null || activeJobs.get() > 0) return;
+    model.close();
+    model = null;
+  }
+
+  /** Returns null on success, otherwise an error message. */
+  private String runJob(String name, Listener listener, AtomicLong audioMsTotal) {
+    String audioPath = RecordingManager.findAudioPath(context, name);
+    if (audioPath == null) return "오디오 파일이 없습니다.";
+
+    PersonalVadProcessor pvad = null;
+    AudioDecoder decoder = null;
+    long startNs = System.nanoTime();
+    try {
+      pvad = new PersonalVadProcessor(acquireModel());
+      if (!pvad.loadSpeakerEmbedding(embeddingFile) || !pvad.isReady()) {
+        return "Personal VAD를 초기화할 수 없습니다.";
+      }
+      for (String speaker : speakerNames) {
+        pvad.addSpeaker(speaker, SpeakerEnrollment.getSpeakerFile(context, speaker));
+      }
+
+      decoder = AudioDecoder.open(audioPath, SAMPLE_RATE);
+      if (decoder == null) return "오디오 트랙이 없습니다.";
+
+      short[] pcm16k = new short[SAMPLE_RATE / 10];
+      long samples = 0;
+      int n;
+
+      while ((n = decoder.read(pcm16k, 0, pcm16k.length)) >= 0) {
+        if (cancelled) return "취소됨";
+        pvad.process(pcm16k, 0, n);
+        samples += n;
+      }
+      pvad.flush();
+      if (SpeakerEnrollment.getLastEnrollmentTime(context) != enrollmentTime) {
+        return "화자 등록이 변경되었습니다.";
+      }
+      List<long[]> segments = pvad.getSegments();
+      // Speakers first: a fresh my_voice_segments.json marks the recording as done
+      if (!RecordingManager.saveSpeakerSegments(context, name, pvad.getSpeakerSegments())) {
+        return "결과를 저장할 수 없습니다.";
+      }
+      if (!RecordingManager.saveMyVoiceSegments(context, name, segments)) {
+        return "결과를 저장할 수 없습니다.";
+      }
+
+      long wallMs = (System.nanoTime() - startNs) / 1000000;
+      long audioMs = samples * 1000 / SAMPLE_RATE;
+      audioMsTotal.addAndGet(audioMs);
+      Log.i(TAG, name + ": " + audioMs + " ms audio in " + wallMs + " ms, "
+          + segments.size() + " segments");
+      listener.onJobFinished(name, audioMs, wallMs, segments.size());
+      return null;
+    } catch (Exception e) {
+      Log.e(TAG, "Personal VAD failed for " + name + ": " + e.getMessage());
+      return e.getMessage() != null ? e.getMessage() : e.toString();
+    } finally {
+      if (decoder != null) decoder.close();
+      if (pvad != null) pvad.release();
+    }
+  }
+}
@@ -0,0 +1,189 @@
+package com.mobvoi.wenet;
+
+import android.content.Context;
+import android.os.Process;
+import android.util.Log;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Offline re-transcription of stored recordings (audio.ogg / .m4a / .3gp), e.g. after a
+ * model upgrade. Each job decodes its file to 8 kHz with a pooled {@link AudioDecoder} and
+ * feeds its own {@link Recognize} session as fast as the decoder consumes it, with larger
+ * chunks since latency does not matter. Attention rescoring is requested too, but only
+ * takes effect if the model ships its attention decoder: the bundled ONNX export has no
+ * decoder.onnx, so it decodes with CTC prefix beam search alone. Jobs run in parallel,
+ * one per worker; every session runs single-threaded, so workers map onto cores.
+ *
+ * Writes result.json per recording (same format as a live recording) and reports the
+ * real-time factor (decode wall time / audio duration) of each job.
+ */
+public class BatchTranscriber {
+
+  private static final String TAG = "BatchTranscriber";
+  private static final int SAMPLE_RATE = AudioPipeline.ASR_SAMPLE_RATE;
+  private static final int CHUNK_SIZE = 32;            // encoder frames per chunk (streaming: 16)
+  private static final int MAX_PENDING_FRAMES = 1000;  // ~10 s of features ahead of the decoder
+  private static final int MAX_WORKERS = 4;            // each session holds its own model state
+  private static final long FINAL_TIMEOUT_S = 60;      // decoding the queued features after input ends
+
+  /** Job events. Called on worker threads; post to the UI thread as needed. */
+  public interface Listener {
+    /** Decoded audio fraction of one recording, 0-100. */
+    void onProgress(String recordingName, int percent);
+    /** result.json was written. rtf = wallMs / audioMs. */
+    void onJobFinished(String recordingName, long audioMs, long wallMs, float rtf);
+    void onJobFailed(String recordingName, String message);
+    /** All submitted jobs are done (or cancelled). */
+    void onAllFinished(int succeeded, int failed);
+  }
+
+  private final Context context;
+  private final ExecutorService executor;
+  private volatile boolean cancelled = false;
+
+  public BatchTranscriber(Context context) {
+    this(context, Math.max(1,
+        Math.min(MAX_WORKERS, Runtime.getRuntime().availableProcessors() - 1)));
+  }
+
+  public BatchTranscriber(Context context, int workers) {
+    this.context = context.getApplicationContext();
+    this.executor = Executors.newFixedThreadPool(workers, r -> new Thread(() -> {
+      Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+      r.run();
+    }, "batch-asr"));
+  }
+
+  /** Queue recordings for transcription. The model must already be loaded. */
+  public void transcribe(List<String> recordingNames, Listener listener) {
+    final int total = recordingNames.size();
+    final AtomicInteger done = new AtomicInteger();
+    final AtomicInteger failed = new AtomicInteger();
+    if (total == 0) {
+      listener.onAllFinished(0, 0);
+      return;
+    }
+    for (String name : recordingNames) {
+      executor.submit(() -> {
+        String error = cancelled ? "취소됨" : runJob(name, listener);
+        if (error != null) {
+          failed.incrementAndGet();
+          listener.onJobFailed(name, error);
+        }
+        if (done.incrementAndGet() == total) {
+          listener.onAllFinished(total - failed.get(), failed.get());
+        }
+      });
+    }
+  }
+
+  /** Stop after the current chunk of every running job; queued jobs are skipped. */
+  public void cancel() {
+    cancelled = true;
+  }
+
+  /** Finish queued jobs, then release the workers. */
+  public void shutdown() {
+    executor.shutdown();
+  }
+
+  /** Returns null on success, otherwise an error message. */
+  private String runJob(String name, Listener listener) {
+    String audioPath = RecordingManager.findAudioPath(context, name);
+    if (audioPath == null) return "오디오 파일이 없습니다.";
+
+    final Recognize recognizer;
+    try {
+      recognizer = new Recognize(CHUNK_SIZE, true);
+    } catch (IllegalStateException e) {
+      return "모델이 로드되지 않았습니다.";
+    }
+    final CountDownLatch finished = new CountDownLatch(1);
+    AudioDecoder decoder = null;
+    long startNs = System.nanoTime();
+    try {
+      recognizer.reset();
+      recognizer.setResultListener(new Recognize.ResultListener() {
+        @Override public void onPartial(String partial) {}
+        @Override public void onEndpoint(ByteBuffer delta) {}
+        @Override public void onFinal(ByteBuffer delta) { finished.countDown(); }
+      });
+      recognizer.startDecode();
+
+      decoder = AudioDecoder.open(audioPath, SAMPLE_RATE);
+      if (decoder == null) return "오디오 트랙이 없습니다.";
+      long durationUs = decoder.getDurationUs();
+
+      short[] pcm8k = new short[SAMPLE_RATE / 10];
+      // Direct, so the recognizer reads it without a copy
+      ShortBuffer stage = ByteBuffer.allocateDirect(pcm8k.length * 2)
+          .order(ByteOrder.nativeOrder()).asShortBuffer();
+      long fedSamples = 0;
+      int lastPercent = -1;
+      int n;
+
+      while ((n = decoder.read(pcm8k, 0, pcm8k.length)) >= 0) {
+        if (cancelled) return "취소됨";
+        awaitDecoder(recognizer);
+        stage.clear();
+        stage.put(pcm8k, 0, n);
+        recognizer.acceptWaveform(stage, 0, n);
+        fedSamples += n;
+        if (durationUs > 0) {
+          int percent = (int) (decoder.getPositionUs() * 100 / durationUs);
+          if (percent != lastPercent) {
+            lastPercent = percent;
+            listener.onProgress(name, percent);
+          }
+        }
+      }
+      recognizer.setInputFinished();
+      if (!finished.await(FINAL_TIMEOUT_S, TimeUnit.SECONDS)) {
+        Log.e(TAG, "No final result for " + name + " after " + FINAL_TIMEOUT_S + " s");
+        return "인식 결과를 받지 못했습니다.";
+      }
+
+      // The existing transcript stays intact if the job dies while saving
+      String timedJson = recognizer.getTimedResult();
+      if (!RecordingManager.writeAtomically(new File(RecordingManager.getResultPath(context, name)),
+          timedJson.getBytes(StandardCharsets.UTF_8), "result.json")) {
+        return "결과를 저장할 수 없습니다.";
+      }
+
+      long wallMs = (System.nanoTime() - startNs) / 1000000;
+      long audioMs = fedSamples * 1000 / SAMPLE_RATE;
+      float rtf = audioMs > 0 ? (float) wallMs / audioMs : 0f;
+      Log.i(TAG, name + ": " + audioMs + " ms audio in " + wallMs + " ms, RTF="
+          + String.format(java.util.Locale.US, "%.3f", rtf));
+      listener.onJobFinished(name, audioMs, wallMs, rtf);
+      return null;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return "중단됨";
+    } catch (Exception e) {
+      Log.e(TAG, "Batch transcription failed for " + name + ": " + e.getMessage());
+      return e.getMessage() != null ? e.getMessage() : e.toString();
+    } finally {
+      if (decoder != null) decoder.close();
+      // Also ends the session's input, so a decode still running winds down
+      recognizer.release();
+    }
+  }
+
+  /** Back-pressure: the feature queue is unbounded, so stay a bounded distance ahead. */
+  private void awaitDecoder(Recognize recognizer) throws InterruptedException {
+    while (!cancelled && recognizer.getPendingFrames() > MAX_PENDING_FRAMES) {
+      Thread.sleep(5);
+    }
+  }
+}
@@ -0,0 +1,159 @@
+package com.mobvoi.wenet;
+
+import android.os.Process;
+import android.util.Log;
+
+/**
+ * Runs the 16 kHz capture-stage detectors (Personal VAD plus any benchmark detectors)
+ * on their own thread, so chunk inference never stalls the decoder feed. The worker is
+ * the only reader of the capture ring.
+ *
+ * Lag budget: with a real-time source, once more than {@link #LAG_BUDGET_MS} of audio
+ * is waiting, the oldest audio is dropped down to {@link #LAG_TARGET_MS} and the
+ * detectors skip it (stream times stay aligned with the recording). Sources that
+ * replay faster than real time are never dropped; the capture stage waits for ring
+ * space instead.
+ *
+ * Speech gate (optional): blocks with no SileroVad speech within {@link #PRE_ROLL_MS}
+ * after them are skipped as non-speech instead of processed. Detector timelines stay
+ * aligned across skipped audio.
+ */
+public class CaptureVadWorker {
+
+  private static final String TAG = "CaptureVadWorker";
+  static final int LAG_BUDGET_MS = 3000;
+  static final int LAG_TARGET_MS = 500;
+  static final int PRE_ROLL_MS = 250;  // one Personal VAD chunk before a speech onset
+  private static final long RING_WAIT_MS = 100;
+
+  private final AudioRingBuffer ring;
+  private final StreamingVad vad;
+  private final boolean realtime;
+  private final short[] block;
+  private final int lagBudget;   // samples
+  private final int lagTarget;   // samples
+
+  private Thread thread;
+  private volatile long droppedSamples = 0;
+  private volatile int dropCount = 0;
+  private volatile int maxLag = 0;
+  private SpeechTimeline gate = null;
+  private int gateRate = 0;
+  private volatile long processedSamples = 0;
+  private volatile long gatedSamples = 0;
+
+  /** {@code blockSize}: samples per process() call, as the capture stage writes them. */
+  public CaptureVadWorker(AudioRingBuffer ring, StreamingVad vad, boolean realtime,
+                          int blockSize) {
+    this.ring = ring;
+    this.vad = vad;
+    this.realtime = realtime;
+    this.block = new short[blockSize];
+    this.lagBudget = vad.getSampleRate() * LAG_BUDGET_MS / 1000;
+    this.lagTarget = vad.getSampleRate() * LAG_TARGET_MS / 1000;
+  }
+
+  /**
+   * Only process audio that {@code timeline} (at {@code sampleRate}) marks as speech,
+   * or that precedes speech by up to PRE_ROLL_MS. Set before start().
+   */
+  public void setSpeechGate(SpeechTimeline timeline, int sampleRate) {
+    this.gate = timeline;
+    this.gateRate = sampleRate;
+  }
+
+  public void start() {
+    droppedSamples = 0;
+    dropCount = 0;
+    maxLag = 0;
+    processedSamples = 0;
+    gatedSamples = 0;
+    thread = new Thread(this::run, "audio-pvad");
+    thread.start();
+  }
+
+  /**
+   * Wait until the ring is drained and the detectors are flushed. Segments are final
+   * (and safe to read from the calling thread) once this returns.
+   */
+  public void join() {
+    try {
+      if (thread != null) thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  public long getDroppedSamples() {
+    return droppedSamples;
+  }
+
+  public int getDropCount() {
+    return dropCount;
+  }
+
+  /** Largest backlog seen, in samples. */
+  public int getMaxLag() {
+    return maxLag;
+  }
+
+  /** Samples run through the detectors. */
+  public long getProcessedSamples() {
+    return processedSamples;
+  }
+
+  /** Samples the speech gate skipped (compute saved). */
+  public long getGatedSamples() {
+    return gatedSamples;
+  }
+
+  private void run() {
+    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+    while (!ring.isDrained()) {
+      int lag = ring.await(RING_WAIT_MS);
+      if (lag == 0) continue;
+      if (lag > maxLag) maxLag = lag;
+      if (realtime && lag > lagBudget) {
+        int drop = lag - lagTarget;
+        ring.skip(drop);
+        vad.skip(drop);
+        droppedSamples += drop;
+        dropCount++;
+        Log.w(TAG, "Capture VADs " + toMs(lag) + " ms behind, dropped " + toMs(drop) + " ms");
+      }
+      int n = Math.min(ring.available(), block.length);
+      if (gate != null && n > 0) {
+        long pos = ring.readPosition();
+        long from = pos * gateRate / vad.getSampleRate();
+        long to = (pos + n) * gateRate / vad.getSampleRate() + gateRate * PRE_ROLL_MS / 1000;
+        // SileroVad runs ahead on the 8 kHz copy; wait for it, re-checking the lag budget
+        if (!gate.awaitDecided(to, RING_WAIT_MS)) continue;
+        if (!gate.hasSpeech(from, to)) {
+          ring.skip(n);
+          vad.skipNonSpeech(n);
+          gatedSamples += n;
+          continue;
+        }
+      }
+      n = ring.read(block, 0, n);
+      if (n > 0) {
+        vad.process(block, 0, n);
+        processedSamples += n;
+      }
+    }
+    vad.flush();
+    if (gate != null) {
+      long total = processedSamples + gatedSamples;
+      Log.i(TAG, "Speech gate: skipped " + toMs(gatedSamples) + " of " + toMs(total) + " ms ("
+          + (total > 0 ? gatedSamples * 100 / total : 0) + "% of capture VAD compute saved)");
+    }
+    if (dropCount > 0 || maxLag > lagTarget) {
+      Log.i(TAG, "Capture VAD lag: max " + toMs(maxLag) + " ms, dropped "
+          + toMs(droppedSamples) + " ms in " + dropCount + " gaps");
+    }
+  }
+
+  private long toMs(long samples) {
+    return samples * 1000 / vad.getSampleRate();
+  }
+}
@@ -0,0 +1,177 @@
+package com.mobvoi.wenet;
+
+/**
+ * Energy detector: frame RMS against an adaptive noise floor, with on/off hysteresis
+ * and a hangover. No model, so it costs almost nothing. Useful as a baseline when
+ * benchmarking detectors, or as a cheap first stage.
+ *
+ * The probability is a linear map of the frame's level above the floor:
+ * 0 at {@link #MIN_MARGIN_DB}, 1 at {@link #MAX_MARGIN_DB}. It is 0 for the first
+ * {@link NoiseFloor#SEED_MS} while the floor settles, so speech right at the start
+ * of a stream is picked up one seed window late.
+ */
+public class EnergyVad implements StreamingVad {
+
+    static final float MIN_MARGIN_DB = 3f;
+    static final float MAX_MARGIN_DB = 15f;
+    private static final float THRESHOLD_ON = 0.5f;
+    private static final float THRESHOLD_OFF = 0.25f;
+    private static final int HANGOVER_MS = 300;
+
+    private final int sampleRate;
+    private final int frameSize;
+    private final int hangoverFrames;
+    private final NoiseFloor noiseFloor;
+
+    private final short[] frame;
+    private int frameLen = 0;
+
+    private StreamingVad.Listener listener = null;
+    private float lastProb = 0f;
+    private long samples = 0;
+    private boolean inSpeech = false;
+    private int quietFrames = 0;
+    private long segmentStart = -1;
+    private long speechEnd = 0;
+
+    /** 32 ms frames at 8 kHz, same grid as SileroVad. */
+    public EnergyVad() {
+        this(AudioPipeline.ASR_SAMPLE_RATE, SileroVad.CHUNK_SIZE);
+    }
+
+    public EnergyVad(int sampleRate, int frameSize) {
+        this.sampleRate = sampleRate;
+        this.frameSize = frameSize;
+        this.frame = new short[frameSize];
+        float frameMs = frameSize * 1000f / sampleRate;
+        this.hangoverFrames = Math.max(1, Math.round(HANGOVER_MS / frameMs));
+        this.noiseFloor = new NoiseFloor(sampleRate, frameSize);
+    }
+
+    @Override
+    public String getName() {
+        return "energy";
+    }
+
+    @Override
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public int getFrameSize() {
+        return frameSize;
+    }
+
+    @Override
+    public boolean isReady() {
+        return true;
+    }
+
+    @Override
+    public void setListener(StreamingVad.Listener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void process(short[] pcm, int offset, int length) {
+        int end = offset + length;
+        while (offset < end) {
+            int n = Math.min(end - offset, frameSize - frameLen);
+            System.arraycopy(pcm, offset, frame, frameLen, n);
+            frameLen += n;
+            offset += n;
+            if (frameLen == frameSize) {
+                decide(frameSize);
+                frameLen = 0;
+            }
+        }
+    }
+
+    @Override
+    public float getLastProbability() {
+        return lastProb;
+    }
+
+    /** Noise floor and segment state carry over the gap; the partial frame is dropped. */
+    @Override
+    public void skip(int length) {
+        samples += frameLen + length;
+        frameLen = 0;
+    }
+
+    @Override
+    public void skipNonSpeech(int length) {
+        if (inSpeech) endSegment(speechEnd);
+        inSpeech = false;
+        quietFrames = 0;
+        skip(length);
+    }
+
+    @Override
+    public void flush() {
+        if (frameLen > 0) {
+            decide(frameLen);
+            frameLen = 0;
+        }
+        if (inSpeech) endSegment(speechEnd);
+        inSpeech = false;
+        quietFrames = 0;
+    }
+
+    @Override
+    public void reset() {
+        frameLen = 0;
+        noiseFloor.reset();
+        lastProb = 0f;
+        samples = 0;
+        inSpeech = false;
+        quietFrames = 0;
+        segmentStart = -1;
+        speechEnd = 0;
+    }
+
+    private void decide(int length) {
+        long energy = 0;
+        for (int i = 0; i < length; i++) energy += frame[i] * frame[i];
+        float db = NoiseFloor.levelDb(energy, length);
+        float margin = db - noiseFloor.update(db);
+        // Until the floor has settled, room noise would sit far above it: call it silence
+        float prob = !noiseFloor.isSettled() ? 0f : Math.max(0f, Math.min(1f,
+                (margin - MIN_MARGIN_DB) / (MAX_MARGIN_DB - MIN_MARGIN_DB)));
+
+        long start = samples;
+        samples += length;
+        lastProb = prob;
+        if (listener != null) listener.onProbability(this, toMs(samples), prob);
+
+        if (!inSpeech) {
+            if (prob >= THRESHOLD_ON) {
+                inSpeech = true;
+                quietFrames = 0;
+                segmentStart = start;
+                speechEnd = samples;
+                if (listener != null) listener.onSegmentStart(this, toMs(start));
+            }
+        } else if (prob < THRESHOLD_OFF) {
+            if (++quietFrames > hangoverFrames) {
+                inSpeech = false;
+                quietFrames = 0;
+                endSegment(speechEnd);
+            }
+        } else {
+            quietFrames = 0;
+            speechEnd = samples;
+        }
+    }
+
+    private void endSegment(long end) {
+        if (segmentStart < 0) return;
+        if (listener != null) listener.onSegmentEnd(this, toMs(segmentStart), toMs(end));
+        segmentStart = -1;
+    }
+
+    private long toMs(long n) {
+        return n * 1000 / sampleRate;
+    }
+}
@@ -0,0 +1,206 @@
+package com.mobvoi.wenet;
+
+import android.util.Log;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Replays a WAV (16-bit PCM, any rate / channel count) file, or a raw PCM file the
+ * caller declares as such, through AudioPipeline in place of the microphone, for reproducible RTF / latency runs.
+ * Audio is converted to 16 kHz mono (first channel) and delivered in fixed blocks, so
+ * the same file always yields the same blocks.
+ *
+ * Real-time mode paces each block to the wall clock like AudioRecord. Otherwise blocks
+ * are returned as fast as the pipeline accepts them; {@link #isRealtime()} tells the
+ * pipeline to apply back-pressure instead of dropping samples.
+ */
+public class FileAudioSource implements AudioPipeline.AudioSource {
+
+  private static final String TAG = "FileAudioSource";
+  private static final int READ_SIZE = 1024; // samples at 16 kHz (64 ms)
+
+  private final String path;
+  private final boolean realtime;
+  private final int rawSampleRate;  // 0: WAV only
+  private final int rawChannels;
+
+  private RandomAccessFile file = null;
+  private FileChannel channel = null;
+  private ByteBuffer bytes = null;
+  private Resampler resampler = null;
+  private int channels = 1;
+  private long dataEnd = 0;       // file offset where PCM data ends
+  private long delivered = 0;     // 16 kHz samples returned so far
+  private long startNs = 0;
+  private short[] pending = new short[0]; // resampler output not yet returned
+  private int pendingOff = 0;
+  private int pendingLen = 0;
+
+  /** WAV file only; anything without a RIFF/WAVE header is rejected by start(). */
+  public FileAudioSource(String path, boolean realtime) {
+    this(path, realtime, 0, 0);
+  }
+
+  /**
+   * WAV file, or headerless 16-bit little-endian PCM at {@code rawSampleRate} with
+   * {@code rawChannels} channels.
+   */
+  public FileAudioSource(String path, boolean realtime, int rawSampleRate, int rawChannels) {
+    this.path = path;
+    this.realtime = realtime;
+    this.rawSampleRate = rawSampleRate;
+    this.rawChannels = rawChannels;
+  }
+
+  @Override
+  public boolean start() {
+    stop();
+    try {
+      file = new RandomAccessFile(path, "r");
+      channel = file.getChannel();
+      int sampleRate = rawSampleRate;
+      channels = rawChannels;
+      long dataStart = 0;
+      dataEnd = channel.size();
+
+      ByteBuffer header = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+      channel.read(header, 0);
+      if (header.position() == 12 && header.getInt(0) == 0x46464952   // "RIFF"
+          && header.getInt(8) == 0x45564157) {                         // "WAVE"
+        // Walk chunks for "fmt " and "data"
+        ByteBuffer chunk = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+        long pos = 12;
+        dataStart = -1;
+        while (pos + 8 <= channel.size()) {
+          chunk.clear();
+          chunk.limit(8);
+          channel.read(chunk, pos);
+          int id = chunk.getInt(0);
+          long size = chunk.getInt(4) & 0xffffffffL;
+          if (id == 0x20746d66) {                    // "fmt "
+            chunk.clear();
+            channel.read(chunk, pos + 8);
+            int format = chunk.getShort(0) & 0xffff;
+            channels = chunk.getShort(2);
+            sampleRate = chunk.getInt(4);
+            int bits = chunk.getShort(14);
+            if ((format != 1 && format != 0xfffe) || bits != 16) {
+              Log.e(TAG, "Unsupported WAV format " + format + " / " + bits + " bit: " + path);
+              stop();
+              return false;
+            }
+          } else if (id == 0x61746164) {             // "data"
+            dataStart = pos + 8;
+            dataEnd = Math.min(channel.size(), dataStart + size);
+            break;
+          }
+          pos += 8 + size + (size & 1);
+        }
+        if (dataStart < 0) {
+          Log.e(TAG, "No data chunk in " + path);
+          stop();
+          return false;
+        }
+      } else if (rawSampleRate <= 0) {
+        Log.e(TAG, "Not a WAV file: " + path);
+        stop();
+        return false;
+      }
+      channel.position(dataStart);
+      if (channels < 1 || sampleRate <= 0) {
+        Log.e(TAG, "Bad format " + sampleRate + " Hz x" + channels + ": " + path);
+        stop();
+        return false;
+      }
+
+      resampler = new Resampler(sampleRate, AudioPipeline.CAPTURE_SAMPLE_RATE);
+      int inFrames = (int) ((long) READ_SIZE * sampleRate / AudioPipeline.CAPTURE_SAMPLE_RATE) + 1;
+      bytes = ByteBuffer.allocateDirect(inFrames * 2 * channels).order(ByteOrder.LITTLE_ENDIAN);
+      pending = new short[resampler.maxOutput(inFrames)];
+      pendingOff = 0;
+      pendingLen = 0;
+      delivered = 0;
+      startNs = System.nanoTime();
+      Log.i(TAG, "Replaying " + path + " (" + sampleRate + " Hz x" + channels
+          + (realtime ? ", real-time)" : ", as fast as possible)"));
+      return true;
+    } catch (IOException e) {
+      Log.e(TAG, "Cannot open " + path + ": " + e.getMessage());
+      stop();
+      return false;
+    }
+  }
+
+  @Override
+  public int read(short[] dst, int offset, int length) {
+    if (channel == null) return -1;
+    int n = 0;
+    try {
+      while (n < length) {
+        if (pendingLen == 0 && !refill()) break;
+        int take = Math.min(length - n, pendingLen);
+        System.arraycopy(pending, pendingOff, dst, offset + n, take);
+        pendingOff += take;
+        pendingLen -= take;
+        n += take;
+      }
+    } catch (IOException e) {
+      Log.e(TAG, "Read failed: " + e.getMessage());
+      return -1;
+    }
+    if (n == 0) return -1;
+    delivered += n;
+    if (realtime) {
+      // A block becomes available once its last sample has been "recorded"
+      long dueNs = startNs + delivered * 1000000000L / AudioPipeline.CAPTURE_SAMPLE_RATE;
+      long waitNs = dueNs - System.nanoTime();
+      if (waitNs > 0) {
+        try {
+          Thread.sleep(waitNs / 1000000, (int) (waitNs % 1000000));
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+    return n;
+  }
+
+  /** Decode the next input block into {@code pending}. Returns false at end of data. */
+  private boolean refill() throws IOException {
+    long remaining = dataEnd - channel.position();
+    int frameBytes = 2 * channels;
+    if (remaining < frameBytes) return false;
+    bytes.clear();
+    if (remaining < bytes.capacity()) bytes.limit((int) remaining);
+    while (bytes.hasRemaining() && channel.read(bytes) > 0) {}
+    bytes.flip();
+    bytes.limit(bytes.limit() / frameBytes * frameBytes);
+    pendingOff = 0;
+    pendingLen = resampler.process(bytes, channels, pending, 0);
+    return pendingLen > 0 || channel.position() < dataEnd;
+  }
+
+  @Override
+  public int getReadSize() {
+    return READ_SIZE;
+  }
+
+  @Override
+  public boolean isRealtime() {
+    return realtime;
+  }
+
+  @Override
+  public void stop() {
+    try {
+      if (file != null) file.close();
+    } catch (IOException ignored) {
+    } finally {
+      file = null;
+      channel = null;
+    }
+  }
+}
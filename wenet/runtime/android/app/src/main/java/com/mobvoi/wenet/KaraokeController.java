@@ -41,6 +41,12 @@ public class KaraokeController {
   // Personal VAD segments: [[startMs, endMs], ...] — null means no data (show all black)
   private long[][] myVoiceSegments = null;
 
+  // Named speakers' segments from speaker_segments.json, coloured from SPEAKER_COLORS
+  private static final int[] SPEAKER_COLORS = {
+      0xFF1E88E5, 0xFFE53935, 0xFF43A047, 0xFF8E24AA, 0xFFFB8C00, 0xFF00897B };
+  private final List<String> speakerNames = new ArrayList<>();
+  private final List<long[][]> speakerSegments = new ArrayList<>();
+
   /** Load Personal VAD segments from my_voice_segments.json for the given recording. */
   public void loadMyVoiceSegments(Context context, String recordingName) {
     myVoiceSegments = null;
@@ -64,6 +70,46 @@ public class KaraokeController {
     }
   }
 
+  /**
+   * Load the named speakers' segments from speaker_segments.json, if any. Speakers deleted
+   * since the file was written are left out.
+   */
+  public void loadSpeakerSegments(Context context, String recordingName) {
+    speakerNames.clear();
+    speakerSegments.clear();
+    try {
+      File f = new File(RecordingManager.getSpeakerSegmentsPath(context, recordingName));
+      if (!f.exists()) return;
+      FileInputStream fis = new FileInputStream(f);
+      byte[] data = new byte[(int) f.length()];
+      fis.read(data);
+      fis.close();
+      JSONObject obj = new JSONObject(new String(data, "UTF-8"));
+      JSONArray names = obj.names();
+      List<String> enrolled = SpeakerEnrollment.listSpeakers(context);
+      for (int k = 0; names != null && k < names.length(); k++) {
+        if (!enrolled.contains(names.getString(k))) continue;
+        JSONArray arr = obj.getJSONArray(names.getString(k));
+        long[][] segs = new long[arr.length()][2];
+        for (int i = 0; i < arr.length(); i++) {
+          JSONArray seg = arr.getJSONArray(i);
+          segs[i][0] = seg.getLong(0);
+          segs[i][1] = seg.getLong(1);
+        }
+        speakerNames.add(names.getString(k));
+        speakerSegments.add(segs);
+      }
+    } catch (Exception e) {
+      android.util.Log.e("KaraokeController", "loadSpeakerSegments error: " + e.getMessage());
+      speakerNames.clear();
+      speakerSegments.clear();
+    }
+  }
+
+  private static int getSpeakerColor(int index) {
+    return SPEAKER_COLORS[index % SPEAKER_COLORS.length];
+  }
+
   /** Load word spans from result.json for the given recording. */
   public void load(Context context, String recordingName) {
     wordSpans = new ArrayList<>();
@@ -102,6 +148,15 @@ public class KaraokeController {
     currentBgSpan = null;
     currentFgSpan = null;
 
+    // Legend line: one coloured bullet per named speaker
+    for (int k = 0; k < speakerNames.size(); k++) {
+      int start = karaokeSSB.length();
+      karaokeSSB.append("\u25CF ").append(speakerNames.get(k)).append("  ");
+      karaokeSSB.setSpan(new ForegroundColorSpan(getSpeakerColor(k)),
+          start, karaokeSSB.length(), android.text.Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+    }
+    if (!speakerNames.isEmpty()) karaokeSSB.append("\n");
+
     int sentenceStartMs = -1;
     boolean needNewLine = false;
     for (int i = 0; i < wordSpans.size(); i++) {
@@ -126,13 +181,21 @@ public class KaraokeController {
         karaokeSSB.append(ws.word);
         karaokeSpanEnds[i] = karaokeSSB.length();
       }
-      // Apply gray color if Personal VAD data available and this word is NOT my voice
-      if (myVoiceSegments != null && karaokeSpanEnds[i] > karaokeSpanStarts[i]) {
-        if (!isMyVoiceMs(ws.startMs, ws.endMs)) {
-          karaokeSSB.setSpan(new ForegroundColorSpan(Color.LTGRAY),
-              karaokeSpanStarts[i], karaokeSpanEnds[i],
-              android.text.Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+      // Personal VAD data available and this word is NOT my voice: the colour of the
+      // named speaker talking, else gray
+      if ((myVoiceSegments != null || !speakerSegments.isEmpty())
+          && karaokeSpanEnds[i] > karaokeSpanStarts[i]
+          && !overlaps(myVoiceSegments, ws.startMs, ws.endMs)) {
+        int color = Color.LTGRAY;
+        for (int k = 0; k < speakerSegments.size(); k++) {
+          if (overlaps(speakerSegments.get(k), ws.startMs, ws.endMs)) {
+            color = getSpeakerColor(k);
+            break;
+          }
         }
+        karaokeSSB.setSpan(new ForegroundColorSpan(color),
+            karaokeSpanStarts[i], karaokeSpanEnds[i],
+            android.text.Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
       }
     }
     textView.setText(karaokeSSB, TextView.BufferType.SPANNABLE);
@@ -287,14 +350,14 @@ public class KaraokeController {
 
   public List<WordSpan> getWordSpans() { return wordSpans; }
 
-  /** Binary search: returns true if [startMs, endMs) overlaps any my-voice segment. */
-  private boolean isMyVoiceMs(int startMs, int endMs) {
-    if (myVoiceSegments == null || myVoiceSegments.length == 0) return false;
-    int lo = 0, hi = myVoiceSegments.length - 1;
+  /** Binary search: returns true if [startMs, endMs) overlaps any of the segments. */
+  private static boolean overlaps(long[][] segments, int startMs, int endMs) {
+    if (segments == null || segments.length == 0) return false;
+    int lo = 0, hi = segments.length - 1;
     while (lo <= hi) {
       int mid = (lo + hi) / 2;
-      long segStart = myVoiceSegments[mid][0];
-      long segEnd = myVoiceSegments[mid][1];
+      long segStart = segments[mid][0];
+      long segEnd = segments[mid][1];
       if (endMs <= segStart) { hi = mid - 1; }
       else if (startMs >= segEnd) { lo = mid + 1; }
       else { return true; } // overlap found
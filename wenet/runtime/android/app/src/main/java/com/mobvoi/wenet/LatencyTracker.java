@@ -0,0 +1,171 @@
+package com.mobvoi.wenet;
+
+import android.util.Log;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.Locale;
+import org.json.JSONObject;
+
+/**
+ * Per-stage end-to-end latency of one recording.
+ *
+ * The capture stage stamps every block with System.nanoTime() when the source read
+ * returns, keyed by its end position in the 8 kHz stream. Later stages look up the
+ * capture time of the audio they handle (a block end, or a word's end timestamp) and
+ * record "now - captured" into a fixed histogram per stage, so a word appearing on
+ * screen can be traced back to when it was spoken. Recording never allocates.
+ *
+ * Input latency before the read returns (hardware / AudioRecord buffering) is not
+ * included. Thread-safe; each stage is typically recorded from one thread.
+ */
+public class LatencyTracker {
+
+  private static final String TAG = "LatencyTracker";
+
+  // Block read out of the 8 kHz ring by its first reader: the ASR thread, or the VAD
+  // lookahead worker when VAD is on (the ASR thread then replays it after STAGE_VAD)
+  public static final int STAGE_RING = 0;
+  public static final int STAGE_VAD = 1;      // Silero VAD decided on the block
+  public static final int STAGE_FEED = 2;     // block handed to Recognize.acceptWaveform
+  public static final int STAGE_PARTIAL = 3;  // partial hypothesis covering the block arrived
+  public static final int STAGE_WORD = 4;     // confirmed word arrived from the decoder
+  public static final int STAGE_UI = 5;       // text committed to the TextView
+  private static final String[] STAGE_NAMES = {
+      "ring", "vad", "accept_waveform", "decode_partial", "decode_word", "ui_commit"};
+
+  // Histogram: 1 ms buckets below 2 s, then 10 ms buckets up to ~20 s (last is overflow)
+  private static final int FINE_BUCKETS = 2000;
+  private static final int COARSE_BUCKETS = 1800;
+  private static final int COARSE_MS = 10;
+  private static final int BUCKETS = FINE_BUCKETS + COARSE_BUCKETS;
+
+  // Capture timeline, circular; old entries are overwritten
+  private static final int TIMELINE_SIZE = 4096;
+
+  private final long[] blockEnd = new long[TIMELINE_SIZE];   // 8 kHz sample position
+  private final long[] blockTimeNs = new long[TIMELINE_SIZE];
+  private int blocks = 0;   // total blocks stamped
+  private long captured = 0; // samples stamped
+  private long fed = 0;      // samples handed to the decoder (or skipped by VAD)
+
+  private final int[][] histograms = new int[STAGE_NAMES.length][BUCKETS];
+  private final long[] counts = new long[STAGE_NAMES.length];
+  private final long[] maxUs = new long[STAGE_NAMES.length];
+
+  public synchronized void reset() {
+    blocks = 0;
+    captured = 0;
+    fed = 0;
+    for (int[] h : histograms) Arrays.fill(h, 0);
+    Arrays.fill(counts, 0);
+    Arrays.fill(maxUs, 0);
+  }
+
+  /** Capture stage: {@code samples} more 8 kHz samples were read just now. */
+  public synchronized void markCaptured(int samples) {
+    captured += samples;
+    int i = blocks % TIMELINE_SIZE;
+    blockEnd[i] = captured;
+    blockTimeNs[i] = System.nanoTime();
+    blocks++;
+  }
+
+  /** The ASR stage has handed everything up to {@code position} (8 kHz) to the decoder. */
+  public synchronized void markFed(long position) {
+    fed = position;
+  }
+
+  /** Capture time of the newest audio handed to the decoder, 0 if none. */
+  public synchronized long fedCaptureTimeNs() {
+    return fed == 0 ? 0 : captureTimeNs(fed);
+  }
+
+  /**
+   * Capture time of the sample at {@code position} (8 kHz stream), i.e. when the block
+   * holding it was read. Returns 0 if unknown (not captured yet, or too old).
+   */
+  public synchronized long captureTimeNs(long position) {
+    if (blocks == 0 || position > captured) return 0;
+    int lo = Math.max(0, blocks - TIMELINE_SIZE);
+    int hi = blocks - 1;
+    // The start of the oldest kept block was overwritten, so it cannot be matched
+    if (lo > 0 && position <= blockEnd[lo % TIMELINE_SIZE]) return 0;
+    // First block whose end is at or after position
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (blockEnd[mid % TIMELINE_SIZE] < position) lo = mid + 1;
+      else hi = mid;
+    }
+    return blockTimeNs[lo % TIMELINE_SIZE];
+  }
+
+  /** Capture time of the audio at {@code ms} into the recording (8 kHz stream). */
+  public long captureTimeNsAtMs(long ms) {
+    return captureTimeNs(ms * AudioPipeline.ASR_SAMPLE_RATE / 1000);
+  }
+
+  /** Record the latency of {@code stage} for audio captured at {@code capturedNs}. */
+  public synchronized void record(int stage, long capturedNs) {
+    if (capturedNs == 0) return;
+    long us = (System.nanoTime() - capturedNs) / 1000;
+    if (us < 0) us = 0;
+    long ms = us / 1000;
+    int bucket = ms < FINE_BUCKETS ? (int) ms
+        : FINE_BUCKETS + (int) Math.min(COARSE_BUCKETS - 1, (ms - FINE_BUCKETS) / COARSE_MS);
+    histograms[stage][bucket]++;
+    counts[stage]++;
+    if (us > maxUs[stage]) maxUs[stage] = us;
+  }
+
+  /** Upper bound (ms) of the bucket holding the {@code p}-th percentile, or 0 if empty. */
+  public synchronized int percentileMs(int stage, double p) {
+    long n = counts[stage];
+    if (n == 0) return 0;
+    long rank = Math.max(1, (long) Math.ceil(p / 100.0 * n));
+    long seen = 0;
+    int[] h = histograms[stage];
+    for (int b = 0; b < BUCKETS; b++) {
+      seen += h[b];
+      if (seen >= rank) {
+        return b < FINE_BUCKETS ? b + 1 : FINE_BUCKETS + (b - FINE_BUCKETS + 1) * COARSE_MS;
+      }
+    }
+    return FINE_BUCKETS + COARSE_BUCKETS * COARSE_MS;
+  }
+
+  /** Per-stage count / p50 / p95 / p99 / max in ms, as JSON. */
+  public synchronized JSONObject toJson() {
+    JSONObject root = new JSONObject();
+    try {
+      for (int s = 0; s < STAGE_NAMES.length; s++) {
+        JSONObject stage = new JSONObject();
+        stage.put("count", counts[s]);
+        stage.put("p50_ms", percentileMs(s, 50));
+        stage.put("p95_ms", percentileMs(s, 95));
+        stage.put("p99_ms", percentileMs(s, 99));
+        stage.put("max_ms", maxUs[s] / 1000.0);
+        root.put(STAGE_NAMES[s], stage);
+      }
+    } catch (Exception e) {
+      Log.e(TAG, "Error building latency summary: " + e.getMessage());
+    }
+    return root;
+  }
+
+  /** Write toJson() to {@code path} and log a one-line summary per stage. */
+  public void dump(String path) {
+    for (int s = 0; s < STAGE_NAMES.length; s++) {
+      Log.i(TAG, String.format(Locale.US, "%-16s n=%d p50=%dms p95=%dms p99=%dms",
+          STAGE_NAMES[s], counts[s], percentileMs(s, 50), percentileMs(s, 95),
+          percentileMs(s, 99)));
+    }
+    try {
+      FileOutputStream fos = new FileOutputStream(path);
+      fos.write(toJson().toString().getBytes("UTF-8"));
+      fos.close();
+      Log.i(TAG, "Saved latency histograms to " + path);
+    } catch (Exception e) {
+      Log.e(TAG, "Error saving latency histograms: " + e.getMessage());
+    }
+  }
+}
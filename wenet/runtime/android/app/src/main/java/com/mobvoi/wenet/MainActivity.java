@@ -11,19 +11,12 @@ import android.content.pm.PackageManager;
 import android.content.res.AssetManager;
 import android.graphics.Color;
 import android.media.AudioAttributes;
-import android.media.AudioFormat;
 import android.media.AudioManager;
-import android.media.AudioRecord;
 import android.media.AudioTrack;
-import android.media.MediaRecorder;
-import android.media.audiofx.AcousticEchoCanceler;
-import android.media.audiofx.AutomaticGainControl;
-import android.media.audiofx.NoiseSuppressor;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
-import android.os.Process;
 import android.text.SpannableStringBuilder;
 import android.text.Spanned;
 import android.text.style.BackgroundColorSpan;
@@ -54,21 +47,24 @@ import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-import org.json.JSONArray;
-import org.json.JSONObject;
 
 public class MainActivity extends AppCompatActivity {
 
   private final int MY_PERMISSIONS_RECORD_AUDIO = 1;
   private static final String LOG_TAG = "WENET";
   private static final int SAMPLE_RATE = 8000;       // ASR / VAD / visualization sample rate
-  private static final int RECORD_SAMPLE_RATE = 16000; // AudioRecord sample rate (for PersonalVAD)
-  private static final int MAX_QUEUE_SIZE = 2500;
   private static final int PLAYBACK_UPDATE_MS = 50;
   private static final String PREFS_NAME = "wenet_settings";
   private static final String KEY_MODEL_TYPE = "model_type";
+  // Debug builds only (the launcher activity is exported). Replay a WAV file through the
+  // recording pipeline, e.g.
+  //   adb shell am start -n com.mobvoi.wenet/.MainActivity --es replay_path /sdcard/a.wav --ez replay_realtime false
+  // Headerless 16 kHz mono PCM needs --ez replay_raw_pcm true.
+  public static final String EXTRA_REPLAY_PATH = "replay_path";
+  public static final String EXTRA_REPLAY_REALTIME = "replay_realtime";
+  public static final String EXTRA_REPLAY_RAW_PCM = "replay_raw_pcm";
+  // Measure SileroVad step time / allocations: --ez benchmark_vad true
+  public static final String EXTRA_BENCHMARK_VAD = "benchmark_vad";
   private static final String KEY_VIZ_TYPE = "viz_type";
   private boolean modelLoaded = false;
   private boolean useSpectrogram = false;
@@ -83,22 +79,15 @@ public class MainActivity extends AppCompatActivity {
     }
   }
 
-  private boolean startRecord = false;
-  private AudioRecord record = null;
-  private final Object lock = new Object();
-  private int miniBufferSize = 0;
-  private AcousticEchoCanceler aec = null;
-  private NoiseSuppressor ns = null;
-  private AutomaticGainControl agc = null;
-  private final BlockingQueue<short[]> bufferQueue = new ArrayBlockingQueue<>(MAX_QUEUE_SIZE);
+  // Recording engine (capture → VAD → ASR); outlives the Activity via RecordingForegroundService
+  private AudioPipeline pipeline = null;
+  private MicAudioSource micSource = null;
+  private Intent pendingReplayIntent = null;  // replay requested before the model was loaded
 
   // Silero VAD
   private SileroVad sileroVad;
   private boolean useVad = false;
 
-  // Personal VAD
-  private PersonalVadProcessor personalVad = null;
-
   // Bluetooth SCO
   private AudioManager audioManager;
   private boolean bluetoothScoOn = false;
@@ -120,11 +109,11 @@ public class MainActivity extends AppCompatActivity {
       for (android.media.AudioDeviceInfo device : addedDevices) {
         if (device.getType() == android.media.AudioDeviceInfo.TYPE_BLUETOOTH_SCO) {
           Log.i(LOG_TAG, "BT device added: " + device.getProductName());
-          if (startRecord) {
+          if (isCapturing()) {
             // Seamlesly switch to BT mic during recording
             startBluetoothMic();
-            if (record != null) {
-              boolean result = record.setPreferredDevice(device);
+            if (micSource != null) {
+              boolean result = micSource.setPreferredDevice(device);
               Log.i(LOG_TAG, "setPreferredDevice(BT_SCO) during recording = " + result);
             }
             runOnUiThread(() -> Toast.makeText(MainActivity.this,
@@ -141,7 +130,7 @@ public class MainActivity extends AppCompatActivity {
         if (device.getType() == android.media.AudioDeviceInfo.TYPE_BLUETOOTH_SCO) {
           Log.i(LOG_TAG, "BT disconnected during recording: " + device.getProductName());
           bluetoothScoOn = false;
-          if (startRecord) {
+          if (isCapturing()) {
             runOnUiThread(() -> Toast.makeText(MainActivity.this,
                 "블루투스 연결 해제됨. 폰 마이크로 계속 녹음합니다.", Toast.LENGTH_LONG).show());
           }
@@ -154,7 +143,7 @@ public class MainActivity extends AppCompatActivity {
   private String timestampedResult = null;
   private String summaryResult = null;
 
-  // Incremental display cache for buildLiveDisplay
+  // Incremental display cache (see applyTimedDelta)
   private StringBuilder cachedConfirmedText = new StringBuilder();
   private StringBuilder cachedInProgressSentence = new StringBuilder();
   private int cachedInProgressStartMs = -1;
@@ -163,9 +152,6 @@ public class MainActivity extends AppCompatActivity {
   private int lastAppendedConfirmedLength = 0; // chars from cachedConfirmedText already in TextView
   private String currentRecordingName = null;
 
-  // Realtime encoder
-  private RealtimeEncoder realtimeEncoder = new RealtimeEncoder();
-
   // Playback
   private final PlaybackController playbackController = new PlaybackController();
 
@@ -207,7 +193,6 @@ public class MainActivity extends AppCompatActivity {
     if (requestCode == MY_PERMISSIONS_RECORD_AUDIO) {
       if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
         Log.i(LOG_TAG, "record permission is granted");
-        initRecorder();
       } else {
         Toast.makeText(this, "Permissions denied to record audio", Toast.LENGTH_LONG).show();
         Button button = findViewById(R.id.button);
@@ -241,6 +226,7 @@ public class MainActivity extends AppCompatActivity {
         useVad = false;
       }
     }
+    resumeMyVoiceBackfill();
 
     TextView textView = findViewById(R.id.textView);
     textView.setText("", TextView.BufferType.EDITABLE);
@@ -284,7 +270,10 @@ public class MainActivity extends AppCompatActivity {
     Button button = findViewById(R.id.button);
     button.setEnabled(false);
 
-    showModelSelectionDialog();
+    AudioPipeline active = RecordingForegroundService.getPipeline();
+    if (active == null || !active.isRunning()) {
+      showModelSelectionDialog();
+    }
 
     // Visualization preference
     useSpectrogram = "spectrogram".equals(
@@ -356,63 +345,27 @@ public class MainActivity extends AppCompatActivity {
 
     button.setText("Record");
     button.setOnClickListener(view -> {
-      if (!startRecord) {
-        stopPlayback();
+      if (!isCapturing()) {
         startBluetoothMic();
-        startRecord = true;
-        currentRecordingName = RecordingManager.createRecordingDir(this);
-        recordingStartOfDayMs = parseStartOfDayMs(currentRecordingName);
-        if (getSupportActionBar() != null) getSupportActionBar().setTitle(currentRecordingName);
-        String codec = getSharedPreferences("wenet_settings", MODE_PRIVATE).getString("codec_type", "opus");
-        String audioOutPath;
-        if ("aac".equals(codec)) audioOutPath = RecordingManager.getAacPath(this, currentRecordingName);
-        else if ("amrnb".equals(codec)) audioOutPath = RecordingManager.getAmrPath(this, currentRecordingName);
-        else if ("aac_hw".equals(codec)) audioOutPath = RecordingManager.getAacPath(this, currentRecordingName);
-        else audioOutPath = RecordingManager.getOpusPath(this, currentRecordingName);
-        realtimeEncoder = new RealtimeEncoder();
-        try { realtimeEncoder.start(audioOutPath, codec); } catch (Exception e) {
-          Log.e(LOG_TAG, "Encoder start failed: " + e.getMessage());
-        }
-        // Initialize PersonalVadProcessor if speaker embedding exists
-        File embFile = new File(getFilesDir(), "speaker_embedding.bin");
-        if (embFile.exists()) {
-          try {
-            personalVad = new PersonalVadProcessor(this,
-                ai.onnxruntime.OrtEnvironment.getEnvironment());
-            if (!personalVad.loadSpeakerEmbedding(embFile)) {
-              personalVad.release();
-              personalVad = null;
-            }
-          } catch (Exception e) {
-            Log.e(LOG_TAG, "PersonalVadProcessor init failed: " + e.getMessage());
-            personalVad = null;
-          }
-        } else {
-          personalVad = null;
-        }
-        Recognize.reset();
-        cachedConfirmedText = new StringBuilder();
-        cachedInProgressSentence = new StringBuilder();
-        cachedInProgressStartMs = -1;
-        lastPartialText = "";
-        lastDisplayedText = "";
-        lastAppendedConfirmedLength = 0;
-        ((TextView) findViewById(R.id.textView)).setText("", TextView.BufferType.EDITABLE);
-        startRecordThread();
-        startAsrThread();
-        Recognize.startDecode();
-        Intent serviceIntent = new Intent(this, RecordingForegroundService.class);
-        serviceIntent.setAction(RecordingForegroundService.ACTION_START);
-        ContextCompat.startForegroundService(this, serviceIntent);
-        button.setText("Stop");
+        android.content.SharedPreferences prefs = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
+        micSource = new MicAudioSource(prefs.getBoolean("audio_aec", true),
+            prefs.getBoolean("audio_ns", true), prefs.getBoolean("audio_agc", true));
+        startRecording(micSource);
       } else {
-        startRecord = false;
-        Recognize.setInputFinished();
+        pipeline.stop();
         button.setText("Record");
       }
       button.setEnabled(false);
     });
 
+    // Re-attach to a recording that kept running while the Activity was gone
+    AudioPipeline running = RecordingForegroundService.getPipeline();
+    if (running != null && running.isRunning()) {
+      attachPipeline(running);
+    }
+    startReplayFromIntent(getIntent());
+    runVadBenchmarkFromIntent(getIntent());
+
     // Play/Pause button
     Button playPauseButton = findViewById(R.id.playPauseButton);
     playPauseButton.setOnClickListener(v -> {
@@ -511,6 +464,7 @@ public class MainActivity extends AppCompatActivity {
           Toast.makeText(this,
               "모델 로드 완료 (" + ("full".equals(modelType) ? "Full" : "Quantized") + ")",
               Toast.LENGTH_SHORT).show();
+          if (pendingReplayIntent != null) startReplayFromIntent(pendingReplayIntent);
         });
       } catch (Exception e) {
         Log.e(LOG_TAG, "Model load error: " + e.getMessage());
@@ -520,6 +474,80 @@ public class MainActivity extends AppCompatActivity {
     }).start();
   }
 
+  /**
+   * Re-run recognition over stored recordings in the background and rewrite result.json.
+   * The recording in progress is left out: its audio is still being written, and the
+   * live pipeline saves its own result.json.
+   */
+  private void retranscribe(List<String> names) {
+    if (!modelLoaded) {
+      Toast.makeText(this, "모델이 로드되지 않았습니다.", Toast.LENGTH_SHORT).show();
+      return;
+    }
+    AudioPipeline running = RecordingForegroundService.getPipeline();
+    String exclude = running != null && running.isRunning() ? running.getRecordingName() : null;
+    List<String> jobs = new ArrayList<>(names);
+    if (exclude != null) jobs.remove(exclude);
+    if (jobs.isEmpty()) {
+      Toast.makeText(this, "녹음 중인 항목은 다시 전사할 수 없습니다.", Toast.LENGTH_SHORT).show();
+      return;
+    }
+    Toast.makeText(this, jobs.size() + "개 녹음 다시 전사 중...", Toast.LENGTH_SHORT).show();
+    BatchTranscriber batch = new BatchTranscriber(this);
+    batch.transcribe(jobs, new BatchTranscriber.Listener() {
+      @Override
+      public void onProgress(String recordingName, int percent) {}
+
+      @Override
+      public void onJobFinished(String recordingName, long audioMs, long wallMs, float rtf) {
+        Log.i(LOG_TAG, "Re-transcribed " + recordingName + " RTF=" + rtf);
+      }
+
+      @Override
+      public void onJobFailed(String recordingName, String message) {
+        Log.e(LOG_TAG, "Re-transcription failed for " + recordingName + ": " + message);
+      }
+
+      @Override
+      public void onAllFinished(int succeeded, int failed) {
+        batch.shutdown();
+        runOnUiThread(() -> Toast.makeText(MainActivity.this,
+            "다시 전사 완료: " + succeeded + "개 성공, " + failed + "개 실패",
+            Toast.LENGTH_LONG).show());
+      }
+    });
+  }
+
+  /**
+   * Run Personal VAD over recordings without an up-to-date my_voice_segments.json (made
+   * before enrollment, or left over from an interrupted run). Background, no UI.
+   */
+  private void resumeMyVoiceBackfill() {
+    AudioPipeline running = RecordingForegroundService.getPipeline();
+    String exclude = running != null && running.isRunning() ? running.getRecordingName() : null;
+    Context app = getApplicationContext();
+    new Thread(() -> {
+      int queued = BatchPersonalVad.start(app, exclude, new BatchPersonalVad.Listener() {
+        @Override
+        public void onJobFinished(String recordingName, long audioMs, long wallMs, int segments) {
+          Log.i(LOG_TAG, "My-voice segments for " + recordingName + ": " + segments);
+        }
+
+        @Override
+        public void onJobFailed(String recordingName, String message) {
+          Log.e(LOG_TAG, "My-voice backfill failed for " + recordingName + ": " + message);
+        }
+
+        @Override
+        public void onAllFinished(int succeeded, int failed, float audioHoursPerMinute) {
+          Log.i(LOG_TAG, "My-voice backfill done: " + succeeded + " ok, " + failed + " failed, "
+              + audioHoursPerMinute + " audio-h/min");
+        }
+      });
+      if (queued > 0) Log.i(LOG_TAG, "My-voice backfill: " + queued + " recordings pending");
+    }, "pvad-backfill").start();
+  }
+
   private void copyFile(File src, File dst) throws IOException {
     FileInputStream fis = new FileInputStream(src);
     FileOutputStream fos = new FileOutputStream(dst);
@@ -535,10 +563,15 @@ public class MainActivity extends AppCompatActivity {
   protected void onDestroy() {
     super.onDestroy();
     stopPlayback();
-    stopBluetoothMic();
-    if (sileroVad != null) { sileroVad.release(); }
+    // A running pipeline keeps its mic route and VAD until it finishes
+    if (!isCapturing()) {
+      stopBluetoothMic();
+    }
+    if (sileroVad != null && (pipeline == null || !pipeline.isRunning())) { sileroVad.release(); }
     try { unregisterReceiver(scoReceiver); } catch (Exception ignored) {}
     try { audioManager.unregisterAudioDeviceCallback(audioDeviceCallback); } catch (Exception ignored) {}
+    // Idle decoders only; background jobs still decoding keep theirs
+    if (isFinishing()) AudioDecoder.releasePool();
   }
 
   private void requestAudioPermissions() {
@@ -556,8 +589,6 @@ public class MainActivity extends AppCompatActivity {
       ActivityCompat.requestPermissions(this,
           perms.toArray(new String[0]),
           MY_PERMISSIONS_RECORD_AUDIO);
-    } else {
-      initRecorder();
     }
   }
 
@@ -620,160 +651,6 @@ public class MainActivity extends AppCompatActivity {
     bluetoothScoOn = false;
   }
 
-  private boolean initRecorder() {
-    synchronized (lock) {
-      if (record != null) {
-        try {
-          record.stop();
-          record.release();
-        } catch (Exception ignored) {
-        } finally {
-          record = null;
-        }
-        // Small delay to let system free hardware resources
-        try { Thread.sleep(300); } catch (InterruptedException ignored) {}
-      }
-
-      miniBufferSize = AudioRecord.getMinBufferSize(RECORD_SAMPLE_RATE,
-          AudioFormat.CHANNEL_IN_MONO,
-          AudioFormat.ENCODING_PCM_16BIT);
-      if (miniBufferSize == AudioRecord.ERROR || miniBufferSize == AudioRecord.ERROR_BAD_VALUE) {
-        Log.e(LOG_TAG, "Audio buffer can't initialize!");
-        return false;
-      }
-      try {
-        record = new AudioRecord(MediaRecorder.AudioSource.MIC,
-            RECORD_SAMPLE_RATE,
-            AudioFormat.CHANNEL_IN_MONO,
-            AudioFormat.ENCODING_PCM_16BIT,
-            miniBufferSize);
-      } catch (Exception e) {
-        Log.e(LOG_TAG, "Failed to create AudioRecord: " + e.getMessage());
-        return false;
-      }
-
-      if (record.getState() != AudioRecord.STATE_INITIALIZED) {
-        Log.e(LOG_TAG, "Audio Record can't initialize!");
-        return false;
-      }
-
-      // Apply audio processing based on settings
-      android.content.SharedPreferences prefs =
-          getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
-      int sessionId = record.getAudioSessionId();
-
-      boolean useAec = prefs.getBoolean("audio_aec", true);
-      if (AcousticEchoCanceler.isAvailable()) {
-        aec = AcousticEchoCanceler.create(sessionId);
-        if (aec != null) {
-          aec.setEnabled(useAec);
-          Log.i(LOG_TAG, "AEC " + (useAec ? "enabled" : "disabled"));
-        }
-      }
-
-      boolean useNs = prefs.getBoolean("audio_ns", true);
-      if (NoiseSuppressor.isAvailable()) {
-        ns = NoiseSuppressor.create(sessionId);
-        if (ns != null) {
-          ns.setEnabled(useNs);
-          Log.i(LOG_TAG, "NS " + (useNs ? "enabled" : "disabled"));
-        }
-      }
-
-      boolean useAgc = prefs.getBoolean("audio_agc", true);
-      if (AutomaticGainControl.isAvailable()) {
-        agc = AutomaticGainControl.create(sessionId);
-        if (agc != null) {
-          agc.setEnabled(useAgc);
-          Log.i(LOG_TAG, "AGC " + (useAgc ? "enabled" : "disabled"));
-        }
-      }
-
-      Log.i(LOG_TAG, "Record init okay");
-      return true;
-    }
-  }
-
-  private void releaseAudioEffects() {
-    if (aec != null) { aec.release(); aec = null; }
-    if (ns != null) { ns.release(); ns = null; }
-    if (agc != null) { agc.release(); agc = null; }
-  }
-
-  private void startRecordThread() {
-    new Thread(() -> {
-      if (!initRecorder()) {
-        runOnUiThread(() -> {
-          Toast.makeText(this, "녹음 장치를 초기화할 수 없습니다.", Toast.LENGTH_SHORT).show();
-          Button button = findViewById(R.id.button);
-          button.setText("Record");
-          button.setEnabled(true);
-        });
-        startRecord = false;
-        return;
-      }
-
-      synchronized (lock) {
-        if (record == null) return;
-        try {
-          record.startRecording();
-        } catch (IllegalStateException e) {
-          Log.e(LOG_TAG, "Failed to start recording: " + e.getMessage());
-          startRecord = false;
-          return;
-        }
-      }
-
-      Process.setThreadPriority(Process.THREAD_PRIORITY_AUDIO);
-      short[] buffer = new short[miniBufferSize / 2];
-      byte[] pcmBytes = new byte[miniBufferSize]; // pre-allocate for PCM write
-      while (startRecord) {
-        int read = 0;
-        synchronized (lock) {
-          if (record != null) {
-            read = record.read(buffer, 0, buffer.length);
-          }
-        }
-        if (AudioRecord.ERROR_INVALID_OPERATION != read && read > 0) {
-          // Encoder runs at 8kHz — downsample 16kHz AudioRecord buffer
-          realtimeEncoder.feed(downsample2to1(buffer), read / 2);
-          try {
-            short[] copy = new short[read];
-            System.arraycopy(buffer, 0, copy, 0, read);
-            bufferQueue.put(copy);
-          } catch (InterruptedException e) {
-            Log.e(LOG_TAG, e.getMessage());
-          }
-        }
-        Button button = findViewById(R.id.button);
-        if (!button.isEnabled() && startRecord) {
-          runOnUiThread(() -> button.setEnabled(true));
-        }
-      }
-      
-      synchronized (lock) {
-        if (record != null) {
-          try {
-            record.stop();
-            record.release();
-          } catch (Exception ignored) {
-          } finally {
-            record = null;
-          }
-        }
-      }
-      releaseAudioEffects();
-      stopBluetoothMic();
-      if (useSpectrogram) {
-        ((SpectrogramView) findViewById(R.id.spectrogramView)).clear();
-      } else {
-        ((VoiceRectView) findViewById(R.id.voiceRectView)).zero();
-      }
-      ((VadProbView) findViewById(R.id.vadProbView)).zero();
-      realtimeEncoder.release();
-    }).start();
-  }
-
   private double calculateDb(short[] buffer) {
     double energy = 0.0;
     for (short value : buffer) {
@@ -799,6 +676,8 @@ public class MainActivity extends AppCompatActivity {
     int trailingChunks = trailingProgress + 5;
     sileroVad.setTrailingSilenceChunks(trailingChunks);
 
+    sileroVad.setEnergyGateEnabled(prefs.getBoolean("vad_energy_gate", false));
+
     // Sync thresholds to VadProbView
     float silenceThreshold = Math.max(0.05f, threshold - 0.2f);
     ((VadProbView) findViewById(R.id.vadProbView)).setThresholds(threshold, silenceThreshold);
@@ -831,134 +710,250 @@ public class MainActivity extends AppCompatActivity {
     }
   }
 
-  private void startAsrThread() {
-    new Thread(() -> {
-      // Track whether we need to snapshot offset before next speech chunk
-      final boolean[] needSnapshot = {true};  // true at start (initial segment)
-      SileroVad.Callback vadCallback = new SileroVad.Callback() {
-        @Override
-        public void onSpeechChunk(short[] data, int length) {
-          if (needSnapshot[0]) {
-            Recognize.snapshotOffset();
-            needSnapshot[0] = false;
-          }
-          if (length == data.length) {
-            Recognize.acceptWaveform(data);
-          } else {
-            short[] trimmed = new short[length];
-            System.arraycopy(data, 0, trimmed, 0, length);
-            Recognize.acceptWaveform(trimmed);
-          }
-        }
-        @Override
-        public void onSkippedSamples(int count) {
-          Recognize.addSkippedSamples(count);
-          // Removed manual Recognize.pushSilenceForEndpoint(8000) here 
-          // to prevent 1-second timestamp shifts in the final results.
-          needSnapshot[0] = true;  // next speech chunk starts a new segment
-        }
-      };
+  private boolean isCapturing() {
+    return pipeline != null && pipeline.isCapturing();
+  }
 
-      // Reset VAD state for new recording
-      if (useVad && sileroVad.isInitialized()) {
-        sileroVad.reset();
+  /**
+   * Personal VAD for the next recording, also tracking the named speakers, or null if
+   * no speaker is enrolled.
+   */
+  private PersonalVadProcessor createPersonalVad() {
+    File embFile = SpeakerEnrollment.getEmbeddingFile(this);
+    if (!embFile.exists()) return null;
+    try {
+      PersonalVadProcessor personalVad = new PersonalVadProcessor(this,
+          ai.onnxruntime.OrtEnvironment.getEnvironment());
+      if (!personalVad.loadSpeakerEmbedding(embFile)) {
+        personalVad.release();
+        return null;
+      }
+      for (String name : SpeakerEnrollment.listSpeakers(this)) {
+        personalVad.addSpeaker(name, SpeakerEnrollment.getSpeakerFile(this, name));
       }
+      return personalVad;
+    } catch (Exception e) {
+      Log.e(LOG_TAG, "PersonalVadProcessor init failed: " + e.getMessage());
+      return null;
+    }
+  }
 
-      // Send all data — throttle setText (O(n) with text length)
-      long lastUiUpdate = 0;
-      final long UI_UPDATE_INTERVAL_MS = 500;
-      while (startRecord || bufferQueue.size() > 0) {
-        try {
-          short[] data = bufferQueue.take(); // 16 kHz samples
+  /**
+   * Start a new recording from {@code source}: microphone, or a file replayed through the
+   * same pipeline (see {@link #startReplayFromIntent}). Produces the usual artifacts.
+   */
+  private void startRecording(AudioPipeline.AudioSource source) {
+    stopPlayback();
+    currentRecordingName = RecordingManager.createRecordingDir(this);
+    recordingStartOfDayMs = parseStartOfDayMs(currentRecordingName);
+    if (getSupportActionBar() != null) getSupportActionBar().setTitle(currentRecordingName);
+    android.content.SharedPreferences prefs = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
+    String codec = prefs.getString("codec_type", "opus");
+    String audioOutPath;
+    if ("aac".equals(codec)) audioOutPath = RecordingManager.getAacPath(this, currentRecordingName);
+    else if ("amrnb".equals(codec)) audioOutPath = RecordingManager.getAmrPath(this, currentRecordingName);
+    else if ("aac_hw".equals(codec)) audioOutPath = RecordingManager.getAacPath(this, currentRecordingName);
+    else audioOutPath = RecordingManager.getOpusPath(this, currentRecordingName);
+    RealtimeEncoder realtimeEncoder = new RealtimeEncoder();
+    try { realtimeEncoder.start(audioOutPath, codec); } catch (Exception e) {
+      Log.e(LOG_TAG, "Encoder start failed: " + e.getMessage());
+    }
+    cachedConfirmedText = new StringBuilder();
+    cachedInProgressSentence = new StringBuilder();
+    cachedInProgressStartMs = -1;
+    lastPartialText = "";
+    lastDisplayedText = "";
+    lastAppendedConfirmedLength = 0;
+    ((TextView) findViewById(R.id.textView)).setText("", TextView.BufferType.EDITABLE);
+
+    pipeline = new AudioPipeline(source, pipelineListener);
+    pipeline.setSileroVad(useVad ? sileroVad : null);
+    pipeline.setPersonalVad(createPersonalVad());
+    pipeline.setPersonalVadGate(getSharedPreferences(PREFS_NAME, MODE_PRIVATE)
+        .getBoolean("pvad_silero_gate", false));
+    pipeline.setEncoder(realtimeEncoder);
+    pipeline.setRecording(this, currentRecordingName);
+    RecordingForegroundService.setPipeline(pipeline);
+    pipeline.start();
+    Intent serviceIntent = new Intent(this, RecordingForegroundService.class);
+    serviceIntent.setAction(RecordingForegroundService.ACTION_START);
+    ContextCompat.startForegroundService(this, serviceIntent);
+    ((Button) findViewById(R.id.button)).setText("Stop");
+  }
 
-          // Feed PersonalVad with native 16 kHz
-          if (personalVad != null && personalVad.isReady()) {
-            personalVad.process(data, data.length);
-          }
+  @Override
+  protected void onNewIntent(Intent intent) {
+    super.onNewIntent(intent);
+    startReplayFromIntent(intent);
+    runVadBenchmarkFromIntent(intent);
+  }
 
-          // Downsample 16 kHz → 8 kHz for SileroVad / Recognize / visualization
-          short[] data8k = downsample2to1(data);
+  private void runVadBenchmarkFromIntent(Intent intent) {
+    if (!BuildConfig.DEBUG || intent == null
+        || !intent.getBooleanExtra(EXTRA_BENCHMARK_VAD, false)) return;
+    intent.removeExtra(EXTRA_BENCHMARK_VAD);
+    if (isCapturing() || !sileroVad.isInitialized()) {
+      Toast.makeText(this, "VAD 벤치마크를 실행할 수 없습니다.", Toast.LENGTH_SHORT).show();
+      return;
+    }
+    new Thread(() -> {
+      SileroVadBenchmark.Result result = SileroVadBenchmark.run(sileroVad, 2000);
+      String detectors = SileroVadBenchmark.compare(
+          new MultiVad(AudioPipeline.ASR_SAMPLE_RATE).add(sileroVad).add(new EnergyVad()), 2000);
+      runOnUiThread(() ->
+          Toast.makeText(this, result + "\n" + detectors, Toast.LENGTH_LONG).show());
+    }, "vad-benchmark").start();
+  }
 
-          // VAD processing first (to get prob before visualization)
-          if (useVad && sileroVad.isInitialized()) {
-            sileroVad.process(data8k, data8k.length, vadCallback);
-            ((VadProbView) findViewById(R.id.vadProbView)).setCurrentProb(sileroVad.getLastProb());
-          } else {
-            Recognize.acceptWaveform(data8k);
-          }
-          // Feed all visualizations with 8 kHz data (consistent with existing timing)
-          if (useSpectrogram) {
-            ((SpectrogramView) findViewById(R.id.spectrogramView)).addSamples(data8k, data8k.length);
-          } else {
-            ((VoiceRectView) findViewById(R.id.voiceRectView)).addSamples(data8k, data8k.length);
-          }
-          ((VadProbView) findViewById(R.id.vadProbView)).addSamples(data8k.length);
-          long now = System.currentTimeMillis();
-          boolean endpointFired = Recognize.hasNewEndpoint();
-          if (endpointFired || now - lastUiUpdate >= UI_UPDATE_INTERVAL_MS) {
-            lastUiUpdate = now;
-            updateLiveDisplayIncremental();
-          }
-        } catch (InterruptedException e) {
-          Log.e(LOG_TAG, e.getMessage());
-        }
-      }
+  /**
+   * Start a file replay requested through {@link #EXTRA_REPLAY_PATH}, once the model is
+   * loaded. Debug builds only: any app can send extras to the launcher activity, and a
+   * replay is transcribed, saved and posted like a recording.
+   */
+  private void startReplayFromIntent(Intent intent) {
+    String path = intent != null ? intent.getStringExtra(EXTRA_REPLAY_PATH) : null;
+    if (path == null) return;
+    if (!BuildConfig.DEBUG) {
+      Log.w(LOG_TAG, "Ignoring replay request in a release build");
+      intent.removeExtra(EXTRA_REPLAY_PATH);
+      return;
+    }
+    if (!modelLoaded) {
+      pendingReplayIntent = intent;
+      return;
+    }
+    pendingReplayIntent = null;
+    intent.removeExtra(EXTRA_REPLAY_PATH);  // do not replay again on re-creation
+    if (isCapturing()) {
+      Toast.makeText(this, "녹음 중에는 재생할 수 없습니다.", Toast.LENGTH_SHORT).show();
+      return;
+    }
+    boolean realtime = intent.getBooleanExtra(EXTRA_REPLAY_REALTIME, true);
+    FileAudioSource source = intent.getBooleanExtra(EXTRA_REPLAY_RAW_PCM, false)
+        ? new FileAudioSource(path, realtime, AudioPipeline.CAPTURE_SAMPLE_RATE, 1)
+        : new FileAudioSource(path, realtime);
+    micSource = null;
+    startRecording(source);
+    findViewById(R.id.button).setEnabled(false);
+  }
+
+  /** Subscribe this Activity to a pipeline started by an earlier instance. */
+  private void attachPipeline(AudioPipeline running) {
+    pipeline = running;
+    if (running.getSource() instanceof MicAudioSource) {
+      micSource = (MicAudioSource) running.getSource();
+    }
+    currentRecordingName = running.getRecordingName();
+    recordingStartOfDayMs = parseStartOfDayMs(currentRecordingName);
+    if (getSupportActionBar() != null) getSupportActionBar().setTitle(currentRecordingName);
+    running.setListener(pipelineListener);
+    Button button = findViewById(R.id.button);
+    button.setText(running.isCapturing() ? "Stop" : "Record");
+    button.setEnabled(running.isCapturing());
+  }
+
+  private final AudioPipeline.Listener pipelineListener = new AudioPipeline.Listener() {
+    @Override
+    public void onCaptureStarted() {
+      runOnUiThread(() -> findViewById(R.id.button).setEnabled(true));
+    }
 
-      // Flush remaining VAD buffers
-      if (useVad && sileroVad.isInitialized()) {
-        sileroVad.flush(vadCallback);
-        sileroVad.flushRemainingAsSkipped(vadCallback);
+    @Override
+    public void onCaptureError(String message) {
+      stopService(new Intent(MainActivity.this, RecordingForegroundService.class));
+      runOnUiThread(() -> {
+        Toast.makeText(MainActivity.this, message, Toast.LENGTH_SHORT).show();
+        Button button = findViewById(R.id.button);
+        button.setText("Record");
+        button.setEnabled(true);
+      });
+    }
+
+    @Override
+    public void onCaptureStopped() {
+      stopBluetoothMic();
+      if (useSpectrogram) {
+        ((SpectrogramView) findViewById(R.id.spectrogramView)).clear();
+      } else {
+        ((VoiceRectView) findViewById(R.id.voiceRectView)).zero();
       }
-      if (personalVad != null && personalVad.isReady()) {
-        personalVad.flush();
+      ((VadProbView) findViewById(R.id.vadProbView)).zero();
+      // Wait for final result — show processing indicator
+      runOnUiThread(() -> {
+        Button button = findViewById(R.id.button);
+        button.setText("Record");
+        button.setEnabled(false);
+        Toast.makeText(MainActivity.this, "처리 중...", Toast.LENGTH_LONG).show();
+      });
+    }
+
+    @Override
+    public void onAudio(short[] samples, int length) {
+      // Feed all visualizations with 8 kHz data (consistent with existing timing)
+      if (useSpectrogram) {
+        ((SpectrogramView) findViewById(R.id.spectrogramView)).addSamples(samples, length);
+      } else {
+        ((VoiceRectView) findViewById(R.id.voiceRectView)).addSamples(samples, length);
       }
+      ((VadProbView) findViewById(R.id.vadProbView)).addSamples(length);
+    }
 
-      // Final UI update after loop ends
-      updateLiveDisplayIncremental();
+    @Override
+    public void onVadProb(float prob) {
+      ((VadProbView) findViewById(R.id.vadProbView)).setCurrentProb(prob);
+    }
 
-      // Wait for final result — show processing indicator
-      runOnUiThread(() -> Toast.makeText(MainActivity.this,
-          "처리 중...", Toast.LENGTH_LONG).show());
-      while (true) {
-        if (!Recognize.getFinished()) {
-          try { Thread.sleep(200); } catch (InterruptedException ignored) {}
-        } else {
-          // Save result.json with timed result
-          saveTimedResult();
-          // Save personal VAD segments
-          if (personalVad != null) {
-            saveMyVoiceSegments(currentRecordingName, personalVad.getSegments());
-            personalVad.reset();
-          }
-          // Build timestamped text for copy & Slack
-          try {
-            timestampedResult = KaraokeController.buildTimestampedTextFromJson(Recognize.getTimedResult(), recordingStartOfDayMs);
-          } catch (Exception e) {
-            timestampedResult = Recognize.getResult();
-          }
-          // Fallback: use last displayed text if native result is empty
-          if ((timestampedResult == null || timestampedResult.trim().isEmpty())
-              && !lastDisplayedText.isEmpty()) {
-            timestampedResult = lastDisplayedText.trim();
-            Log.i(LOG_TAG, "Using lastDisplayedText as timestampedResult fallback");
-          }
+    @Override
+    public void onPartialResult(String partial) {
+      lastPartialText = partial.trim();
+      AudioPipeline p = pipeline;
+      updateLiveDisplayIncremental(p != null ? p.getLatencyTracker().fedCaptureTimeNs() : 0);
+    }
 
-          SlackWebhookSender.send(
-              getApplicationContext(), currentRecordingName, timestampedResult);
-          stopService(new Intent(MainActivity.this, RecordingForegroundService.class));
-          final String recordingName = currentRecordingName;
-          runOnUiThread(() -> {
-            Button button = findViewById(R.id.button);
-            button.setEnabled(true);
-            if (recordingName != null) {
-              enterPlaybackMode(recordingName);
-            }
-          });
-          break;
-        }
+    @Override
+    public void onTranscriptDelta(TranscriptDelta delta) {
+      applyTimedDelta(delta);
+      lastPartialText = "";
+      // Latency of the newest word in the delta
+      int newestMs = -1;
+      for (int i = 0; i < delta.size(); i++) {
+        if (delta.word(i) != null) newestMs = Math.max(newestMs, delta.endMs(i));
+      }
+      AudioPipeline p = pipeline;
+      updateLiveDisplayIncremental(p != null && newestMs >= 0
+          ? p.getLatencyTracker().captureTimeNsAtMs(newestMs) : 0);
+    }
+
+    @Override
+    public void onFinished(String recordingName, String timedResultJson) {
+      // Build timestamped text for copy & Slack
+      try {
+        timestampedResult = KaraokeController.buildTimestampedTextFromJson(
+            timedResultJson, recordingStartOfDayMs);
+      } catch (Exception e) {
+        Recognize recognizer = pipeline != null ? pipeline.getRecognizer() : null;
+        timestampedResult = recognizer != null ? recognizer.getResult() : null;
       }
-    }).start();
-  }
+      // Fallback: use last displayed text if native result is empty
+      if ((timestampedResult == null || timestampedResult.trim().isEmpty())
+          && !lastDisplayedText.isEmpty()) {
+        timestampedResult = lastDisplayedText.trim();
+        Log.i(LOG_TAG, "Using lastDisplayedText as timestampedResult fallback");
+      }
+
+      SlackWebhookSender.send(getApplicationContext(), recordingName, timestampedResult);
+      RecordingForegroundService.setPipeline(null);
+      stopService(new Intent(MainActivity.this, RecordingForegroundService.class));
+      runOnUiThread(() -> {
+        Button button = findViewById(R.id.button);
+        button.setText("Record");
+        button.setEnabled(true);
+        if (recordingName != null) {
+          enterPlaybackMode(recordingName);
+        }
+      });
+    }
+  };
 
   private void compressToAac(String recordingName) {
     {
@@ -1081,98 +1076,33 @@ public class MainActivity extends AppCompatActivity {
   }
 
   private boolean decodeOpusToPcm(String opusPath, String pcmPath, java.util.function.Consumer<Integer> onProgress) {
-    android.media.MediaExtractor extractor = null;
-    android.media.MediaCodec decoder = null;
+    AudioDecoder decoder = null;
     java.io.FileOutputStream fos = null;
     try {
-      extractor = new android.media.MediaExtractor();
-      extractor.setDataSource(opusPath);
-
-      // Find audio track
-      int trackIndex = -1;
-      android.media.MediaFormat trackFormat = null;
-      for (int i = 0; i < extractor.getTrackCount(); i++) {
-        android.media.MediaFormat fmt = extractor.getTrackFormat(i);
-        if (fmt.getString(android.media.MediaFormat.KEY_MIME).startsWith("audio/")) {
-          trackIndex = i;
-          trackFormat = fmt;
-          break;
-        }
-      }
-      if (trackIndex < 0) return false;
-      extractor.selectTrack(trackIndex);
-      long totalDurationUs = trackFormat.containsKey(android.media.MediaFormat.KEY_DURATION)
-          ? trackFormat.getLong(android.media.MediaFormat.KEY_DURATION) : 0;
-
-      decoder = android.media.MediaCodec.createDecoderByType(
-          trackFormat.getString(android.media.MediaFormat.KEY_MIME));
-      decoder.configure(trackFormat, null, null, 0);
-      decoder.start();
+      decoder = AudioDecoder.open(opusPath, SAMPLE_RATE);
+      if (decoder == null) return false;
+      long totalDurationUs = decoder.getDurationUs();
 
       fos = new java.io.FileOutputStream(pcmPath);
-      android.media.MediaCodec.BufferInfo info = new android.media.MediaCodec.BufferInfo();
-      boolean inputDone = false;
-      boolean outputDone = false;
-      // Output format: detected after INFO_OUTPUT_FORMAT_CHANGED
-      int outSampleRate = SAMPLE_RATE; // default; updated when format changes
-      int outChannels = 1;             // default; updated when format changes
-
-      while (!outputDone) {
-        if (!inputDone) {
-          int inIdx = decoder.dequeueInputBuffer(10000);
-          if (inIdx >= 0) {
-            java.nio.ByteBuffer inBuf = decoder.getInputBuffer(inIdx);
-            inBuf.clear();
-            int sampleSize = extractor.readSampleData(inBuf, 0);
-            if (sampleSize < 0) {
-              decoder.queueInputBuffer(inIdx, 0, 0, 0,
-                  android.media.MediaCodec.BUFFER_FLAG_END_OF_STREAM);
-              inputDone = true;
-            } else {
-              long sampleTimeUs = extractor.getSampleTime();
-              decoder.queueInputBuffer(inIdx, 0, sampleSize, sampleTimeUs, 0);
-              extractor.advance();
-              if (onProgress != null && totalDurationUs > 0) {
-                int pct = (int) (sampleTimeUs * 100 / totalDurationUs);
-                onProgress.accept(pct);
-              }
-            }
+      java.nio.channels.FileChannel channel = fos.getChannel();
+      short[] pcm8k = new short[SAMPLE_RATE / 10];
+      // Direct little-endian staging buffer: the channel writes it without a heap copy
+      ByteBuffer pcmOut = ByteBuffer.allocateDirect(pcm8k.length * 2).order(ByteOrder.LITTLE_ENDIAN);
+      java.nio.ShortBuffer pcmView = pcmOut.asShortBuffer();
+      int lastPct = -1;
+      int n;
+      while ((n = decoder.read(pcm8k, 0, pcm8k.length)) >= 0) {
+        pcmView.clear();
+        pcmView.put(pcm8k, 0, n);
+        pcmOut.limit(n * 2).position(0);
+        while (pcmOut.hasRemaining()) channel.write(pcmOut);
+        if (onProgress != null && totalDurationUs > 0) {
+          int pct = (int) (decoder.getPositionUs() * 100 / totalDurationUs);
+          if (pct != lastPct) {
+            lastPct = pct;
+            onProgress.accept(pct);
           }
         }
-        int outIdx = decoder.dequeueOutputBuffer(info, 10000);
-        if (outIdx == android.media.MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
-          android.media.MediaFormat newFmt = decoder.getOutputFormat();
-          outSampleRate = newFmt.getInteger(android.media.MediaFormat.KEY_SAMPLE_RATE);
-          outChannels = newFmt.getInteger(android.media.MediaFormat.KEY_CHANNEL_COUNT);
-          Log.i(LOG_TAG, "Decoder output format: " + outSampleRate + "Hz ch=" + outChannels);
-        } else if (outIdx >= 0) {
-          if ((info.flags & android.media.MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0)
-            outputDone = true;
-          if (info.size > 0) {
-            java.nio.ByteBuffer outBuf = decoder.getOutputBuffer(outIdx);
-            outBuf.position(info.offset);
-            outBuf.limit(info.offset + info.size);
-            byte[] pcmBytes = new byte[info.size];
-            outBuf.get(pcmBytes);
-            // Downsample to SAMPLE_RATE (8kHz) if needed
-            int decimation = (outSampleRate > SAMPLE_RATE) ? (outSampleRate / SAMPLE_RATE) : 1;
-            int bytesPerSample = 2; // 16-bit PCM
-            int frameBytes = bytesPerSample * outChannels;
-            if (decimation == 1 && outChannels == 1) {
-              fos.write(pcmBytes);
-            } else {
-              // Pick one sample per 'decimation' frames, left channel only
-              java.io.ByteArrayOutputStream baos = new java.io.ByteArrayOutputStream();
-              for (int i = 0; i + frameBytes <= pcmBytes.length; i += frameBytes * decimation) {
-                // Write left channel (bytes 0-1 of frame)
-                baos.write(pcmBytes[i]);
-                baos.write(pcmBytes[i + 1]);
-              }
-              fos.write(baos.toByteArray());
-            }
-          }
-          decoder.releaseOutputBuffer(outIdx, false);
-        }
       }
       Log.i(LOG_TAG, "Opus decoded to PCM: " + new File(pcmPath).length() / 1024 + " KB");
       return true;
@@ -1182,94 +1112,42 @@ public class MainActivity extends AppCompatActivity {
       return false;
     } finally {
       try { if (fos != null) fos.close(); } catch (Exception ignored) {}
-      try { if (decoder != null) { decoder.stop(); decoder.release(); } } catch (Exception ignored) {}
-      try { if (extractor != null) extractor.release(); } catch (Exception ignored) {}
+      if (decoder != null) decoder.close();
     }
   }
 
-  private void saveTimedResult() {
-    if (currentRecordingName == null) return;
-    try {
-      String timedJson = Recognize.getTimedResult();
-      Log.i(LOG_TAG, "Timed result: " + timedJson);
-
-      String resultPath = RecordingManager.getResultPath(this, currentRecordingName);
-      FileOutputStream fos = new FileOutputStream(resultPath);
-      fos.write(timedJson.getBytes("UTF-8"));
-      fos.flush();
-      fos.close();
-      Log.i(LOG_TAG, "Saved result.json to " + resultPath);
-    } catch (Exception e) {
-      Log.e(LOG_TAG, "Error saving timed result: " + e.getMessage());
-    }
-  }
-
-  /** Save Personal VAD segments as [[startMs, endMs], ...] JSON array. */
-  private void saveMyVoiceSegments(String recordingName, java.util.List<long[]> segs) {
-    if (recordingName == null || segs == null) return;
-    try {
-      JSONArray arr = new JSONArray();
-      for (long[] seg : segs) {
-        JSONArray entry = new JSONArray();
-        entry.put(seg[0]);
-        entry.put(seg[1]);
-        arr.put(entry);
+  /** Fold new timed tokens pushed by the decoder into the confirmed / in-progress caches. */
+  private void applyTimedDelta(TranscriptDelta delta) {
+    for (int i = 0; i < delta.size(); i++) {
+      if (delta.isSentenceEnd(i)) {
+        if (cachedInProgressSentence.length() > 0) {
+          cachedConfirmedText.append("[").append(formatTimeMs(cachedInProgressStartMs)).append("] ")
+              .append(cachedInProgressSentence.toString().trim()).append("\n");
+          cachedInProgressSentence.setLength(0);
+          cachedInProgressStartMs = -1;
+        }
+        continue;
+      }
+      String w = delta.word(i);
+      if (w == null) continue;
+      if (cachedInProgressStartMs == -1) cachedInProgressStartMs = delta.startMs(i);
+      if ("\u2581".equals(w)) {
+        cachedInProgressSentence.append(" ");
+      } else {
+        cachedInProgressSentence.append(w);
       }
-      String path = RecordingManager.getMyVoiceSegmentsPath(this, recordingName);
-      FileOutputStream fos = new FileOutputStream(path);
-      fos.write(arr.toString().getBytes("UTF-8"));
-      fos.close();
-      Log.i(LOG_TAG, "Saved " + segs.size() + " my-voice segments to " + path);
-    } catch (Exception e) {
-      Log.e(LOG_TAG, "Error saving my-voice segments: " + e.getMessage());
     }
   }
 
-  /** 2:1 downsampling: take every other sample (16 kHz → 8 kHz). */
-  private static short[] downsample2to1(short[] src) {
-    short[] dst = new short[src.length / 2];
-    for (int i = 0; i < dst.length; i++) dst[i] = src[i * 2];
-    return dst;
-  }
-
-  /** Build live display using delta APIs: only new tokens from native, O(1) JNI cost. */
-  private void updateLiveDisplayIncremental() {
+  /**
+   * Render cached sentences + current partial; only new confirmed text is appended.
+   * {@code capturedNs} is when the newest rendered audio was captured (0 = unknown),
+   * recorded as UI-commit latency once the text is on screen.
+   */
+  private void updateLiveDisplayIncremental(long capturedNs) {
     try {
-      // Process delta tokens (same logic as buildLiveDisplay)
-      String deltaJson = Recognize.getTimedResultDelta();
-      if (deltaJson != null && !"[]".equals(deltaJson)) {
-        org.json.JSONArray arr = new org.json.JSONArray(deltaJson);
-        for (int i = 0; i < arr.length(); i++) {
-          org.json.JSONObject obj = arr.getJSONObject(i);
-          String w = obj.getString("w");
-          int startMs = obj.getInt("s");
-          if ("\n".equals(w)) {
-            if (cachedInProgressSentence.length() > 0) {
-              cachedConfirmedText.append("[").append(formatTimeMs(cachedInProgressStartMs)).append("] ")
-                  .append(cachedInProgressSentence.toString().trim()).append("\n");
-              cachedInProgressSentence = new StringBuilder();
-              cachedInProgressStartMs = -1;
-            }
-            continue;
-          }
-          if (cachedInProgressStartMs == -1) cachedInProgressStartMs = startMs;
-          if ("\u2581".equals(w)) {
-            cachedInProgressSentence.append(" ");
-          } else {
-            cachedInProgressSentence.append(w);
-          }
-        }
-      }
-
       // Build tail: in-progress sentence + partial
-      String deltaResult = Recognize.getResultDelta();
-      String partial = "";
-      if (deltaResult != null) {
-        int sep = deltaResult.indexOf('\n');
-        if (sep >= 0) partial = deltaResult.substring(sep + 1).trim();
-      }
-      lastPartialText = partial;
-
+      String partial = lastPartialText;
       StringBuilder tail = new StringBuilder();
       if (cachedInProgressSentence.length() > 0) {
         tail.append("[").append(formatTimeMs(cachedInProgressStartMs)).append("] ")
@@ -1301,76 +1179,14 @@ public class MainActivity extends AppCompatActivity {
         boolean atBottom = (scrollView.getChildAt(0).getBottom()
             - scrollView.getHeight() - scrollView.getScrollY()) < 100;
         if (atBottom) scrollView.post(() -> scrollView.fullScroll(ScrollView.FOCUS_DOWN));
+        AudioPipeline p = pipeline;
+        if (p != null) p.getLatencyTracker().record(LatencyTracker.STAGE_UI, capturedNs);
       });
     } catch (Exception e) {
       Log.e(LOG_TAG, "Error in updateLiveDisplayIncremental: " + e.getMessage());
     }
   }
 
-  private String buildLiveDisplay() {
-    try {
-      // Get only NEW timed tokens from native (O(delta) not O(total))
-      String deltaJson = Recognize.getTimedResultDelta();
-      if (deltaJson != null && !"[]".equals(deltaJson)) {
-        JSONArray arr = new JSONArray(deltaJson);
-        for (int i = 0; i < arr.length(); i++) {
-          JSONObject obj = arr.getJSONObject(i);
-          String w = obj.getString("w");
-          int startMs = obj.getInt("s");
-          // Newline marker = endpoint boundary
-          if ("\n".equals(w)) {
-            if (cachedInProgressSentence.length() > 0) {
-              cachedConfirmedText.append("[").append(formatTimeMs(cachedInProgressStartMs)).append("] ")
-                  .append(cachedInProgressSentence.toString().trim()).append("\n");
-              cachedInProgressSentence = new StringBuilder();
-              cachedInProgressStartMs = -1;
-            }
-            continue;
-          }
-          if (cachedInProgressStartMs == -1) cachedInProgressStartMs = startMs;
-          if ("\u2581".equals(w)) {
-            cachedInProgressSentence.append(" ");
-          } else {
-            cachedInProgressSentence.append(w);
-          }
-        }
-      }
-
-      // Build display string
-      String confirmed;
-      if (cachedInProgressSentence.length() > 0) {
-        confirmed = cachedConfirmedText.toString()
-            + "[" + formatTimeMs(cachedInProgressStartMs) + "] "
-            + cachedInProgressSentence.toString().trim();
-      } else if (cachedConfirmedText.length() > 0) {
-        confirmed = cachedConfirmedText.substring(0, cachedConfirmedText.length() - 1);
-      } else {
-        confirmed = "";
-      }
-
-      // Get only partial result from native via delta API
-      String deltaResult = Recognize.getResultDelta();
-      String partial = "";
-      if (deltaResult != null) {
-        int sep = deltaResult.indexOf('\n');
-        if (sep >= 0) {
-          partial = deltaResult.substring(sep + 1).trim();
-        }
-      }
-      lastPartialText = partial;
-
-      String display;
-      if (confirmed.isEmpty()) display = partial;
-      else if (partial.isEmpty()) display = confirmed;
-      else display = confirmed + "\n" + partial;
-      lastDisplayedText = display;
-      return display;
-    } catch (Exception e) {
-      Log.e(LOG_TAG, "Error in buildLiveDisplay: " + e.getMessage());
-      return "";
-    }
-  }
-
   // --- Playback ---
 
   private void enterPlaybackMode(String recordingName) {
@@ -1428,6 +1244,7 @@ public class MainActivity extends AppCompatActivity {
 
     karaokeController.load(this, recordingName);
     karaokeController.loadMyVoiceSegments(this, recordingName);
+    karaokeController.loadSpeakerSegments(this, recordingName);
     timestampedResult = karaokeController.buildTimestampedText(recordingStartOfDayMs);
 
     LinearLayout playbackLayout = findViewById(R.id.playbackLayout);
@@ -1447,7 +1264,10 @@ public class MainActivity extends AppCompatActivity {
     updateKaraokeHighlight(0);
 
     // Load visualization in background (no full decode needed for waveform energy bars)
-    new Thread(() -> loadFullVisualizationOgg(opusPath, durationMs)).start();
+    new Thread(() -> {
+      loadVadTrack(recordingName);
+      loadFullVisualizationOgg(opusPath, durationMs);
+    }).start();
   }
 
   /**
@@ -1457,7 +1277,7 @@ public class MainActivity extends AppCompatActivity {
    */
   /**
    * Single-pass sequential OGG decode → normalized energy bars [0..1].
-   * Creates ONE MediaExtractor+MediaCodec, reads forward without random seek.
+   * Reads ONE AudioDecoder forward, without random seek.
    */
   private double[] decodeOggEnergyBars(String opusPath, long totalSamples8kHz) {
     final int MAX_BARS = 5000;
@@ -1468,86 +1288,35 @@ public class MainActivity extends AppCompatActivity {
     double maxDb = -999;
     int barsFilled = 0;
 
-    android.media.MediaExtractor extractor = null;
-    android.media.MediaCodec decoder = null;
+    AudioDecoder decoder = null;
     try {
-      extractor = new android.media.MediaExtractor();
-      extractor.setDataSource(opusPath);
-      int trackIdx = -1;
-      for (int i = 0; i < extractor.getTrackCount(); i++) {
-        android.media.MediaFormat fmt = extractor.getTrackFormat(i);
-        String mime = fmt.getString(android.media.MediaFormat.KEY_MIME);
-        if (mime != null && mime.startsWith("audio/")) { trackIdx = i; break; }
-      }
-      if (trackIdx < 0) return new double[0];
-      extractor.selectTrack(trackIdx);
-      android.media.MediaFormat fmt = extractor.getTrackFormat(trackIdx);
-      String mime = fmt.getString(android.media.MediaFormat.KEY_MIME);
-      decoder = android.media.MediaCodec.createDecoderByType(mime);
-      decoder.configure(fmt, null, null, 0);
-      decoder.start();
-
-      int decimation = 6; // default 48kHz→8kHz
-      boolean formatKnown = false;
-      boolean inputDone = false;
-      boolean outputDone = false;
-      android.media.MediaCodec.BufferInfo info = new android.media.MediaCodec.BufferInfo();
+      decoder = AudioDecoder.open(opusPath, SAMPLE_RATE);
+      if (decoder == null) return new double[0];
+      short[] pcm8k = new short[SAMPLE_RATE / 10];
 
       // Accumulator for current bar
       double barSum = 0;
       long barSampleCount = 0;
 
-      while (!outputDone && barsFilled < barCount) {
-        if (!inputDone) {
-          int inIdx = decoder.dequeueInputBuffer(5000);
-          if (inIdx >= 0) {
-            java.nio.ByteBuffer inBuf = decoder.getInputBuffer(inIdx);
-            int n = extractor.readSampleData(inBuf, 0);
-            if (n < 0) {
-              decoder.queueInputBuffer(inIdx, 0, 0, 0, android.media.MediaCodec.BUFFER_FLAG_END_OF_STREAM);
-              inputDone = true;
-            } else {
-              decoder.queueInputBuffer(inIdx, 0, n, extractor.getSampleTime(), 0);
-              extractor.advance();
-            }
-          }
-        }
-        int outIdx = decoder.dequeueOutputBuffer(info, 5000);
-        if (outIdx == android.media.MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
-          android.media.MediaFormat nf = decoder.getOutputFormat();
-          int outRate = nf.containsKey(android.media.MediaFormat.KEY_SAMPLE_RATE)
-              ? nf.getInteger(android.media.MediaFormat.KEY_SAMPLE_RATE) : 48000;
-          decimation = Math.max(1, outRate / SAMPLE_RATE);
-          formatKnown = true;
-        } else if (outIdx >= 0) {
-          java.nio.ByteBuffer outBuf = decoder.getOutputBuffer(outIdx);
-          if (outBuf != null && info.size > 0 && formatKnown) {
-            byte[] raw = new byte[info.size];
-            outBuf.position(info.offset);
-            outBuf.get(raw, 0, info.size);
-            int frameBytes = 2; // 16-bit mono out
-            for (int i = 0; i + 1 < raw.length && barsFilled < barCount; i += decimation * frameBytes) {
-              short s = (short) ((raw[i] & 0xFF) | (raw[i + 1] << 8));
-              barSum += (double) s * s;
-              barSampleCount++;
-              if (barSampleCount >= samplesPerBar) {
-                double rms = Math.sqrt(barSum / barSampleCount);
-                double db = 20.0 * Math.log10(rms + 1e-10);
-                rawDb[barsFilled++] = db;
-                if (db > maxDb) maxDb = db;
-                barSum = 0; barSampleCount = 0;
-              }
-            }
+      int n;
+      while (barsFilled < barCount && (n = decoder.read(pcm8k, 0, pcm8k.length)) >= 0) {
+        for (int i = 0; i < n && barsFilled < barCount; i++) {
+          short s = pcm8k[i];
+          barSum += (double) s * s;
+          barSampleCount++;
+          if (barSampleCount >= samplesPerBar) {
+            double rms = Math.sqrt(barSum / barSampleCount);
+            double db = 20.0 * Math.log10(rms + 1e-10);
+            rawDb[barsFilled++] = db;
+            if (db > maxDb) maxDb = db;
+            barSum = 0; barSampleCount = 0;
           }
-          decoder.releaseOutputBuffer(outIdx, false);
-          if ((info.flags & android.media.MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) outputDone = true;
         }
       }
     } catch (Exception e) {
       Log.e(LOG_TAG, "decodeOggEnergyBars error: " + e.getMessage());
     } finally {
-      if (decoder != null) { try { decoder.stop(); decoder.release(); } catch (Exception ignored) {} }
-      if (extractor != null) { extractor.release(); }
+      if (decoder != null) decoder.close();
     }
 
     if (barsFilled == 0) return new double[0];
@@ -1570,6 +1339,14 @@ public class MainActivity extends AppCompatActivity {
     return total;
   }
 
+  /** VAD lane from the recording's vad.bin, if it was recorded with VAD on. */
+  private void loadVadTrack(String recordingName) {
+    float[] probs = VadProbTrack.load(
+        RecordingManager.getVadTrackPath(this, recordingName), VadProbView.BAR_COUNT);
+    if (probs == null) return;
+    runOnUiThread(() -> ((VadProbView) findViewById(R.id.vadProbView)).setFullProbData(probs));
+  }
+
   private void loadFullVisualizationOgg(String opusPath, long durationMs) {
     try {
       long totalSamples = durationMs * SAMPLE_RATE / 1000;
@@ -1610,9 +1387,8 @@ public class MainActivity extends AppCompatActivity {
   private void resumePlayback() {
     if (!playbackController.isReady()) return;
 
-    if (startRecord) {
-      startRecord = false;
-      Recognize.setInputFinished();
+    if (isCapturing()) {
+      pipeline.stop();
       Button button = findViewById(R.id.button);
       button.setText("Record");
       stopBluetoothMic();
@@ -1674,6 +1450,7 @@ public class MainActivity extends AppCompatActivity {
     } else {
       ((VoiceRectView) findViewById(R.id.voiceRectView)).setCursorPosition(fraction);
     }
+    ((VadProbView) findViewById(R.id.vadProbView)).setCursorPosition(fraction);
   }
 
   private void updatePlaybackUI(int currentMs) {
@@ -1955,6 +1732,10 @@ public class MainActivity extends AppCompatActivity {
         .setTitle("Recordings")
         .setView(dialogView)
         .setNegativeButton("Cancel", (d, w) -> executor.shutdownNow())
+        .setNeutralButton("전체 다시 전사", (d, w) -> {
+          executor.shutdownNow();
+          retranscribe(allNames);
+        })
         .create();
     dialog.setOnCancelListener(d -> executor.shutdownNow());
 
@@ -1969,8 +1750,11 @@ public class MainActivity extends AppCompatActivity {
       RecordingManager.SearchResult sr = displayList.get(pos);
       new AlertDialog.Builder(this)
           .setTitle(sr.name)
-          .setItems(new String[]{"이름 변경", "삭제"}, (d, which) -> {
-            if (which == 0) {
+          .setItems(new String[]{"이름 변경", "삭제", "다시 전사"}, (d, which) -> {
+            if (which == 2) {
+              detailCache.remove(sr.name);
+              retranscribe(java.util.Collections.singletonList(sr.name));
+            } else if (which == 0) {
               // 이름 변경
               EditText input = new EditText(this);
               input.setText(sr.name);
@@ -0,0 +1,96 @@
+package com.mobvoi.wenet;
+
+import android.util.Log;
+
+/**
+ * Mel filterbank stored sparsely: each filter keeps only the span from its first to
+ * its last non-zero weight (a triangle covers a handful of the 201 bins).
+ *
+ * apply() accumulates every filter in ascending bin order, exactly like the dense
+ * row-by-vector product. The skipped weights are all zero, so the result is identical
+ * to the dense one bit for bit; {@link #matchesDense(float[])} checks that at load time.
+ */
+public class MelFilterbank {
+
+    private static final String TAG = "MelFilterbank";
+
+    private final int numMels;
+    private final int numBins;
+    private final int[] startBin;
+    private final float[][] weights;
+
+    /** @param dense row-major [numMels × numBins] matrix, as stored in mel_filterbank.bin */
+    public static MelFilterbank fromDense(float[] dense, int numMels, int numBins) {
+        if (dense.length != numMels * numBins) {
+            throw new IllegalArgumentException("Bad mel filterbank size " + dense.length);
+        }
+        int[] start = new int[numMels];
+        float[][] w = new float[numMels][];
+        for (int m = 0; m < numMels; m++) {
+            int base = m * numBins;
+            int lo = 0;
+            while (lo < numBins && dense[base + lo] == 0f) lo++;
+            int hi = numBins;
+            while (hi > lo && dense[base + hi - 1] == 0f) hi--;
+            start[m] = lo;
+            w[m] = new float[hi - lo];
+            System.arraycopy(dense, base + lo, w[m], 0, hi - lo);
+        }
+        return new MelFilterbank(numMels, numBins, start, w);
+    }
+
+    private MelFilterbank(int numMels, int numBins, int[] startBin, float[][] weights) {
+        this.numMels = numMels;
+        this.numBins = numBins;
+        this.startBin = startBin;
+        this.weights = weights;
+    }
+
+    public int getNumMels() {
+        return numMels;
+    }
+
+    /** Stored weights, against numMels × numBins for the dense matrix. */
+    public int getNonZeroCount() {
+        int n = 0;
+        for (float[] w : weights) n += w.length;
+        return n;
+    }
+
+    /** mel[m] = Σ_k fb[m][k] · power[k], for power of length numBins. */
+    public void apply(float[] power, float[] mel) {
+        for (int m = 0; m < numMels; m++) {
+            float[] w = weights[m];
+            int k0 = startBin[m];
+            float val = 0f;
+            for (int i = 0; i < w.length; i++) val += w[i] * power[k0 + i];
+            mel[m] = val;
+        }
+    }
+
+    /**
+     * Compare apply() with the dense product on a deterministic probe spectrum
+     * (float bits, not a tolerance). Logs and returns false on any difference.
+     */
+    public boolean matchesDense(float[] dense) {
+        float[] power = new float[numBins];
+        long seed = 0x5DEECE66DL;
+        for (int k = 0; k < numBins; k++) {
+            seed = seed * 6364136223846793005L + 1442695040888963407L;
+            // Power spans many decades, like real spectra
+            power[k] = (float) Math.pow(10, ((seed >>> 40) % 1200) / 100.0 - 6);
+        }
+        float[] sparse = new float[numMels];
+        apply(power, sparse);
+        for (int m = 0; m < numMels; m++) {
+            float val = 0f;
+            int base = m * numBins;
+            for (int k = 0; k < numBins; k++) val += dense[base + k] * power[k];
+            if (Float.floatToIntBits(val) != Float.floatToIntBits(sparse[m])) {
+                Log.e(TAG, "Sparse mel filter " + m + " differs: " + sparse[m] + " vs " + val);
+                return false;
+            }
+        }
+        return true;
+    }
+}
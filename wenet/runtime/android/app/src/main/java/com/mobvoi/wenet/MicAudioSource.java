@@ -0,0 +1,140 @@
+package com.mobvoi.wenet;
+
+import android.media.AudioDeviceInfo;
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.media.MediaRecorder;
+import android.media.audiofx.AcousticEchoCanceler;
+import android.media.audiofx.AutomaticGainControl;
+import android.media.audiofx.NoiseSuppressor;
+import android.util.Log;
+
+/**
+ * Microphone input for AudioPipeline: 16 kHz mono AudioRecord with optional
+ * platform AEC / NS / AGC effects.
+ */
+public class MicAudioSource implements AudioPipeline.AudioSource {
+
+  private static final String TAG = "MicAudioSource";
+
+  private final boolean useAec;
+  private final boolean useNs;
+  private final boolean useAgc;
+  private final Object lock = new Object();
+  private AudioRecord record = null;
+  private int miniBufferSize = 0;
+  private AcousticEchoCanceler aec = null;
+  private NoiseSuppressor ns = null;
+  private AutomaticGainControl agc = null;
+
+  public MicAudioSource(boolean useAec, boolean useNs, boolean useAgc) {
+    this.useAec = useAec;
+    this.useNs = useNs;
+    this.useAgc = useAgc;
+  }
+
+  @Override
+  public boolean start() {
+    synchronized (lock) {
+      releaseRecord();
+      miniBufferSize = AudioRecord.getMinBufferSize(AudioPipeline.CAPTURE_SAMPLE_RATE,
+          AudioFormat.CHANNEL_IN_MONO,
+          AudioFormat.ENCODING_PCM_16BIT);
+      if (miniBufferSize == AudioRecord.ERROR || miniBufferSize == AudioRecord.ERROR_BAD_VALUE) {
+        Log.e(TAG, "Audio buffer can't initialize!");
+        return false;
+      }
+      try {
+        record = new AudioRecord(MediaRecorder.AudioSource.MIC,
+            AudioPipeline.CAPTURE_SAMPLE_RATE,
+            AudioFormat.CHANNEL_IN_MONO,
+            AudioFormat.ENCODING_PCM_16BIT,
+            miniBufferSize);
+      } catch (Exception e) {
+        Log.e(TAG, "Failed to create AudioRecord: " + e.getMessage());
+        return false;
+      }
+      if (record.getState() != AudioRecord.STATE_INITIALIZED) {
+        Log.e(TAG, "Audio Record can't initialize!");
+        releaseRecord();
+        return false;
+      }
+
+      int sessionId = record.getAudioSessionId();
+      if (AcousticEchoCanceler.isAvailable()) {
+        aec = AcousticEchoCanceler.create(sessionId);
+        if (aec != null) {
+          aec.setEnabled(useAec);
+          Log.i(TAG, "AEC " + (useAec ? "enabled" : "disabled"));
+        }
+      }
+      if (NoiseSuppressor.isAvailable()) {
+        ns = NoiseSuppressor.create(sessionId);
+        if (ns != null) {
+          ns.setEnabled(useNs);
+          Log.i(TAG, "NS " + (useNs ? "enabled" : "disabled"));
+        }
+      }
+      if (AutomaticGainControl.isAvailable()) {
+        agc = AutomaticGainControl.create(sessionId);
+        if (agc != null) {
+          agc.setEnabled(useAgc);
+          Log.i(TAG, "AGC " + (useAgc ? "enabled" : "disabled"));
+        }
+      }
+
+      try {
+        record.startRecording();
+      } catch (IllegalStateException e) {
+        Log.e(TAG, "Failed to start recording: " + e.getMessage());
+        releaseRecord();
+        return false;
+      }
+      Log.i(TAG, "Record init okay");
+      return true;
+    }
+  }
+
+  @Override
+  public int read(short[] dst, int offset, int length) {
+    synchronized (lock) {
+      if (record == null) return -1;
+      // Transient AudioRecord errors count as an empty read; capture keeps going
+      return Math.max(0, record.read(dst, offset, length));
+    }
+  }
+
+  @Override
+  public int getReadSize() {
+    return Math.max(2, miniBufferSize / 2);
+  }
+
+  @Override
+  public void stop() {
+    synchronized (lock) {
+      releaseRecord();
+    }
+  }
+
+  /** Route capture to the given input device (e.g. Bluetooth SCO) while recording. */
+  public boolean setPreferredDevice(AudioDeviceInfo device) {
+    synchronized (lock) {
+      return record != null && record.setPreferredDevice(device);
+    }
+  }
+
+  private void releaseRecord() {
+    if (record != null) {
+      try {
+        record.stop();
+        record.release();
+      } catch (Exception ignored) {
+      } finally {
+        record = null;
+      }
+    }
+    if (aec != null) { aec.release(); aec = null; }
+    if (ns != null) { ns.release(); ns = null; }
+    if (agc != null) { agc.release(); agc = null; }
+  }
+}
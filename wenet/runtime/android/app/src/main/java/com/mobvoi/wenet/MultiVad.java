@@ -0,0 +1,208 @@
+package com.mobvoi.wenet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Runs several StreamingVad detectors in one pass over the same audio block. Members
+ * at another sample rate get their own Resampler, so e.g. 16 kHz capture can drive
+ * Personal VAD (16 kHz), SileroVad (8 kHz) and EnergyVad together. Listeners stay per
+ * member: events carry the detector that raised them.
+ *
+ * The combined probability is the maximum over ready members. Processing time is
+ * accumulated per member, so {@link #getStats()} compares detectors on identical
+ * input. Scratch buffers grow to the largest block seen; nothing is allocated per
+ * block after that.
+ */
+public class MultiVad implements StreamingVad {
+
+    private static final int MAX_BLOCK_MS = 1000;  // frame-size negotiation cap
+
+    private final int sampleRate;
+    private final List<StreamingVad> members = new ArrayList<>();
+    private final List<Resampler> resamplers = new ArrayList<>();  // null: same rate
+    private short[][] scratch = new short[0][];
+    private long[] nanos = new long[0];
+    private long inputSamples = 0;
+
+    public MultiVad(int sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    /** Add a detector; its input is resampled from this combinator's rate if needed. */
+    public MultiVad add(StreamingVad vad) {
+        members.add(vad);
+        resamplers.add(vad.getSampleRate() == sampleRate ? null
+                : new Resampler(sampleRate, vad.getSampleRate()));
+        short[][] s = new short[members.size()][];
+        System.arraycopy(scratch, 0, s, 0, scratch.length);
+        s[members.size() - 1] = new short[0];
+        scratch = s;
+        long[] n = new long[members.size()];
+        System.arraycopy(nanos, 0, n, 0, nanos.length);
+        nanos = n;
+        return this;
+    }
+
+    public List<StreamingVad> getMembers() {
+        return members;
+    }
+
+    public boolean isEmpty() {
+        return members.isEmpty();
+    }
+
+    @Override
+    public String getName() {
+        StringBuilder sb = new StringBuilder();
+        for (StreamingVad vad : members) {
+            if (sb.length() > 0) sb.append('+');
+            sb.append(vad.getName());
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Smallest block (input samples) that is a whole number of frames for every member,
+     * so no member buffers a partial frame. If that exceeds one second, the smallest
+     * member frame is returned instead.
+     */
+    @Override
+    public int getFrameSize() {
+        long lcm = 1;
+        int smallest = Integer.MAX_VALUE;
+        for (StreamingVad vad : members) {
+            int frame = (int) Math.max(1,
+                    (long) vad.getFrameSize() * sampleRate / vad.getSampleRate());
+            smallest = Math.min(smallest, frame);
+            lcm = lcm / gcd(lcm, frame) * frame;
+        }
+        if (members.isEmpty()) return 1;
+        return lcm <= (long) sampleRate * MAX_BLOCK_MS / 1000 ? (int) lcm : smallest;
+    }
+
+    @Override
+    public boolean isReady() {
+        for (StreamingVad vad : members) {
+            if (vad.isReady()) return true;
+        }
+        return false;
+    }
+
+    /** Sets the same listener on every member. */
+    @Override
+    public void setListener(StreamingVad.Listener listener) {
+        for (StreamingVad vad : members) vad.setListener(listener);
+    }
+
+    @Override
+    public void process(short[] pcm, int offset, int length) {
+        inputSamples += length;
+        for (int i = 0; i < members.size(); i++) {
+            StreamingVad vad = members.get(i);
+            if (!vad.isReady()) continue;
+            long t0 = System.nanoTime();
+            Resampler resampler = resamplers.get(i);
+            if (resampler == null) {
+                vad.process(pcm, offset, length);
+            } else {
+                int max = resampler.maxOutput(length);
+                if (scratch[i].length < max) scratch[i] = new short[max];
+                int n = resampler.process(pcm, offset, length, scratch[i], 0);
+                vad.process(scratch[i], 0, n);
+            }
+            nanos[i] += System.nanoTime() - t0;
+        }
+    }
+
+    /** Forwarded at each member's rate; resamplers restart after the gap. */
+    @Override
+    public void skip(int length) {
+        skip(length, false);
+    }
+
+    @Override
+    public void skipNonSpeech(int length) {
+        skip(length, true);
+    }
+
+    private void skip(int length, boolean nonSpeech) {
+        long before = inputSamples;
+        inputSamples += length;
+        for (int i = 0; i < members.size(); i++) {
+            StreamingVad vad = members.get(i);
+            if (!vad.isReady()) continue;
+            long t0 = System.nanoTime();
+            int rate = vad.getSampleRate();
+            int n = (int) (inputSamples * rate / sampleRate - before * rate / sampleRate);
+            if (nonSpeech) {
+                vad.skipNonSpeech(n);
+            } else {
+                vad.skip(n);
+            }
+            if (resamplers.get(i) != null) resamplers.get(i).reset();
+            nanos[i] += System.nanoTime() - t0;
+        }
+    }
+
+    /** Highest probability among ready members. */
+    @Override
+    public float getLastProbability() {
+        float max = 0f;
+        for (StreamingVad vad : members) {
+            if (vad.isReady()) max = Math.max(max, vad.getLastProbability());
+        }
+        return max;
+    }
+
+    @Override
+    public void flush() {
+        for (StreamingVad vad : members) {
+            if (vad.isReady()) vad.flush();
+        }
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < members.size(); i++) {
+            members.get(i).reset();
+            if (resamplers.get(i) != null) resamplers.get(i).reset();
+            nanos[i] = 0;
+        }
+        inputSamples = 0;
+    }
+
+    /** Accumulated processing time of member {@code index} since reset(). */
+    public long getProcessingNs(int index) {
+        return nanos[index];
+    }
+
+    /** Per member: CPU ms per second of audio and real-time factor. */
+    public String getStats() {
+        double audioS = (double) inputSamples / sampleRate;
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < members.size(); i++) {
+            if (sb.length() > 0) sb.append(", ");
+            double ms = nanos[i] / 1e6;
+            sb.append(String.format(Locale.US, "%s %.2f ms/s (RTF %.4f)",
+                    members.get(i).getName(),
+                    audioS > 0 ? ms / audioS : 0, audioS > 0 ? ms / 1000 / audioS : 0));
+        }
+        return sb.toString();
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
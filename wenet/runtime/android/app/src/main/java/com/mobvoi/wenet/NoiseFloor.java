@@ -0,0 +1,67 @@
+package com.mobvoi.wenet;
+
+/**
+ * Adaptive noise floor in dBFS, tracked frame by frame. It follows drops quickly and
+ * rises slowly, so speech barely lifts it. SileroVad's energy pre-gate and EnergyVad
+ * share this tracker, so both judge "quiet" the same way.
+ *
+ * The slow rise alone would take tens of seconds to climb from MIN_DB to an ordinary
+ * room (~-50 dB), gating nothing meanwhile. So once the first {@link #SEED_MS} of
+ * frames are in, the floor jumps up to the quietest of them. Speech throughout that
+ * window only seeds it high briefly, since drops are followed quickly.
+ */
+final class NoiseFloor {
+
+    static final float MIN_DB = -70f;               // digital silence
+    private static final float DROP_FACTOR = 0.5f;  // share of a drop followed per frame
+    private static final float RISE_DB_PER_S = 0.5f;
+    static final int SEED_MS = 250;
+
+    private final float risePerFrame;
+    private final int seedFrames;
+    private float floorDb = MIN_DB;
+    private int frames = 0;       // counted up to seedFrames
+    private float seedDb = MIN_DB;  // quietest frame so far while seeding
+
+    NoiseFloor(int sampleRate, int frameSize) {
+        this.risePerFrame = RISE_DB_PER_S * frameSize / sampleRate;
+        this.seedFrames = Math.max(1, SEED_MS * sampleRate / 1000 / frameSize);
+    }
+
+    /** Level of {@code length} samples whose squares sum to {@code energy}, at least MIN_DB. */
+    static float levelDb(long energy, int length) {
+        if (energy == 0 || length == 0) return MIN_DB;
+        return Math.max(MIN_DB,
+                (float) (10 * Math.log10((double) energy / length / (32768.0 * 32768.0))));
+    }
+
+    /** Track one frame's level; returns the updated floor. */
+    float update(float levelDb) {
+        if (levelDb < floorDb) {
+            floorDb += DROP_FACTOR * (levelDb - floorDb);
+        } else {
+            floorDb += risePerFrame;
+        }
+        floorDb = Math.max(MIN_DB, floorDb);
+        if (frames < seedFrames) {
+            seedDb = frames == 0 ? levelDb : Math.min(seedDb, levelDb);
+            if (++frames == seedFrames) floorDb = Math.max(floorDb, seedDb);
+        }
+        return floorDb;
+    }
+
+    float get() {
+        return floorDb;
+    }
+
+    /** True once the seed window is in; before that the floor may still be far too low. */
+    boolean isSettled() {
+        return frames >= seedFrames;
+    }
+
+    void reset() {
+        floorDb = MIN_DB;
+        frames = 0;
+        seedDb = MIN_DB;
+    }
+}
@@ -3,28 +3,29 @@ package com.mobvoi.wenet;
 import android.media.AudioAttributes;
 import android.media.AudioFormat;
 import android.media.AudioTrack;
-import android.media.MediaCodec;
-import android.media.MediaExtractor;
-import android.media.MediaFormat;
 import android.util.Log;
 import java.io.IOException;
-import java.nio.ByteBuffer;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 
 /**
  * Streams OGG/Opus audio without full pre-decode.
- * MediaExtractor + MediaCodec → BlockingQueue → AudioTrack (16kHz mono PCM).
- * 48kHz decoder output is decimated 3:1 → 16kHz.
+ * {@link AudioDecoder} (8kHz mono PCM) → BlockingQueue → AudioTrack.
+ * The decoder stays open between plays; seeks, including the rewind after EOF, run on
+ * the decoder thread.
  */
 public class OggStreamPlayer {
 
   private static final String TAG = "OggStreamPlayer";
   private static final int OUTPUT_SAMPLE_RATE = 8000;
   // Sentinel: empty array signals decoder thread finished
-  private static final byte[] EOF_SENTINEL = new byte[0];
-  // Queue capacity: ~20 chunks × 4096 bytes = ~80KB buffer
+  private static final short[] EOF_SENTINEL = new short[0];
+  // Queue capacity: ~20 decoder frames (~20 ms each at 8kHz)
   private static final int QUEUE_CAPACITY = 20;
+  // Read size: one decoder frame fits, so reads resample straight into the chunk buffer
+  private static final int CHUNK_SAMPLES = OUTPUT_SAMPLE_RATE / 25;
 
   public interface Listener {
     void onPositionMs(int ms);
@@ -34,8 +35,7 @@ public class OggStreamPlayer {
   private final String opusPath;
   private Listener listener;
 
-  private MediaExtractor extractor;
-  private MediaCodec decoder;
+  private AudioDecoder decoder;
   private AudioTrack audioTrack;
   private Thread decoderThread;
   private Thread playerThread;
@@ -43,17 +43,16 @@ public class OggStreamPlayer {
   private volatile boolean active = false;
   private volatile boolean paused = false;
   private volatile long seekTargetUs = -1;
-  private volatile boolean needsReinit = false; // true after natural EOF — recreate extractor/decoder on next start()
+  private volatile boolean released = false;
 
   // Position tracking
   private volatile long playbackStartMs = 0;
   private volatile long trackStartFrames = 0; // AudioTrack head at playback start
-  private int decimation = 6; // default 48000/8000
 
   private long totalDurationMs = 0;
   private long totalDurationUs = 0;
 
-  private final BlockingQueue<byte[]> pcmQueue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+  private final BlockingQueue<short[]> pcmQueue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
 
   public OggStreamPlayer(String opusPath) {
     this.opusPath = opusPath;
@@ -66,32 +65,13 @@ public class OggStreamPlayer {
   /** Must be called before start(). Returns false if file can't be opened. */
   public boolean prepare() {
     try {
-      extractor = new MediaExtractor();
-      extractor.setDataSource(opusPath);
-      int trackIndex = -1;
-      for (int i = 0; i < extractor.getTrackCount(); i++) {
-        MediaFormat fmt = extractor.getTrackFormat(i);
-        String mime = fmt.getString(MediaFormat.KEY_MIME);
-        if (mime != null && mime.startsWith("audio/")) {
-          trackIndex = i;
-          if (fmt.containsKey(MediaFormat.KEY_DURATION)) {
-            totalDurationUs = fmt.getLong(MediaFormat.KEY_DURATION);
-            totalDurationMs = totalDurationUs / 1000;
-          }
-          break;
-        }
-      }
-      if (trackIndex < 0) {
+      decoder = AudioDecoder.open(opusPath, OUTPUT_SAMPLE_RATE);
+      if (decoder == null) {
         Log.e(TAG, "No audio track found");
         return false;
       }
-      extractor.selectTrack(trackIndex);
-
-      MediaFormat fmt = extractor.getTrackFormat(trackIndex);
-      String mime = fmt.getString(MediaFormat.KEY_MIME);
-      decoder = MediaCodec.createDecoderByType(mime);
-      decoder.configure(fmt, null, null, 0);
-      decoder.start();
+      totalDurationUs = decoder.getDurationUs();
+      totalDurationMs = totalDurationUs / 1000;
 
       // AudioTrack
       int bufSize = AudioTrack.getMinBufferSize(OUTPUT_SAMPLE_RATE,
@@ -128,37 +108,12 @@ public class OggStreamPlayer {
 
     pcmQueue.clear();
 
-    if (needsReinit) {
-      needsReinit = false;
-      // Release stale extractor/decoder and recreate
-      try { decoder.stop(); decoder.release(); } catch (Exception ignored) {}
-      try { extractor.release(); } catch (Exception ignored) {}
-      try {
-        extractor = new MediaExtractor();
-        extractor.setDataSource(opusPath);
-        int trackIndex = -1;
-        for (int i = 0; i < extractor.getTrackCount(); i++) {
-          MediaFormat fmt = extractor.getTrackFormat(i);
-          String mime = fmt.getString(MediaFormat.KEY_MIME);
-          if (mime != null && mime.startsWith("audio/")) { trackIndex = i; break; }
-        }
-        if (trackIndex >= 0) {
-          extractor.selectTrack(trackIndex);
-          MediaFormat fmt = extractor.getTrackFormat(trackIndex);
-          String mime = fmt.getString(MediaFormat.KEY_MIME);
-          decoder = MediaCodec.createDecoderByType(mime);
-          decoder.configure(fmt, null, null, 0);
-          decoder.start();
-        }
-      } catch (IOException e) {
-        Log.e(TAG, "reinit failed: " + e.getMessage());
-        active = false;
-        return;
-      }
+    // The previous decoder thread has put its EOF; let it finish before starting another
+    if (decoderThread != null) {
+      try { decoderThread.join(500); } catch (InterruptedException ignored) {}
     }
-
-    extractor.seekTo(startMs * 1000L, MediaExtractor.SEEK_TO_CLOSEST_SYNC);
-    try { decoder.flush(); } catch (Exception ignored) {}
+    // Picked up by the new decoder thread before its first read (also rewinds after EOF)
+    seekTargetUs = startMs * 1000L;
 
     if (audioTrack != null) {
       try { audioTrack.pause(); audioTrack.flush(); } catch (Exception ignored) {}
@@ -223,110 +178,53 @@ public class OggStreamPlayer {
     paused = false;
     pcmQueue.clear();
     pcmQueue.offer(EOF_SENTINEL); // unblock player thread if waiting
-    if (decoderThread != null) { decoderThread.interrupt(); }
+    released = true;
+    if (decoderThread != null) {
+      decoderThread.interrupt();
+      try { decoderThread.join(500); } catch (InterruptedException ignored) {}
+    }
     if (playerThread != null) { try { playerThread.join(500); } catch (InterruptedException ignored) {} }
     if (audioTrack != null) {
       try { audioTrack.stop(); audioTrack.release(); } catch (Exception ignored) {}
       audioTrack = null;
     }
     if (decoder != null) {
-      try { decoder.stop(); decoder.release(); } catch (Exception ignored) {}
+      // A decoder thread that outlived the join closes it on its way out instead
+      if (decoderThread == null || !decoderThread.isAlive()) decoder.close();
       decoder = null;
     }
-    if (extractor != null) {
-      extractor.release();
-      extractor = null;
-    }
   }
 
   // ── Decoder thread ────────────────────────────────────────────────────────
 
   private void runDecoder() {
-    MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
-    boolean inputDone = false;
-    boolean outputDone = false;
-    int outSampleRate = 48000;
-    int outChannels = 1;
-    boolean formatRead = false;
-
-    while (active && !outputDone) {
-      // Handle seek
-      long seekUs = seekTargetUs;
-      if (seekUs >= 0) {
-        seekTargetUs = -1;
-        extractor.seekTo(seekUs, MediaExtractor.SEEK_TO_CLOSEST_SYNC);
-        decoder.flush();
-        inputDone = false;
-        pcmQueue.clear();
-      }
-
-      if (paused) {
-        try { Thread.sleep(20); } catch (InterruptedException e) { break; }
-        continue;
-      }
-
-      // Feed input
-      if (!inputDone) {
-        int inputIdx = decoder.dequeueInputBuffer(5000);
-        if (inputIdx >= 0) {
-          ByteBuffer inputBuf = decoder.getInputBuffer(inputIdx);
-          if (inputBuf != null) {
-            int sampleSize = extractor.readSampleData(inputBuf, 0);
-            if (sampleSize < 0) {
-              decoder.queueInputBuffer(inputIdx, 0, 0, 0,
-                  MediaCodec.BUFFER_FLAG_END_OF_STREAM);
-              inputDone = true;
-            } else {
-              long pts = extractor.getSampleTime();
-              decoder.queueInputBuffer(inputIdx, 0, sampleSize, pts, 0);
-              extractor.advance();
-            }
-          }
+    AudioDecoder d = decoder;
+    short[] chunk = new short[CHUNK_SAMPLES];
+    try {
+      while (active) {
+        // Handle seek
+        long seekUs = seekTargetUs;
+        if (seekUs >= 0) {
+          seekTargetUs = -1;
+          d.seekTo(seekUs);
+          pcmQueue.clear();
         }
-      }
 
-      // Drain output
-      int outputIdx = decoder.dequeueOutputBuffer(info, 5000);
-      if (outputIdx == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
-        MediaFormat newFmt = decoder.getOutputFormat();
-        outSampleRate = newFmt.containsKey(MediaFormat.KEY_SAMPLE_RATE)
-            ? newFmt.getInteger(MediaFormat.KEY_SAMPLE_RATE) : 48000;
-        outChannels = newFmt.containsKey(MediaFormat.KEY_CHANNEL_COUNT)
-            ? newFmt.getInteger(MediaFormat.KEY_CHANNEL_COUNT) : 1;
-        decimation = Math.max(1, outSampleRate / OUTPUT_SAMPLE_RATE);
-        formatRead = true;
-        Log.d(TAG, "Output format: " + outSampleRate + "Hz ch=" + outChannels
-            + " decimation=" + decimation);
-      } else if (outputIdx >= 0) {
-        ByteBuffer outBuf = decoder.getOutputBuffer(outputIdx);
-        if (outBuf != null && info.size > 0 && formatRead) {
-          byte[] pcmRaw = new byte[info.size];
-          outBuf.position(info.offset);
-          outBuf.get(pcmRaw, 0, info.size);
-
-          // Decimate: outSampleRate → OUTPUT_SAMPLE_RATE
-          int frameBytes = 2 * outChannels;
-          int totalFrames = info.size / frameBytes;
-          int outFrames = (totalFrames + decimation - 1) / decimation;
-          byte[] decimated = new byte[outFrames * 2]; // mono 16-bit output
-          int dstIdx = 0;
-          for (int f = 0; f < totalFrames && dstIdx + 1 < decimated.length; f += decimation) {
-            int srcByte = f * frameBytes;
-            // Left channel (or mono) sample
-            decimated[dstIdx]     = pcmRaw[srcByte];
-            decimated[dstIdx + 1] = pcmRaw[srcByte + 1];
-            dstIdx += 2;
-          }
-          byte[] out = new byte[dstIdx];
-          System.arraycopy(decimated, 0, out, 0, dstIdx);
-
-          try { pcmQueue.put(out); } catch (InterruptedException e) { break; }
-        }
-        decoder.releaseOutputBuffer(outputIdx, false);
-        if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
-          outputDone = true;
+        if (paused) {
+          Thread.sleep(20);
+          continue;
         }
+
+        int n = d.read(chunk, 0, chunk.length);
+        if (n < 0) break;
+        pcmQueue.put(Arrays.copyOf(chunk, n));
       }
+    } catch (InterruptedException | InterruptedIOException e) {
+      // release()
+    } catch (IOException e) {
+      Log.e(TAG, "decode failed: " + e.getMessage());
+    } finally {
+      if (released) d.close();
     }
 
     try { pcmQueue.put(EOF_SENTINEL); } catch (InterruptedException ignored) {}
@@ -336,7 +234,7 @@ public class OggStreamPlayer {
 
   private void runPlayer() {
     while (active) {
-      byte[] chunk;
+      short[] chunk;
       try {
         chunk = pcmQueue.take();
       } catch (InterruptedException e) {
@@ -345,7 +243,6 @@ public class OggStreamPlayer {
 
       if (chunk == EOF_SENTINEL) {
         // Playback complete — reset active so resume() can restart via start()
-        needsReinit = true;
         active = false;
         runOnMainThread(() -> {
           if (listener != null) listener.onPlaybackComplete();
@@ -0,0 +1,196 @@
+package com.mobvoi.wenet;
+
+import android.util.Log;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Collections;
+import java.util.Map;
+
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import ai.onnxruntime.TensorInfo;
+
+/**
+ * Streaming front end of resemblyzer_encoder.onnx: 16 kHz PCM goes in as it is decoded,
+ * one embedding per 160-frame partial (step 80) comes out.
+ *
+ * Power mel frames are computed as soon as their 400 samples are in, into a ring that
+ * holds exactly one partial. Each completed partial is copied into a direct batch
+ * buffer, and the encoder runs once per {@link #DEFAULT_BATCH} partials. Memory is
+ * fixed by the batch size, whatever the length of the recording. If the model's batch
+ * dimension is static, that size is used instead.
+ *
+ * Single-threaded; close() releases the batch tensor, not the session.
+ */
+public class PartialEmbedder implements AutoCloseable {
+
+    private static final String TAG = "PartialEmbedder";
+
+    static final int N_FFT = 400;
+    static final int HOP_LENGTH = 160;
+    static final int N_MELS = PersonalVadProcessor.N_MELS;    // 40
+    static final int PARTIAL_FRAMES = 160;
+    static final int PARTIAL_STEP = 80;
+    static final int EMBED_DIM = PersonalVadProcessor.EMBED_DIM; // 256
+    static final int DEFAULT_BATCH = 16;
+
+    /** Receives each partial's raw (not normalised) embedding, in order. */
+    public interface Listener {
+        void onPartial(int index, float[] embedding) throws Exception;
+    }
+
+    private final OrtEnvironment env;
+    private final OrtSession session;
+    private final RealFft fft;
+    private final MelFilterbank melFilterbank;
+    private final Listener listener;
+    private final int batch;
+    private final boolean fixedBatch;
+
+    // PCM not yet consumed by a frame: frames start every HOP_LENGTH samples
+    private final short[] pcmBuf = new short[N_FFT + 4 * 1024];
+    private int pcmLen = 0;
+    private final float[] powerSpec = new float[PersonalVadProcessor.N_BINS];
+    private final float[] melRow = new float[N_MELS];
+
+    // The last PARTIAL_FRAMES mel frames, frame f at row f % PARTIAL_FRAMES
+    private final float[] melRing = new float[PARTIAL_FRAMES * N_MELS];
+    private long frames = 0;
+
+    // Partials waiting for the next encoder run, [batch, PARTIAL_FRAMES, N_MELS]
+    private final FloatBuffer batchBuffer;
+    private final OnnxTensor batchTensor;
+    private int pending = 0;
+    private int partials = 0;
+
+    public PartialEmbedder(OrtEnvironment env, OrtSession session, RealFft fft,
+                           MelFilterbank melFilterbank, Listener listener) throws OrtException {
+        this(env, session, fft, melFilterbank, DEFAULT_BATCH, listener);
+    }
+
+    public PartialEmbedder(OrtEnvironment env, OrtSession session, RealFft fft,
+                           MelFilterbank melFilterbank, int batch, Listener listener)
+            throws OrtException {
+        this.env = env;
+        this.session = session;
+        this.fft = fft;
+        this.melFilterbank = melFilterbank;
+        this.listener = listener;
+        long modelBatch = modelBatchSize(session);
+        this.fixedBatch = modelBatch > 0;
+        this.batch = fixedBatch ? (int) modelBatch : Math.max(1, batch);
+        batchBuffer = ByteBuffer.allocateDirect(this.batch * PARTIAL_FRAMES * N_MELS * 4)
+                .order(ByteOrder.nativeOrder()).asFloatBuffer();
+        batchTensor = OnnxTensor.createTensor(env, batchBuffer,
+                new long[]{this.batch, PARTIAL_FRAMES, N_MELS});
+        Log.i(TAG, "Encoder batch " + this.batch + (fixedBatch ? " (fixed by model)" : ""));
+    }
+
+    /** Static batch dimension of the "mels" input, or -1 if it is dynamic. */
+    private static long modelBatchSize(OrtSession session) throws OrtException {
+        TensorInfo info = (TensorInfo) session.getInputInfo().get("mels").getInfo();
+        long[] shape = info.getShape();
+        return shape.length == 3 && shape[0] > 0 ? shape[0] : -1;
+    }
+
+    /** Feed decoded 16 kHz PCM. */
+    public void write(short[] pcm, int off, int len) throws Exception {
+        while (len > 0) {
+            int n = Math.min(len, pcmBuf.length - pcmLen);
+            System.arraycopy(pcm, off, pcmBuf, pcmLen, n);
+            pcmLen += n;
+            off += n;
+            len -= n;
+
+            int start = 0;
+            while (start + N_FFT <= pcmLen) {
+                addFrame(start);
+                start += HOP_LENGTH;
+            }
+            // Keep the samples the next frame still needs
+            System.arraycopy(pcmBuf, start, pcmBuf, 0, pcmLen - start);
+            pcmLen -= start;
+        }
+    }
+
+    /** Embed the partials still waiting in the batch. Audio after the last partial is unused. */
+    public void finish() throws Exception {
+        if (pending == 0) return;
+        if (fixedBatch) {
+            // Pad with copies of the last partial; their embeddings are not reported
+            int size = PARTIAL_FRAMES * N_MELS;
+            for (int slot = pending; slot < batch; slot++) {
+                for (int i = 0; i < size; i++) {
+                    batchBuffer.put(slot * size + i, batchBuffer.get((pending - 1) * size + i));
+                }
+            }
+            runBatch(batchTensor, pending);
+        } else {
+            FloatBuffer head = batchBuffer.duplicate();
+            head.position(0);
+            head.limit(pending * PARTIAL_FRAMES * N_MELS);
+            try (OnnxTensor tensor = OnnxTensor.createTensor(env, head,
+                    new long[]{pending, PARTIAL_FRAMES, N_MELS})) {
+                runBatch(tensor, pending);
+            }
+        }
+    }
+
+    /** Partials embedded so far. */
+    public int getPartialCount() {
+        return partials;
+    }
+
+    /** Mel frames computed so far. */
+    public long getFrameCount() {
+        return frames;
+    }
+
+    @Override
+    public void close() {
+        batchTensor.close();
+    }
+
+    private void addFrame(int start) throws Exception {
+        fft.powerSpectrum(pcmBuf, start, powerSpec);
+        int row = (int) (frames % PARTIAL_FRAMES);
+        melFilterbank.apply(powerSpec, melRow);
+        System.arraycopy(melRow, 0, melRing, row * N_MELS, N_MELS);
+        frames++;
+
+        // A partial ends every PARTIAL_STEP frames once the first one is complete
+        if (frames >= PARTIAL_FRAMES && (frames - PARTIAL_FRAMES) % PARTIAL_STEP == 0) {
+            int base = pending * PARTIAL_FRAMES * N_MELS;
+            for (int f = 0; f < PARTIAL_FRAMES; f++) {
+                int src = (int) ((frames - PARTIAL_FRAMES + f) % PARTIAL_FRAMES) * N_MELS;
+                for (int m = 0; m < N_MELS; m++) {
+                    batchBuffer.put(base + f * N_MELS + m, melRing[src + m]);
+                }
+            }
+            if (++pending == batch) runBatch(batchTensor, batch);
+        }
+    }
+
+    private void runBatch(OnnxTensor tensor, int count) throws Exception {
+        Map<String, OnnxTensor> inputs = Collections.singletonMap("mels", tensor);
+        try (OrtSession.Result result = session.run(inputs)) {
+            Object value = result.get("embedding").get().getValue();
+            if (value instanceof float[][]) {
+                float[][] rows = (float[][]) value;
+                for (int i = 0; i < count && i < rows.length; i++) {
+                    listener.onPartial(partials++, rows[i]);
+                }
+            } else if (value instanceof float[] && count == 1) {
+                listener.onPartial(partials++, (float[]) value);
+            } else {
+                Log.w(TAG, "Unexpected embedding type: "
+                        + (value != null ? value.getClass() : "null"));
+            }
+        }
+        pending = 0;
+    }
+}
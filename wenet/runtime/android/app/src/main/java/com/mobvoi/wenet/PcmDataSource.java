@@ -1,20 +1,19 @@
 package com.mobvoi.wenet;
 
-import android.media.MediaCodec;
-import android.media.MediaExtractor;
-import android.media.MediaFormat;
 import android.util.Log;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
+import java.util.Arrays;
 
 /**
  * Abstraction over a raw PCM (16-bit mono, 8kHz) data source.
  * Two implementations:
  *  - FilePcmDataSource  : wraps an existing raw PCM file (FileChannel random access)
  *  - OggPcmDataSource   : on-demand decodes a window from OGG/Opus into a short[] cache
+ *                         (one pooled {@link AudioDecoder}, kept open between windows)
  */
 public interface PcmDataSource {
 
@@ -79,6 +78,10 @@ public interface PcmDataSource {
     private long cacheStartSample = -1;
     private short[] cacheData = null;
 
+    // Kept open between windows, so scrolling forward continues without a seek
+    private AudioDecoder decoder = null;
+    private volatile boolean closed = false;
+
     // Window = 40 seconds of decoded audio (enough for one spectrogram render)
     private static final int WINDOW_SAMPLES = OUTPUT_SAMPLE_RATE * 40;
 
@@ -89,9 +92,10 @@ public interface PcmDataSource {
 
     @Override public long totalSamples() { return totalSamplesVal; }
 
+    /** Synchronized: spectrogram workers read in parallel and share the decoder. */
     @Override
-    public int read(long sampleOffset, short[] dst, int count) {
-      if (sampleOffset < 0 || sampleOffset >= totalSamplesVal) return 0;
+    public synchronized int read(long sampleOffset, short[] dst, int count) {
+      if (closed || sampleOffset < 0 || sampleOffset >= totalSamplesVal) return 0;
 
       // Check if request falls within current cache
       if (cacheData == null
@@ -112,102 +116,46 @@ public interface PcmDataSource {
     }
 
     private void decodeWindow(long startSample, int windowSamples) {
-      MediaExtractor extractor = null;
-      MediaCodec decoder = null;
       try {
-        extractor = new MediaExtractor();
-        extractor.setDataSource(opusPath);
-        int trackIdx = -1;
-        for (int i = 0; i < extractor.getTrackCount(); i++) {
-          MediaFormat fmt = extractor.getTrackFormat(i);
-          String mime = fmt.getString(MediaFormat.KEY_MIME);
-          if (mime != null && mime.startsWith("audio/")) { trackIdx = i; break; }
+        if (decoder == null) {
+          decoder = AudioDecoder.open(opusPath, OUTPUT_SAMPLE_RATE);
+          if (decoder == null) return;
         }
-        if (trackIdx < 0) return;
-
-        extractor.selectTrack(trackIdx);
-        long seekUs = startSample * 1_000_000L / OUTPUT_SAMPLE_RATE;
-        extractor.seekTo(seekUs, MediaExtractor.SEEK_TO_CLOSEST_SYNC);
-
-        MediaFormat fmt = extractor.getTrackFormat(trackIdx);
-        String mime = fmt.getString(MediaFormat.KEY_MIME);
-        decoder = MediaCodec.createDecoderByType(mime);
-        decoder.configure(fmt, null, null, 0);
-        decoder.start();
-
-        short[] buf = new short[windowSamples + OUTPUT_SAMPLE_RATE];
+        short[] buf = new short[windowSamples];
         int filled = 0;
-        int decimation = 6; // default; updated on INFO_OUTPUT_FORMAT_CHANGED
-        boolean formatKnown = false;
-        boolean inputDone = false;
-        boolean outputDone = false;
-        MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
-
-        while (!outputDone && filled < windowSamples) {
-          if (!inputDone) {
-            int inputIdx = decoder.dequeueInputBuffer(5000);
-            if (inputIdx >= 0) {
-              ByteBuffer inputBuf = decoder.getInputBuffer(inputIdx);
-              int sampleSize = extractor.readSampleData(inputBuf, 0);
-              if (sampleSize < 0) {
-                decoder.queueInputBuffer(inputIdx, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
-                inputDone = true;
-              } else {
-                decoder.queueInputBuffer(inputIdx, 0, sampleSize, extractor.getSampleTime(), 0);
-                extractor.advance();
-              }
-            }
-          }
-
-          int outputIdx = decoder.dequeueOutputBuffer(info, 5000);
-          if (outputIdx == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
-            MediaFormat newFmt = decoder.getOutputFormat();
-            int outRate = newFmt.containsKey(MediaFormat.KEY_SAMPLE_RATE)
-                ? newFmt.getInteger(MediaFormat.KEY_SAMPLE_RATE) : 48000;
-            int outCh = newFmt.containsKey(MediaFormat.KEY_CHANNEL_COUNT)
-                ? newFmt.getInteger(MediaFormat.KEY_CHANNEL_COUNT) : 1;
-            decimation = Math.max(1, outRate / OUTPUT_SAMPLE_RATE);
-            formatKnown = true;
-          } else if (outputIdx >= 0) {
-            ByteBuffer outBuf = decoder.getOutputBuffer(outputIdx);
-            if (outBuf != null && info.size > 0 && formatKnown) {
-              outBuf.position(info.offset);
-              outBuf.order(ByteOrder.LITTLE_ENDIAN);
-              int frameBytes = 2; // mono out after channel selection; getOutputFormat channel=1
-              // Actually decoder outputs outChannels — re-read via format if needed
-              // We always take left channel (index 0)
-              int totalRawBytes = info.size;
-              // decimation already accounts for sample rate; channel factor separate
-              // Read raw bytes and extract left mono sample per decimation step
-              byte[] raw = new byte[totalRawBytes];
-              outBuf.get(raw, 0, totalRawBytes);
-              // outChannels from format change is 1 for opus mono typically
-              // but to be safe, use decimation × 2 bytes per frame
-              int bytesPerOutFrame = 2; // 16-bit mono
-              // If the codec outputs 2ch (stereo), frameBytes = 4
-              // We use decimation*frameBytes to step through raw
-              for (int i = 0; i + 1 < totalRawBytes && filled < buf.length; i += decimation * bytesPerOutFrame) {
-                short s = (short) ((raw[i] & 0xFF) | (raw[i + 1] << 8));
-                buf[filled++] = s;
-              }
-            }
-            decoder.releaseOutputBuffer(outputIdx, false);
-            if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) outputDone = true;
-          }
+        long cacheEnd = cacheData != null ? cacheStartSample + cacheData.length : -1;
+        if (cacheData != null && startSample >= cacheStartSample && startSample <= cacheEnd
+            && decoder.getPosition() == cacheEnd) {
+          // Overlaps the cached window: keep the overlap, decode on from its end
+          filled = (int) Math.min(windowSamples, cacheEnd - startSample);
+          System.arraycopy(cacheData, (int) (startSample - cacheStartSample), buf, 0, filled);
+        } else if (decoder.getPosition() != startSample) {
+          decoder.seekTo(startSample * 1_000_000L / OUTPUT_SAMPLE_RATE);
+        }
+        while (filled < windowSamples && !closed) {
+          int n = decoder.read(buf, filled, windowSamples - filled);
+          if (n < 0) break;
+          filled += n;
         }
+        if (closed) return;
 
         cacheStartSample = startSample;
-        cacheData = new short[filled];
-        System.arraycopy(buf, 0, cacheData, 0, filled);
+        cacheData = filled == buf.length ? buf : Arrays.copyOf(buf, filled);
 
-      } catch (Exception e) {
+      } catch (IOException e) {
         Log.e(TAG, "decodeWindow error: " + e.getMessage());
-      } finally {
-        if (decoder != null) { try { decoder.stop(); decoder.release(); } catch (Exception ignored) {} }
-        if (extractor != null) { extractor.release(); }
+        if (decoder != null) { decoder.close(); decoder = null; }
+        cacheData = null;
       }
     }
 
-    @Override public void close() { cacheData = null; }
+    @Override
+    public void close() {
+      closed = true;  // a window being decoded stops at its next decoder buffer
+      synchronized (this) {
+        cacheData = null;
+        if (decoder != null) { decoder.close(); decoder = null; }
+      }
+    }
   }
 }
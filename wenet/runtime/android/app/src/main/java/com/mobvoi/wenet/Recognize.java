@@ -1,22 +1,84 @@
 package com.mobvoi.wenet;
 
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+
 public class Recognize {
 
+  /**
+   * Decoder results pushed from native code. Called in order on a single native
+   * "wenet-events" thread; post to the UI thread as needed.
+   */
+  public interface ResultListener {
+    /** Current in-progress hypothesis changed. */
+    void onPartial(String partial);
+    /**
+     * A sentence was closed: its timed tokens plus a sentence-end record, as a binary
+     * delta (see {@link TranscriptDelta}). The buffer is only valid during the call.
+     */
+    void onEndpoint(ByteBuffer delta);
+    /** Decoding finished: timed tokens of the last sentence, binary delta as above. */
+    void onFinal(ByteBuffer delta);
+  }
+
   static {
     System.loadLibrary("wenet");
   }
 
+  /** Load the model shared by all sessions. Call once before creating sessions. */
   public static native void init(String modelDir);
-  public static native void reset();
-  public static native void acceptWaveform(short[] waveform);
-  public static native void setInputFinished();
-  public static native boolean getFinished();
-  public static native void startDecode();
-  public static native String getResult();
-  public static native String getTimedResult();
-  public static native String getTimedResultDelta();
-  public static native String getResultDelta();
-  public static native void addSkippedSamples(int count);
-  public static native void snapshotOffset();
-  public static native boolean hasNewEndpoint();
+
+  private static native long create(int chunkSize, boolean rescoring);
+  private static native void destroy(long handle);
+
+  // Native session (feature pipeline + decoder); read by the native methods below
+  private long nativeHandle;
+
+  /**
+   * Open a recognition session on the model loaded by {@link #init}. Sessions share the
+   * model weights but decode independently, so several can run at once.
+   */
+  public Recognize() {
+    this(0, false);
+  }
+
+  /**
+   * Session with its own decoding options. {@code chunkSize} is in encoder frames after
+   * subsampling (0 = streaming default, 16); larger chunks cut per-chunk overhead when
+   * latency does not matter. {@code rescoring} runs attention rescoring per sentence
+   * if the model has an attention decoder (decoder.onnx for ONNX models); otherwise
+   * native code logs a warning and decodes with CTC only.
+   */
+  public Recognize(int chunkSize, boolean rescoring) {
+    nativeHandle = create(chunkSize, rescoring);
+    if (nativeHandle == 0) {
+      throw new IllegalStateException("Model not loaded");
+    }
+  }
+
+  /** Free the native session. A running decode finishes in the background. */
+  public synchronized void release() {
+    long handle = nativeHandle;
+    nativeHandle = 0;
+    destroy(handle);
+  }
+
+  public native void reset();
+  public native void acceptWaveform(short[] waveform);
+  /** Feed {@code length} samples starting at {@code offset} of a direct buffer, no copy. */
+  public native void acceptWaveform(ShortBuffer waveform, int offset, int length);
+  /** Feature frames waiting for the decoder; use as back-pressure when feeding files. */
+  public native int getPendingFrames();
+  public native void setInputFinished();
+  public native boolean getFinished();
+  public native void startDecode();
+  public native String getResult();
+  public native String getTimedResult();
+  public native String getTimedResultDelta();
+  public native String getResultDelta();
+  public native void addSkippedSamples(int count);
+  public native void snapshotOffset();
+  public native boolean hasNewEndpoint();
+  /** Register the listener for the next startDecode(); null unregisters. */
+  public native void setResultListener(ResultListener listener);
 }
@@ -18,6 +18,13 @@ public class RecordingForegroundService extends Service {
   private static final String CHANNEL_ID = "wenet_recording_channel";
   private static final int NOTIFICATION_ID = 1;
 
+  // Pipeline of the recording in progress; kept here so it survives Activity recreation
+  private static volatile AudioPipeline pipeline = null;
+
+  public static void setPipeline(AudioPipeline p) { pipeline = p; }
+
+  public static AudioPipeline getPipeline() { return pipeline; }
+
   @Override
   public void onCreate() {
     super.onCreate();
@@ -27,6 +34,12 @@ public class RecordingForegroundService extends Service {
   @Override
   public int onStartCommand(Intent intent, int flags, int startId) {
     if (intent != null && ACTION_STOP.equals(intent.getAction())) {
+      AudioPipeline p = pipeline;
+      if (p != null && p.isRunning()) {
+        // Stop capture only; the service is stopped once decoding has finished
+        p.stop();
+        return START_NOT_STICKY;
+      }
       stopForeground(true);
       stopSelf();
       return START_NOT_STICKY;
@@ -60,12 +73,19 @@ public class RecordingForegroundService extends Service {
         this, 0, notificationIntent,
         Build.VERSION.SDK_INT >= Build.VERSION_CODES.M
             ? PendingIntent.FLAG_IMMUTABLE : 0);
+    Intent stopIntent = new Intent(this, RecordingForegroundService.class);
+    stopIntent.setAction(ACTION_STOP);
+    PendingIntent stopPendingIntent = PendingIntent.getService(
+        this, 1, stopIntent,
+        Build.VERSION.SDK_INT >= Build.VERSION_CODES.M
+            ? PendingIntent.FLAG_IMMUTABLE : 0);
 
     return new NotificationCompat.Builder(this, CHANNEL_ID)
         .setContentTitle("WeNet")
         .setContentText("녹음 중...")
         .setSmallIcon(R.mipmap.ic_launcher)
         .setContentIntent(pendingIntent)
+        .addAction(0, "중지", stopPendingIntent)
         .setOngoing(true)
         .build();
   }
@@ -4,6 +4,8 @@ import android.content.Context;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -11,6 +13,7 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -67,6 +70,96 @@ public class RecordingManager {
     return new File(new File(getRecordingsRoot(context), name), "my_voice_segments.json").getAbsolutePath();
   }
 
+  /**
+   * Write Personal VAD segments as [[startMs, endMs], ...] to my_voice_segments.json.
+   * Goes through a temp file and a rename, so readers never see a partial file.
+   */
+  public static boolean saveMyVoiceSegments(Context context, String name, List<long[]> segs) {
+    return writeAtomically(new File(getMyVoiceSegmentsPath(context, name)),
+        segmentsToJson(segs).toString(), "my-voice segments");
+  }
+
+  /** Cached resemblyzer partial embeddings of the recording (see SpeakerEnrollment). */
+  public static String getPartialEmbeddingsPath(Context context, String name) {
+    return new File(new File(getRecordingsRoot(context), name), "speaker_partials.bin").getAbsolutePath();
+  }
+
+  public static String getSpeakerSegmentsPath(Context context, String name) {
+    return new File(new File(getRecordingsRoot(context), name), "speaker_segments.json").getAbsolutePath();
+  }
+
+  /**
+   * Write the named speakers' segments as {"name": [[startMs, endMs], ...], ...} to
+   * speaker_segments.json, atomically like saveMyVoiceSegments. With no named speakers
+   * the file is deleted, so a run without them replaces an older result.
+   */
+  public static boolean saveSpeakerSegments(Context context, String name,
+                                            Map<String, List<long[]>> speakers) {
+    File file = new File(getSpeakerSegmentsPath(context, name));
+    if (speakers.isEmpty()) {
+      if (file.exists() && !file.delete()) {
+        android.util.Log.e("RecordingManager", "Could not delete " + file);
+        return false;
+      }
+      return true;
+    }
+    try {
+      JSONObject obj = new JSONObject();
+      for (Map.Entry<String, List<long[]>> e : speakers.entrySet()) {
+        obj.put(e.getKey(), segmentsToJson(e.getValue()));
+      }
+      return writeAtomically(file, obj.toString(), "speaker segments");
+    } catch (Exception e) {
+      android.util.Log.e("RecordingManager", "Error saving speaker segments: " + e.getMessage());
+      return false;
+    }
+  }
+
+  private static JSONArray segmentsToJson(List<long[]> segs) {
+    JSONArray arr = new JSONArray();
+    for (long[] seg : segs) {
+      JSONArray entry = new JSONArray();
+      entry.put(seg[0]);
+      entry.put(seg[1]);
+      arr.put(entry);
+    }
+    return arr;
+  }
+
+  private static boolean writeAtomically(File dst, String json, String what) {
+    return writeAtomically(dst, json.getBytes(StandardCharsets.UTF_8), what);
+  }
+
+  /**
+   * Goes through a temp file and a rename, so readers never see a partial file. Logs
+   * and returns false on failure; {@code what} names the data in the log.
+   */
+  static boolean writeAtomically(File dst, byte[] data, String what) {
+    File tmp = new File(dst.getPath() + ".tmp");
+    try {
+      FileOutputStream fos = new FileOutputStream(tmp);
+      try {
+        fos.write(data);
+      } finally {
+        fos.close();
+      }
+      if (tmp.renameTo(dst)) return true;
+      android.util.Log.e("RecordingManager", "Error saving " + what + ": rename failed");
+    } catch (Exception e) {
+      android.util.Log.e("RecordingManager", "Error saving " + what + ": " + e.getMessage());
+    }
+    tmp.delete();
+    return false;
+  }
+
+  public static String getLatencyPath(Context context, String name) {
+    return new File(new File(getRecordingsRoot(context), name), "latency.json").getAbsolutePath();
+  }
+
+  public static String getVadTrackPath(Context context, String name) {
+    return new File(new File(getRecordingsRoot(context), name), "vad.bin").getAbsolutePath();
+  }
+
   public static String getOpusPath(Context context, String name) {
     return new File(new File(getRecordingsRoot(context), name), "audio.ogg").getAbsolutePath();
   }
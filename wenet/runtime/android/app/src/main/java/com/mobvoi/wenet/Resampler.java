@@ -0,0 +1,153 @@
+package com.mobvoi.wenet;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Streaming polyphase FIR resampler for 16-bit PCM at any rational ratio
+ * (outRate/inRate reduced to up/down). A Kaiser-windowed sinc low-pass removes
+ * everything above the lower Nyquist frequency before decimation, so the output
+ * does not alias the way plain sample skipping would.
+ *
+ * Filter history and phase persist across process() calls, so a stream can be fed
+ * in buffers of any size. Coefficients and history are allocated in the constructor;
+ * process() itself never allocates. One instance per stream, not thread-safe.
+ */
+public class Resampler {
+
+  private static final int ZERO_CROSSINGS = 8;  // sinc lobes per side at the lower rate
+  private static final double ROLLOFF = 0.90;   // cutoff relative to the lower Nyquist
+  private static final double KAISER_BETA = 8.0; // ~80 dB stopband
+
+  private final int inRate;
+  private final int outRate;
+  private final int up;
+  private final int down;
+  private final int taps;          // coefficients per phase
+  private final float[][] coefs;   // [phase][tap], oldest → newest
+  private final float[] history;   // last `taps` inputs, stored twice to avoid wrap-around
+  private int pos = 0;
+  private int phase = 0;
+
+  public Resampler(int inRate, int outRate) {
+    if (inRate <= 0 || outRate <= 0) {
+      throw new IllegalArgumentException("Invalid rates: " + inRate + " → " + outRate);
+    }
+    this.inRate = inRate;
+    this.outRate = outRate;
+    int g = gcd(inRate, outRate);
+    up = outRate / g;
+    down = inRate / g;
+
+    if (up == 1 && down == 1) {
+      taps = 0;
+      coefs = null;
+      history = null;
+      return;
+    }
+    taps = 2 * ZERO_CROSSINGS * ((Math.max(up, down) + up - 1) / up);
+    coefs = new float[up][taps];
+    history = new float[2 * taps];
+
+    // Prototype low-pass at the upsampled rate (up × inRate), gain `up` for interpolation
+    int length = up * taps;
+    double center = (length - 1) / 2.0;
+    double cutoff = ROLLOFF * 0.5 / Math.max(up, down); // cycles per upsampled sample
+    double i0Beta = besselI0(KAISER_BETA);
+    for (int n = 0; n < length; n++) {
+      double t = n - center;
+      double sinc = t == 0 ? 1.0 : Math.sin(2 * Math.PI * cutoff * t) / (2 * Math.PI * cutoff * t);
+      double r = t / (center + 1);
+      double window = besselI0(KAISER_BETA * Math.sqrt(Math.max(0, 1 - r * r))) / i0Beta;
+      double h = 2 * cutoff * sinc * window * up;
+      // Tap k of phase p multiplies the input k samples back; store newest last
+      coefs[n % up][taps - 1 - n / up] = (float) h;
+    }
+  }
+
+  public int getInputRate() { return inRate; }
+  public int getOutputRate() { return outRate; }
+
+  /** Upper bound of output samples produced from {@code inFrames} input frames. */
+  public int maxOutput(int inFrames) {
+    return (int) (((long) inFrames * up + down - 1) / down) + 1;
+  }
+
+  /**
+   * Resample {@code length} mono samples from {@code in} into {@code out} starting at
+   * {@code outOffset}. {@code out} must hold at least maxOutput(length). Returns count.
+   */
+  public int process(short[] in, int offset, int length, short[] out, int outOffset) {
+    if (coefs == null) {
+      System.arraycopy(in, offset, out, outOffset, length);
+      return length;
+    }
+    int o = outOffset;
+    for (int i = 0; i < length; i++) {
+      o = push(in[offset + i], out, o);
+    }
+    return o - outOffset;
+  }
+
+  /**
+   * Resample interleaved 16-bit little-endian PCM (e.g. a MediaCodec output buffer)
+   * between pcm.position() and pcm.limit(), using the first channel. Consumes the
+   * buffer (position moves to limit). Returns count written to {@code out}.
+   */
+  public int process(ByteBuffer pcm, int channels, short[] out, int outOffset) {
+    pcm.order(ByteOrder.LITTLE_ENDIAN);
+    int frameBytes = 2 * Math.max(1, channels);
+    int start = pcm.position();
+    int end = start + (pcm.remaining() / frameBytes) * frameBytes;
+    int o = outOffset;
+    if (coefs == null) {
+      for (int b = start; b < end; b += frameBytes) out[o++] = pcm.getShort(b);
+    } else {
+      for (int b = start; b < end; b += frameBytes) o = push(pcm.getShort(b), out, o);
+    }
+    pcm.position(pcm.limit());
+    return o - outOffset;
+  }
+
+  /** Clear filter history and phase, e.g. after a seek. */
+  public void reset() {
+    pos = 0;
+    phase = 0;
+    if (history != null) java.util.Arrays.fill(history, 0f);
+  }
+
+  private int push(short sample, short[] out, int o) {
+    float x = sample;
+    history[pos] = x;
+    history[pos + taps] = x;
+    pos = pos + 1 == taps ? 0 : pos + 1;
+    // history[pos .. pos + taps - 1] now holds the last `taps` inputs, oldest first
+    while (phase < up) {
+      float[] c = coefs[phase];
+      float acc = 0f;
+      for (int k = 0; k < taps; k++) acc += c[k] * history[pos + k];
+      int v = Math.round(acc);
+      out[o++] = (short) (v > Short.MAX_VALUE ? Short.MAX_VALUE
+          : (v < Short.MIN_VALUE ? Short.MIN_VALUE : v));
+      phase += down;
+    }
+    phase -= up;
+    return o;
+  }
+
+  private static int gcd(int a, int b) {
+    while (b != 0) { int t = a % b; a = b; b = t; }
+    return a;
+  }
+
+  /** Zeroth-order modified Bessel function of the first kind (series expansion). */
+  private static double besselI0(double x) {
+    double sum = 1.0, term = 1.0, q = x * x / 4.0;
+    for (int k = 1; k < 50; k++) {
+      term *= q / ((double) k * k);
+      sum += term;
+      if (term < 1e-12 * sum) break;
+    }
+    return sum;
+  }
+}
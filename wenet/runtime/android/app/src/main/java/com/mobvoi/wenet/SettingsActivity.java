@@ -1,8 +1,12 @@
 package com.mobvoi.wenet;
 
+import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
 import android.widget.Button;
 import android.widget.CheckBox;
 import android.widget.RadioGroup;
@@ -14,9 +18,11 @@ import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import java.io.File;
 import java.util.List;
+import java.util.Locale;
 
 public class SettingsActivity extends AppCompatActivity {
 
+    private static final String TAG = "SettingsActivity";
     private static final String PREFS_NAME = "wenet_settings";
     private static final String KEY_WEBHOOK_URL = "slack_webhook_url";
     private static final String KEY_OPENAI_API_KEY = "openai_api_key";
@@ -29,6 +35,8 @@ public class SettingsActivity extends AppCompatActivity {
     private static final String KEY_VAD_THRESHOLD = "vad_threshold";
     private static final String KEY_VAD_PREBUFFER = "vad_prebuffer";
     private static final String KEY_VAD_TRAILING = "vad_trailing";
+    private static final String KEY_VAD_ENERGY_GATE = "vad_energy_gate";
+    private static final String KEY_PVAD_SILERO_GATE = "pvad_silero_gate";
     private static final String KEY_RESULT_FONT_SIZE = "result_font_size";
     private static final String KEY_CODEC = "codec_type";
 
@@ -95,6 +103,10 @@ public class SettingsActivity extends AppCompatActivity {
 
         CheckBox checkVad = findViewById(R.id.checkVad);
         checkVad.setChecked(prefs.getBoolean(KEY_VAD, true));
+        CheckBox checkVadEnergyGate = findViewById(R.id.checkVadEnergyGate);
+        checkVadEnergyGate.setChecked(prefs.getBoolean(KEY_VAD_ENERGY_GATE, false));
+        CheckBox checkPvadSileroGate = findViewById(R.id.checkPvadSileroGate);
+        checkPvadSileroGate.setChecked(prefs.getBoolean(KEY_PVAD_SILERO_GATE, false));
 
         // VAD Threshold: SeekBar 0~80 → 0.10~0.90
         SeekBar vadThresholdSeekBar = findViewById(R.id.vadThresholdSeekBar);
@@ -165,11 +177,21 @@ public class SettingsActivity extends AppCompatActivity {
 
         // Enrollment section
         TextView enrollmentStatusText = findViewById(R.id.enrollmentStatusText);
-        File embFile = new File(getFilesDir(), "speaker_embedding.bin");
+        File embFile = SpeakerEnrollment.getEmbeddingFile(this);
         updateEnrollmentStatus(enrollmentStatusText, embFile);
 
         Button enrollButton = findViewById(R.id.enrollButton);
-        enrollButton.setOnClickListener(v -> showEnrollmentDialog(enrollmentStatusText, embFile));
+        enrollButton.setOnClickListener(v -> showEnrollmentDialog(
+            "내 목소리만 담긴 녹음 선택", embFile,
+            () -> updateEnrollmentStatus(enrollmentStatusText, embFile)));
+        enrollmentStatusText.setOnClickListener(v -> showSourcesDialog("내 목소리", embFile,
+            () -> updateEnrollmentStatus(enrollmentStatusText, embFile)));
+
+        // Named speakers
+        TextView speakersStatusText = findViewById(R.id.speakersStatusText);
+        updateSpeakersStatus(speakersStatusText);
+        Button speakersButton = findViewById(R.id.speakersButton);
+        speakersButton.setOnClickListener(v -> showSpeakersDialog(speakersStatusText));
 
         Button saveButton = findViewById(R.id.saveButton);
         saveButton.setOnClickListener(v -> {
@@ -201,6 +223,8 @@ public class SettingsActivity extends AppCompatActivity {
             prefs.edit().putBoolean(KEY_NS, checkNs.isChecked()).apply();
             prefs.edit().putBoolean(KEY_AGC, checkAgc.isChecked()).apply();
             prefs.edit().putBoolean(KEY_VAD, checkVad.isChecked()).apply();
+            prefs.edit().putBoolean(KEY_VAD_ENERGY_GATE, checkVadEnergyGate.isChecked()).apply();
+            prefs.edit().putBoolean(KEY_PVAD_SILERO_GATE, checkPvadSileroGate.isChecked()).apply();
             prefs.edit().putInt(KEY_VAD_THRESHOLD, vadThresholdSeekBar.getProgress()).apply();
             prefs.edit().putInt(KEY_VAD_PREBUFFER, vadPreBufferSeekBar.getProgress()).apply();
             prefs.edit().putInt(KEY_VAD_TRAILING, vadTrailingSilenceSeekBar.getProgress()).apply();
@@ -227,13 +251,148 @@ public class SettingsActivity extends AppCompatActivity {
         if (embFile.exists()) {
             java.text.SimpleDateFormat sdf = new java.text.SimpleDateFormat(
                 "yyyy-MM-dd HH:mm", java.util.Locale.getDefault());
-            statusText.setText("등록됨: " + sdf.format(new java.util.Date(embFile.lastModified())));
+            int sources = SpeakerProfile.load(embFile).getSources().size();
+            statusText.setText("등록됨: " + sdf.format(new java.util.Date(embFile.lastModified()))
+                + (sources > 0 ? " · 녹음 " + sources + "개 (눌러서 관리)" : ""));
         } else {
             statusText.setText("미등록");
         }
     }
 
-    private void showEnrollmentDialog(TextView statusText, File embFile) {
+    private void updateSpeakersStatus(TextView statusText) {
+        List<String> speakers = SpeakerEnrollment.listSpeakers(this);
+        statusText.setText(speakers.isEmpty() ? "없음" : android.text.TextUtils.join(", ", speakers));
+    }
+
+    /** Enrolled speakers (add a recording, manage, delete) and an entry to enroll a new one. */
+    private void showSpeakersDialog(TextView statusText) {
+        List<String> speakers = SpeakerEnrollment.listSpeakers(this);
+        String[] items = new String[speakers.size() + 1];
+        for (int i = 0; i < speakers.size(); i++) items[i] = speakers.get(i);
+        items[speakers.size()] = "+ 새 화자 등록";
+
+        new AlertDialog.Builder(this)
+            .setTitle("화자 관리")
+            .setItems(items, (dialog, which) -> {
+                if (which == speakers.size()) {
+                    showSpeakerNameDialog(statusText);
+                    return;
+                }
+                String name = speakers.get(which);
+                File embFile = SpeakerEnrollment.getSpeakerFile(this, name);
+                Runnable onChanged = () -> updateSpeakersStatus(statusText);
+                new AlertDialog.Builder(this)
+                    .setTitle(name)
+                    .setItems(new String[]{"녹음 추가", "녹음 관리", "삭제"}, (d, action) -> {
+                        if (action == 0) {
+                            showEnrollmentDialog("'" + name + "'의 목소리만 담긴 녹음 선택",
+                                embFile, onChanged);
+                        } else if (action == 1) {
+                            showSourcesDialog(name, embFile, onChanged);
+                        } else {
+                            confirmDeleteSpeaker(name, embFile, onChanged);
+                        }
+                    })
+                    .show();
+            })
+            .show();
+    }
+
+    private void confirmDeleteSpeaker(String name, File embFile, Runnable onChanged) {
+        new AlertDialog.Builder(this)
+            .setMessage("'" + name + "' 화자를 삭제할까요?")
+            .setPositiveButton("삭제", (d, w) -> {
+                SpeakerProfile.delete(embFile);
+                onChanged.run();
+            })
+            .setNegativeButton("취소", null)
+            .show();
+    }
+
+    /**
+     * Recordings behind an embedding with their quality (similarity to the others);
+     * tapping one removes it and recomputes the embedding from the remaining ones.
+     */
+    private void showSourcesDialog(String title, File embFile, Runnable onChanged) {
+        SpeakerProfile profile = SpeakerProfile.load(embFile);
+        List<SpeakerProfile.Source> sources = profile.getSources();
+        if (sources.isEmpty()) {
+            Toast.makeText(this, "등록에 사용된 녹음 정보가 없습니다", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        String[] items = new String[sources.size()];
+        for (int i = 0; i < sources.size(); i++) {
+            SpeakerProfile.Source src = sources.get(i);
+            items[i] = String.format(Locale.US, "%s  유사도 %.2f%s", src.recording, src.quality,
+                src.excluded ? " (제외됨)" : "");
+        }
+        new AlertDialog.Builder(this)
+            .setTitle(title + " 녹음")
+            .setItems(items, (dialog, which) -> {
+                String recording = sources.get(which).recording;
+                new AlertDialog.Builder(this)
+                    .setMessage("'" + recording + "' 녹음을 등록에서 뺄까요?")
+                    .setPositiveButton("빼기", (d, w) -> {
+                        profile.remove(recording);
+                        profile.save();
+                        onChanged.run();
+                        startMyVoiceBackfill();
+                    })
+                    .setNegativeButton("취소", null)
+                    .show();
+            })
+            .show();
+    }
+
+    private void showSpeakerNameDialog(TextView statusText) {
+        EditText nameEdit = new EditText(this);
+        nameEdit.setSingleLine(true);
+        nameEdit.setHint("이름");
+        new AlertDialog.Builder(this)
+            .setTitle("새 화자 이름")
+            .setView(nameEdit)
+            .setPositiveButton("다음", (dialog, which) -> {
+                String name = nameEdit.getText().toString().trim();
+                File outFile = SpeakerEnrollment.getSpeakerFile(this, name);
+                if (outFile == null) {
+                    Toast.makeText(this, "사용할 수 없는 이름입니다", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                showEnrollmentDialog("'" + name + "'의 목소리만 담긴 녹음 선택", outFile,
+                    () -> updateSpeakersStatus(statusText));
+            })
+            .setNegativeButton("취소", null)
+            .show();
+    }
+
+    /** Find my-voice segments in the existing recordings for the new enrollment. */
+    private void startMyVoiceBackfill() {
+        Context app = getApplicationContext();
+        AudioPipeline running = RecordingForegroundService.getPipeline();
+        String exclude = running != null && running.isRunning() ? running.getRecordingName() : null;
+        int queued = BatchPersonalVad.start(app, exclude, new BatchPersonalVad.Listener() {
+            @Override
+            public void onJobFinished(String recordingName, long audioMs, long wallMs, int segments) {}
+
+            @Override
+            public void onJobFailed(String recordingName, String message) {
+                Log.e(TAG, "My-voice backfill failed for " + recordingName + ": " + message);
+            }
+
+            @Override
+            public void onAllFinished(int succeeded, int failed, float audioHoursPerMinute) {
+                new Handler(Looper.getMainLooper()).post(() -> Toast.makeText(app,
+                    String.format(Locale.US, "내 목소리 분석 완료: %d개 (%.1f 시간/분)",
+                        succeeded, audioHoursPerMinute), Toast.LENGTH_LONG).show());
+            }
+        });
+        if (queued > 0) {
+            Toast.makeText(this, queued + "개 녹음에서 내 목소리 구간 분석 중...",
+                Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    private void showEnrollmentDialog(String title, File outFile, Runnable onEnrolled) {
         List<RecordingManager.SearchResult> recordings =
             RecordingManager.searchRecordings(this, "");
         if (recordings.isEmpty()) {
@@ -249,15 +408,16 @@ public class SettingsActivity extends AppCompatActivity {
         }
 
         new AlertDialog.Builder(this)
-            .setTitle("내 목소리만 담긴 녹음 선택")
+            .setTitle(title)
             .setItems(items, (dialog, which) -> {
                 String name = recordings.get(which).name;
                 Toast.makeText(this, "등록 중...", Toast.LENGTH_SHORT).show();
-                SpeakerEnrollment.enroll(this, name, new SpeakerEnrollment.Callback() {
+                SpeakerEnrollment.enroll(this, name, outFile, new SpeakerEnrollment.Callback() {
                     @Override public void onSuccess() {
-                        updateEnrollmentStatus(statusText, embFile);
+                        onEnrolled.run();
                         Toast.makeText(SettingsActivity.this,
                             "등록 완료!", Toast.LENGTH_SHORT).show();
+                        startMyVoiceBackfill();
                     }
                     @Override public void onError(String message) {
                         Toast.makeText(SettingsActivity.this,
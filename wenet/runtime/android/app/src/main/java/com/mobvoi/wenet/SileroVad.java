@@ -5,9 +5,10 @@ import android.content.res.AssetManager;
 import android.util.Log;
 
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
 import java.nio.LongBuffer;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -15,37 +16,114 @@ import ai.onnxruntime.OnnxTensor;
 import ai.onnxruntime.OrtEnvironment;
 import ai.onnxruntime.OrtSession;
 
-public class SileroVad {
+/**
+ * Silero VAD gate in front of the decoder. After init() / reset() a VAD step allocates
+ * nothing in this class: chunks are read in place from the caller's array, the
+ * pre-buffer is one circular array handed out as (offset, length) views, input and sr
+ * tensors wrap direct buffers that are rewritten in place, and the recurrent state is
+ * double-buffered by feeding each run's output state tensor into the next run. What
+ * remains per step is ORT's own Result / output wrappers, which 1.13 cannot pre-bind.
+ */
+public class SileroVad implements StreamingVad {
 
     private static final String TAG = "SileroVad";
-    private static final int CHUNK_SIZE = 256;  // 256 samples = 32ms at 8kHz
+    static final int CHUNK_SIZE = 256;  // 256 samples = 32ms at 8kHz
     private static final int CONTEXT_SIZE = 32; // context samples for 8kHz
     private static final int SAMPLE_RATE = 8000;
+    private static final int INPUT_SIZE = CONTEXT_SIZE + CHUNK_SIZE;
+    private static final int STATE_SIZE = 2 * 128;  // [2, 1, 128]
     // Configurable parameters
     private float speechThreshold = 0.5f;
     private float silenceThreshold = 0.3f;
     private int preBufferSlots = 10;  // ~320ms
     private int trailingSilenceChunks = 25;  // ~800ms (enough for WeNet endpoint)
 
+    // Energy pre-gate: skip inference on chunks at the noise floor while IDLE
+    private static final float GATE_OPEN_DB = 9f;          // above floor: run the model
+    private static final float GATE_CLOSE_DB = 5f;         // at or below floor + this: silence
+    private static final float GATE_ZCR_OPEN = 0.3f;       // fricative-like noise stays open
+    private static final float GATE_ZCR_MARGIN_DB = 3f;
+    private static final int GATE_HANGOVER_CHUNKS = 8;     // ~256ms quiet before closing
+    private static final int GATE_REFRESH_CHUNKS = 16;     // ~512ms: keep LSTM state warm
+    private static final int GATE_WARMUP_CHUNKS = 16;      // learn the floor before gating
+    private boolean energyGateEnabled = false;
+    private final NoiseFloor noiseFloor = new NoiseFloor(SAMPLE_RATE, CHUNK_SIZE);
+    private final short[] silenceChunk = new short[CHUNK_SIZE];  // skip() input, stays zero
+    private boolean gateOpen = true;
+    private int gateQuietChunks = 0;
+    private int gateSkipRun = 0;
+    private long gateChunks = 0;
+    private long inferenceCount = 0;
+    private long skippedInferenceCount = 0;
+
+    /** Chunk arrays are reused: consume or copy {@code data} before returning. */
     public interface Callback {
+        /** Speech samples {@code data[0, length)}. */
         void onSpeechChunk(short[] data, int length);
+
+        /**
+         * Speech samples {@code data[offset, offset + length)}. This is what the VAD calls;
+         * the default copies views that do not start at 0, so override it (or implement
+         * {@link RangeCallback}) to stay allocation-free.
+         */
+        default void onSpeechChunk(short[] data, int offset, int length) {
+            if (offset == 0) {
+                onSpeechChunk(data, length);
+            } else {
+                onSpeechChunk(java.util.Arrays.copyOfRange(data, offset, offset + length), length);
+            }
+        }
+
         void onSkippedSamples(int count);
+
+        /** Speech probability of every 32 ms chunk, in stream order (0 if gated). */
+        default void onChunkProb(float prob) {}
+    }
+
+    /** Callback that consumes (array, offset, length) views directly. */
+    public interface RangeCallback extends Callback {
+        @Override
+        void onSpeechChunk(short[] data, int offset, int length);
+
+        @Override
+        default void onSpeechChunk(short[] data, int length) {
+            onSpeechChunk(data, 0, length);
+        }
     }
 
     private enum State { IDLE, SPEAKING, TRAILING_SILENCE }
 
     private OrtEnvironment ortEnv;
     private OrtSession ortSession;
-    private float[][] state;  // [2][128]
     private float[] audioContext;  // [CONTEXT_SIZE] audio context for temporal continuity
     private State vadState = State.IDLE;
     private int trailingSilenceCount = 0;
     private boolean initialized = false;
     private volatile float lastProb = 0f;
 
-    // Pre-buffer: ring buffer of CHUNK_SIZE chunks
-    private short[][] preBuffer;
-    private int preBufferHead = 0;  // next write position
+    // StreamingVad segment events (independent of the gating Callback)
+    private StreamingVad.Listener segmentListener = null;
+    private long streamSamples = 0;     // samples classified since reset
+    private long segmentStart = -1;     // sample where the open segment began
+    private long speechEnd = 0;         // end of the last SPEAKING chunk
+    private static final Callback DISCARD = new RangeCallback() {
+        @Override public void onSpeechChunk(short[] data, int offset, int length) {}
+        @Override public void onSkippedSamples(int count) {}
+    };
+
+    // Reused ORT inputs: tensors over direct buffers, rewritten in place each step
+    private FloatBuffer inputBuffer;
+    private OnnxTensor inputTensor;
+    private OnnxTensor srTensor;
+    private OnnxTensor zeroStateTensor;  // initial LSTM state
+    private final Map<String, OnnxTensor> inputs = new HashMap<>();
+    // Output of the previous run; its state tensor is the next run's input state
+    private OrtSession.Result lastResult;
+    private OnnxTensor stateTensor;
+
+    // Pre-buffer: circular short[preBufferSlots * CHUNK_SIZE], one chunk per slot
+    private short[] preBuffer;
+    private int preBufferHead = 0;  // next slot to write
     private int preBufferCount = 0; // current number of chunks in buffer
 
     // Residual buffer for incomplete chunks
@@ -77,6 +155,30 @@ public class SileroVad {
         return trailingSilenceChunks;
     }
 
+    /**
+     * Optional cheap gate before the model: RMS / zero-crossing rate against an adaptive
+     * noise floor, with its own hysteresis. While IDLE and the gate is closed, chunks
+     * count as silence without running the model. audioContext is still advanced, and
+     * one inference every ~512 ms keeps the LSTM state tracking the background.
+     */
+    public void setEnergyGateEnabled(boolean enabled) {
+        this.energyGateEnabled = enabled;
+    }
+
+    public boolean isEnergyGateEnabled() {
+        return energyGateEnabled;
+    }
+
+    /** Model runs since the last reset(). */
+    public long getInferenceCount() {
+        return inferenceCount;
+    }
+
+    /** Chunks the energy gate classified as silence without running the model. */
+    public long getSkippedInferenceCount() {
+        return skippedInferenceCount;
+    }
+
     public boolean init(Context context) {
         try {
             ortEnv = OrtEnvironment.getEnvironment();
@@ -94,15 +196,32 @@ public class SileroVad {
             opts.setIntraOpNumThreads(1);
             ortSession = ortEnv.createSession(modelBytes, opts);
 
-            // Initialize state: [2][128] zeros, context: [CONTEXT_SIZE] zeros
-            state = new float[2][128];
+            closeTensors();
+            inputBuffer = ByteBuffer.allocateDirect(INPUT_SIZE * 4)
+                    .order(ByteOrder.nativeOrder()).asFloatBuffer();
+            inputTensor = OnnxTensor.createTensor(ortEnv, inputBuffer, new long[]{1, INPUT_SIZE});
+            LongBuffer srBuffer = ByteBuffer.allocateDirect(8)
+                    .order(ByteOrder.nativeOrder()).asLongBuffer();
+            srBuffer.put(0, SAMPLE_RATE);
+            srTensor = OnnxTensor.createTensor(ortEnv, srBuffer, new long[]{1});
+            FloatBuffer zeroState = ByteBuffer.allocateDirect(STATE_SIZE * 4)
+                    .order(ByteOrder.nativeOrder()).asFloatBuffer();
+            zeroStateTensor = OnnxTensor.createTensor(ortEnv, zeroState, new long[]{2, 1, 128});
+            stateTensor = zeroStateTensor;
+            inputs.put("input", inputTensor);
+            inputs.put("sr", srTensor);
+            inputs.put("state", stateTensor);
+
+            // Context: [CONTEXT_SIZE] zeros
             audioContext = new float[CONTEXT_SIZE];
-            preBuffer = new short[preBufferSlots][];
+            preBuffer = new short[preBufferSlots * CHUNK_SIZE];
             vadState = State.IDLE;
             trailingSilenceCount = 0;
             preBufferHead = 0;
             preBufferCount = 0;
             residualLen = 0;
+            resetGate();
+            resetSegments();
             initialized = true;
             Log.i(TAG, "Silero VAD initialized: threshold=" + speechThreshold
                     + " preBuffer=" + preBufferSlots + " chunks ("
@@ -120,33 +239,37 @@ public class SileroVad {
     }
 
     public void process(short[] data, int length, Callback callback) {
+        process(data, 0, length, callback);
+    }
+
+    /** Gate {@code data[start, start + length)}. */
+    public void process(short[] data, int start, int length, Callback callback) {
         if (!initialized) {
             // Fail-open: pass everything to ASR
-            callback.onSpeechChunk(data, length);
+            callback.onSpeechChunk(data, start, length);
             return;
         }
 
-        int offset = 0;
+        int offset = start;
+        length += start;  // end index from here on
 
         // If there's residual data, fill it first
         if (residualLen > 0) {
             int needed = CHUNK_SIZE - residualLen;
-            int toCopy = Math.min(needed, length);
-            System.arraycopy(data, 0, residual, residualLen, toCopy);
+            int toCopy = Math.min(needed, length - offset);
+            System.arraycopy(data, offset, residual, residualLen, toCopy);
             residualLen += toCopy;
-            offset = toCopy;
+            offset += toCopy;
 
             if (residualLen == CHUNK_SIZE) {
-                processChunk(residual, callback);
                 residualLen = 0;
+                processChunk(residual, 0, callback);
             }
         }
 
-        // Process full chunks from remaining data
+        // Process full chunks in place from remaining data
         while (offset + CHUNK_SIZE <= length) {
-            short[] chunk = new short[CHUNK_SIZE];
-            System.arraycopy(data, offset, chunk, 0, CHUNK_SIZE);
-            processChunk(chunk, callback);
+            processChunk(data, offset, callback);
             offset += CHUNK_SIZE;
         }
 
@@ -161,55 +284,203 @@ public class SileroVad {
         return lastProb;
     }
 
-    private void processChunk(short[] chunk, Callback callback) {
-        float prob = infer(chunk);
+    // ── StreamingVad ──────────────────────────────────────────────────────
+
+    @Override
+    public String getName() {
+        return "silero";
+    }
+
+    @Override
+    public int getSampleRate() {
+        return SAMPLE_RATE;
+    }
+
+    @Override
+    public int getFrameSize() {
+        return CHUNK_SIZE;
+    }
+
+    @Override
+    public boolean isReady() {
+        return initialized;
+    }
+
+    /**
+     * Segments span onset to the last SPEAKING chunk (pre-buffer and trailing silence
+     * excluded); a segment ends when the gate returns to IDLE.
+     */
+    @Override
+    public void setListener(StreamingVad.Listener listener) {
+        this.segmentListener = listener;
+    }
+
+    /** Detection only: gating output is discarded, segment events still fire. */
+    @Override
+    public void process(short[] pcm, int offset, int length) {
+        if (initialized) process(pcm, offset, length, DISCARD);
+    }
+
+    @Override
+    public float getLastProbability() {
+        return lastProb;
+    }
+
+    /** Fed as silence, so the pre-buffer and LSTM state see a continuous stream. */
+    @Override
+    public void skip(int length) {
+        while (length > 0) {
+            int n = Math.min(length, CHUNK_SIZE);
+            process(silenceChunk, 0, n);
+            length -= n;
+        }
+    }
+
+    @Override
+    public void flush() {
+        flush(DISCARD);
+        flushRemainingAsSkipped(DISCARD);
+    }
+
+    private static long toMs(long samples) {
+        return samples * 1000 / SAMPLE_RATE;
+    }
+
+    private void resetSegments() {
+        streamSamples = 0;
+        segmentStart = -1;
+        speechEnd = 0;
+    }
+
+    /** One CHUNK_SIZE chunk at {@code src[off]}; the callback gets views into src. */
+    private void processChunk(short[] src, int off, Callback callback) {
+        float prob;
+        if (energyGateEnabled && gateSkips(src, off)) {
+            advanceContext(src, off);
+            skippedInferenceCount++;
+            prob = 0f;
+        } else {
+            prob = infer(src, off);
+        }
         lastProb = prob;
+        callback.onChunkProb(prob);
+        long chunkStart = streamSamples;
+        streamSamples += CHUNK_SIZE;
+        StreamingVad.Listener sl = segmentListener;
+        if (sl != null) sl.onProbability(this, toMs(streamSamples), prob);
 
         switch (vadState) {
             case IDLE:
                 if (prob >= speechThreshold) {
                     // Flush pre-buffer as speech
                     flushPreBuffer(callback);
-                    callback.onSpeechChunk(chunk, chunk.length);
+                    callback.onSpeechChunk(src, off, CHUNK_SIZE);
                     vadState = State.SPEAKING;
+                    segmentStart = chunkStart;
+                    speechEnd = streamSamples;
+                    if (sl != null) sl.onSegmentStart(this, toMs(chunkStart));
                 } else {
-                    addToPreBuffer(chunk, callback);
+                    addToPreBuffer(src, off, callback);
                 }
                 break;
 
             case SPEAKING:
                 if (prob < silenceThreshold) {
-                    callback.onSpeechChunk(chunk, chunk.length);
+                    callback.onSpeechChunk(src, off, CHUNK_SIZE);
                     vadState = State.TRAILING_SILENCE;
                     trailingSilenceCount = 1;
                 } else {
-                    callback.onSpeechChunk(chunk, chunk.length);
+                    callback.onSpeechChunk(src, off, CHUNK_SIZE);
+                    speechEnd = streamSamples;
                 }
                 break;
 
             case TRAILING_SILENCE:
                 if (prob >= speechThreshold) {
-                    callback.onSpeechChunk(chunk, chunk.length);
+                    callback.onSpeechChunk(src, off, CHUNK_SIZE);
                     vadState = State.SPEAKING;
                     trailingSilenceCount = 0;
+                    speechEnd = streamSamples;
                 } else {
-                    callback.onSpeechChunk(chunk, chunk.length);
+                    callback.onSpeechChunk(src, off, CHUNK_SIZE);
                     trailingSilenceCount++;
                     if (trailingSilenceCount > trailingSilenceChunks) {
                         vadState = State.IDLE;
                         trailingSilenceCount = 0;
+                        endSegment(speechEnd);
                     }
                 }
                 break;
         }
     }
 
-    private void addToPreBuffer(short[] chunk, Callback callback) {
+    private void endSegment(long end) {
+        if (segmentStart < 0) return;
+        StreamingVad.Listener sl = segmentListener;
+        if (sl != null) sl.onSegmentEnd(this, toMs(segmentStart), toMs(end));
+        segmentStart = -1;
+    }
+
+    /**
+     * Update the gate with this chunk's energy; true if the model can be skipped. Only
+     * skips while IDLE, so speech onsets and endpoint timing keep full model decisions.
+     */
+    private boolean gateSkips(short[] src, int off) {
+        long energy = 0;
+        int crossings = 0;
+        for (int i = off; i < off + CHUNK_SIZE; i++) {
+            energy += src[i] * src[i];
+            if (i > off && (src[i] >= 0) != (src[i - 1] >= 0)) crossings++;
+        }
+        float rmsDb = NoiseFloor.levelDb(energy, CHUNK_SIZE);
+        float zcr = (float) crossings / (CHUNK_SIZE - 1);
+        float aboveFloor = rmsDb - noiseFloor.update(rmsDb);
+        gateChunks++;
+
+        boolean loud = aboveFloor > GATE_OPEN_DB
+                || (zcr > GATE_ZCR_OPEN && aboveFloor > GATE_ZCR_MARGIN_DB);
+        if (loud) {
+            gateOpen = true;
+            gateQuietChunks = 0;
+        } else if (aboveFloor <= GATE_CLOSE_DB && ++gateQuietChunks >= GATE_HANGOVER_CHUNKS) {
+            gateOpen = false;
+        }
+
+        if (gateOpen || vadState != State.IDLE || gateChunks <= GATE_WARMUP_CHUNKS) {
+            gateSkipRun = 0;
+            return false;
+        }
+        // Periodic refresh so the LSTM state is current when the gate reopens
+        if (++gateSkipRun >= GATE_REFRESH_CHUNKS) {
+            gateSkipRun = 0;
+            return false;
+        }
+        return true;
+    }
+
+    /** Keep audioContext continuous across chunks the model did not see. */
+    private void advanceContext(short[] src, int off) {
+        for (int i = 0; i < CONTEXT_SIZE; i++) {
+            audioContext[i] = src[off + CHUNK_SIZE - CONTEXT_SIZE + i] / 32768.0f;
+        }
+    }
+
+    private void resetGate() {
+        noiseFloor.reset();
+        gateOpen = true;
+        gateQuietChunks = 0;
+        gateSkipRun = 0;
+        gateChunks = 0;
+        inferenceCount = 0;
+        skippedInferenceCount = 0;
+    }
+
+    private void addToPreBuffer(short[] src, int off, Callback callback) {
         if (preBufferCount == preBufferSlots) {
             // Evict oldest chunk as skipped
-            callback.onSkippedSamples(preBuffer[preBufferHead].length);
+            callback.onSkippedSamples(CHUNK_SIZE);
         }
-        preBuffer[preBufferHead] = chunk;
+        System.arraycopy(src, off, preBuffer, preBufferHead * CHUNK_SIZE, CHUNK_SIZE);
         preBufferHead = (preBufferHead + 1) % preBufferSlots;
         if (preBufferCount < preBufferSlots) {
             preBufferCount++;
@@ -218,71 +489,44 @@ public class SileroVad {
 
     private void flushPreBuffer(Callback callback) {
         if (preBufferCount == 0) return;
-        // Read from oldest to newest
+        // Oldest to newest: one view, or two if the ring wraps
         int start = (preBufferHead - preBufferCount + preBufferSlots) % preBufferSlots;
-        for (int i = 0; i < preBufferCount; i++) {
-            int idx = (start + i) % preBufferSlots;
-            callback.onSpeechChunk(preBuffer[idx], preBuffer[idx].length);
+        int first = Math.min(preBufferCount, preBufferSlots - start);
+        callback.onSpeechChunk(preBuffer, start * CHUNK_SIZE, first * CHUNK_SIZE);
+        if (preBufferCount > first) {
+            callback.onSpeechChunk(preBuffer, 0, (preBufferCount - first) * CHUNK_SIZE);
         }
         preBufferCount = 0;
         preBufferHead = 0;
     }
 
-    private float infer(short[] chunk) {
+    private float infer(short[] src, int off) {
         try {
-            // Convert short[] to float[] normalized to [-1, 1]
-            float[] chunkFloat = new float[CHUNK_SIZE];
+            // Input: [1, CONTEXT_SIZE + CHUNK_SIZE], context from the previous chunk
+            // first for temporal continuity, then the chunk normalized to [-1, 1]
+            for (int i = 0; i < CONTEXT_SIZE; i++) {
+                inputBuffer.put(i, audioContext[i]);
+            }
             for (int i = 0; i < CHUNK_SIZE; i++) {
-                chunkFloat[i] = chunk[i] / 32768.0f;
+                inputBuffer.put(CONTEXT_SIZE + i, src[off + i] / 32768.0f);
             }
-
-            // Prepend context from previous chunk for temporal continuity
-            int inputLen = CONTEXT_SIZE + CHUNK_SIZE;
-            float[] inputData = new float[inputLen];
-            System.arraycopy(audioContext, 0, inputData, 0, CONTEXT_SIZE);
-            System.arraycopy(chunkFloat, 0, inputData, CONTEXT_SIZE, CHUNK_SIZE);
-
             // Save tail of current chunk as context for next call
-            System.arraycopy(chunkFloat, CHUNK_SIZE - CONTEXT_SIZE, audioContext, 0, CONTEXT_SIZE);
-
-            // Prepare input tensors
-            // input: [1, CONTEXT_SIZE + CHUNK_SIZE]
-            long[] inputShape = {1, inputLen};
-            OnnxTensor inputTensor = OnnxTensor.createTensor(ortEnv,
-                    FloatBuffer.wrap(inputData), inputShape);
-
-            // state: [2, 1, 128]
-            float[][][] stateData = new float[2][1][128];
-            stateData[0][0] = Arrays.copyOf(state[0], 128);
-            stateData[1][0] = Arrays.copyOf(state[1], 128);
-            OnnxTensor stateTensor = OnnxTensor.createTensor(ortEnv, stateData);
-
-            // sr: [1] = 8000
-            long[] srData = {SAMPLE_RATE};
-            OnnxTensor srTensor = OnnxTensor.createTensor(ortEnv,
-                    LongBuffer.wrap(srData), new long[]{1});
-
-            Map<String, OnnxTensor> inputs = new HashMap<>();
-            inputs.put("input", inputTensor);
-            inputs.put("state", stateTensor);
-            inputs.put("sr", srTensor);
+            for (int i = 0; i < CONTEXT_SIZE; i++) {
+                audioContext[i] = inputBuffer.get(INPUT_SIZE - CONTEXT_SIZE + i);
+            }
 
+            inputs.put("state", stateTensor);
             OrtSession.Result result = ortSession.run(inputs);
+            inferenceCount++;
 
             // output: [1, 1]
-            float[][] output = (float[][]) result.get(0).getValue();
-            float prob = output[0][0];
-
-            // stateN: [2, 1, 128]
-            float[][][] newState = (float[][][]) result.get(1).getValue();
-            state[0] = Arrays.copyOf(newState[0][0], 128);
-            state[1] = Arrays.copyOf(newState[1][0], 128);
+            float prob = ((OnnxTensor) result.get(0)).getFloatBuffer().get(0);
 
-            // Close resources
-            result.close();
-            inputTensor.close();
-            stateTensor.close();
-            srTensor.close();
+            // stateN: [2, 1, 128] feeds the next run directly; the previous result
+            // (holding the state just consumed) can now be released
+            stateTensor = (OnnxTensor) result.get(1);
+            if (lastResult != null) lastResult.close();
+            lastResult = result;
 
             return prob;
         } catch (Exception e) {
@@ -292,6 +536,24 @@ public class SileroVad {
         }
     }
 
+    /** Back to the zero state; releases the output that held the previous state. */
+    private void resetState() {
+        stateTensor = zeroStateTensor;
+        if (lastResult != null) {
+            lastResult.close();
+            lastResult = null;
+        }
+    }
+
+    private void closeTensors() {
+        resetState();
+        if (inputTensor != null) { inputTensor.close(); inputTensor = null; }
+        if (srTensor != null) { srTensor.close(); srTensor = null; }
+        if (zeroStateTensor != null) { zeroStateTensor.close(); zeroStateTensor = null; }
+        stateTensor = null;
+        inputs.clear();
+    }
+
     /**
      * Flush residual audio as speech (call at end of recording if in SPEAKING/TRAILING_SILENCE).
      */
@@ -299,14 +561,14 @@ public class SileroVad {
         if (!initialized) return;
         if (residualLen > 0) {
             if (vadState == State.SPEAKING || vadState == State.TRAILING_SILENCE) {
-                short[] remaining = new short[residualLen];
-                System.arraycopy(residual, 0, remaining, 0, residualLen);
-                callback.onSpeechChunk(remaining, residualLen);
+                callback.onSpeechChunk(residual, 0, residualLen);
             } else {
                 callback.onSkippedSamples(residualLen);
             }
+            streamSamples += residualLen;
             residualLen = 0;
         }
+        endSegment(vadState == State.SPEAKING ? streamSamples : speechEnd);
     }
 
     /**
@@ -315,10 +577,8 @@ public class SileroVad {
     public void flushRemainingAsSkipped(Callback callback) {
         if (!initialized) return;
         if (vadState == State.IDLE && preBufferCount > 0) {
-            int start = (preBufferHead - preBufferCount + preBufferSlots) % preBufferSlots;
             for (int i = 0; i < preBufferCount; i++) {
-                int idx = (start + i) % preBufferSlots;
-                callback.onSkippedSamples(preBuffer[idx].length);
+                callback.onSkippedSamples(CHUNK_SIZE);
             }
             preBufferCount = 0;
             preBufferHead = 0;
@@ -327,18 +587,23 @@ public class SileroVad {
 
     public void reset() {
         if (!initialized) return;
-        state = new float[2][128];
-        audioContext = new float[CONTEXT_SIZE];
-        preBuffer = new short[preBufferSlots][];
+        resetState();
+        java.util.Arrays.fill(audioContext, 0f);
+        if (preBuffer.length != preBufferSlots * CHUNK_SIZE) {
+            preBuffer = new short[preBufferSlots * CHUNK_SIZE];
+        }
         vadState = State.IDLE;
         trailingSilenceCount = 0;
         preBufferHead = 0;
         preBufferCount = 0;
         residualLen = 0;
         lastProb = 0f;
+        resetGate();
+        resetSegments();
     }
 
     public void release() {
+        closeTensors();
         if (ortSession != null) {
             try { ortSession.close(); } catch (Exception ignored) {}
             ortSession = null;
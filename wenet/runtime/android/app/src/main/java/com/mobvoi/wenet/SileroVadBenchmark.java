@@ -0,0 +1,108 @@
+package com.mobvoi.wenet;
+
+import android.os.Debug;
+import android.util.Log;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Steady-state cost of SileroVad.process(): time and Java allocations per 32 ms step,
+ * measured on the calling thread after a warm-up. Input alternates seeded noise bursts
+ * and silence so every VAD state (pre-buffer, speaking, trailing silence) is exercised.
+ */
+public class SileroVadBenchmark {
+
+    private static final String TAG = "SileroVadBenchmark";
+    private static final int WARMUP_STEPS = 200;
+    private static final int PHASE_STEPS = 60;  // ~2 s of noise, then ~2 s of silence
+
+    public static class Result {
+        public final int steps;
+        public final double allocsPerStep;
+        public final double bytesPerStep;
+        public final long p50Ns;
+        public final long p99Ns;
+
+        Result(int steps, double allocsPerStep, double bytesPerStep, long p50Ns, long p99Ns) {
+            this.steps = steps;
+            this.allocsPerStep = allocsPerStep;
+            this.bytesPerStep = bytesPerStep;
+            this.p50Ns = p50Ns;
+            this.p99Ns = p99Ns;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "SileroVad %d steps: %.2f allocs / %.0f bytes per step, p50=%.2fms p99=%.2fms",
+                    steps, allocsPerStep, bytesPerStep, p50Ns / 1e6, p99Ns / 1e6);
+        }
+    }
+
+    /** Run {@code steps} measured VAD steps on an initialized detector; resets it after. */
+    @SuppressWarnings("deprecation")
+    public static Result run(SileroVad vad, int steps) {
+        short[] block = new short[SileroVad.CHUNK_SIZE];
+        long[] times = new long[steps];
+        Random random = new Random(42);
+        SileroVad.Callback sink = new SileroVad.RangeCallback() {
+            @Override public void onSpeechChunk(short[] data, int offset, int length) {}
+            @Override public void onSkippedSamples(int count) {}
+        };
+
+        vad.reset();
+        for (int i = 0; i < WARMUP_STEPS; i++) {
+            fill(block, random, i);
+            vad.process(block, block.length, sink);
+        }
+
+        Debug.startAllocCounting();
+        Debug.resetThreadAllocCount();
+        Debug.resetThreadAllocSize();
+        for (int i = 0; i < steps; i++) {
+            fill(block, random, i);
+            long t0 = System.nanoTime();
+            vad.process(block, block.length, sink);
+            times[i] = System.nanoTime() - t0;
+        }
+        int allocs = Debug.getThreadAllocCount();
+        int bytes = Debug.getThreadAllocSize();
+        Debug.stopAllocCounting();
+        vad.reset();
+
+        Arrays.sort(times);
+        Result result = new Result(steps, (double) allocs / steps, (double) bytes / steps,
+                times[steps / 2], times[Math.min(steps - 1, (int) (steps * 0.99))]);
+        Log.i(TAG, result.toString());
+        return result;
+    }
+
+    /**
+     * Feed {@code steps} blocks of the same input to every detector in {@code vads} and
+     * return their per-detector cost ({@link MultiVad#getStats()}). Resets them after.
+     */
+    public static String compare(MultiVad vads, int steps) {
+        short[] block = new short[SileroVad.CHUNK_SIZE * vads.getSampleRate()
+                / AudioPipeline.ASR_SAMPLE_RATE];
+        Random random = new Random(42);
+        vads.reset();
+        for (int i = 0; i < steps; i++) {
+            fill(block, random, i);
+            vads.process(block, 0, block.length);
+        }
+        vads.flush();
+        String stats = vads.getStats();
+        vads.reset();
+        Log.i(TAG, "Detectors: " + stats);
+        return stats;
+    }
+
+    private static void fill(short[] block, Random random, int step) {
+        boolean noise = (step / PHASE_STEPS) % 2 == 0;
+        for (int i = 0; i < block.length; i++) {
+            block[i] = noise ? (short) (random.nextGaussian() * 4000) : 0;
+        }
+    }
+}
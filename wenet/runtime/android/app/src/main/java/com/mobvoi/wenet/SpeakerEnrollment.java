@@ -1,43 +1,49 @@
 package com.mobvoi.wenet;
 
 import android.content.Context;
-import android.media.MediaCodec;
-import android.media.MediaExtractor;
-import android.media.MediaFormat;
 import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
-import ai.onnxruntime.OnnxTensor;
 import ai.onnxruntime.OrtEnvironment;
 import ai.onnxruntime.OrtSession;
 
 /**
- * One-time speaker enrollment: decodes an audio recording to 16 kHz PCM,
- * computes power mel-spectrogram partials, runs resemblyzer_encoder.onnx
- * on each partial, averages and L2-normalises the embeddings, then saves
- * the 256-float result to {filesDir}/speaker_embedding.bin.
+ * Speaker enrollment: streams an audio recording through the decoder at 16 kHz
+ * into a {@link PartialEmbedder}, which computes power mel partials and runs
+ * resemblyzer_encoder.onnx on them in batches. Memory does not grow with the
+ * recording. The partial embeddings are cached with the recording
+ * (speaker_partials.bin), so enrolling it again costs no decoding.
+ *
+ * Each enrolled recording is added to the speaker's {@link SpeakerProfile}; the
+ * 256-float count-weighted mean over all of them, L2-normalised, is saved to
+ * {filesDir}/speaker_embedding.bin.
+ *
+ * Other speakers are enrolled the same way under a name, into
+ * {filesDir}/speakers/{name}.bin; Personal VAD tracks them alongside.
  */
 public class SpeakerEnrollment {
 
     private static final String TAG = "SpeakerEnrollment";
 
     private static final int SR = PersonalVadProcessor.SR;          // 16000
-    private static final int N_FFT = 400;
-    private static final int HOP_LENGTH = 160;
-    private static final int N_MELS = PersonalVadProcessor.N_MELS;  // 40
-    private static final int PARTIALS_N_FRAMES = 160;
-    private static final int PARTIAL_STEP = 80;
+    private static final int HOP_LENGTH = PartialEmbedder.HOP_LENGTH;
+    private static final int PARTIALS_N_FRAMES = PartialEmbedder.PARTIAL_FRAMES;
     private static final int EMBED_DIM = PersonalVadProcessor.EMBED_DIM; // 256
 
     public interface Callback {
@@ -45,7 +51,48 @@ public class SpeakerEnrollment {
         void onError(String message);
     }
 
+    /** The enrolled speaker ("my voice"). */
+    public static File getEmbeddingFile(Context context) {
+        return new File(context.getFilesDir(), "speaker_embedding.bin");
+    }
+
+    /** Embedding of a named speaker, or null if the name cannot be a file name. */
+    public static File getSpeakerFile(Context context, String name) {
+        if (name == null || name.isEmpty() || name.contains("/") || name.startsWith(".")) {
+            return null;
+        }
+        return new File(new File(context.getFilesDir(), "speakers"), name + ".bin");
+    }
+
+    /** Names of the enrolled named speakers, sorted. */
+    public static List<String> listSpeakers(Context context) {
+        List<String> names = new ArrayList<>();
+        File[] files = new File(context.getFilesDir(), "speakers").listFiles();
+        if (files == null) return names;
+        for (File f : files) {
+            String n = f.getName();
+            if (n.endsWith(".bin")) names.add(n.substring(0, n.length() - 4));
+        }
+        java.util.Collections.sort(names);
+        return names;
+    }
+
+    /** Latest change to any enrolled embedding, 0 if none. */
+    public static long getLastEnrollmentTime(Context context) {
+        long latest = getEmbeddingFile(context).lastModified();
+        for (String name : listSpeakers(context)) {
+            latest = Math.max(latest, getSpeakerFile(context, name).lastModified());
+        }
+        return latest;
+    }
+
     public static void enroll(Context context, String recordingName, Callback callback) {
+        enroll(context, recordingName, getEmbeddingFile(context), callback);
+    }
+
+    /** Enroll into {@code outFile}, e.g. {@link #getSpeakerFile} for a named speaker. */
+    public static void enroll(Context context, String recordingName, File outFile,
+                              Callback callback) {
         new Thread(() -> {
             try {
                 String audioPath = RecordingManager.findAudioPath(context, recordingName);
@@ -55,96 +102,45 @@ public class SpeakerEnrollment {
                 }
 
                 Log.i(TAG, "Enrollment started: " + audioPath);
-
-                // 1. Decode to 16 kHz PCM
-                short[] pcm = decodeAudioTo16kHz(audioPath);
-                if (pcm == null || pcm.length < N_FFT) {
-                    postError(callback, "오디오 디코딩 실패 또는 녹음이 너무 짧습니다");
-                    return;
+                long startNs = System.nanoTime();
+
+                // 1. Partial embeddings of the recording: cached, or decoded and embedded
+                File cache = new File(RecordingManager.getPartialEmbeddingsPath(context, recordingName));
+                float[] sum = new float[EMBED_DIM];
+                int partials = readPartialCache(cache, new File(audioPath), sum);
+                if (partials < 0) {
+                    partials = embedRecording(context, audioPath, cache, sum);
+                    if (partials < 0) {
+                        postError(callback, "오디오 디코딩 실패");
+                        return;
+                    }
                 }
-
-                // 2. Build feature extractor (reuse precomputed DFT tables)
-                OrtEnvironment ortEnv = OrtEnvironment.getEnvironment();
-                PersonalVadProcessor proc = new PersonalVadProcessor(context, ortEnv);
-
-                // 3. Compute power mel-spectrogram for all frames
-                int nFrames = (pcm.length - N_FFT) / HOP_LENGTH + 1;
-                if (nFrames < PARTIALS_N_FRAMES) {
-                    proc.release();
+                if (partials == 0) {
                     postError(callback, "등록용 녹음이 너무 짧습니다 (최소 " +
                         (PARTIALS_N_FRAMES * HOP_LENGTH / SR) + "초 필요)");
                     return;
                 }
+                Log.i(TAG, partials + " partials in " + (System.nanoTime() - startNs) / 1000000 + " ms");
 
-                float[][] melFrames = new float[nFrames][];
-                for (int i = 0; i < nFrames; i++) {
-                    melFrames[i] = PersonalVadProcessor.computePowerMelFrame(
-                        pcm, i * HOP_LENGTH, proc.cosTable, proc.sinTable, proc.melFilterbank);
-                }
-                proc.release();
-
-                // 4. Load Resemblyzer ONNX
-                InputStream is = context.getAssets().open("resemblyzer_encoder.onnx");
-                byte[] modelBytes = PersonalVadProcessor.readStream(is);
-                OrtSession.SessionOptions opts = new OrtSession.SessionOptions();
-                opts.setIntraOpNumThreads(1);
-                OrtSession encoderSession = ortEnv.createSession(modelBytes, opts);
-
-                // 5. Extract embeddings for each 160-frame partial (step 80)
-                List<float[]> embeddings = new ArrayList<>();
-                for (int start = 0; start + PARTIALS_N_FRAMES <= nFrames; start += PARTIAL_STEP) {
-                    float[] partialFlat = new float[PARTIALS_N_FRAMES * N_MELS];
-                    for (int f = 0; f < PARTIALS_N_FRAMES; f++) {
-                        System.arraycopy(melFrames[start + f], 0, partialFlat, f * N_MELS, N_MELS);
-                    }
-
-                    OnnxTensor melsTensor = OnnxTensor.createTensor(ortEnv,
-                        java.nio.FloatBuffer.wrap(partialFlat),
-                        new long[]{1, PARTIALS_N_FRAMES, N_MELS});
-
-                    Map<String, OnnxTensor> inputs = new HashMap<>();
-                    inputs.put("mels", melsTensor);
-
-                    OrtSession.Result result = encoderSession.run(inputs);
-                    Object embValue = result.get("embedding").get().getValue();
-                    float[] emb = extractEmbedding(embValue);
-                    if (emb != null) embeddings.add(emb);
-
-                    result.close();
-                    melsTensor.close();
-                }
-
-                encoderSession.close();
-
-                if (embeddings.isEmpty()) {
-                    postError(callback, "임베딩 추출 실패");
+                // 2. Fold into the speaker's running mean and save the normalised embedding
+                SpeakerProfile profile = SpeakerProfile.load(outFile);
+                profile.add(recordingName, partials, sum);
+                if (!profile.save()) {
+                    postError(callback, "등록 결과를 저장할 수 없습니다");
                     return;
                 }
-
-                // 6. Average and L2-normalise
-                float[] avgEmb = new float[EMBED_DIM];
-                for (float[] emb : embeddings) {
-                    for (int i = 0; i < EMBED_DIM; i++) avgEmb[i] += emb[i];
-                }
-                for (int i = 0; i < EMBED_DIM; i++) avgEmb[i] /= embeddings.size();
-
-                float norm = 0f;
-                for (float v : avgEmb) norm += v * v;
-                norm = (float) Math.sqrt(norm);
-                if (norm > 1e-8f) {
-                    for (int i = 0; i < EMBED_DIM; i++) avgEmb[i] /= norm;
+                SpeakerProfile.Source added = null;
+                for (SpeakerProfile.Source src : profile.getSources()) {
+                    if (src.recording.equals(recordingName)) added = src;
                 }
-
-                // 7. Save to speaker_embedding.bin
-                ByteBuffer bb = ByteBuffer.allocate(EMBED_DIM * 4).order(ByteOrder.LITTLE_ENDIAN);
-                for (float v : avgEmb) bb.putFloat(v);
-                File outFile = new File(context.getFilesDir(), "speaker_embedding.bin");
-                FileOutputStream fos = new FileOutputStream(outFile);
-                fos.write(bb.array());
-                fos.close();
-
-                Log.i(TAG, "Enrollment complete: " + embeddings.size() + " partials → "
+                Log.i(TAG, "Enrollment complete: " + partials + " partials, quality "
+                    + added.quality + ", " + profile.getSources().size() + " recordings → "
                     + outFile.getAbsolutePath());
+                if (added.excluded) {
+                    postError(callback, String.format(java.util.Locale.US,
+                        "기존 등록과 목소리가 달라 제외되었습니다 (유사도 %.2f)", added.quality));
+                    return;
+                }
                 new Handler(Looper.getMainLooper()).post(callback::onSuccess);
 
             } catch (Exception e) {
@@ -154,102 +150,100 @@ public class SpeakerEnrollment {
         }, "speaker-enrollment").start();
     }
 
-    private static float[] extractEmbedding(Object value) {
-        if (value instanceof float[]) return (float[]) value;
-        if (value instanceof float[][]) return ((float[][]) value)[0];
-        Log.w(TAG, "Unexpected embedding type: " + (value != null ? value.getClass() : "null"));
-        return null;
-    }
-
-    /** Decode the given audio file to 16 kHz mono PCM (short[]). */
-    static short[] decodeAudioTo16kHz(String audioPath) {
-        MediaExtractor extractor = null;
-        MediaCodec decoder = null;
-        List<short[]> chunks = new ArrayList<>();
-        try {
-            extractor = new MediaExtractor();
-            extractor.setDataSource(audioPath);
-
-            int trackIdx = -1;
-            for (int i = 0; i < extractor.getTrackCount(); i++) {
-                String mime = extractor.getTrackFormat(i).getString(MediaFormat.KEY_MIME);
-                if (mime != null && mime.startsWith("audio/")) { trackIdx = i; break; }
+    /**
+     * Sum of the cached partial embeddings of a recording into {@code sum}. Returns the
+     * partial count, or -1 if there is no cache or it is older than the audio.
+     */
+    private static int readPartialCache(File cache, File audio, float[] sum) {
+        if (!cache.exists() || cache.lastModified() < audio.lastModified()
+                || cache.length() % (EMBED_DIM * 4) != 0) {
+            return -1;
+        }
+        byte[] row = new byte[EMBED_DIM * 4];
+        int partials = 0;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(cache)))) {
+            for (long n = cache.length() / row.length; partials < n; partials++) {
+                in.readFully(row);
+                FloatBuffer fb = ByteBuffer.wrap(row).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+                for (int i = 0; i < EMBED_DIM; i++) sum[i] += fb.get(i);
             }
-            if (trackIdx < 0) return null;
-
-            extractor.selectTrack(trackIdx);
-            MediaFormat fmt = extractor.getTrackFormat(trackIdx);
-            decoder = MediaCodec.createDecoderByType(fmt.getString(MediaFormat.KEY_MIME));
-            decoder.configure(fmt, null, null, 0);
-            decoder.start();
+            return partials;
+        } catch (Exception e) {
+            Log.e(TAG, "Partial cache unreadable: " + e.getMessage());
+            Arrays.fill(sum, 0f);
+            return -1;
+        }
+    }
 
-            MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
-            boolean inputDone = false, outputDone = false;
-            int outSampleRate = 48000, outChannels = 1;
-            boolean formatRead = false;
+    /**
+     * Decode and embed a recording, summing its partial embeddings into {@code sum} and
+     * writing them to {@code cache} (float32 LE, one row per partial). Returns the
+     * partial count, or -1 if decoding failed.
+     */
+    private static int embedRecording(Context context, String audioPath, File cache,
+                                      float[] sum) throws Exception {
+        OrtEnvironment ortEnv = OrtEnvironment.getEnvironment();
+        RealFft fft = new RealFft(PartialEmbedder.N_FFT, RealFft.hann(PartialEmbedder.N_FFT));
+        MelFilterbank melFilterbank = PersonalVadProcessor.loadMelFilterbank(context);
+        InputStream is = context.getAssets().open("resemblyzer_encoder.onnx");
+        byte[] modelBytes = PersonalVadProcessor.readStream(is);
+        OrtSession.SessionOptions opts = new OrtSession.SessionOptions();
+        opts.setIntraOpNumThreads(1);
+        OrtSession encoderSession = ortEnv.createSession(modelBytes, opts);
+
+        File tmp = new File(cache.getPath() + ".tmp");
+        ByteBuffer row = ByteBuffer.allocate(EMBED_DIM * 4).order(ByteOrder.LITTLE_ENDIAN);
+        boolean decoded = false;
+        int partials;
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tmp));
+             PartialEmbedder embedder = new PartialEmbedder(ortEnv, encoderSession,
+                 fft, melFilterbank, (index, emb) -> {
+                     row.clear();
+                     for (int i = 0; i < EMBED_DIM; i++) {
+                         sum[i] += emb[i];
+                         row.putFloat(emb[i]);
+                     }
+                     out.write(row.array());
+                 })) {
+            decoded = decodeAudioTo16kHz(audioPath, embedder::write);
+            if (decoded) embedder.finish();
+            partials = embedder.getPartialCount();
+        } finally {
+            encoderSession.close();
+            if (!decoded) tmp.delete();
+        }
+        if (!decoded) return -1;
+        if (!tmp.renameTo(cache)) tmp.delete();
+        return partials;
+    }
 
-            while (!outputDone) {
-                if (!inputDone) {
-                    int inIdx = decoder.dequeueInputBuffer(5000);
-                    if (inIdx >= 0) {
-                        ByteBuffer inBuf = decoder.getInputBuffer(inIdx);
-                        int sz = extractor.readSampleData(inBuf, 0);
-                        if (sz < 0) {
-                            decoder.queueInputBuffer(inIdx, 0, 0, 0,
-                                MediaCodec.BUFFER_FLAG_END_OF_STREAM);
-                            inputDone = true;
-                        } else {
-                            decoder.queueInputBuffer(inIdx, 0, sz, extractor.getSampleTime(), 0);
-                            extractor.advance();
-                        }
-                    }
-                }
+    /** Receives decoded PCM; the buffer is reused after the call returns. */
+    interface PcmSink {
+        void write(short[] pcm, int off, int len) throws Exception;
+    }
 
-                int outIdx = decoder.dequeueOutputBuffer(info, 5000);
-                if (outIdx == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
-                    MediaFormat nf = decoder.getOutputFormat();
-                    outSampleRate = nf.containsKey(MediaFormat.KEY_SAMPLE_RATE)
-                        ? nf.getInteger(MediaFormat.KEY_SAMPLE_RATE) : 48000;
-                    outChannels = nf.containsKey(MediaFormat.KEY_CHANNEL_COUNT)
-                        ? nf.getInteger(MediaFormat.KEY_CHANNEL_COUNT) : 1;
-                    formatRead = true;
-                } else if (outIdx >= 0) {
-                    ByteBuffer outBuf = decoder.getOutputBuffer(outIdx);
-                    if (outBuf != null && info.size > 0 && formatRead) {
-                        int decimation = Math.max(1, outSampleRate / SR); // 48000/16000 = 3
-                        int frameBytes = 2 * outChannels;
-                        int totalFrames = info.size / frameBytes;
-                        int outFrames = (totalFrames + decimation - 1) / decimation;
-                        short[] chunk = new short[outFrames];
-                        byte[] raw = new byte[info.size];
-                        outBuf.position(info.offset);
-                        outBuf.get(raw);
-                        int dst = 0;
-                        for (int f = 0; f < totalFrames && dst < outFrames; f += decimation) {
-                            int b = f * frameBytes;
-                            chunk[dst++] = (short) ((raw[b] & 0xFF) | (raw[b + 1] << 8));
-                        }
-                        chunks.add(chunk);
-                    }
-                    decoder.releaseOutputBuffer(outIdx, false);
-                    if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) outputDone = true;
-                }
+    /**
+     * Decode the given audio file to 16 kHz mono PCM, handing it to {@code sink} in
+     * chunks of up to 100 ms. Returns false if decoding failed.
+     */
+    static boolean decodeAudioTo16kHz(String audioPath, PcmSink sink) {
+        AudioDecoder decoder = null;
+        try {
+            decoder = AudioDecoder.open(audioPath, SR);
+            if (decoder == null) return false;
+            short[] chunk = new short[SR / 10];
+            int n;
+            while ((n = decoder.read(chunk, 0, chunk.length)) >= 0) {
+                sink.write(chunk, 0, n);
             }
-
-            // Concatenate all chunks
-            int total = 0;
-            for (short[] ch : chunks) total += ch.length;
-            short[] result = new short[total];
-            int pos = 0;
-            for (short[] ch : chunks) { System.arraycopy(ch, 0, result, pos, ch.length); pos += ch.length; }
-            return result;
+            return true;
 
         } catch (Exception e) {
             Log.e(TAG, "Audio decode failed: " + e.getMessage());
-            return null;
+            return false;
         } finally {
-            if (decoder != null) { try { decoder.stop(); decoder.release(); } catch (Exception ignored) {} }
-            if (extractor != null) extractor.release();
+            if (decoder != null) decoder.close();
         }
     }
 
@@ -0,0 +1,232 @@
+package com.mobvoi.wenet;
+
+import android.util.Log;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * The recordings behind one speaker embedding, stored next to it ({name}.json beside
+ * {name}.bin). Each source keeps the sum and count of its partial embeddings, so the
+ * embedding is the count-weighted mean over all sources, L2-normalised. Adding or
+ * dropping a recording only touches these sums, never audio.
+ *
+ * Quality of a source: cosine between its mean partial and the mean of the other
+ * included sources. With three or more sources, the worst one is excluded while it
+ * scores below {@link #MIN_QUALITY}. Exclusion is decided again on every change, so
+ * an excluded source stays listed and counts again once the mean moves toward it.
+ */
+public class SpeakerProfile {
+
+    private static final String TAG = "SpeakerProfile";
+
+    static final float MIN_QUALITY = 0.7f;
+    private static final int MIN_SOURCES_FOR_OUTLIERS = 3;
+    private static final int EMBED_DIM = PersonalVadProcessor.EMBED_DIM;
+
+    /** One contributing recording. */
+    public static class Source {
+        public final String recording;
+        public final int partials;
+        final float[] sum;
+        public float quality = 1f;
+        public boolean excluded = false;
+
+        Source(String recording, int partials, float[] sum) {
+            this.recording = recording;
+            this.partials = partials;
+            this.sum = sum;
+        }
+    }
+
+    private final File embeddingFile;
+    private final List<Source> sources = new ArrayList<>();
+
+    private SpeakerProfile(File embeddingFile) {
+        this.embeddingFile = embeddingFile;
+    }
+
+    /** The {name}.json beside an embedding file. */
+    static File getProfileFile(File embeddingFile) {
+        String name = embeddingFile.getName();
+        int dot = name.lastIndexOf('.');
+        return new File(embeddingFile.getParentFile(),
+            (dot > 0 ? name.substring(0, dot) : name) + ".json");
+    }
+
+    /**
+     * Sources of {@code embeddingFile}; empty for a new speaker and for an embedding
+     * enrolled before profiles existed (the next enrollment replaces it).
+     */
+    public static SpeakerProfile load(File embeddingFile) {
+        SpeakerProfile profile = new SpeakerProfile(embeddingFile);
+        File f = getProfileFile(embeddingFile);
+        if (!f.exists() || !embeddingFile.exists()) return profile;
+        try {
+            byte[] data = new byte[(int) f.length()];
+            try (DataInputStream in = new DataInputStream(new FileInputStream(f))) {
+                in.readFully(data);
+            }
+            JSONArray arr = new JSONObject(new String(data, "UTF-8")).getJSONArray("sources");
+            for (int i = 0; i < arr.length(); i++) {
+                JSONObject obj = arr.getJSONObject(i);
+                JSONArray sumArr = obj.getJSONArray("sum");
+                float[] sum = new float[EMBED_DIM];
+                for (int k = 0; k < EMBED_DIM; k++) sum[k] = (float) sumArr.getDouble(k);
+                Source src = new Source(obj.getString("recording"), obj.getInt("partials"), sum);
+                src.quality = (float) obj.optDouble("quality", 1.0);
+                src.excluded = obj.optBoolean("excluded", false);
+                profile.sources.add(src);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to load profile: " + e.getMessage());
+            profile.sources.clear();
+        }
+        return profile;
+    }
+
+    /** Delete an embedding and its profile. */
+    public static void delete(File embeddingFile) {
+        embeddingFile.delete();
+        getProfileFile(embeddingFile).delete();
+    }
+
+    public List<Source> getSources() {
+        return sources;
+    }
+
+    /** Add (or replace) a recording's partial embeddings, given as sum and count. */
+    public void add(String recording, int partials, float[] sum) {
+        remove(recording);
+        sources.add(new Source(recording, partials, sum.clone()));
+        updateQuality();
+    }
+
+    public boolean remove(String recording) {
+        for (int i = 0; i < sources.size(); i++) {
+            if (sources.get(i).recording.equals(recording)) {
+                sources.remove(i);
+                updateQuality();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Count-weighted mean of the included sources, L2-normalised; null if none. */
+    public float[] getEmbedding() {
+        float[] mean = new float[EMBED_DIM];
+        int count = 0;
+        for (Source src : sources) {
+            if (src.excluded) continue;
+            for (int k = 0; k < EMBED_DIM; k++) mean[k] += src.sum[k];
+            count += src.partials;
+        }
+        if (count == 0) return null;
+        return normalize(mean);
+    }
+
+    /**
+     * Write the profile, then the embedding (each through a temp file), so the
+     * embedding's mtime marks the change for readers such as BatchPersonalVad.
+     * Deletes both when no source is left.
+     */
+    public boolean save() {
+        float[] emb = getEmbedding();
+        if (emb == null) {
+            delete(embeddingFile);
+            return true;
+        }
+        try {
+            JSONArray arr = new JSONArray();
+            for (Source src : sources) {
+                JSONArray sumArr = new JSONArray();
+                for (float v : src.sum) sumArr.put((double) v);
+                JSONObject obj = new JSONObject();
+                obj.put("recording", src.recording);
+                obj.put("partials", src.partials);
+                obj.put("quality", (double) src.quality);
+                obj.put("excluded", src.excluded);
+                obj.put("sum", sumArr);
+                arr.put(obj);
+            }
+            JSONObject root = new JSONObject();
+            root.put("sources", arr);
+
+            ByteBuffer bb = ByteBuffer.allocate(EMBED_DIM * 4).order(ByteOrder.LITTLE_ENDIAN);
+            for (float v : emb) bb.putFloat(v);
+
+            File dir = embeddingFile.getParentFile();
+            if (dir != null && !dir.exists()) dir.mkdirs();
+            if (!RecordingManager.writeAtomically(getProfileFile(embeddingFile),
+                    root.toString().getBytes("UTF-8"), "speaker profile")) {
+                return false;
+            }
+            // An unchanged embedding (e.g. an outlier was added) keeps its mtime
+            if (embeddingFile.exists() && embeddingFile.length() == bb.capacity()) {
+                byte[] old = new byte[bb.capacity()];
+                try (DataInputStream in = new DataInputStream(new FileInputStream(embeddingFile))) {
+                    in.readFully(old);
+                }
+                if (Arrays.equals(old, bb.array())) return true;
+            }
+            return RecordingManager.writeAtomically(embeddingFile, bb.array(), "speaker embedding");
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to save profile: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /** Re-score every source, then exclude the worst while it is an outlier. */
+    private void updateQuality() {
+        for (Source src : sources) src.excluded = false;
+        while (true) {
+            int included = 0;
+            for (Source src : sources) if (!src.excluded) included++;
+            Source worst = null;
+            for (Source src : sources) {
+                src.quality = score(src);
+                if (!src.excluded && (worst == null || src.quality < worst.quality)) worst = src;
+            }
+            if (included < MIN_SOURCES_FOR_OUTLIERS || worst.quality >= MIN_QUALITY) return;
+            worst.excluded = true;
+            Log.i(TAG, "Excluded outlier " + worst.recording + " (quality " + worst.quality + ")");
+        }
+    }
+
+    /** Cosine between a source's mean and the other included sources' mean (1 if none). */
+    private float score(Source src) {
+        float[] others = new float[EMBED_DIM];
+        boolean any = false;
+        for (Source o : sources) {
+            if (o == src || o.excluded) continue;
+            for (int k = 0; k < EMBED_DIM; k++) others[k] += o.sum[k];
+            any = true;
+        }
+        if (!any) return 1f;
+        float[] a = normalize(src.sum.clone());
+        float[] b = normalize(others);
+        float dot = 0f;
+        for (int k = 0; k < EMBED_DIM; k++) dot += a[k] * b[k];
+        return dot;
+    }
+
+    private static float[] normalize(float[] v) {
+        float norm = 0f;
+        for (float x : v) norm += x * x;
+        norm = (float) Math.sqrt(norm);
+        if (norm > 1e-8f) {
+            for (int k = 0; k < v.length; k++) v[k] /= norm;
+        }
+        return v;
+    }
+}
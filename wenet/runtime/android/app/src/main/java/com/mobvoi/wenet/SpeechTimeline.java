@@ -0,0 +1,117 @@
+package com.mobvoi.wenet;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * SileroVad's speech spans over the 8 kHz stream, published by the VAD thread and read
+ * by one other thread (CaptureVadWorker) to decide which audio is worth Personal VAD.
+ *
+ * Speech is whatever SileroVad passed to ASR: SPEAKING and TRAILING_SILENCE chunks plus
+ * the pre-buffer flushed at onset. Spans are kept in a fixed array. If the reader falls
+ * so far behind that it fills up, the timeline fails open and reports speech everywhere
+ * from then on. One instance per run.
+ */
+public class SpeechTimeline {
+
+  private static final int MAX_SPANS = 256;
+
+  private final long[] starts = new long[MAX_SPANS];
+  private final long[] ends = new long[MAX_SPANS];
+  private final AtomicLong head = new AtomicLong();  // closed spans published
+  private final AtomicLong tail = new AtomicLong();  // closed spans released by the reader
+  private volatile long openStart = -1;  // start of the span in progress, -1 if none
+  private volatile long decided = 0;     // every sample before this is classified
+  private volatile boolean finished = false;
+  private volatile boolean overflow = false;
+  private volatile Thread waitingReader = null;
+  private long position = 0;  // writer only
+
+  /** Writer: the next {@code n} samples are speech. */
+  public void addSpeech(int n) {
+    if (openStart < 0) openStart = position;
+    advance(n);
+  }
+
+  /** Writer: the next {@code n} samples are non-speech. */
+  public void addSkip(int n) {
+    if (openStart >= 0) {
+      long h = head.get();
+      if (h - tail.get() >= MAX_SPANS) {
+        overflow = true;
+      } else {
+        starts[(int) (h % MAX_SPANS)] = openStart;
+        ends[(int) (h % MAX_SPANS)] = position;
+        head.set(h + 1);
+      }
+      openStart = -1;  // after head: a reader that sees no open span sees the closed one
+    }
+    advance(n);
+  }
+
+  /** Writer: the stream has ended; everything classified is final. */
+  public void finish() {
+    finished = true;
+    wakeReader();
+  }
+
+  private void advance(int n) {
+    position += n;
+    decided = position;
+    wakeReader();
+  }
+
+  /** Reader: samples classified so far. */
+  public long getDecided() {
+    return decided;
+  }
+
+  public boolean isFinished() {
+    return finished;
+  }
+
+  /**
+   * Reader: park up to {@code timeoutMs} until {@code pos} samples are classified or the
+   * writer has finished. Returns true if {@code [0, pos)} can be queried.
+   */
+  public boolean awaitDecided(long pos, long timeoutMs) {
+    if (decided >= pos || finished) return true;
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+    waitingReader = Thread.currentThread();
+    try {
+      while (decided < pos && !finished) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0 || Thread.interrupted()) break;
+        LockSupport.parkNanos(this, remaining);
+      }
+    } finally {
+      waitingReader = null;
+    }
+    return decided >= pos || finished;
+  }
+
+  /**
+   * Reader: true if any sample in {@code [from, to)} is speech. Spans ending at or
+   * before {@code from} are released, so queries must move forward.
+   */
+  public boolean hasSpeech(long from, long to) {
+    if (overflow) return true;
+    long open = openStart;  // before the spans: see the class of a span being closed
+    long t = tail.get();
+    long h = head.get();
+    while (t < h && ends[(int) (t % MAX_SPANS)] <= from) t++;
+    tail.lazySet(t);
+    for (long i = t; i < h; i++) {
+      int idx = (int) (i % MAX_SPANS);
+      if (starts[idx] >= to) return false;
+      if (ends[idx] > from) return true;
+    }
+    return open >= 0 && open < to;
+  }
+
+  private void wakeReader() {
+    Thread reader = waitingReader;
+    if (reader != null) LockSupport.unpark(reader);
+  }
+}
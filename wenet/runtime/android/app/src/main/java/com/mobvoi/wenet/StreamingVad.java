@@ -0,0 +1,63 @@
+package com.mobvoi.wenet;
+
+/**
+ * Common contract for streaming voice activity detectors (SileroVad, EnergyVad,
+ * PersonalVadProcessor), so they can be swapped, stacked with {@link MultiVad}, and
+ * benchmarked against each other on the same audio.
+ *
+ * A detector consumes mono 16-bit PCM at {@link #getSampleRate()} in blocks of any
+ * length. It decides once per {@link #getFrameSize()} samples and buffers partial
+ * frames internally. Blocks that are whole multiples of the frame size avoid that
+ * buffering. Times are ms from the last reset(), in the detector's own stream.
+ */
+public interface StreamingVad {
+
+    /** Detector output. Called on the thread that calls process() / flush(). */
+    interface Listener {
+        /** Probability of the frame ending at {@code endMs}. */
+        default void onProbability(StreamingVad vad, long endMs, float prob) {}
+
+        void onSegmentStart(StreamingVad vad, long startMs);
+
+        void onSegmentEnd(StreamingVad vad, long startMs, long endMs);
+    }
+
+    /** Short identifier for logs and benchmarks. */
+    String getName();
+
+    int getSampleRate();
+
+    /** Samples per decision at {@link #getSampleRate()}. */
+    int getFrameSize();
+
+    /** False if the detector failed to initialize; process() is then a no-op. */
+    boolean isReady();
+
+    void setListener(Listener listener);
+
+    void process(short[] pcm, int offset, int length);
+
+    /** Probability of the latest decided frame. */
+    float getLastProbability();
+
+    /**
+     * {@code length} samples were dropped upstream (a worker over its lag budget); times
+     * continue after the gap. Runs on every gap, so it must not allocate: a detector
+     * either jumps ahead or feeds silence from a buffer it keeps.
+     */
+    void skip(int length);
+
+    /**
+     * Like skip(), for audio another detector already judged non-speech (Personal VAD
+     * gated on SileroVad): an open segment ends where the gap starts.
+     */
+    default void skipNonSpeech(int length) {
+        skip(length);
+    }
+
+    /** Decide on buffered audio and close an open segment (end of stream). */
+    void flush();
+
+    /** Back to the start of a new stream. */
+    void reset();
+}
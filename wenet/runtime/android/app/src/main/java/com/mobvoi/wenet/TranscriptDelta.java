@@ -0,0 +1,77 @@
+package com.mobvoi.wenet;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * Decoder for the binary transcript delta pushed by the native decoder
+ * (native byte order):
+ *
+ *   int32 newStringCount, { int32 byteLength, UTF-8 bytes } * newStringCount
+ *   int32 recordCount,    { int32 stringIndex, int32 startMs, int32 endMs, int32 flags } * recordCount
+ *
+ * New strings extend a per-session pool, so each distinct word piece is decoded to a
+ * String once; records are unpacked into reusable arrays. One instance per session;
+ * call reset() when the native session is reset. Record accessors are valid until the
+ * next decode().
+ */
+public class TranscriptDelta {
+
+  /** Record closes a sentence (endpoint); it carries no text. */
+  public static final int FLAG_SENTENCE_END = 1;
+
+  private final ArrayList<String> pool = new ArrayList<>();
+  private byte[] scratch = new byte[64];
+  private int count = 0;
+  private String[] words = new String[32];
+  private int[] startMs = new int[32];
+  private int[] endMs = new int[32];
+  private int[] flags = new int[32];
+
+  public void reset() {
+    pool.clear();
+    count = 0;
+  }
+
+  /** Decode one delta; replaces the current records. Reads buf from its position. */
+  public void decode(ByteBuffer buf) {
+    buf.order(ByteOrder.nativeOrder());
+    int newStrings = buf.getInt();
+    for (int i = 0; i < newStrings; i++) {
+      int len = buf.getInt();
+      if (scratch.length < len) scratch = new byte[Math.max(len, scratch.length * 2)];
+      buf.get(scratch, 0, len);
+      pool.add(new String(scratch, 0, len, StandardCharsets.UTF_8));
+    }
+    count = buf.getInt();
+    if (words.length < count) grow(count);
+    for (int i = 0; i < count; i++) {
+      int index = buf.getInt();
+      words[i] = index >= 0 && index < pool.size() ? pool.get(index) : null;
+      startMs[i] = buf.getInt();
+      endMs[i] = buf.getInt();
+      flags[i] = buf.getInt();
+    }
+  }
+
+  public int size() { return count; }
+
+  /** Word piece text, or null for marker records. */
+  public String word(int i) { return words[i]; }
+
+  public int startMs(int i) { return startMs[i]; }
+
+  public int endMs(int i) { return endMs[i]; }
+
+  public boolean isSentenceEnd(int i) { return (flags[i] & FLAG_SENTENCE_END) != 0; }
+
+  private void grow(int min) {
+    int n = Math.max(min, words.length * 2);
+    words = new String[n];
+    startMs = new int[n];
+    endMs = new int[n];
+    flags = new int[n];
+  }
+}
@@ -0,0 +1,211 @@
+package com.mobvoi.wenet;
+
+import android.util.Log;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs SileroVad on its own thread, ahead of the decoder feed. The worker reads the
+ * ASR ring through its lookahead cursor (samples stay in the ring) and publishes the
+ * VAD output as ordered speech / skip runs over the 8 kHz stream.
+ *
+ * SileroVad's callbacks partition its input in order, pre-buffer flushes and evictions
+ * included. So the feeder replays exactly what synchronous gating would have fed, and
+ * it reads straight from the ring while the next chunks are classified on another
+ * core. Pre-buffer and trailing-silence behaviour is SileroVad's own and unchanged.
+ *
+ * One worker, one feeder thread. Runs are queued in a fixed array, so nothing is
+ * allocated per block.
+ */
+public class VadLookahead {
+
+  private static final String TAG = "VadLookahead";
+  private static final int MAX_RUNS = 512;  // ~16 s of 32 ms skip runs ahead of the feed
+  private static final long RING_WAIT_MS = 100;
+  private static final long FULL_SLEEP_MS = 2;
+
+  /** VAD-stage tap, called on the worker after each block is classified. */
+  public interface BlockListener {
+    void onBlock(short[] samples, int length, float prob);
+  }
+
+  private final AudioRingBuffer ring;
+  private final SileroVad vad;
+  private final LatencyTracker latency;
+  private final BlockListener blockListener;
+  private final short[] block;
+
+  // Runs: > 0 speech samples, < 0 skipped samples (one entry per VAD callback)
+  private final long[] runs = new long[MAX_RUNS];
+  private final AtomicLong runHead = new AtomicLong();  // next run to publish
+  private final AtomicLong runTail = new AtomicLong();  // next run to consume
+  private volatile boolean finished = false;
+  private volatile Thread waitingFeeder = null;
+
+  private Thread thread;
+  private long position = 0;        // ring position classified so far (worker only)
+  private long blockCapturedNs = 0; // worker only
+  private boolean vadDecided = false;
+  private VadProbTrack.Writer probTrack = null;
+  private SpeechTimeline timeline = null;
+
+  private final SileroVad.Callback callback = new SileroVad.RangeCallback() {
+    @Override
+    public void onSpeechChunk(short[] data, int offset, int length) {
+      publish(length);
+    }
+
+    @Override
+    public void onSkippedSamples(int count) {
+      publish(-count);
+    }
+
+    @Override
+    public void onChunkProb(float prob) {
+      if (probTrack != null) probTrack.add(prob);
+    }
+  };
+
+  /** {@code blockSize}: samples per VAD step, as the capture stage writes them. */
+  public VadLookahead(AudioRingBuffer ring, SileroVad vad, LatencyTracker latency,
+                      int blockSize, BlockListener blockListener) {
+    this.ring = ring;
+    this.vad = vad;
+    this.latency = latency;
+    this.blockListener = blockListener;
+    this.block = new short[blockSize];
+  }
+
+  /** Also stream every chunk probability to {@code track}; set before start(). */
+  public void setProbTrack(VadProbTrack.Writer track) {
+    this.probTrack = track;
+  }
+
+  public VadProbTrack.Writer getProbTrack() {
+    return probTrack;
+  }
+
+  /** Also record the speech / skip runs in {@code timeline}; set before start(). */
+  public void setSpeechTimeline(SpeechTimeline timeline) {
+    this.timeline = timeline;
+  }
+
+  /** Start classifying from the ring's current read position. */
+  public void start() {
+    runHead.set(0);
+    runTail.set(0);
+    finished = false;
+    position = ring.readPosition();
+    thread = new Thread(this::run, "audio-vad");
+    thread.start();
+  }
+
+  /** Wait for the worker to exit; it does once the ring is drained and runs published. */
+  public void join() {
+    try {
+      if (thread != null) thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** Feeder: true once every run has been published and consumed. */
+  public boolean isDrained() {
+    return finished && runTail.get() == runHead.get();
+  }
+
+  /**
+   * Feeder: park up to {@code timeoutMs} until a run is published or the worker has
+   * finished. Returns the number of runs ready.
+   */
+  public int await(long timeoutMs) {
+    int n = (int) (runHead.get() - runTail.get());
+    if (n > 0 || finished) return n;
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+    waitingFeeder = Thread.currentThread();
+    try {
+      while (runHead.get() == runTail.get() && !finished) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0 || Thread.interrupted()) break;
+        LockSupport.parkNanos(this, remaining);
+      }
+    } finally {
+      waitingFeeder = null;
+    }
+    return (int) (runHead.get() - runTail.get());
+  }
+
+  /** Feeder: next run (> 0 speech, < 0 skipped samples), or 0 if none is ready. */
+  public long poll() {
+    long t = runTail.get();
+    if (t == runHead.get()) return 0;
+    long run = runs[(int) (t % MAX_RUNS)];
+    runTail.lazySet(t + 1);
+    return run;
+  }
+
+  // ── Worker ────────────────────────────────────────────────────────────────
+
+  private void run() {
+    while (true) {
+      int n = ring.awaitFrom(position, RING_WAIT_MS);
+      if (n == 0) {
+        if (ring.isWriteClosed() && ring.awaitFrom(position, 0) == 0) break;
+        continue;
+      }
+      n = ring.peekAt(position, block, 0, Math.min(n, block.length));
+      position += n;
+      blockCapturedNs = latency.captureTimeNs(position);
+      latency.record(LatencyTracker.STAGE_RING, blockCapturedNs);
+      vadDecided = false;
+      vad.process(block, n, callback);
+      if (blockListener != null) blockListener.onBlock(block, n, vad.getLastProb());
+    }
+    vad.flush(callback);
+    vad.flushRemainingAsSkipped(callback);
+    if (timeline != null) timeline.finish();
+    long inferred = vad.getInferenceCount();
+    long skipped = vad.getSkippedInferenceCount();
+    if (inferred + skipped > 0) {
+      Log.i(TAG, "VAD inferences: " + inferred + " run, " + skipped + " skipped by energy gate ("
+          + (skipped * 100 / (inferred + skipped)) + "%)");
+    }
+    finished = true;
+    wakeFeeder();
+  }
+
+  private void publish(long run) {
+    if (run == 0) return;
+    if (!vadDecided) {
+      vadDecided = true;
+      latency.record(LatencyTracker.STAGE_VAD, blockCapturedNs);
+    }
+    long h = runHead.get();
+    // Full: the feeder is far behind (decoder back-pressure); wait rather than drop
+    while (h - runTail.get() >= MAX_RUNS) {
+      try {
+        Thread.sleep(FULL_SLEEP_MS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        Log.w(TAG, "Interrupted with a full run queue");
+        return;
+      }
+    }
+    if (timeline != null) {
+      if (run > 0) {
+        timeline.addSpeech((int) run);
+      } else {
+        timeline.addSkip((int) -run);
+      }
+    }
+    runs[(int) (h % MAX_RUNS)] = run;
+    runHead.set(h + 1);  // full fence: pairs with the feeder's waitingFeeder check
+    wakeFeeder();
+  }
+
+  private void wakeFeeder() {
+    Thread feeder = waitingFeeder;
+    if (feeder != null) LockSupport.unpark(feeder);
+  }
+}
@@ -0,0 +1,109 @@
+package com.mobvoi.wenet;
+
+import android.util.Log;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Per-recording Silero VAD probability track (vad.bin), so playback can draw the VAD
+ * lane without re-running inference.
+ *
+ * Format: "VADP" magic, then one unsigned byte per 32 ms VAD chunk
+ * (probability * 255), in stream order from the start of the recording. About 110 KB
+ * per hour. The writer buffers in a fixed array; the reader memory-maps the file and
+ * reduces it to the view's bar count, so multi-hour tracks load instantly.
+ */
+public class VadProbTrack {
+
+  private static final String TAG = "VadProbTrack";
+  private static final int MAGIC = 0x50444156;  // "VADP", little-endian
+  private static final int HEADER_SIZE = 4;
+  private static final int BUFFER_SIZE = 4096;  // ~2 min of chunks per write
+  public static final int CHUNK_MS = SileroVad.CHUNK_SIZE * 1000 / AudioPipeline.ASR_SAMPLE_RATE;
+
+  /** Streams chunk probabilities to a file. Single thread; nothing allocated per chunk. */
+  public static class Writer {
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int buffered = 0;
+    private long chunks = 0;
+    private FileOutputStream out;
+
+    public Writer(String path) throws IOException {
+      out = new FileOutputStream(path);
+      out.write(new byte[] {'V', 'A', 'D', 'P'});
+    }
+
+    public void add(float prob) {
+      if (out == null) return;
+      buffer[buffered++] = (byte) Math.round(Math.max(0f, Math.min(1f, prob)) * 255f);
+      chunks++;
+      if (buffered == buffer.length) flush();
+    }
+
+    private void flush() {
+      try {
+        out.write(buffer, 0, buffered);
+      } catch (IOException e) {
+        Log.e(TAG, "Error writing VAD track: " + e.getMessage());
+        closeQuietly();
+      }
+      buffered = 0;
+    }
+
+    public void close() {
+      if (out == null) return;
+      flush();
+      closeQuietly();
+      Log.i(TAG, "Saved VAD track: " + chunks + " chunks (" + chunks * CHUNK_MS / 1000 + " s)");
+    }
+
+    private void closeQuietly() {
+      try {
+        if (out != null) out.close();
+      } catch (IOException ignored) {
+      } finally {
+        out = null;
+      }
+    }
+  }
+
+  /**
+   * Map {@code path} and reduce it to {@code points} values, each the peak probability
+   * of its span (short speech bursts stay visible at any zoom). Returns null if the
+   * file is missing or not a VAD track.
+   */
+  public static float[] load(String path, int points) {
+    try (RandomAccessFile file = new RandomAccessFile(path, "r");
+         FileChannel channel = file.getChannel()) {
+      long size = channel.size();
+      if (size <= HEADER_SIZE) return null;
+      MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      map.order(ByteOrder.LITTLE_ENDIAN);
+      if (map.getInt(0) != MAGIC) {
+        Log.e(TAG, "Not a VAD track: " + path);
+        return null;
+      }
+      int chunks = (int) Math.min(Integer.MAX_VALUE, size - HEADER_SIZE);
+      float[] result = new float[points];
+      for (int i = 0; i < points; i++) {
+        int from = (int) ((long) i * chunks / points);
+        int to = Math.max(from + 1, (int) ((long) (i + 1) * chunks / points));
+        int peak = 0;
+        for (int j = from; j < to && j < chunks; j++) {
+          peak = Math.max(peak, map.get(HEADER_SIZE + j) & 0xff);
+        }
+        result[i] = peak / 255f;
+      }
+      return result;
+    } catch (java.io.FileNotFoundException e) {
+      return null;
+    } catch (IOException e) {
+      Log.e(TAG, "Error loading VAD track: " + e.getMessage());
+      return null;
+    }
+  }
+}
@@ -12,7 +12,7 @@ import android.view.View;
  */
 public class VadProbView extends View {
 
-    private static final int BAR_COUNT = 200;
+    static final int BAR_COUNT = 200;
     private static final int SAMPLES_PER_BAR = 512;  // match SpectrogramView FFT_SIZE
     private static final int REDRAW_INTERVAL_MS = 100;
     private float speechThreshold = 0.5f;
@@ -0,0 +1,194 @@
+package com.mobvoi.wenet;
+
+import org.junit.Test;
+
+import java.nio.ShortBuffer;
+
+import static org.junit.Assert.*;
+
+public class AudioRingBufferTest {
+
+    private static short[] ramp(int start, int n) {
+        short[] s = new short[n];
+        for (int i = 0; i < n; i++) s[i] = (short) (start + i);
+        return s;
+    }
+
+    @Test
+    public void capacityRoundsUpToPowerOfTwo() {
+        assertEquals(1024, new AudioRingBuffer(1000).capacity());
+        assertEquals(1024, new AudioRingBuffer(1024).capacity());
+        assertEquals(2048, new AudioRingBuffer(1025).capacity());
+    }
+
+    @Test
+    public void readReturnsSamplesInOrderAcrossWrap() {
+        AudioRingBuffer ring = new AudioRingBuffer(8);
+        short[] out = new short[6];
+        assertEquals(6, ring.write(ramp(0, 6), 0, 6));
+        assertEquals(6, ring.read(out, 0, 6));
+        assertArrayEquals(ramp(0, 6), out);
+
+        // Starts at index 6 of 8, so both the write and the read wrap
+        assertEquals(6, ring.write(ramp(100, 6), 0, 6));
+        assertEquals(6, ring.available());
+        assertEquals(6, ring.read(out, 0, 6));
+        assertArrayEquals(ramp(100, 6), out);
+        assertEquals(0, ring.available());
+        assertEquals(0, ring.read(out, 0, 6));
+    }
+
+    @Test
+    public void peekDoesNotConsume() {
+        AudioRingBuffer ring = new AudioRingBuffer(8);
+        ring.write(ramp(1, 4), 0, 4);
+        short[] out = new short[4];
+        assertEquals(4, ring.peek(out, 0, 4));
+        assertArrayEquals(ramp(1, 4), out);
+        assertEquals(4, ring.available());
+        ring.skip(3);
+        assertEquals(1, ring.read(out, 0, 4));
+        assertEquals(4, out[0]);
+    }
+
+    @Test
+    public void fullRingDropsAndCountsOverrun() {
+        AudioRingBuffer ring = new AudioRingBuffer(8);
+        assertEquals(8, ring.write(ramp(0, 10), 0, 10));
+        assertEquals(0, ring.write(ramp(0, 1), 0, 1));
+        assertEquals(2, ring.getOverrunCount());
+        assertEquals(3, ring.getDroppedSamples());
+        assertEquals(8, ring.getHighWaterMark());
+
+        // The oldest samples are kept; the overflow is what gets dropped
+        short[] out = new short[8];
+        ring.read(out, 0, 8);
+        assertArrayEquals(ramp(0, 8), out);
+
+        ring.reset();
+        assertEquals(0, ring.getOverrunCount());
+        assertEquals(0, ring.getHighWaterMark());
+        assertEquals(0, ring.available());
+    }
+
+    @Test
+    public void feedToPassesWrappedRangeInTwoRuns() {
+        AudioRingBuffer ring = new AudioRingBuffer(8);
+        short[] out = new short[8];
+        ring.write(ramp(0, 5), 0, 5);
+        ring.read(out, 0, 5);
+        ring.write(ramp(50, 6), 0, 6);
+
+        short[] fed = new short[8];
+        int[] runs = new int[1];
+        int[] filled = new int[1];
+        AudioRingBuffer.Sink sink = (ShortBuffer direct, int offset, int length) -> {
+            for (int i = 0; i < length; i++) fed[filled[0]++] = direct.get(offset + i);
+            runs[0]++;
+        };
+        assertEquals(6, ring.feedTo(sink, 8));
+        assertEquals(2, runs[0]);
+        assertEquals(6, filled[0]);
+        for (int i = 0; i < 6; i++) assertEquals(50 + i, fed[i]);
+        // feedTo() leaves the samples unread until skip()
+        assertEquals(6, ring.available());
+        ring.skip(6);
+        assertEquals(0, ring.available());
+    }
+
+    @Test
+    public void awaitTimesOutOnEmptyAndReturnsAfterClose() {
+        AudioRingBuffer ring = new AudioRingBuffer(8);
+        assertEquals(0, ring.await(5));
+        assertFalse(ring.isDrained());
+        ring.write(ramp(0, 2), 0, 2);
+        ring.closeWrite();
+        assertEquals(2, ring.await(1000));
+        assertFalse(ring.isDrained());
+        ring.skip(2);
+        assertTrue(ring.isDrained());
+        assertEquals(0, ring.await(1000));
+    }
+
+    @Test
+    public void lookaheadReadsAheadWithoutFreeingSpace() {
+        AudioRingBuffer ring = new AudioRingBuffer(8);
+        short[] out = new short[8];
+        ring.write(ramp(0, 6), 0, 6);
+        ring.read(out, 0, 2);
+        ring.write(ramp(6, 4), 0, 4);  // wraps: positions 2..9 buffered
+
+        // The lookahead cursor moves ahead of the consumer, wrapping like read()
+        assertEquals(3, ring.peekAt(5, out, 0, 3));
+        assertEquals(5, out[0]);
+        assertEquals(7, out[2]);
+        assertEquals(2, ring.peekAt(8, out, 0, 8));
+        assertEquals(9, out[1]);
+        assertEquals(0, ring.peekAt(10, out, 0, 8));
+
+        // Looked-ahead samples stay until the consumer skips them
+        assertEquals(2, ring.readPosition());
+        assertEquals(8, ring.available());
+        assertEquals(0, ring.write(ramp(10, 1), 0, 1));
+        ring.skip(3);
+        assertEquals(5, ring.readPosition());
+        assertEquals(1, ring.write(ramp(10, 1), 0, 1));
+        assertEquals(6, ring.awaitFrom(5, 0));
+    }
+
+    @Test
+    public void awaitFromWakesOnWriteAndClose() throws Exception {
+        AudioRingBuffer ring = new AudioRingBuffer(8);
+        assertEquals(0, ring.awaitFrom(0, 5));
+
+        Thread producer = new Thread(() -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                return;
+            }
+            ring.write(ramp(0, 3), 0, 3);
+        });
+        producer.start();
+        assertEquals(3, ring.awaitFrom(0, 5000));
+        producer.join();
+
+        // Nothing past position 3 is coming once the producer closes
+        ring.closeWrite();
+        assertEquals(0, ring.awaitFrom(3, 5000));
+    }
+
+    @Test
+    public void concurrentProducerAndConsumerKeepOrder() throws Exception {
+        final int total = 200000;
+        AudioRingBuffer ring = new AudioRingBuffer(256);
+        Thread producer = new Thread(() -> {
+            short[] chunk = new short[97];
+            int next = 0;
+            while (next < total) {
+                int n = Math.min(chunk.length, total - next);
+                for (int i = 0; i < n; i++) chunk[i] = (short) (next + i);
+                int off = 0;
+                while (off < n) {
+                    off += ring.write(chunk, off, n - off);
+                    if (off < n) Thread.yield();
+                }
+                next += n;
+            }
+            ring.closeWrite();
+        });
+        producer.start();
+
+        short[] buf = new short[61];
+        int expected = 0;
+        while (!ring.isDrained()) {
+            int n = ring.read(buf, 0, buf.length, 100);
+            for (int i = 0; i < n; i++) {
+                assertEquals("sample " + expected, (short) expected, buf[i]);
+                expected++;
+            }
+        }
+        producer.join();
+        assertEquals(total, expected);
+    }
+}
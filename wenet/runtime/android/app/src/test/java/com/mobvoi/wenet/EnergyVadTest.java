@@ -0,0 +1,149 @@
+package com.mobvoi.wenet;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class EnergyVadTest {
+
+    private static final int RATE = 8000;
+    private static final int FRAME = 256;
+
+    /** Records segments as {startMs, endMs}; endMs is -1 while open. */
+    private static class Segments implements StreamingVad.Listener {
+        final List<long[]> list = new ArrayList<>();
+        final List<Float> probs = new ArrayList<>();
+
+        @Override
+        public void onProbability(StreamingVad vad, long endMs, float prob) {
+            probs.add(prob);
+        }
+
+        @Override
+        public void onSegmentStart(StreamingVad vad, long startMs) {
+            list.add(new long[]{startMs, -1});
+        }
+
+        @Override
+        public void onSegmentEnd(StreamingVad vad, long startMs, long endMs) {
+            long[] last = list.get(list.size() - 1);
+            assertEquals(last[0], startMs);
+            last[1] = endMs;
+        }
+    }
+
+    /** Quiet noise (~-50 dBFS) with a loud 500 Hz tone over [toneFromMs, toneToMs). */
+    private static short[] signal(int totalMs, int toneFromMs, int toneToMs) {
+        Random r = new Random(7);
+        short[] s = new short[totalMs * RATE / 1000];
+        for (int i = 0; i < s.length; i++) {
+            double v = r.nextGaussian() * 100;
+            long ms = (long) i * 1000 / RATE;
+            if (ms >= toneFromMs && ms < toneToMs) v += 8000 * Math.sin(2 * Math.PI * 500 * i / RATE);
+            s[i] = (short) Math.round(v);
+        }
+        return s;
+    }
+
+    @Test
+    public void findsToneInNoise() {
+        EnergyVad vad = new EnergyVad(RATE, FRAME);
+        Segments seg = new Segments();
+        vad.setListener(seg);
+        short[] s = signal(3000, 1000, 2000);
+        vad.process(s, 0, s.length);
+        vad.flush();
+
+        assertEquals(1, seg.list.size());
+        assertEquals(1000, seg.list.get(0)[0], 32);
+        assertEquals(2000, seg.list.get(0)[1], 32);
+        assertEquals(0f, vad.getLastProbability(), 0f);
+    }
+
+    @Test
+    public void blockSizeDoesNotChangeDecisions() {
+        short[] s = signal(2000, 700, 1400);
+        EnergyVad whole = new EnergyVad(RATE, FRAME);
+        Segments a = new Segments();
+        whole.setListener(a);
+        whole.process(s, 0, s.length);
+
+        EnergyVad odd = new EnergyVad(RATE, FRAME);
+        Segments b = new Segments();
+        odd.setListener(b);
+        for (int off = 0; off < s.length; off += 333) {
+            odd.process(s, off, Math.min(333, s.length - off));
+        }
+        assertEquals(a.probs, b.probs);
+        assertEquals(a.list.size(), b.list.size());
+        assertEquals(a.list.get(0)[0], b.list.get(0)[0]);
+        assertEquals(a.list.get(0)[1], b.list.get(0)[1]);
+    }
+
+    @Test
+    public void flushClosesOpenSegment() {
+        EnergyVad vad = new EnergyVad(RATE, FRAME);
+        Segments seg = new Segments();
+        vad.setListener(seg);
+        short[] s = signal(1500, 1000, 1500);
+        vad.process(s, 0, s.length);
+        assertEquals(-1, seg.list.get(0)[1]);
+        vad.flush();
+        assertEquals(1500, seg.list.get(0)[1], 32);
+    }
+
+    @Test
+    public void skipKeepsTimeAndSkipNonSpeechEndsSegment() {
+        EnergyVad vad = new EnergyVad(RATE, FRAME);
+        Segments seg = new Segments();
+        vad.setListener(seg);
+        short[] s = signal(1500, 1000, 1500);
+        vad.process(s, 0, s.length);
+
+        // A plain gap keeps the segment open; a non-speech gap ends it where it starts
+        vad.skip(RATE);
+        assertEquals(-1, seg.list.get(0)[1]);
+        vad.skipNonSpeech(RATE);
+        assertEquals(1500, seg.list.get(0)[1], 32);
+
+        // Times continue after both gaps
+        short[] t = signal(1500, 1000, 1500);
+        vad.process(t, 0, t.length);
+        vad.flush();
+        assertEquals(2, seg.list.size());
+        assertEquals(4500, seg.list.get(1)[0], 32);
+    }
+
+    @Test
+    public void resetStartsANewStream() {
+        EnergyVad vad = new EnergyVad(RATE, FRAME);
+        Segments seg = new Segments();
+        vad.setListener(seg);
+        short[] s = signal(3000, 1000, 2000);
+        vad.process(s, 0, s.length);
+        vad.flush();
+        vad.reset();
+        vad.process(s, 0, s.length);
+        vad.flush();
+        assertEquals(2, seg.list.size());
+        assertEquals(seg.list.get(0)[0], seg.list.get(1)[0]);
+        assertEquals(seg.list.get(0)[1], seg.list.get(1)[1]);
+    }
+
+    @Test
+    public void noiseFloorSettlesWithinSeedWindow() {
+        NoiseFloor floor = new NoiseFloor(RATE, FRAME);
+        short[] s = signal(NoiseFloor.SEED_MS + 100, 0, 0);
+        for (int off = 0; off + FRAME <= s.length; off += FRAME) {
+            long energy = 0;
+            for (int i = off; i < off + FRAME; i++) energy += s[i] * s[i];
+            floor.update(NoiseFloor.levelDb(energy, FRAME));
+        }
+        // 100-sample RMS noise is about -50 dBFS
+        assertEquals(-50f, floor.get(), 2f);
+    }
+}
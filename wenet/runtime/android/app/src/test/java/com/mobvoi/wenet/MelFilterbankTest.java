@@ -0,0 +1,108 @@
+package com.mobvoi.wenet;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class MelFilterbankTest {
+
+    private static final int N_MELS = 40;
+    private static final int N_BINS = 201;
+
+    private static double hzToMel(double hz) {
+        return 2595 * Math.log10(1 + hz / 700);
+    }
+
+    /** HTK-style triangles over a 400-point FFT at 16 kHz, row-major like mel_filterbank.bin. */
+    private static float[] triangles() {
+        float[] dense = new float[N_MELS * N_BINS];
+        double lo = hzToMel(20), hi = hzToMel(8000);
+        for (int m = 0; m < N_MELS; m++) {
+            double left = lo + (hi - lo) * m / (N_MELS + 1);
+            double center = lo + (hi - lo) * (m + 1) / (N_MELS + 1);
+            double right = lo + (hi - lo) * (m + 2) / (N_MELS + 1);
+            for (int k = 0; k < N_BINS; k++) {
+                double mel = hzToMel(k * 16000.0 / 400);
+                double w = mel <= center ? (mel - left) / (center - left) : (right - mel) / (right - center);
+                if (w > 0) dense[m * N_BINS + k] = (float) w;
+            }
+        }
+        return dense;
+    }
+
+    /** The dense row-by-vector product, accumulated in ascending bin order. */
+    private static float[] denseApply(float[] dense, float[] power) {
+        float[] mel = new float[N_MELS];
+        for (int m = 0; m < N_MELS; m++) {
+            float val = 0f;
+            for (int k = 0; k < N_BINS; k++) val += dense[m * N_BINS + k] * power[k];
+            mel[m] = val;
+        }
+        return mel;
+    }
+
+    private static void assertSparseMatchesDense(float[] dense) {
+        MelFilterbank fb = MelFilterbank.fromDense(dense, N_MELS, N_BINS);
+        assertEquals(N_MELS, fb.getNumMels());
+        assertTrue(fb.matchesDense(dense));
+
+        Random r = new Random(9);
+        float[] power = new float[N_BINS];
+        float[] mel = new float[N_MELS];
+        for (int trial = 0; trial < 50; trial++) {
+            for (int k = 0; k < N_BINS; k++) power[k] = (float) Math.pow(10, r.nextDouble() * 12 - 6);
+            fb.apply(power, mel);
+            float[] expected = denseApply(dense, power);
+            for (int m = 0; m < N_MELS; m++) {
+                assertEquals("filter " + m, Float.floatToIntBits(expected[m]), Float.floatToIntBits(mel[m]));
+            }
+        }
+    }
+
+    @Test
+    public void sparseMatchesDenseBitForBit() {
+        float[] dense = triangles();
+        assertSparseMatchesDense(dense);
+        MelFilterbank fb = MelFilterbank.fromDense(dense, N_MELS, N_BINS);
+        assertTrue(fb.getNonZeroCount() < N_MELS * N_BINS / 4);
+    }
+
+    @Test
+    public void shippedFilterbankMatchesDense() throws IOException {
+        // Unit tests run from the module directory
+        File asset = new File("src/main/assets/mel_filterbank.bin");
+        assumeTrue(asset.isFile());
+        FloatBuffer fb = ByteBuffer.wrap(Files.readAllBytes(asset.toPath()))
+                .order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+        float[] dense = new float[fb.remaining()];
+        fb.get(dense);
+        assertEquals(N_MELS * N_BINS, dense.length);
+        assertSparseMatchesDense(dense);
+    }
+
+    @Test
+    public void allZeroFilterbankGivesZeros() {
+        MelFilterbank fb = MelFilterbank.fromDense(new float[N_MELS * N_BINS], N_MELS, N_BINS);
+        assertEquals(0, fb.getNonZeroCount());
+        float[] power = new float[N_BINS];
+        Arrays.fill(power, 1f);
+        float[] mel = new float[N_MELS];
+        fb.apply(power, mel);
+        for (float v : mel) assertEquals(0f, v, 0f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsWrongSize() {
+        MelFilterbank.fromDense(new float[N_MELS * N_BINS - 1], N_MELS, N_BINS);
+    }
+}
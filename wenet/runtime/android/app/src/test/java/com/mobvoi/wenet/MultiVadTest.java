@@ -0,0 +1,155 @@
+package com.mobvoi.wenet;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MultiVadTest {
+
+    /** Counts what it receives at its own rate; reports a fixed probability. */
+    private static class CountingVad implements StreamingVad {
+        final String name;
+        final int rate;
+        final int frame;
+        final boolean ready;
+        float prob = 0f;
+        long processed = 0;
+        long skipped = 0;
+        long skippedNonSpeech = 0;
+        int flushes = 0;
+        int resets = 0;
+        StreamingVad.Listener listener;
+
+        CountingVad(String name, int rate, int frame, boolean ready) {
+            this.name = name;
+            this.rate = rate;
+            this.frame = frame;
+            this.ready = ready;
+        }
+
+        @Override public String getName() { return name; }
+        @Override public int getSampleRate() { return rate; }
+        @Override public int getFrameSize() { return frame; }
+        @Override public boolean isReady() { return ready; }
+        @Override public void setListener(StreamingVad.Listener listener) { this.listener = listener; }
+        @Override public void process(short[] pcm, int offset, int length) { processed += length; }
+        @Override public float getLastProbability() { return prob; }
+        @Override public void skip(int length) { skipped += length; }
+        @Override public void skipNonSpeech(int length) { skippedNonSpeech += length; }
+        @Override public void flush() { flushes++; }
+        @Override public void reset() { resets++; }
+    }
+
+    @Test
+    public void frameSizeIsCommonMultipleAtInputRate() {
+        MultiVad multi = new MultiVad(16000)
+                .add(new CountingVad("a", 8000, 256, true))    // 512 at 16 kHz
+                .add(new CountingVad("b", 16000, 320, true));  // 320
+        assertEquals(2560, multi.getFrameSize());
+        assertEquals("a+b", multi.getName());
+    }
+
+    @Test
+    public void frameSizeFallsBackToSmallestOverOneSecond() {
+        MultiVad multi = new MultiVad(16000)
+                .add(new CountingVad("a", 16000, 4001, true))
+                .add(new CountingVad("b", 16000, 4003, true));
+        assertEquals(4001, multi.getFrameSize());
+        assertEquals(1, new MultiVad(16000).getFrameSize());
+    }
+
+    @Test
+    public void membersGetAudioAtTheirOwnRate() {
+        CountingVad same = new CountingVad("same", 16000, 512, true);
+        CountingVad half = new CountingVad("half", 8000, 256, true);
+        CountingVad off = new CountingVad("off", 16000, 512, false);
+        MultiVad multi = new MultiVad(16000).add(same).add(half).add(off);
+
+        short[] block = new short[2560];
+        for (int i = 0; i < 10; i++) multi.process(block, 0, block.length);
+        assertEquals(25600, same.processed);
+        assertTrue("got " + half.processed, Math.abs(half.processed - 12800) <= 1);
+        assertEquals(0, off.processed);
+    }
+
+    @Test
+    public void skipsAreConvertedWithoutDrift() {
+        CountingVad same = new CountingVad("same", 16000, 512, true);
+        CountingVad rate = new CountingVad("rate", 44100, 1024, true);
+        MultiVad multi = new MultiVad(16000).add(same).add(rate);
+        for (int i = 0; i < 7; i++) multi.skip(1001);
+        multi.skipNonSpeech(999);
+        assertEquals(7007, same.skipped);
+        assertEquals(999, same.skippedNonSpeech);
+        // Rounded per call, but the running total stays exact
+        assertEquals(7007L * 44100 / 16000, rate.skipped);
+        assertEquals(8006L * 44100 / 16000, rate.skipped + rate.skippedNonSpeech);
+    }
+
+    @Test
+    public void probabilityIsMaxOfReadyMembers() {
+        CountingVad a = new CountingVad("a", 16000, 512, true);
+        CountingVad b = new CountingVad("b", 16000, 512, true);
+        CountingVad off = new CountingVad("off", 16000, 512, false);
+        MultiVad multi = new MultiVad(16000).add(a).add(b).add(off);
+        a.prob = 0.2f;
+        b.prob = 0.7f;
+        off.prob = 1f;
+        assertEquals(0.7f, multi.getLastProbability(), 0f);
+        assertTrue(multi.isReady());
+        assertFalse(new MultiVad(16000).add(new CountingVad("x", 16000, 1, false)).isReady());
+    }
+
+    @Test
+    public void listenerFlushAndResetReachMembers() {
+        CountingVad a = new CountingVad("a", 16000, 512, true);
+        CountingVad off = new CountingVad("off", 16000, 512, false);
+        MultiVad multi = new MultiVad(16000).add(a).add(off);
+        StreamingVad.Listener listener = new StreamingVad.Listener() {
+            @Override public void onSegmentStart(StreamingVad vad, long startMs) {}
+            @Override public void onSegmentEnd(StreamingVad vad, long startMs, long endMs) {}
+        };
+        multi.setListener(listener);
+        assertSame(listener, a.listener);
+        assertSame(listener, off.listener);
+
+        multi.flush();
+        assertEquals(1, a.flushes);
+        assertEquals(0, off.flushes);
+        multi.reset();
+        assertEquals(1, a.resets);
+        assertEquals(1, off.resets);
+    }
+
+    @Test
+    public void energyMembersAtTwoRatesAgree() {
+        EnergyVad narrow = new EnergyVad();
+        EnergyVad wide = new EnergyVad(16000, 512);
+        MultiVad multi = new MultiVad(16000).add(narrow).add(wide);
+        long[] starts = new long[2];
+        multi.setListener(new StreamingVad.Listener() {
+            @Override
+            public void onSegmentStart(StreamingVad vad, long startMs) {
+                starts[vad == narrow ? 0 : 1] = startMs;
+            }
+
+            @Override
+            public void onSegmentEnd(StreamingVad vad, long startMs, long endMs) {}
+        });
+
+        // 1 s of silence-level noise, then a 1 kHz tone
+        short[] s = new short[32000];
+        Random r = new Random(11);
+        for (int i = 0; i < s.length; i++) {
+            double v = r.nextGaussian() * 100;
+            if (i >= 16000) v += 8000 * Math.sin(2 * Math.PI * 1000 * i / 16000);
+            s[i] = (short) Math.round(v);
+        }
+        int block = multi.getFrameSize();
+        for (int off = 0; off + block <= s.length; off += block) multi.process(s, off, block);
+        assertEquals(1000, starts[0], 40);
+        assertEquals(1000, starts[1], 40);
+    }
+}
@@ -0,0 +1,108 @@
+package com.mobvoi.wenet;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RealFftTest {
+
+    /** Direct O(n²) DFT in double: the definition powerSpectrum() must reproduce. */
+    private static double[] naivePower(short[] pcm, int off, float[] window) {
+        int n = window.length;
+        double[] power = new double[n / 2 + 1];
+        for (int k = 0; k <= n / 2; k++) {
+            double re = 0, im = 0;
+            for (int t = 0; t < n; t++) {
+                double x = window[t] * (pcm[off + t] / 32768.0);
+                double a = -2 * Math.PI * ((long) k * t % n) / n;
+                re += x * Math.cos(a);
+                im += x * Math.sin(a);
+            }
+            power[k] = re * re + im * im;
+        }
+        return power;
+    }
+
+    private static short[] noisyTones(long seed, int n) {
+        Random r = new Random(seed);
+        short[] s = new short[n];
+        for (int i = 0; i < n; i++) {
+            double v = 9000 * Math.sin(0.31 * i) + 3000 * Math.cos(1.7 * i + 0.4) + r.nextGaussian() * 2000;
+            s[i] = (short) Math.round(v);
+        }
+        return s;
+    }
+
+    private static void assertMatchesNaive(int n, float[] window) {
+        RealFft fft = new RealFft(n, window);
+        assertEquals(n, fft.size());
+        short[] pcm = noisyTones(n, n + 7);
+        float[] power = new float[n / 2 + 1];
+        fft.powerSpectrum(pcm, 7, power);
+        double[] expected = naivePower(pcm, 7, window);
+
+        double peak = 0;
+        for (double p : expected) peak = Math.max(peak, p);
+        for (int k = 0; k <= n / 2; k++) {
+            assertEquals("n=" + n + " bin " + k, expected[k], power[k], 1e-5 * peak);
+        }
+    }
+
+    @Test
+    public void matchesNaiveDftAt400() {
+        assertMatchesNaive(400, RealFft.hann(400));
+    }
+
+    @Test
+    public void matchesNaiveDftAtMixedRadixSizes() {
+        // Half-lengths 3, 15, 60, 64, 90, 128, 180, 240, 256: every radix and mix of them
+        int[] sizes = {6, 30, 120, 128, 180, 256, 360, 480, 512};
+        for (int n : sizes) assertMatchesNaive(n, RealFft.hann(n));
+    }
+
+    @Test
+    public void matchesNaiveDftWithoutWindow() {
+        float[] rect = new float[400];
+        Arrays.fill(rect, 1f);
+        assertMatchesNaive(400, rect);
+    }
+
+    @Test
+    public void repeatedCallsGiveTheSameSpectrum() {
+        RealFft fft = new RealFft(400, RealFft.hann(400));
+        short[] pcm = noisyTones(1, 800);
+        float[] first = new float[201];
+        float[] again = new float[201];
+        fft.powerSpectrum(pcm, 0, first);
+        fft.powerSpectrum(pcm, 400, again);
+        fft.powerSpectrum(pcm, 0, again);
+        assertArrayEquals(first, again, 0f);
+    }
+
+    @Test
+    public void pureToneLandsInItsBin() {
+        int n = 400;
+        short[] pcm = new short[n];
+        for (int t = 0; t < n; t++) pcm[t] = (short) Math.round(16000 * Math.cos(2 * Math.PI * 50 * t / n));
+        float[] rect = new float[n];
+        Arrays.fill(rect, 1f);
+        float[] power = new float[n / 2 + 1];
+        new RealFft(n, rect).powerSpectrum(pcm, 0, power);
+        int best = 0;
+        for (int k = 1; k < power.length; k++) if (power[k] > power[best]) best = k;
+        assertEquals(50, best);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOddSize() {
+        new RealFft(401, new float[401]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnsupportedFactor() {
+        new RealFft(14, new float[14]);  // half-length 7
+    }
+}
@@ -0,0 +1,134 @@
+package com.mobvoi.wenet;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ResamplerTest {
+
+    private static short[] tone(int rate, double hz, double amplitude, int n) {
+        short[] s = new short[n];
+        for (int i = 0; i < n; i++) {
+            s[i] = (short) Math.round(amplitude * Math.sin(2 * Math.PI * hz * i / rate));
+        }
+        return s;
+    }
+
+    private static short[] noise(long seed, int n) {
+        Random r = new Random(seed);
+        short[] s = new short[n];
+        for (int i = 0; i < n; i++) s[i] = (short) (r.nextGaussian() * 6000);
+        return s;
+    }
+
+    private static short[] oneShot(Resampler r, short[] in) {
+        short[] out = new short[r.maxOutput(in.length)];
+        return Arrays.copyOf(out, r.process(in, 0, in.length, out, 0));
+    }
+
+    /** RMS of s[from..] in dB, relative to a sine of peak {@code amplitude}. */
+    private static double levelDb(short[] s, int from, double amplitude) {
+        double sum = 0;
+        for (int i = from; i < s.length; i++) sum += (double) s[i] * s[i];
+        double rms = Math.sqrt(sum / (s.length - from));
+        return 20 * Math.log10(Math.max(rms, 1e-9) / (amplitude / Math.sqrt(2)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveRate() {
+        new Resampler(0, 8000);
+    }
+
+    @Test
+    public void sameRateIsPassthrough() {
+        Resampler r = new Resampler(16000, 16000);
+        short[] in = noise(1, 1000);
+        assertArrayEquals(in, oneShot(r, in));
+    }
+
+    @Test
+    public void chunkedMatchesOneShot() {
+        int[][] rates = {{48000, 8000}, {44100, 16000}, {16000, 8000}, {8000, 16000}};
+        short[] in = noise(2, 20000);
+        for (int[] rate : rates) {
+            short[] expected = oneShot(new Resampler(rate[0], rate[1]), in);
+
+            Resampler r = new Resampler(rate[0], rate[1]);
+            Random sizes = new Random(3);
+            short[] out = new short[expected.length + r.maxOutput(in.length)];
+            int n = 0;
+            for (int off = 0; off < in.length; ) {
+                int len = Math.min(in.length - off, 1 + sizes.nextInt(700));
+                int produced = r.process(in, off, len, out, n);
+                assertTrue(produced <= r.maxOutput(len));
+                n += produced;
+                off += len;
+            }
+            assertArrayEquals(rate[0] + " -> " + rate[1], expected, Arrays.copyOf(out, n));
+        }
+    }
+
+    @Test
+    public void resetRestartsTheStream() {
+        Resampler r = new Resampler(48000, 8000);
+        short[] in = noise(4, 4800);
+        short[] first = oneShot(r, in);
+        r.reset();
+        assertArrayEquals(first, oneShot(r, in));
+    }
+
+    @Test
+    public void outputLengthFollowsRatio() {
+        Resampler r = new Resampler(44100, 16000);
+        int n = oneShot(r, new short[44100]).length;
+        assertTrue("got " + n, Math.abs(n - 16000) <= 1);
+    }
+
+    @Test
+    public void stopbandIsRejected() {
+        // Above the 4 kHz output Nyquist: plain decimation would fold these into the band
+        double[] tones = {6000, 7000, 12000};
+        for (double hz : tones) {
+            short[] out = oneShot(new Resampler(48000, 8000), tone(48000, hz, 20000, 48000));
+            double db = levelDb(out, 400, 20000);
+            assertTrue(hz + " Hz at " + db + " dB", db < -60);
+        }
+        short[] out = oneShot(new Resampler(44100, 16000), tone(44100, 10000, 20000, 44100));
+        double db = levelDb(out, 800, 20000);
+        assertTrue("10 kHz at " + db + " dB", db < -60);
+    }
+
+    @Test
+    public void passbandKeepsItsLevel() {
+        double[] tones = {300, 1000, 2000};  // below the transition band
+        for (double hz : tones) {
+            short[] out = oneShot(new Resampler(48000, 8000), tone(48000, hz, 20000, 48000));
+            double db = levelDb(out, 400, 20000);
+            assertEquals(hz + " Hz", 0.0, db, 0.5);
+        }
+        short[] out = oneShot(new Resampler(8000, 16000), tone(8000, 1000, 20000, 8000));
+        assertEquals("upsampled", 0.0, levelDb(out, 400, 20000), 0.5);
+    }
+
+    @Test
+    public void interleavedBufferUsesFirstChannel() {
+        short[] left = noise(5, 4800);
+        ByteBuffer pcm = ByteBuffer.allocate(left.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+        for (short s : left) {
+            pcm.putShort(s);
+            pcm.putShort((short) -s);
+        }
+        pcm.flip();
+
+        Resampler r = new Resampler(48000, 16000);
+        short[] out = new short[r.maxOutput(left.length)];
+        int n = r.process(pcm, 2, out, 0);
+        assertEquals(pcm.limit(), pcm.position());
+        assertArrayEquals(oneShot(new Resampler(48000, 16000), left), Arrays.copyOf(out, n));
+    }
+}
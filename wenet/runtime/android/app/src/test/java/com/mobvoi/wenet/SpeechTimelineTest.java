@@ -0,0 +1,90 @@
+package com.mobvoi.wenet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SpeechTimelineTest {
+
+    @Test
+    public void reportsClosedAndOpenSpans() {
+        SpeechTimeline tl = new SpeechTimeline();
+        tl.addSkip(100);
+        tl.addSpeech(50);   // [100, 150)
+        tl.addSkip(100);
+        tl.addSpeech(30);   // [250, 280), still open
+        assertEquals(280, tl.getDecided());
+
+        assertFalse(tl.hasSpeech(0, 100));
+        assertTrue(tl.hasSpeech(0, 101));
+        assertTrue(tl.hasSpeech(149, 200));
+        assertFalse(tl.hasSpeech(150, 250));
+        assertTrue(tl.hasSpeech(150, 251));
+        assertTrue(tl.hasSpeech(270, 400));
+    }
+
+    @Test
+    public void consecutiveSpeechExtendsOneSpan() {
+        SpeechTimeline tl = new SpeechTimeline();
+        tl.addSpeech(10);
+        tl.addSpeech(10);
+        tl.addSkip(10);   // closes [0, 20)
+        assertTrue(tl.hasSpeech(19, 20));
+        assertFalse(tl.hasSpeech(20, 30));
+    }
+
+    @Test
+    public void releasedSpansDoNotFillTheTimeline() {
+        SpeechTimeline tl = new SpeechTimeline();
+        // Far more spans than fit, but the reader keeps up
+        for (int i = 0; i < 2000; i++) {
+            tl.addSpeech(10);
+            tl.addSkip(10);
+            long start = i * 20L;
+            assertTrue(tl.hasSpeech(start, start + 10));
+            assertFalse(tl.hasSpeech(start + 10, start + 20));
+        }
+    }
+
+    @Test
+    public void failsOpenWhenReaderFallsBehind() {
+        SpeechTimeline tl = new SpeechTimeline();
+        for (int i = 0; i < 300; i++) {
+            tl.addSpeech(10);
+            tl.addSkip(10);
+        }
+        // Spans past the 256th were dropped: report speech everywhere rather than lose any
+        assertTrue(tl.hasSpeech(10, 20));
+        assertTrue(tl.hasSpeech(5990, 6000));
+    }
+
+    @Test
+    public void awaitDecidedWaitsForTheWriter() throws Exception {
+        SpeechTimeline tl = new SpeechTimeline();
+        assertFalse(tl.awaitDecided(100, 5));
+
+        Thread writer = new Thread(() -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                return;
+            }
+            tl.addSkip(60);
+            tl.addSpeech(60);
+        });
+        writer.start();
+        assertTrue(tl.awaitDecided(100, 5000));
+        writer.join();
+        assertTrue(tl.getDecided() >= 100);
+    }
+
+    @Test
+    public void finishReleasesWaitersPastTheEnd() {
+        SpeechTimeline tl = new SpeechTimeline();
+        tl.addSkip(50);
+        tl.finish();
+        assertTrue(tl.isFinished());
+        assertTrue(tl.awaitDecided(1000, 5000));
+        assertFalse(tl.hasSpeech(0, 1000));
+    }
+}
@@ -0,0 +1,85 @@
+package com.mobvoi.wenet;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class TranscriptDeltaTest {
+
+    /** Encodes a delta the way the native decoder does; records are {index, start, end, flags}. */
+    private static ByteBuffer delta(String[] newStrings, int[][] records) {
+        ByteBuffer buf = ByteBuffer.allocate(4096).order(ByteOrder.nativeOrder());
+        buf.putInt(newStrings.length);
+        for (String s : newStrings) {
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            buf.putInt(b.length);
+            buf.put(b);
+        }
+        buf.putInt(records.length);
+        for (int[] r : records) {
+            for (int v : r) buf.putInt(v);
+        }
+        buf.flip();
+        return buf;
+    }
+
+    @Test
+    public void decodesStringsAndRecords() {
+        TranscriptDelta d = new TranscriptDelta();
+        d.decode(delta(new String[]{"안녕", "하세요"},
+                new int[][]{{0, 0, 320, 0}, {1, 320, 800, 0}, {-1, 800, 800, 1}}));
+        assertEquals(3, d.size());
+        assertEquals("안녕", d.word(0));
+        assertEquals("하세요", d.word(1));
+        assertEquals(320, d.startMs(1));
+        assertEquals(800, d.endMs(1));
+        assertFalse(d.isSentenceEnd(1));
+        assertNull(d.word(2));
+        assertTrue(d.isSentenceEnd(2));
+    }
+
+    @Test
+    public void poolPersistsAcrossDeltas() {
+        TranscriptDelta d = new TranscriptDelta();
+        d.decode(delta(new String[]{"a", "b"}, new int[][]{{0, 0, 10, 0}}));
+        d.decode(delta(new String[]{"c"}, new int[][]{{1, 10, 20, 0}, {2, 20, 30, 0}, {0, 30, 40, 0}}));
+        assertEquals(3, d.size());
+        assertEquals("b", d.word(0));
+        assertEquals("c", d.word(1));
+        assertEquals("a", d.word(2));
+        // The pooled String is reused, not decoded again
+        String first = d.word(2);
+        d.decode(delta(new String[0], new int[][]{{0, 40, 50, 0}}));
+        assertSame(first, d.word(0));
+    }
+
+    @Test
+    public void resetClearsThePool() {
+        TranscriptDelta d = new TranscriptDelta();
+        d.decode(delta(new String[]{"a"}, new int[][]{{0, 0, 10, 0}}));
+        d.reset();
+        assertEquals(0, d.size());
+        d.decode(delta(new String[0], new int[][]{{0, 0, 10, 0}}));
+        assertNull(d.word(0));
+        d.decode(delta(new String[]{"z"}, new int[][]{{0, 0, 10, 0}}));
+        assertEquals("z", d.word(0));
+    }
+
+    @Test
+    public void growsForLongStringsAndManyRecords() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 50; i++) sb.append("가");  // 150 UTF-8 bytes
+        int[][] records = new int[100][];
+        for (int i = 0; i < records.length; i++) records[i] = new int[]{0, i * 10, i * 10 + 10, 0};
+
+        TranscriptDelta d = new TranscriptDelta();
+        d.decode(delta(new String[]{sb.toString()}, records));
+        assertEquals(100, d.size());
+        assertEquals(sb.toString(), d.word(99));
+        assertEquals(990, d.startMs(99));
+    }
+}